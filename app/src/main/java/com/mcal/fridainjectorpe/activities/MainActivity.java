@@ -34,29 +34,31 @@ import com.mcal.filepicker.model.DialogProperties;
 import com.mcal.filepicker.view.FilePickerDialog;
 import com.mcal.fridainjectorpe.BuildConfig;
 import com.mcal.fridainjectorpe.R;
+import com.mcal.fridainjectorpe.async.DocumentLoader;
 import com.mcal.fridainjectorpe.data.Preferences;
 import com.mcal.fridainjectorpe.databinding.ActivityMainBinding;
 import com.mcal.fridainjectorpe.databinding.DialogGotoBinding;
+import com.mcal.fridainjectorpe.databinding.DialogLoadingBinding;
 import com.mcal.fridainjectorpe.editor.TextEditor;
 import com.mcal.fridainjectorpe.editor.lang.javascript.JavaScriptLanguage;
+import com.mcal.fridainjectorpe.editor.util.Document;
 import com.mcal.fridainjectorpe.injector.FridaAgent;
 import com.mcal.fridainjectorpe.injector.FridaInjector;
+import com.mcal.fridainjectorpe.injector.OnAgentReady;
 import com.mcal.fridainjectorpe.injector.OnMessage;
 import com.mcal.fridainjectorpe.model.BaseActivity;
 import com.mcal.fridainjectorpe.utils.ExceptionHandler;
 import com.mcal.fridainjectorpe.view.AppListDialog;
 
+import org.jetbrains.annotations.NotNull;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
-public class MainActivity extends BaseActivity implements OnMessage {
+public class MainActivity extends BaseActivity implements OnMessage, OnAgentReady {
 
     @SuppressLint("StaticFieldLeak")
     public static AppCompatEditText apkPackage;
@@ -66,6 +68,7 @@ public class MainActivity extends BaseActivity implements OnMessage {
     public AppCompatEditText scriptPath;
     public AppCompatImageButton selectApk, openScript;
     public AppCompatButton run;
+    private final DocumentLoader documentLoader = new DocumentLoader();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -137,19 +140,31 @@ public class MainActivity extends BaseActivity implements OnMessage {
             try {
                 if (!apkPackage.getText().toString().isEmpty()) {
                     //if (!scriptPath.getText().toString().isEmpty()) {
-                    if (!editor.getText().toString().isEmpty()) {
+                    if (editor.getText().length() > 0) {
                         // build an instance of FridaInjector providing binaries for arm/arm64/x86/x86_64 as needed
                         // assets/frida-inject-12.10.4-android-arm64
-                        FridaInjector fridaInjector = new FridaInjector.Builder(MainActivity.this)
+                        FridaInjector.Builder injectorBuilder = new FridaInjector.Builder(MainActivity.this)
                                 .withArmInjector("frida-inject-14.2.18-android-arm")
                                 .withArm64Injector("frida-inject-14.2.18-android-arm64")
                                 .withX86Injector("frida-inject-14.2.18-android-x86")
                                 .withX86_64Injector("frida-inject-14.2.18-android-x86_64")
-                                .build();
+                                .withRuntime(Preferences.agentRuntime());
+                        if (Preferences.isProfileStartup()) {
+                            injectorBuilder.withStartupProfiling(MainActivity.this);
+                        }
+                        FridaInjector fridaInjector = injectorBuilder.build();
 
-                        // build an instance of FridaAgent
-                        FridaAgent fridaAgent = new FridaAgent.Builder(MainActivity.this)
-                                .withAgentFromString(editor.getText().toString())
+                        // build an instance of FridaAgent, resolving require()/import against the script's directory
+                        FridaAgent.Builder agentBuilder = new FridaAgent.Builder(MainActivity.this);
+                        String script = scriptPath.getText().toString();
+                        if (!script.isEmpty()) {
+                            agentBuilder.withAgentFromDocument(editor.getText(), new File(script).getParentFile());
+                        } else {
+                            agentBuilder.withAgentFromDocument(editor.getText());
+                        }
+                        FridaAgent fridaAgent = agentBuilder
+                                .withMinify(Preferences.isMinifyAgent())
+                                .withTrimPrelude(Preferences.isTrimPrelude())
                                 .withOnMessage(MainActivity.this)
                                 .build();
 
@@ -197,18 +212,38 @@ public class MainActivity extends BaseActivity implements OnMessage {
     }
 
     private void openFile(String filePath) {
-        try {
-            InputStream is = new FileInputStream(new File(filePath));
-            ByteArrayOutputStream os = new ByteArrayOutputStream();
-            byte[] buffer = new byte[65535];
-            for (int len = is.read(buffer); len != -1; len = is.read(buffer)) {
-                os.write(buffer, 0, len);
+        DialogLoadingBinding loadingBinding = DialogLoadingBinding.inflate(getLayoutInflater());
+        AlertDialog progressDialog = new AlertDialog.Builder(MainActivity.this)
+                .setTitle(R.string.loading_script)
+                .setView(loadingBinding.getRoot())
+                .setNegativeButton(android.R.string.cancel, (dialog, which) -> documentLoader.cancel())
+                .setCancelable(false)
+                .show();
+        documentLoader.load(new File(filePath), StandardCharsets.UTF_8, editor, new DocumentLoader.Callback() {
+            @Override
+            public void onProgress(int percent) {
+                loadingBinding.progress.setProgress(percent);
             }
-            byte[] bytes = os.toByteArray();
-            editor.setText(new String(bytes, StandardCharsets.UTF_8));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+
+            @Override
+            public void onLoaded(@NotNull Document doc) {
+                progressDialog.dismiss();
+                editor.setDocument(doc);
+            }
+
+            @Override
+            public void onFailed(@NotNull IOException e) {
+                progressDialog.dismiss();
+                e.printStackTrace();
+                Toast.makeText(MainActivity.this, e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        documentLoader.shutdown();
+        super.onDestroy();
     }
 
     @Override
@@ -220,4 +255,16 @@ public class MainActivity extends BaseActivity implements OnMessage {
             e.printStackTrace();
         }
     }
+
+    @Override
+    public void onAgentReady(String packageName, String runtime, long latencyMs, String recommendedRuntime) {
+        String message;
+        if (recommendedRuntime != null && !recommendedRuntime.equals(runtime)) {
+            message = getString(R.string.agent_ready_recommended, packageName, latencyMs, runtime, recommendedRuntime);
+        } else {
+            message = getString(R.string.agent_ready, packageName, latencyMs, runtime);
+        }
+        Log.i("FridaAndroidInject", message);
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.mcal.fridainjectorpe.async;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import com.mcal.fridainjectorpe.data.AppMetadataCache;
+import com.mcal.fridainjectorpe.data.dto.applist.PackageInfoHolder;
+import com.mcal.fridainjectorpe.data.dto.applist.ViewHolder;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads application icons for visible rows only, at row size, through a
+ * memory-bounded LRU shared by every application picker.
+ */
+public class AppIconLoader {
+    private static final int MEMORY_BUDGET = 4 * 1024 * 1024;
+
+    private static final LruCache<String, Bitmap> sMemoryCache = new LruCache<String, Bitmap>(MEMORY_BUDGET) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(2);
+    private final AppMetadataCache mCache;
+    private final PackageManager mPm;
+
+    public AppIconLoader(@NotNull Context context) {
+        mCache = AppMetadataCache.getInstance(context);
+        mPm = context.getPackageManager();
+    }
+
+    @NotNull
+    private static String key(@NotNull PackageInfoHolder pkg) {
+        return pkg.packageName + ":" + pkg.lastUpdateTime;
+    }
+
+    /**
+     * Shows the icon of pkg in the row, cancelling the load still pending for
+     * whatever the recycled row showed before.
+     */
+    public void bind(@NotNull ViewHolder holder, @NotNull PackageInfoHolder pkg) {
+        if (pkg.packageName.equals(holder.iconPackage) && holder.iconTask != null) {
+            return;
+        }
+        if (holder.iconTask != null) {
+            holder.iconTask.cancel(false);
+            holder.iconTask = null;
+        }
+        holder.iconPackage = pkg.packageName;
+
+        final String key = key(pkg);
+        Bitmap icon = sMemoryCache.get(key);
+        if (icon != null) {
+            holder.packageIcon.setImageBitmap(icon);
+            return;
+        }
+        holder.packageIcon.setImageDrawable(null);
+        holder.iconTask = mExecutor.submit(() -> {
+            Bitmap bitmap = mCache.loadIcon(pkg.packageName, mPm);
+            if (bitmap == null) {
+                return;
+            }
+            sMemoryCache.put(key, bitmap);
+            mHandler.post(() -> {
+                if (pkg.packageName.equals(holder.iconPackage)) {
+                    holder.packageIcon.setImageBitmap(bitmap);
+                    holder.iconTask = null;
+                }
+            });
+        });
+    }
+
+    public void shutdown() {
+        mExecutor.shutdownNow();
+    }
+}
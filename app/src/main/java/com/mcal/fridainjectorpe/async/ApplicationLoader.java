@@ -1,12 +1,12 @@
 package com.mcal.fridainjectorpe.async;
 
-import android.app.ProgressDialog;
 import android.content.Context;
-import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 
+import com.mcal.fridainjectorpe.data.AppMetadataCache;
 import com.mcal.fridainjectorpe.data.dto.applist.AppInteractor;
 import com.mcal.fridainjectorpe.data.dto.applist.PackageInfoHolder;
 import com.mcal.fridainjectorpe.utils.CommonUtils;
@@ -14,103 +14,154 @@ import com.mcal.fridainjectorpe.utils.CommonUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.lang.ref.WeakReference;
+import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-
-public class ApplicationLoader extends AsyncTask<String, String, ArrayList<PackageInfoHolder>> {
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads installed applications on a small worker pool and streams them to the
+ * interactor as they are resolved. Cached entries are published first; only
+ * packages that changed since they were cached are loaded again.
+ */
+public class ApplicationLoader {
     public WeakReference<Context> context;
     AppInteractor interactor;
-    private ProgressDialog packageLoadDialog;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor;
+    private final ConcurrentLinkedQueue<PackageInfoHolder> mLoaded = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean();
+    private final ThreadLocal<Collator> mCollator = new ThreadLocal<Collator>() {
+        @Override
+        protected Collator initialValue() {
+            Collator collator = Collator.getInstance();
+            collator.setStrength(Collator.SECONDARY);
+            return collator;
+        }
+    };
+    private volatile boolean mCancelled;
 
     public ApplicationLoader(Context context, AppInteractor interactor) {
         this.context = new WeakReference<>(context);
         this.interactor = interactor;
+        mExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
     }
 
-    @Override
-    protected ArrayList<PackageInfoHolder> doInBackground(String... params) {
-        publishProgress("Retrieving installed application");
-        return getInstalledApps(context.get());
-    }
-
-    @Override
-    protected void onPostExecute(ArrayList<PackageInfoHolder> AllPackages) {
-        interactor.setup(AllPackages);
-        if (!isCancelled()) {
-            dismissProgressDialog();
+    public void execute() {
+        Context ctx = context.get();
+        if (ctx == null) {
+            return;
         }
+        Context appContext = ctx.getApplicationContext();
+        mExecutor.execute(() -> load(appContext));
     }
 
-    public void doProgress(String value) {
-        publishProgress(value);
-    }
-
-    @Override
-    protected void onPreExecute() {
-        showProgressDialog();
-    }
-
-    @Override
-    protected void onProgressUpdate(@NotNull String... text) {
-        packageLoadDialog.setMessage(text[0]);
+    public void cancel() {
+        mCancelled = true;
+        mExecutor.shutdownNow();
     }
 
-    public void showProgressDialog() {
-        if (packageLoadDialog == null) {
-            packageLoadDialog = new ProgressDialog(context.get());
-            packageLoadDialog.setIndeterminate(false);
-            packageLoadDialog.setCancelable(false);
-            packageLoadDialog.setInverseBackgroundForced(false);
-            packageLoadDialog.setCanceledOnTouchOutside(false);
-            packageLoadDialog.setMessage("Loading installed applications...");
-        }
-        packageLoadDialog.show();
+    public boolean isCancelled() {
+        return mCancelled;
     }
 
-    public void dismissProgressDialog() {
-        if (packageLoadDialog != null && packageLoadDialog.isShowing()) {
-            packageLoadDialog.dismiss();
+    private void load(@NotNull Context context) {
+        AppMetadataCache cache = AppMetadataCache.getInstance(context);
+        ArrayList<PackageInfoHolder> cached = cache.getAll();
+        for (PackageInfoHolder holder : cached) {
+            setSortKey(holder);
         }
-    }
-
-    public ArrayList<PackageInfoHolder> getInstalledApps(@NotNull Context context) {
-        ArrayList<PackageInfoHolder> res = new ArrayList<>();
-        List<PackageInfo> packages = context.getPackageManager().getInstalledPackages(0);
-
-        int totalPackages = packages.size();
+        Collections.sort(cached, PackageInfoHolder.LABEL_ORDER);
+        mHandler.post(() -> {
+            if (!mCancelled) {
+                interactor.setup(cached);
+            }
+        });
 
-        for (int i = 0; i < totalPackages; i++) {
-            PackageInfo p = packages.get(i);
+        PackageManager pm = context.getPackageManager();
+        List<PackageInfo> packages = pm.getInstalledPackages(0);
+        HashSet<String> installed = new HashSet<>();
+        ArrayList<PackageInfo> changed = new ArrayList<>();
+        for (PackageInfo p : packages) {
             if (!CommonUtils.isSystemPackage(p)) {
-                ApplicationInfo appInfo = null;
-                try {
-                    appInfo = context.getPackageManager().getApplicationInfo(p.packageName, 0);
-                } catch (PackageManager.NameNotFoundException e) {
-                    e.printStackTrace();
+                installed.add(p.packageName);
+                if (!cache.isFresh(p.packageName, p.lastUpdateTime)) {
+                    changed.add(p);
                 }
+            }
+        }
 
-                int count = i + 1;
-
-                final PackageInfoHolder newInfo = new PackageInfoHolder();
-                newInfo.packageLabel = p.applicationInfo.loadLabel(context.getPackageManager()).toString();
-
-                doProgress("Loading application " + count + " of " + totalPackages + " (" + newInfo.packageLabel + ")");
-
-                newInfo.packageName = p.packageName;
-                newInfo.packageVersion = p.versionName;
-
-                if (appInfo != null) {
-                    newInfo.packageFilePath = appInfo.publicSourceDir;
+        AtomicInteger remaining = new AtomicInteger(changed.size());
+        Runnable finish = () -> {
+            cache.retain(installed);
+            cache.save();
+            mHandler.post(() -> {
+                if (!mCancelled) {
+                    drain();
+                    interactor.onLoadFinished(installed);
+                }
+            });
+            mExecutor.shutdown();
+        };
+        if (changed.isEmpty()) {
+            finish.run();
+            return;
+        }
+        for (PackageInfo p : changed) {
+            mExecutor.execute(() -> {
+                if (mCancelled) {
+                    return;
+                }
+                PackageInfoHolder holder = loadPackage(pm, p);
+                cache.put(holder, p.lastUpdateTime);
+                mLoaded.add(holder);
+                if (mDrainScheduled.compareAndSet(false, true)) {
+                    mHandler.post(this::drain);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    finish.run();
                 }
+            });
+        }
+    }
 
-                newInfo.packageIcon = p.applicationInfo.loadIcon(context.getPackageManager());
-                res.add(newInfo);
-            }
+    /**
+     * Hands everything resolved since the last drain to the interactor in one batch,
+     * so that a burst of loaded packages costs a single adapter refresh.
+     */
+    private void drain() {
+        mDrainScheduled.set(false);
+        if (mCancelled || mLoaded.isEmpty()) {
+            return;
+        }
+        ArrayList<PackageInfoHolder> batch = new ArrayList<>();
+        PackageInfoHolder holder;
+        while ((holder = mLoaded.poll()) != null) {
+            batch.add(holder);
         }
-        Comparator<PackageInfoHolder> AppNameComparator = (o1, o2) -> o1.getPackageLabel().toLowerCase().compareTo(o2.getPackageLabel().toLowerCase());
-        Collections.sort(res, AppNameComparator);
-        return res;
+        interactor.add(batch);
+    }
+
+    @NotNull
+    private PackageInfoHolder loadPackage(@NotNull PackageManager pm, @NotNull PackageInfo p) {
+        final PackageInfoHolder newInfo = new PackageInfoHolder();
+        newInfo.packageLabel = p.applicationInfo.loadLabel(pm).toString();
+        newInfo.packageName = p.packageName;
+        newInfo.packageVersion = p.versionName;
+        newInfo.packageFilePath = p.applicationInfo.publicSourceDir;
+        newInfo.lastUpdateTime = p.lastUpdateTime;
+        setSortKey(newInfo);
+        return newInfo;
+    }
+
+    private void setSortKey(@NotNull PackageInfoHolder holder) {
+        holder.sortKey = mCollator.get().getCollationKey(holder.getPackageLabel());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,184 @@
+package com.mcal.fridainjectorpe.async;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mcal.fridainjectorpe.editor.lang.Language;
+import com.mcal.fridainjectorpe.editor.util.Document;
+import com.mcal.fridainjectorpe.editor.util.TextBuffer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads a file into a new Document on a background thread. The bytes are
+ * decoded chunk by chunk straight into the array that becomes the document's
+ * storage, and line lengths are counted as each chunk is decoded, so the text
+ * is neither copied nor scanned again afterwards.
+ */
+public class DocumentLoader {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private AtomicBoolean mCancelled = new AtomicBoolean();
+
+    /**
+     * Starts loading file, cancelling the load in progress, if any. The
+     * callback is invoked on the main thread, and not at all once the load
+     * has been cancelled.
+     */
+    public void load(@NotNull File file, @NotNull Charset charset,
+                     @NotNull Document.TextFieldMetrics metrics, @NotNull Callback callback) {
+        cancel();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        mCancelled = cancelled;
+        mExecutor.execute(() -> {
+            try {
+                Document doc = read(file, charset, metrics, cancelled, callback);
+                if (doc != null) {
+                    post(cancelled, () -> callback.onLoaded(doc));
+                }
+            } catch (IOException e) {
+                post(cancelled, () -> callback.onFailed(e));
+            } catch (OutOfMemoryError e) {
+                post(cancelled, () -> callback.onFailed(new IOException("Not enough memory to open " + file, e)));
+            }
+        });
+    }
+
+    public void cancel() {
+        mCancelled.set(true);
+    }
+
+    public void shutdown() {
+        cancel();
+        mExecutor.shutdownNow();
+    }
+
+    private void post(@NotNull AtomicBoolean cancelled, @NotNull Runnable r) {
+        mHandler.post(() -> {
+            if (!cancelled.get()) {
+                r.run();
+            }
+        });
+    }
+
+    /**
+     * Returns the loaded document, or null if the load was cancelled.
+     */
+    @Nullable
+    private Document read(@NotNull File file, @NotNull Charset charset, @NotNull Document.TextFieldMetrics metrics,
+                          @NotNull AtomicBoolean cancelled, @NotNull Callback callback) throws IOException {
+        long size = file.length();
+        // UTF-8 and single-byte charsets never decode to more chars than bytes
+        int capacity = size < Integer.MAX_VALUE ? TextBuffer.memoryNeeded((int) size) : -1;
+        if (capacity < 0) {
+            throw new IOException("File too large: " + file);
+        }
+
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer in = ByteBuffer.allocate(CHUNK_SIZE);
+        // the last char is kept free for the EOF sentinel
+        CharBuffer out = CharBuffer.wrap(new char[capacity], 0, capacity - 1);
+        int[] lineLengths = new int[64];
+        int lineCount = 0;
+        int lineStart = 0;
+        long read = 0;
+        int lastPercent = -1;
+
+        try (InputStream is = new FileInputStream(file)) {
+            boolean eof = false;
+            while (!eof) {
+                if (cancelled.get()) {
+                    return null;
+                }
+                int n = is.read(in.array(), in.position(), in.remaining());
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    in.position(in.position() + n);
+                    read += n;
+                }
+
+                in.flip();
+                int decodedFrom = out.position();
+                while (decoder.decode(in, out, eof).isOverflow()) {
+                    out = grow(out);
+                }
+                if (eof) {
+                    while (decoder.flush(out).isOverflow()) {
+                        out = grow(out);
+                    }
+                }
+                in.compact();
+
+                char[] text = out.array();
+                int decodedTo = out.position();
+                for (int i = decodedFrom; i < decodedTo; i++) {
+                    if (text[i] == Language.NEWLINE) {
+                        if (lineCount == lineLengths.length - 1) {
+                            int[] temp = new int[lineLengths.length * 2];
+                            System.arraycopy(lineLengths, 0, temp, 0, lineCount);
+                            lineLengths = temp;
+                        }
+                        lineLengths[lineCount++] = i + 1 - lineStart;
+                        lineStart = i + 1;
+                    }
+                }
+
+                int percent = size > 0 ? (int) Math.min(100, read * 100 / size) : 100;
+                if (percent != lastPercent) {
+                    lastPercent = percent;
+                    post(cancelled, () -> callback.onProgress(percent));
+                }
+            }
+        }
+
+        int textSize = out.position();
+        // the last line ends with the EOF sentinel
+        lineLengths[lineCount++] = textSize + 1 - lineStart;
+        Document doc = new Document(metrics);
+        doc.setBuffer(out.array(), textSize, lineLengths, lineCount);
+        return doc;
+    }
+
+    /**
+     * Moves the decoded text into a larger array, for files that grew while
+     * being read or charsets that decode to more chars than bytes.
+     */
+    @NotNull
+    private static CharBuffer grow(@NotNull CharBuffer out) {
+        char[] text = out.array();
+        int used = out.position();
+        char[] temp = new char[text.length + (text.length >> 1) + CHUNK_SIZE];
+        System.arraycopy(text, 0, temp, 0, used);
+        return CharBuffer.wrap(temp, used, temp.length - 1 - used);
+    }
+
+    public interface Callback {
+        /**
+         * Reports the share of the file read so far, from 0 to 100.
+         */
+        void onProgress(int percent);
+
+        void onLoaded(@NotNull Document doc);
+
+        void onFailed(@NotNull IOException e);
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2020 Тимашков Иван
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.mcal.fridainjectorpe.data;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+
+import com.mcal.fridainjectorpe.data.dto.applist.PackageInfoHolder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Persistent cache of installed application metadata for the application picker.
+ * <p>
+ * Entries are keyed by package name and validated against the package's
+ * lastUpdateTime; icons are stored downsampled to list row size.
+ */
+public class AppMetadataCache {
+    private static final int VERSION = 2;
+    private static final int ICON_SIZE_DP = 40;
+
+    private static AppMetadataCache sInstance;
+
+    private final File mDir;
+    private final File mIndex;
+    private final int mIconSize;
+    private final HashMap<String, Entry> mEntries = new HashMap<>();
+    private boolean mLoaded;
+    private boolean mDirty;
+
+    private AppMetadataCache(@NotNull Context context) {
+        mDir = new File(context.getCacheDir(), "app_metadata");
+        mIndex = new File(mDir, "index");
+        mIconSize = Math.round(ICON_SIZE_DP * context.getResources().getDisplayMetrics().density);
+    }
+
+    @NotNull
+    public static synchronized AppMetadataCache getInstance(@NotNull Context context) {
+        if (sInstance == null) {
+            sInstance = new AppMetadataCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns every cached application, reading the index from disk on first use.
+     */
+    @NotNull
+    public synchronized ArrayList<PackageInfoHolder> getAll() {
+        load();
+        ArrayList<PackageInfoHolder> res = new ArrayList<>(mEntries.size());
+        for (Entry entry : mEntries.values()) {
+            res.add(toHolder(entry));
+        }
+        return res;
+    }
+
+    /**
+     * Whether the package is cached and has not been updated since.
+     */
+    public synchronized boolean isFresh(@NotNull String packageName, long lastUpdateTime) {
+        load();
+        Entry entry = mEntries.get(packageName);
+        return entry != null && entry.mLastUpdateTime == lastUpdateTime;
+    }
+
+    /**
+     * Stores the application; safe to call from several loader threads at once.
+     * A previously stored icon of an older version of the package is dropped.
+     */
+    public void put(@NotNull PackageInfoHolder holder, long lastUpdateTime) {
+        Entry entry = new Entry();
+        entry.mPackageName = holder.packageName;
+        entry.mLastUpdateTime = lastUpdateTime;
+        entry.mLabel = holder.packageLabel;
+        entry.mVersion = holder.packageVersion != null ? holder.packageVersion : "";
+        entry.mSourceDir = holder.packageFilePath != null ? holder.packageFilePath : "";
+        synchronized (this) {
+            load();
+            Entry old = mEntries.put(entry.mPackageName, entry);
+            if (old != null && old.mLastUpdateTime != lastUpdateTime) {
+                getIconFile(entry.mPackageName).delete();
+            }
+            mDirty = true;
+        }
+    }
+
+    /**
+     * Returns the row-sized icon of the package, rendering and storing it on first use.
+     */
+    @Nullable
+    public Bitmap loadIcon(@NotNull String packageName, @NotNull PackageManager pm) {
+        File file = getIconFile(packageName);
+        if (file.exists()) {
+            Bitmap icon = BitmapFactory.decodeFile(file.getPath());
+            if (icon != null) {
+                return icon;
+            }
+        }
+        try {
+            return writeIcon(packageName, pm.getApplicationIcon(packageName));
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Drops entries of packages that are no longer installed.
+     */
+    public synchronized void retain(@NotNull Set<String> packageNames) {
+        load();
+        Iterator<String> it = mEntries.keySet().iterator();
+        while (it.hasNext()) {
+            String packageName = it.next();
+            if (!packageNames.contains(packageName)) {
+                it.remove();
+                getIconFile(packageName).delete();
+                mDirty = true;
+            }
+        }
+    }
+
+    public synchronized void save() {
+        if (!mDirty) {
+            return;
+        }
+        mDir.mkdirs();
+        File tmp = new File(mDir, "index.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(VERSION);
+            out.writeInt(mEntries.size());
+            for (Entry entry : mEntries.values()) {
+                out.writeUTF(entry.mPackageName);
+                out.writeLong(entry.mLastUpdateTime);
+                out.writeUTF(entry.mLabel);
+                out.writeUTF(entry.mVersion);
+                out.writeUTF(entry.mSourceDir);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (tmp.renameTo(mIndex)) {
+            mDirty = false;
+        }
+    }
+
+    private void load() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        if (!mIndex.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mIndex)))) {
+            if (in.readInt() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry();
+                entry.mPackageName = in.readUTF();
+                entry.mLastUpdateTime = in.readLong();
+                entry.mLabel = in.readUTF();
+                entry.mVersion = in.readUTF();
+                entry.mSourceDir = in.readUTF();
+                mEntries.put(entry.mPackageName, entry);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            mEntries.clear();
+        }
+    }
+
+    @NotNull
+    private PackageInfoHolder toHolder(@NotNull Entry entry) {
+        PackageInfoHolder holder = new PackageInfoHolder();
+        holder.packageName = entry.mPackageName;
+        holder.packageLabel = entry.mLabel;
+        holder.packageVersion = entry.mVersion;
+        holder.packageFilePath = entry.mSourceDir;
+        holder.lastUpdateTime = entry.mLastUpdateTime;
+        return holder;
+    }
+
+    /**
+     * Renders the icon at row size, stores it and returns the downsampled bitmap.
+     */
+    @NotNull
+    private Bitmap writeIcon(@NotNull String packageName, @NotNull Drawable icon) {
+        icon = icon.mutate();
+        Bitmap bitmap = Bitmap.createBitmap(mIconSize, mIconSize, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        icon.setBounds(0, 0, mIconSize, mIconSize);
+        icon.draw(canvas);
+        synchronized (this) {
+            mDir.mkdirs();
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(getIconFile(packageName)))) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return bitmap;
+    }
+
+    @NotNull
+    private File getIconFile(@NotNull String packageName) {
+        return new File(mDir, packageName + ".png");
+    }
+
+    private static class Entry {
+        String mPackageName;
+        long mLastUpdateTime;
+        String mLabel;
+        String mVersion;
+        String mSourceDir;
+    }
+}
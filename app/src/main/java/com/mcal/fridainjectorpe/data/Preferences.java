@@ -60,4 +60,32 @@ public final class Preferences {
     public static void setFullscreenMode(boolean value) {
         preferences.edit().putBoolean("fullscreen_mode", value).apply();
     }
+
+    public static boolean isMinifyAgent() {
+        return preferences.getBoolean("minify_agent", false);
+    }
+
+    public static void setMinifyAgent(boolean value) {
+        preferences.edit().putBoolean("minify_agent", value).apply();
+    }
+
+    public static boolean isTrimPrelude() {
+        return preferences.getBoolean("trim_prelude", false);
+    }
+
+    public static void setTrimPrelude(boolean value) {
+        preferences.edit().putBoolean("trim_prelude", value).apply();
+    }
+
+    public static String agentRuntime() {
+        return preferences.getString("agent_runtime", "v8");
+    }
+
+    public static boolean isProfileStartup() {
+        return preferences.getBoolean("profile_startup", false);
+    }
+
+    public static void setProfileStartup(boolean value) {
+        preferences.edit().putBoolean("profile_startup", value).apply();
+    }
 }
\ No newline at end of file
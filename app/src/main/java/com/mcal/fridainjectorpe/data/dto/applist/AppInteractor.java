@@ -1,7 +1,13 @@
 package com.mcal.fridainjectorpe.data.dto.applist;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 public interface AppInteractor {
     void setup(ArrayList<PackageInfoHolder> AllPackages);
-}
\ No newline at end of file
+
+    void add(List<PackageInfoHolder> packages);
+
+    void onLoadFinished(Set<String> installedPackages);
+}
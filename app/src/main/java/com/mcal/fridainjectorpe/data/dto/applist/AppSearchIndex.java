@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2020 Тимашков Иван
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.mcal.fridainjectorpe.data.dto.applist;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Type-ahead search over application labels and package names.
+ * <p>
+ * Keys are normalized once when the index is built. Every kind of match is
+ * monotonic, so when a query extends the previous one only the previous
+ * matches are examined again.
+ */
+public class AppSearchIndex {
+    private static final int LABEL_PREFIX = 0;
+    private static final int LABEL_WORD = 1;
+    private static final int NAME_PREFIX = 2;
+    private static final int LABEL_SUBSTRING = 3;
+    private static final int NAME_SUBSTRING = 4;
+    private static final int LABEL_FUZZY = 5;
+    private static final int NAME_FUZZY = 6;
+
+    private final List<PackageInfoHolder> mPackages;
+    private final char[][] mLabels;
+    private final char[][] mNames;
+    private String mLastQuery = "";
+    private int[] mLastMatches;
+    private int mLastCount;
+
+    /**
+     * @param packages applications in display order, used to break ranking ties
+     */
+    public AppSearchIndex(@NotNull List<PackageInfoHolder> packages) {
+        int size = packages.size();
+        mPackages = new ArrayList<>(packages);
+        mLabels = new char[size][];
+        mNames = new char[size][];
+        for (int i = 0; i < size; i++) {
+            PackageInfoHolder pkg = packages.get(i);
+            mLabels[i] = normalize(pkg.packageLabel).toCharArray();
+            mNames[i] = normalize(pkg.packageName).toCharArray();
+        }
+    }
+
+    @NotNull
+    private static String normalize(String s) {
+        if (s == null) {
+            return "";
+        }
+        return Normalizer.normalize(s, Normalizer.Form.NFD)
+                .replaceAll("\\p{Mn}+", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean startsWith(char[] text, int offset, char[] q) {
+        if (text.length - offset < q.length) {
+            return false;
+        }
+        for (int i = 0; i < q.length; i++) {
+            if (text[offset + i] != q[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the offset of the first match at a word start, or of the first
+     * match anywhere (negated minus one), or Integer.MIN_VALUE without a match.
+     */
+    private static int find(char[] text, char[] q) {
+        int any = Integer.MIN_VALUE;
+        for (int i = 0; i <= text.length - q.length; i++) {
+            if (text[i] == q[0] && startsWith(text, i, q)) {
+                if (i == 0 || !Character.isLetterOrDigit(text[i - 1])) {
+                    return i;
+                }
+                if (any == Integer.MIN_VALUE) {
+                    any = -i - 1;
+                }
+            }
+        }
+        return any;
+    }
+
+    /**
+     * Returns the span of the shortest greedy subsequence match, or -1.
+     */
+    private static int subsequence(char[] text, char[] q) {
+        int j = 0;
+        int start = -1;
+        for (int i = 0; i < text.length && j < q.length; i++) {
+            if (text[i] == q[j]) {
+                if (j == 0) {
+                    start = i;
+                }
+                j++;
+                if (j == q.length) {
+                    return i - start + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int rank(int kind, int detail) {
+        return (kind << 10) | Math.min(detail, 1023);
+    }
+
+    /**
+     * Ranks one application against the query; lower is better, -1 means no match.
+     */
+    private int score(int index, char[] q) {
+        char[] label = mLabels[index];
+        char[] name = mNames[index];
+        int found = find(label, q);
+        if (found == 0) {
+            return rank(LABEL_PREFIX, label.length);
+        }
+        if (found > 0) {
+            return rank(LABEL_WORD, found);
+        }
+        int nameFound = find(name, q);
+        if (nameFound >= 0) {
+            return rank(NAME_PREFIX, nameFound);
+        }
+        if (found != Integer.MIN_VALUE) {
+            return rank(LABEL_SUBSTRING, -found - 1);
+        }
+        if (nameFound != Integer.MIN_VALUE) {
+            return rank(NAME_SUBSTRING, -nameFound - 1);
+        }
+        int span = subsequence(label, q);
+        if (span >= 0) {
+            return rank(LABEL_FUZZY, span);
+        }
+        span = subsequence(name, q);
+        if (span >= 0) {
+            return rank(NAME_FUZZY, span);
+        }
+        return -1;
+    }
+
+    @NotNull
+    public List<PackageInfoHolder> search(@NotNull String query) {
+        String normalized = normalize(query.trim());
+        if (normalized.isEmpty()) {
+            mLastQuery = "";
+            mLastMatches = null;
+            return mPackages;
+        }
+
+        char[] q = normalized.toCharArray();
+        boolean narrowing = mLastMatches != null && normalized.startsWith(mLastQuery);
+        int candidates = narrowing ? mLastCount : mPackages.size();
+
+        long[] ranked = new long[candidates];
+        int[] matches = new int[candidates];
+        int count = 0;
+        for (int c = 0; c < candidates; c++) {
+            int index = narrowing ? mLastMatches[c] : c;
+            int score = score(index, q);
+            if (score >= 0) {
+                ranked[count] = ((long) score << 32) | index;
+                matches[count++] = index;
+            }
+        }
+        mLastQuery = normalized;
+        mLastMatches = matches;
+        mLastCount = count;
+
+        Arrays.sort(ranked, 0, count);
+        ArrayList<PackageInfoHolder> res = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            res.add(mPackages.get((int) ranked[i]));
+        }
+        return res;
+    }
+}
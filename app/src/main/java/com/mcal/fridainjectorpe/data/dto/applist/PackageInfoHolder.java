@@ -16,14 +16,21 @@
  */
 package com.mcal.fridainjectorpe.data.dto.applist;
 
-import android.graphics.drawable.Drawable;
+import java.text.CollationKey;
+import java.util.Comparator;
 
 public class PackageInfoHolder {
+    public static final Comparator<PackageInfoHolder> LABEL_ORDER = (o1, o2) -> {
+        int res = o1.sortKey.compareTo(o2.sortKey);
+        return res != 0 ? res : o1.packageName.compareTo(o2.packageName);
+    };
+
     public String packageLabel = "";
     public String packageName = "";
     public String packageVersion = "";
     public String packageFilePath = "";
-    public Drawable packageIcon;
+    public long lastUpdateTime;
+    public CollationKey sortKey;
 
     public String getPackageLabel() {
         return packageLabel;
@@ -19,6 +19,8 @@ package com.mcal.fridainjectorpe.data.dto.applist;
 import androidx.appcompat.widget.AppCompatImageView;
 import androidx.appcompat.widget.AppCompatTextView;
 
+import java.util.concurrent.Future;
+
 public class ViewHolder {
     public AppCompatTextView packageLabel;
     public AppCompatTextView packageName;
@@ -26,4 +28,6 @@ public class ViewHolder {
     public AppCompatTextView packageFilePath;
     public AppCompatImageView packageIcon;
     public int position;
+    public String iconPackage;
+    public Future<?> iconTask;
 }
\ No newline at end of file
@@ -142,6 +142,15 @@ public class TextEditor extends TextEditorField {
         //doc.analyzeWordWrap();
     }
 
+    /**
+     * Shows doc, such as one read by a DocumentLoader, in place of the
+     * current text.
+     */
+    public void setDocument(@NotNull Document doc) {
+        doc.setWordWrap(isWordWrap);
+        setDocumentProvider(new DocumentProvider(doc));
+    }
+
     public String getString() {
         return getText().toString();
     }
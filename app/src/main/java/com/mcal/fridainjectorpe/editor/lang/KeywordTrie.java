@@ -0,0 +1,157 @@
+package com.mcal.fridainjectorpe.editor.lang;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Matches a fixed set of words a char at a time, without building Strings.
+ * <p>
+ * Start at {@link #ROOT} and follow {@link #next(int, char)} for each char of
+ * a word; if no step fails, {@link #getWordIndex(int)} of the node reached
+ * tells which word, if any, was matched.
+ */
+public final class KeywordTrie {
+    public static final int ROOT = 0;
+    public static final int NONE = -1;
+
+    private final String[] _words;
+    /**
+     * Class of each ASCII char, 0 for chars in no word
+     */
+    private final int[] _asciiClasses = new int[128];
+    /**
+     * Non-ASCII chars in words, sorted, and their classes
+     */
+    private final char[] _otherChars;
+    private final int[] _otherClasses;
+    private final int _classCount;
+    /**
+     * Next node for each node and char class, NONE if there is none
+     */
+    private final int[] _next;
+    /**
+     * Index of the word ending at each node, NONE if there is none
+     */
+    private final int[] _wordAt;
+
+    public KeywordTrie(@NotNull String[] words) {
+        _words = words;
+
+        StringBuilder others = new StringBuilder();
+        int classCount = 1;
+        for (String word : words) {
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (c < 128) {
+                    if (_asciiClasses[c] == 0) {
+                        _asciiClasses[c] = classCount++;
+                    }
+                } else if (others.indexOf(String.valueOf(c)) < 0) {
+                    others.append(c);
+                }
+            }
+        }
+        _otherChars = others.toString().toCharArray();
+        Arrays.sort(_otherChars);
+        _otherClasses = new int[_otherChars.length];
+        for (int i = 0; i < _otherChars.length; i++) {
+            _otherClasses[i] = classCount++;
+        }
+        _classCount = classCount;
+
+        ArrayList<int[]> nodes = new ArrayList<>();
+        ArrayList<Integer> wordAt = new ArrayList<>();
+        nodes.add(newNode());
+        wordAt.add(NONE);
+        for (int w = 0; w < words.length; w++) {
+            int node = ROOT;
+            String word = words[w];
+            for (int i = 0; i < word.length(); i++) {
+                int cls = classOf(word.charAt(i));
+                int next = nodes.get(node)[cls];
+                if (next == NONE) {
+                    next = nodes.size();
+                    nodes.get(node)[cls] = next;
+                    nodes.add(newNode());
+                    wordAt.add(NONE);
+                }
+                node = next;
+            }
+            if (wordAt.get(node) == NONE) {
+                wordAt.set(node, w);
+            }
+        }
+
+        _next = new int[nodes.size() * _classCount];
+        _wordAt = new int[nodes.size()];
+        for (int n = 0; n < nodes.size(); n++) {
+            System.arraycopy(nodes.get(n), 0, _next, n * _classCount, _classCount);
+            _wordAt[n] = wordAt.get(n);
+        }
+    }
+
+    @NotNull
+    private int[] newNode() {
+        int[] node = new int[_classCount];
+        Arrays.fill(node, NONE);
+        return node;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return _asciiClasses[c];
+        }
+        int i = Arrays.binarySearch(_otherChars, c);
+        return i >= 0 ? _otherClasses[i] : 0;
+    }
+
+    /**
+     * Returns the node reached from node by c, or NONE if no word goes on
+     * with c. Node must not be NONE.
+     */
+    @Contract(pure = true)
+    public int next(int node, char c) {
+        int cls = classOf(c);
+        return cls == 0 ? NONE : _next[node * _classCount + cls];
+    }
+
+    /**
+     * Returns the index of the word that ends at node, or NONE
+     */
+    @Contract(pure = true)
+    public int getWordIndex(int node) {
+        return node == NONE ? NONE : _wordAt[node];
+    }
+
+    /**
+     * Returns the index of the word chars[start, end) is, or NONE
+     */
+    @Contract(pure = true)
+    public int find(@NotNull char[] chars, int start, int end) {
+        int node = ROOT;
+        for (int i = start; i < end && node != NONE; i++) {
+            node = next(node, chars[i]);
+        }
+        return getWordIndex(node);
+    }
+
+    /**
+     * Returns the index of word, or NONE
+     */
+    @Contract(pure = true)
+    public int find(@NotNull CharSequence word) {
+        int node = ROOT;
+        for (int i = 0; i < word.length() && node != NONE; i++) {
+            node = next(node, word.charAt(i));
+        }
+        return getWordIndex(node);
+    }
+
+    @Contract(pure = true)
+    public String getWord(int index) {
+        return _words[index];
+    }
+}
@@ -0,0 +1,122 @@
+package com.mcal.fridainjectorpe.editor.lang;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The char predicates, keywords and names of a {@link Language}, compiled
+ * into tables so that a tokenizer can look them up without virtual calls,
+ * boxing or Strings. Chars outside ASCII are rare enough to be asked of the
+ * language itself.
+ */
+final class LanguageTable {
+    static final int WHITESPACE = 1;
+    static final int OPERATOR = 1 << 1;
+    static final int DELIMITER_A = 1 << 2;
+    static final int DELIMITER_B = 1 << 3;
+    static final int LINE_A_START = 1 << 4;
+    static final int LINE_B_START = 1 << 5;
+    static final int ESCAPE = 1 << 6;
+    static final int WORD_START = 1 << 7;
+
+    private static final int ASCII = 128;
+
+    private final Language _language;
+    private final String[] _keywordsFrom;
+    private final String[] _namesFrom;
+    private final int[] _classes = new int[ASCII];
+    /**
+     * Bit c0 * 128 + c1 is set if c0c1 starts a line token, starts a
+     * multi-line token or ends one
+     */
+    private final long[] _lineStarts = new long[ASCII * ASCII / 64];
+    private final long[] _multilineStarts = new long[ASCII * ASCII / 64];
+    private final long[] _multilineEnds = new long[ASCII * ASCII / 64];
+
+    final KeywordTrie keywords;
+    final KeywordTrie names;
+
+    LanguageTable(@NotNull Language language) {
+        _language = language;
+        _keywordsFrom = language.getKeywords();
+        _namesFrom = language.getNames();
+        keywords = new KeywordTrie(_keywordsFrom != null ? _keywordsFrom : new String[0]);
+        names = new KeywordTrie(_namesFrom != null ? _namesFrom : new String[0]);
+
+        for (char c = 0; c < ASCII; c++) {
+            _classes[c] = classify(language, c);
+        }
+        for (char c0 = 0; c0 < ASCII; c0++) {
+            for (char c1 = 0; c1 < ASCII; c1++) {
+                int bit = c0 * ASCII + c1;
+                if (language.isLineStart(c0, c1)) {
+                    _lineStarts[bit >>> 6] |= 1L << bit;
+                }
+                if (language.isMultilineStartDelimiter(c0, c1)) {
+                    _multilineStarts[bit >>> 6] |= 1L << bit;
+                }
+                if (language.isMultilineEndDelimiter(c0, c1)) {
+                    _multilineEnds[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+    }
+
+    private static int classify(@NotNull Language language, char c) {
+        int cls = 0;
+        if (language.isWhitespace(c)) cls |= WHITESPACE;
+        if (language.isOperator(c)) cls |= OPERATOR;
+        if (language.isDelimiterA(c)) cls |= DELIMITER_A;
+        if (language.isDelimiterB(c)) cls |= DELIMITER_B;
+        if (language.isLineAStart(c)) cls |= LINE_A_START;
+        if (language.isLineBStart(c)) cls |= LINE_B_START;
+        if (language.isEscapeChar(c)) cls |= ESCAPE;
+        if (language.isWordStart(c)) cls |= WORD_START;
+        return cls;
+    }
+
+    /**
+     * Returns whether this table is still that of language, whose words may
+     * have been set again since it was made
+     */
+    @Contract(pure = true)
+    boolean isOf(@NotNull Language language) {
+        return language == _language && language.getKeywords() == _keywordsFrom
+                && language.getNames() == _namesFrom;
+    }
+
+    /**
+     * Returns the classes of c, a combination of the flags above
+     */
+    @Contract(pure = true)
+    int classOf(char c) {
+        return c < ASCII ? _classes[c] : classify(_language, c);
+    }
+
+    @Contract(pure = true)
+    boolean isLineStart(char c0, char c1) {
+        if (c0 < ASCII && c1 < ASCII) {
+            int bit = c0 * ASCII + c1;
+            return (_lineStarts[bit >>> 6] & 1L << bit) != 0;
+        }
+        return _language.isLineStart(c0, c1);
+    }
+
+    @Contract(pure = true)
+    boolean isMultilineStartDelimiter(char c0, char c1) {
+        if (c0 < ASCII && c1 < ASCII) {
+            int bit = c0 * ASCII + c1;
+            return (_multilineStarts[bit >>> 6] & 1L << bit) != 0;
+        }
+        return _language.isMultilineStartDelimiter(c0, c1);
+    }
+
+    @Contract(pure = true)
+    boolean isMultilineEndDelimiter(char c0, char c1) {
+        if (c0 < ASCII && c1 < ASCII) {
+            int bit = c0 * ASCII + c1;
+            return (_multilineEnds[bit >>> 6] & 1L << bit) != 0;
+        }
+        return _language.isMultilineEndDelimiter(c0, c1);
+    }
+}
@@ -1,16 +1,22 @@
 package com.mcal.fridainjectorpe.editor.lang;
 
-import com.mcal.fridainjectorpe.editor.util.DocumentProvider;
 import com.mcal.fridainjectorpe.editor.util.Flag;
+import com.mcal.fridainjectorpe.editor.util.LexResult;
 import com.mcal.fridainjectorpe.editor.util.Lexer;
 import com.mcal.fridainjectorpe.editor.util.Pair;
+import com.mcal.fridainjectorpe.editor.util.TextSnapshot;
 import com.mcal.fridainjectorpe.editor.util.TextWarriorException;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static com.mcal.fridainjectorpe.editor.util.Lexer.DOUBLE_SYMBOL_DELIMITED_MULTILINE;
 import static com.mcal.fridainjectorpe.editor.util.Lexer.DOUBLE_SYMBOL_LINE;
 import static com.mcal.fridainjectorpe.editor.util.Lexer.KEYWORD;
+import static com.mcal.fridainjectorpe.editor.util.Lexer.MAX_KEYWORD_LENGTH;
 import static com.mcal.fridainjectorpe.editor.util.Lexer.NAME;
 import static com.mcal.fridainjectorpe.editor.util.Lexer.NORMAL;
 import static com.mcal.fridainjectorpe.editor.util.Lexer.SINGLE_SYMBOL_DELIMITED_A;
@@ -21,8 +27,28 @@ import static com.mcal.fridainjectorpe.editor.util.Lexer.SINGLE_SYMBOL_WORD;
 import static com.mcal.fridainjectorpe.editor.util.Lexer.UNKNOWN;
 
 public class LexerTokenizer {
+    /**
+     * Spans shorter than this are shared rather than made for each token.
+     * Spans are never modified once made, so passes may share them.
+     */
+    private static final int SHARED_SPAN_LENGTH = 16;
+    private static final Pair[][] _sharedSpans = new Pair[SINGLE_SYMBOL_DELIMITED_B + 1][SHARED_SPAN_LENGTH];
+    /**
+     * Number of chars read from the text at a time
+     */
+    private static final int CHUNK_SIZE = 4096;
     private static LexerTokenizer _theOne = null;
 
+    static {
+        for (int type = 0; type < _sharedSpans.length; type++) {
+            for (int length = 0; length < SHARED_SPAN_LENGTH; length++) {
+                _sharedSpans[type][length] = new Pair(length, type);
+            }
+        }
+    }
+
+    private LanguageTable _table = null;
+
     //private LexerTokenizer() {}
     public static LexerTokenizer getInstance() {
         if (_theOne == null) {
@@ -31,7 +57,28 @@ public class LexerTokenizer {
         return _theOne;
     }
 
-    public ArrayList<Pair> tokenize(DocumentProvider hDoc, Flag _abort) {
+    /**
+     * Lexes text, reusing what it can of previous, the result of an earlier
+     * pass over an older version of the same buffer. If viewport is given,
+     * spans for the part of the text on screen may be published through it
+     * before the whole text is done.
+     * <p>
+     * This tokenizer cannot resume, so it always lexes the whole text.
+     *
+     * @return The result, or null if lexing was aborted
+     */
+    @Nullable
+    public LexResult tokenize(TextSnapshot text, @Nullable LexResult previous, Flag _abort,
+                              @Nullable Viewport viewport) {
+        Language language = Lexer.getLanguage();
+        ArrayList<Pair> tokens = tokenize(text, _abort);
+        if (_abort.isSet()) {
+            return null;
+        }
+        return new LexResult(this, language, text, tokens);
+    }
+
+    public ArrayList<Pair> tokenize(TextSnapshot text, Flag _abort) {
         Language language = Lexer.getLanguage();
         ArrayList<Pair> tokens = new ArrayList<Pair>();
 
@@ -40,17 +87,44 @@ public class LexerTokenizer {
             return tokens;
         }
 
-        char[] candidateWord = new char[100];
+        LanguageTable table = getTable(language);
+        KeywordTrie keywords = table.keywords;
+        KeywordTrie names = table.names;
+        // spans are found by their start offsets, and turned into lengths at the end
+        int[] spanStarts = new int[256];
+        int[] spanTypes = new int[256];
+        int spanCount = 0;
+
+        char[] chunk = new char[CHUNK_SIZE];
+        int chunkStart = 0;
+        int chunkEnd = 0;
+
+        char firstCharInWord = 0;
         int currentCharInWord = 0;
+        int keywordNode = KeywordTrie.ROOT;
+        int nameNode = KeywordTrie.ROOT;
 
         int spanStartPosition = 0;
         int workingPosition = 0;
         int state = UNKNOWN;
         char prevChar = 0;
 
-        hDoc.seekChar(0);
-        while (hDoc.hasNext() && !_abort.isSet()) {
-            char currentChar = hDoc.next();
+        int textLength = text.getTextLength();
+        while (workingPosition < textLength) {
+            if (workingPosition == chunkEnd) {
+                if (_abort.isSet()) {
+                    break;
+                }
+                chunkStart = workingPosition;
+                chunkEnd = Math.min(textLength, chunkStart + CHUNK_SIZE);
+                text.getChars(chunkStart, chunkEnd, chunk, 0);
+            }
+            char currentChar = chunk[workingPosition - chunkStart];
+            int cls = table.classOf(currentChar);
+            if (spanCount + 2 > spanStarts.length) {
+                spanStarts = Arrays.copyOf(spanStarts, spanCount * 2);
+                spanTypes = Arrays.copyOf(spanTypes, spanCount * 2);
+            }
             switch (state) {
                 case UNKNOWN: //fall-through
                 case NORMAL: //fall-through
@@ -59,22 +133,22 @@ public class LexerTokenizer {
                 case SINGLE_SYMBOL_WORD:
                     int pendingState = state;
                     boolean stateChanged = false;
-                    if (language.isLineStart(prevChar, currentChar)) {
+                    if (table.isLineStart(prevChar, currentChar)) {
                         pendingState = DOUBLE_SYMBOL_LINE;
                         stateChanged = true;
-                    } else if (language.isMultilineStartDelimiter(prevChar, currentChar)) {
+                    } else if (table.isMultilineStartDelimiter(prevChar, currentChar)) {
                         pendingState = DOUBLE_SYMBOL_DELIMITED_MULTILINE;
                         stateChanged = true;
-                    } else if (language.isDelimiterA(currentChar)) {
+                    } else if ((cls & LanguageTable.DELIMITER_A) != 0) {
                         pendingState = SINGLE_SYMBOL_DELIMITED_A;
                         stateChanged = true;
-                    } else if (language.isDelimiterB(currentChar)) {
+                    } else if ((cls & LanguageTable.DELIMITER_B) != 0) {
                         pendingState = SINGLE_SYMBOL_DELIMITED_B;
                         stateChanged = true;
-                    } else if (language.isLineAStart(currentChar)) {
+                    } else if ((cls & LanguageTable.LINE_A_START) != 0) {
                         pendingState = SINGLE_SYMBOL_LINE_A;
                         stateChanged = true;
-                    } else if (language.isLineBStart(currentChar)) {
+                    } else if ((cls & LanguageTable.LINE_B_START) != 0) {
                         pendingState = SINGLE_SYMBOL_LINE_B;
                         stateChanged = true;
                     }
@@ -84,8 +158,8 @@ public class LexerTokenizer {
                                 pendingState == DOUBLE_SYMBOL_DELIMITED_MULTILINE) {
                             // account for previous char
                             spanStartPosition = workingPosition - 1;
-                            if (tokens.get(tokens.size() - 1).first == spanStartPosition) {
-                                tokens.remove(tokens.size() - 1);
+                            if (spanCount > 0 && spanStarts[spanCount - 1] == spanStartPosition) {
+                                spanCount--;
                             }
                         } else {
                             spanStartPosition = workingPosition;
@@ -94,43 +168,55 @@ public class LexerTokenizer {
                         // If a span appears mid-word, mark the chars preceding
                         // it as NORMAL, if the previous span isn't already NORMAL
                         if (currentCharInWord > 0 && state != NORMAL) {
-                            tokens.add(new Pair(workingPosition - currentCharInWord, NORMAL));
+                            spanStarts[spanCount] = workingPosition - currentCharInWord;
+                            spanTypes[spanCount++] = NORMAL;
                         }
 
                         state = pendingState;
-                        tokens.add(new Pair(spanStartPosition, state));
+                        spanStarts[spanCount] = spanStartPosition;
+                        spanTypes[spanCount++] = state;
                         currentCharInWord = 0;
-                    } else if (language.isWhitespace(currentChar) || language.isOperator(currentChar)) {
+                    } else if ((cls & (LanguageTable.WHITESPACE | LanguageTable.OPERATOR)) != 0) {
                         if (currentCharInWord > 0) {
                             // full word obtained; mark the beginning of the word accordingly
-                            if (language.isWordStart(candidateWord[0])) {
-                                spanStartPosition = workingPosition - currentCharInWord;
-                                state = SINGLE_SYMBOL_WORD;
-                                tokens.add(new Pair(spanStartPosition, state));
-                            } else if (language.isKeyword(new String(candidateWord, 0, currentCharInWord))) {
-                                spanStartPosition = workingPosition - currentCharInWord;
-                                state = KEYWORD;
-                                tokens.add(new Pair(spanStartPosition, state));
-                            } else if (language.isName(new String(candidateWord, 0, currentCharInWord))) {
-                                spanStartPosition = workingPosition - currentCharInWord;
-                                state = NAME;
-                                tokens.add(new Pair(spanStartPosition, state));
-                            } else if (state != NORMAL) {
+                            int wordState;
+                            if ((table.classOf(firstCharInWord) & LanguageTable.WORD_START) != 0) {
+                                wordState = SINGLE_SYMBOL_WORD;
+                            } else if (keywords.getWordIndex(keywordNode) != KeywordTrie.NONE) {
+                                wordState = KEYWORD;
+                            } else if (names.getWordIndex(nameNode) != KeywordTrie.NONE) {
+                                wordState = NAME;
+                            } else {
+                                wordState = state != NORMAL ? NORMAL : UNKNOWN;
+                            }
+                            if (wordState != UNKNOWN) {
                                 spanStartPosition = workingPosition - currentCharInWord;
-                                state = NORMAL;
-                                tokens.add(new Pair(spanStartPosition, state));
+                                state = wordState;
+                                spanStarts[spanCount] = spanStartPosition;
+                                spanTypes[spanCount++] = state;
                             }
                             currentCharInWord = 0;
                         }
 
                         // mark operators as normal
-                        if (state != NORMAL && language.isOperator(currentChar)) {
+                        if (state != NORMAL && (cls & LanguageTable.OPERATOR) != 0) {
                             state = NORMAL;
-                            tokens.add(new Pair(workingPosition, state));
+                            spanStarts[spanCount] = workingPosition;
+                            spanTypes[spanCount++] = state;
                         }
-                    } else if (currentCharInWord < 100) {
+                    } else if (currentCharInWord < MAX_KEYWORD_LENGTH) {
                         // collect non-whitespace chars up to MAX_KEYWORD_LENGTH
-                        candidateWord[currentCharInWord] = currentChar;
+                        if (currentCharInWord == 0) {
+                            firstCharInWord = currentChar;
+                            keywordNode = KeywordTrie.ROOT;
+                            nameNode = KeywordTrie.ROOT;
+                        }
+                        if (keywordNode != KeywordTrie.NONE) {
+                            keywordNode = keywords.next(keywordNode, currentChar);
+                        }
+                        if (nameNode != KeywordTrie.NONE) {
+                            nameNode = names.next(nameNode, currentChar);
+                        }
                         currentCharInWord++;
                     }
                     break;
@@ -138,7 +224,7 @@ public class LexerTokenizer {
                 case DOUBLE_SYMBOL_LINE: // fall-through
                 case SINGLE_SYMBOL_LINE_A: // fall-through
                 case SINGLE_SYMBOL_LINE_B:
-                    if (language.isMultilineStartDelimiter(prevChar, currentChar)) {
+                    if (table.isMultilineStartDelimiter(prevChar, currentChar)) {
                         state = DOUBLE_SYMBOL_DELIMITED_MULTILINE;
                     } else if (currentChar == '\n') {
                         state = UNKNOWN;
@@ -146,26 +232,27 @@ public class LexerTokenizer {
                     break;
 
                 case SINGLE_SYMBOL_DELIMITED_A:
-                    if ((language.isDelimiterA(currentChar) || currentChar == '\n')
-                            && !language.isEscapeChar(prevChar)) {
+                    if (((cls & LanguageTable.DELIMITER_A) != 0 || currentChar == '\n')
+                            && (table.classOf(prevChar) & LanguageTable.ESCAPE) == 0) {
                         state = UNKNOWN;
-                    } else if (language.isEscapeChar(currentChar) && language.isEscapeChar(prevChar)) {
+                    } else if ((cls & LanguageTable.ESCAPE) != 0
+                            && (table.classOf(prevChar) & LanguageTable.ESCAPE) != 0) {
                         currentChar = ' ';
                     }
                     break;
 
                 case SINGLE_SYMBOL_DELIMITED_B:
-                    if ((language.isDelimiterB(currentChar) || currentChar == '\n')
-                            && !language.isEscapeChar(prevChar)) {
+                    if (((cls & LanguageTable.DELIMITER_B) != 0 || currentChar == '\n')
+                            && (table.classOf(prevChar) & LanguageTable.ESCAPE) == 0) {
                         state = UNKNOWN;
-                    } else if (language.isEscapeChar(currentChar)
-                            && language.isEscapeChar(prevChar)) {
+                    } else if ((cls & LanguageTable.ESCAPE) != 0
+                            && (table.classOf(prevChar) & LanguageTable.ESCAPE) != 0) {
                         currentChar = ' ';
                     }
                     break;
 
                 case DOUBLE_SYMBOL_DELIMITED_MULTILINE:
-                    if (language.isMultilineEndDelimiter(prevChar, currentChar)) {
+                    if (table.isMultilineEndDelimiter(prevChar, currentChar)) {
                         state = UNKNOWN;
                     }
                     break;
@@ -179,10 +266,80 @@ public class LexerTokenizer {
         }
         // end state machine
 
+        toLengths(spanStarts, spanTypes, spanCount, text.length(), tokens);
         if (tokens.isEmpty()) {
             // return value cannot be empty
             tokens.add(new Pair(0, NORMAL));
         }
         return tokens;
     }
-}
\ No newline at end of file
+
+    /**
+     * Adds spans of the given starts and types that end at length to tokens,
+     * as lengths. Spans of no chars are left out and neighbours of the same
+     * type are joined.
+     */
+    private static void toLengths(int[] starts, int[] types, int count, int length, ArrayList<Pair> tokens) {
+        int spanStart = 0;
+        int spanType = NORMAL;
+        for (int i = 0; i < count; i++) {
+            int start = Math.min(starts[i], length);
+            if (types[i] != spanType && start > spanStart) {
+                tokens.add(newSpan(start - spanStart, spanType));
+                spanStart = start;
+            }
+            if (start == spanStart) {
+                spanType = types[i];
+            }
+        }
+        if (length > spanStart) {
+            tokens.add(newSpan(length - spanStart, spanType));
+        }
+    }
+
+    @NotNull
+    private synchronized LanguageTable getTable(@NotNull Language language) {
+        if (_table == null || !_table.isOf(language)) {
+            _table = new LanguageTable(language);
+        }
+        return _table;
+    }
+
+    /**
+     * Returns a span of length chars of the given type
+     */
+    @NotNull
+    protected static Pair newSpan(int length, int type) {
+        if (length >= 0 && length < SHARED_SPAN_LENGTH && type >= 0 && type < _sharedSpans.length) {
+            return _sharedSpans[type][length];
+        }
+        return new Pair(length, type);
+    }
+
+    /**
+     * The part of the text on screen, which a pass lexes ahead of the rest
+     * where it can. Its methods may be called at any time during a pass.
+     */
+    public interface Viewport {
+        /**
+         * Returns a number that changes whenever the viewport moves
+         */
+        int getMoves();
+
+        /**
+         * Returns the offset of the first char on screen
+         */
+        int getStart();
+
+        /**
+         * Returns the offset just past the last char on screen
+         */
+        int getEnd();
+
+        /**
+         * Shows spans for the whole text that are right at least on screen,
+         * while the pass goes on with the rest.
+         */
+        void publish(@NotNull ArrayList<Pair> spans);
+    }
+}
@@ -0,0 +1,281 @@
+package com.mcal.fridainjectorpe.editor.lang;
+
+import com.mcal.fridainjectorpe.editor.util.Flag;
+import com.mcal.fridainjectorpe.editor.util.LexResult;
+import com.mcal.fridainjectorpe.editor.util.Lexer;
+import com.mcal.fridainjectorpe.editor.util.Pair;
+import com.mcal.fridainjectorpe.editor.util.TextChange;
+import com.mcal.fridainjectorpe.editor.util.TextSnapshot;
+import com.mcal.fridainjectorpe.editor.util.TextWarriorException;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Tokenizer that saves its state at line starts as it goes, so that an edited
+ * text need not be lexed from the start again.
+ * <p>
+ * A pass over an edited text resumes from the last checkpoint of the previous
+ * pass before the edit. Once past the edit, it stops at the first old
+ * checkpoint where it is in the same state as the previous pass was: all that
+ * follows would come out the same, so the spans, checkpoints and other
+ * results from there on are taken over from the previous pass.
+ * <p>
+ * Spans for the viewport are published as soon as the pass is past it. When
+ * there is no previous pass to start from and the viewport is far down, its
+ * lines are first lexed on their own from the line they start at, which is
+ * right unless they start inside a multi-line token.
+ */
+public abstract class ResumableTokenizer extends LexerTokenizer {
+    /**
+     * Minimum number of lines between checkpoints
+     */
+    private static final int CHECKPOINT_LINES = 32;
+    /**
+     * Number of chars before the viewport above which it is lexed on its own
+     * first, rather than waited for
+     */
+    private static final int PREVIEW_DISTANCE = 8 * 1024;
+
+    @Override
+    public ArrayList<Pair> tokenize(TextSnapshot text, Flag _abort) {
+        LexResult result = tokenize(text, null, _abort, null);
+        return result != null ? result.getTokens() : new ArrayList<Pair>();
+    }
+
+    @Nullable
+    @Override
+    public LexResult tokenize(TextSnapshot text, @Nullable LexResult previous, Flag _abort,
+                              @Nullable Viewport viewport) {
+        Language language = Lexer.getLanguage();
+        TextChange change = null;
+        if (previous != null && previous.isFrom(this, language, text)) {
+            change = text.getChange(previous.getVersion());
+        }
+        if (change == null) {
+            previous = null;
+        } else if (change.start == change.oldEnd && change.start == change.newEnd) {
+            return previous;
+        }
+
+        int from = previous != null ? previous.findCheckpointBefore(change.start) : -1;
+        ArrayList<Pair> tokens = new ArrayList<>(previous != null ? previous.getTokens().size() + 64 : 8192);
+        LexResult result = new LexResult(this, language, text, tokens);
+        int lastLine = 0;
+        if (from >= 0) {
+            tokens.addAll(previous.getTokens().subList(0, previous.getCheckpointTokenCount(from)));
+            for (int i = 0; i <= from; i++) {
+                result.addCheckpoint(previous.getCheckpointOffset(i), previous.getCheckpointLine(i),
+                        previous.getCheckpointTokenCount(i), previous.getCheckpointState(i));
+            }
+            lastLine = previous.getCheckpointLine(from);
+        }
+
+        Scanner scanner = newScanner(text, language, previous, from);
+        // old checkpoints after the edit, where the pass may converge
+        int next = previous != null ? previous.findCheckpointBefore(change.oldEnd) + 1 : 0;
+        int lineDelta = previous != null ? text.getLineCount() - previous.getLineCount() : 0;
+        int converged = -1;
+        int moves = viewport != null ? viewport.getMoves() - 1 : 0;
+        int viewEnd = 0;
+        boolean publishPending = false;
+        boolean atLineStart = true;
+        try {
+            while (!_abort.isSet()) {
+                if (atLineStart) {
+                    int offset = scanner.getOffset();
+                    if (viewport != null) {
+                        if (moves != viewport.getMoves()) {
+                            moves = viewport.getMoves();
+                            viewEnd = Math.min(viewport.getEnd(), text.length());
+                            int start = Math.min(viewport.getStart(), viewEnd);
+                            int viewStart = findLineStart(text, start);
+                            // spans on screen are only wrong where the text changed
+                            publishPending = start < viewEnd && (previous == null || viewEnd > change.start);
+                            if (publishPending && previous == null && viewStart - offset > PREVIEW_DISTANCE) {
+                                preview(text, language, tokens, offset, viewStart, viewEnd, viewport, _abort);
+                            }
+                        }
+                        if (publishPending && offset >= viewEnd) {
+                            publishPending = false;
+                            viewport.publish(withRest(tokens, offset, text.length()));
+                        }
+                    }
+                    if (previous != null && offset >= change.newEnd) {
+                        int count = previous.getCheckpointCount();
+                        while (next < count && previous.getCheckpointOffset(next) + change.delta() < offset) {
+                            next++;
+                        }
+                        if (next < count && previous.getCheckpointOffset(next) + change.delta() == offset
+                                && scanner.matches(next, change, lineDelta)) {
+                            converged = next;
+                            break;
+                        }
+                    }
+                    int line = scanner.getLine();
+                    if (line - lastLine >= CHECKPOINT_LINES) {
+                        result.addCheckpoint(offset, line, tokens.size(), scanner.save(tokens.size()));
+                        lastLine = line;
+                    }
+                }
+                if (!scanner.next(tokens)) {
+                    break;
+                }
+                atLineStart = scanner.isAtLineStart();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            TextWarriorException.fail(e.getMessage());
+        }
+        if (_abort.isSet()) {
+            return null;
+        }
+
+        if (converged >= 0) {
+            int oldTokens = previous.getCheckpointTokenCount(converged);
+            int newTokens = tokens.size();
+            tokens.addAll(previous.getTokens().subList(oldTokens, previous.getTokens().size()));
+            for (int i = converged; i < previous.getCheckpointCount(); i++) {
+                result.addCheckpoint(previous.getCheckpointOffset(i) + change.delta(),
+                        previous.getCheckpointLine(i) + lineDelta,
+                        previous.getCheckpointTokenCount(i) - oldTokens + newTokens,
+                        scanner.shift(i, converged, change, lineDelta));
+            }
+        }
+        scanner.finish(result, converged, change, lineDelta);
+        if (tokens.isEmpty()) {
+            // return value cannot be empty
+            tokens.add(new Pair(0, Lexer.NORMAL));
+        }
+        return result;
+    }
+
+    /**
+     * Lexes the lines from start to end on their own, without the state the
+     * text before them leaves the tokenizer in, and publishes their spans
+     * together with the tokens lexed so far, which end at offset.
+     */
+    private void preview(TextSnapshot text, Language language, ArrayList<Pair> tokens, int offset,
+                         int start, int end, Viewport viewport, Flag _abort) throws IOException {
+        ArrayList<Pair> window = new ArrayList<>();
+        Scanner scanner = newPreviewScanner(text, language, start);
+        while (!_abort.isSet() && scanner.next(window)) {
+            if (scanner.isAtLineStart() && scanner.getOffset() >= end) {
+                break;
+            }
+        }
+        if (_abort.isSet()) {
+            return;
+        }
+        int windowEnd = start;
+        for (Pair p : window) {
+            windowEnd += p.first;
+        }
+        ArrayList<Pair> spans = new ArrayList<>(tokens.size() + window.size() + 2);
+        spans.addAll(tokens);
+        spans.add(new Pair(start - offset, Lexer.NORMAL));
+        spans.addAll(window);
+        if (windowEnd < text.length()) {
+            spans.add(new Pair(text.length() - windowEnd, Lexer.NORMAL));
+        }
+        viewport.publish(spans);
+    }
+
+    /**
+     * Returns tokens, which end at offset, followed by plain text up to length
+     */
+    @NotNull
+    private static ArrayList<Pair> withRest(ArrayList<Pair> tokens, int offset, int length) {
+        ArrayList<Pair> spans = new ArrayList<>(tokens.size() + 1);
+        spans.addAll(tokens);
+        if (offset < length) {
+            spans.add(new Pair(length - offset, Lexer.NORMAL));
+        }
+        return spans;
+    }
+
+    private static int findLineStart(TextSnapshot text, int offset) {
+        while (offset > 0 && text.charAt(offset - 1) != Language.NEWLINE) {
+            offset--;
+        }
+        return offset;
+    }
+
+    /**
+     * Returns a scanner over text that starts at checkpoint from of previous,
+     * or at the start of the text if from is -1. Previous is null if it cannot
+     * be used at all.
+     */
+    @NotNull
+    protected abstract Scanner newScanner(@NotNull TextSnapshot text, @NotNull Language language,
+                                          @Nullable LexResult previous, int from);
+
+    /**
+     * Returns a scanner over text that starts at offset, a line start, as if
+     * it were the start of the text. It only finds spans, and must leave
+     * language and the results of other passes alone.
+     */
+    @NotNull
+    protected abstract Scanner newPreviewScanner(@NotNull TextSnapshot text, @NotNull Language language,
+                                                 int offset);
+
+    /**
+     * One pass of a tokenizer over a text.
+     */
+    protected abstract static class Scanner {
+        /**
+         * Lexes the next token and adds its spans to tokens.
+         *
+         * @return false at the end of the text
+         */
+        protected abstract boolean next(@NotNull ArrayList<Pair> tokens) throws IOException;
+
+        /**
+         * Returns whether the next token starts a line
+         */
+        protected abstract boolean isAtLineStart();
+
+        /**
+         * Returns the offset of the next token; before the first one, that
+         * of the start of the scan
+         */
+        protected abstract int getOffset();
+
+        /**
+         * Returns the line of the next token. Only called at line starts,
+         * including the start of the scan.
+         */
+        protected abstract int getLine();
+
+        /**
+         * Returns the state of this pass, for a checkpoint at the next token
+         * with tokenCount spans done
+         */
+        @NotNull
+        protected abstract Object save(int tokenCount);
+
+        /**
+         * Returns whether this pass is in the state that the previous one was
+         * at its checkpoint given, which lies after change
+         */
+        protected abstract boolean matches(int checkpoint, @NotNull TextChange change, int lineDelta);
+
+        /**
+         * Returns the state of checkpoint of the previous pass, updated for
+         * the text after change and for this pass having converged with the
+         * previous one at checkpoint converged
+         */
+        @NotNull
+        protected abstract Object shift(int checkpoint, int converged, @NotNull TextChange change, int lineDelta);
+
+        /**
+         * Completes result, taking over whatever the previous pass found after
+         * checkpoint converged, if this pass converged with it there
+         */
+        protected abstract void finish(@NotNull LexResult result, int converged,
+                                       @Nullable TextChange change, int lineDelta);
+    }
+}
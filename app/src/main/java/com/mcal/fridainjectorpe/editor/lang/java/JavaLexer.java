@@ -1004,6 +1004,13 @@ public class JavaLexer {
     }
 
 
+    /**
+     * Returns the line of the matched text, counted from 0.
+     */
+    public final int yyline() {
+        return yyline;
+    }
+
     /**
      * Returns the current lexical state.
      */
@@ -1,10 +1,15 @@
 package com.mcal.fridainjectorpe.editor.lang.java;
 
-import com.mcal.fridainjectorpe.editor.lang.LexerTokenizer;
+import com.mcal.fridainjectorpe.editor.lang.Language;
+import com.mcal.fridainjectorpe.editor.lang.ResumableTokenizer;
 import com.mcal.fridainjectorpe.editor.util.CharSeqReader;
-import com.mcal.fridainjectorpe.editor.util.DocumentProvider;
-import com.mcal.fridainjectorpe.editor.util.Flag;
+import com.mcal.fridainjectorpe.editor.util.LexResult;
 import com.mcal.fridainjectorpe.editor.util.Pair;
+import com.mcal.fridainjectorpe.editor.util.TextChange;
+import com.mcal.fridainjectorpe.editor.util.TextSnapshot;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -17,7 +22,7 @@ import static com.mcal.fridainjectorpe.editor.util.Lexer.OPERATOR;
 import static com.mcal.fridainjectorpe.editor.util.Lexer.SINGLE_SYMBOL_DELIMITED_A;
 
 //to do
-public class JavaTokenizer extends LexerTokenizer {
+public class JavaTokenizer extends ResumableTokenizer {
     private static JavaTokenizer _theOne = null;
 
     //private LexerTokenizer() {}
@@ -28,32 +33,65 @@ public class JavaTokenizer extends LexerTokenizer {
         return _theOne;
     }
 
-    public ArrayList<Pair> tokenize(DocumentProvider hDoc, Flag _abort) {
-        int rowCount = hDoc.getRowCount();
-        int maxRow = 99999999;
-        ArrayList<Pair> tokens = new ArrayList<Pair>(8196);
-        JavaLexer lexer = new JavaLexer(new CharSeqReader(hDoc));
-        try {
-            int idx = 0;
+    @NotNull
+    @Override
+    protected Scanner newScanner(@NotNull TextSnapshot text, @NotNull Language language,
+                                 @Nullable LexResult previous, int from) {
+        return new JavaScanner(text, previous, from, 0);
+    }
 
-            JavaType lastType2 = null;
+    @NotNull
+    @Override
+    protected Scanner newPreviewScanner(@NotNull TextSnapshot text, @NotNull Language language, int offset) {
+        return new JavaScanner(text, null, -1, offset);
+    }
 
-            Pair lastPair = null;
-            int lastLen = 0;
-            while (!_abort.isSet()) {
-                Pair pair = null;
-                JavaType type = lexer.yylex();
-                if (type == null)
-                    break;
-                int len = lexer.yylength();
-
-                if (lastType2 == type && lastPair != null) {
-                    lastPair.setFirst(lastLen += len);
-                    continue;
-                }
+    private static final class JavaScanner extends Scanner {
+        private final LexResult previous;
+        private final JavaLexer lexer;
+        /**
+         * Line where the lexer started, and offset of its last token
+         */
+        private final int baseLine;
+        private int offset;
+
+        private JavaType lastType2 = null;
+        private int lastPairIdx = -1;
+        private int lastLen = 0;
+        private boolean atLineStart;
+
+        JavaScanner(TextSnapshot text, LexResult previous, int from, int start) {
+            this.previous = previous;
+            if (from < 0) {
+                offset = start;
+                baseLine = 0;
+            } else {
+                offset = previous.getCheckpointOffset(from);
+                baseLine = previous.getCheckpointLine(from);
+            }
+            lexer = new JavaLexer(new CharSeqReader(text, offset));
+            if (from >= 0) {
+                lexer.yybegin((Integer) previous.getCheckpointState(from));
+            }
+        }
+
+        @Override
+        protected boolean next(@NotNull ArrayList<Pair> tokens) throws IOException {
+            offset += lexer.yylength();
+            JavaType type = lexer.yylex();
+            // the lexer keeps returning EOF at the end of the text
+            if (type == null || type == JavaType.EOF)
+                return false;
+            int len = lexer.yylength();
+            atLineStart = lexer.yycharat(len - 1) == '\n';
+
+            if (lastType2 == type && lastPairIdx >= 0) {
+                // spans are replaced rather than modified, as the previous pass may share them
+                tokens.set(lastPairIdx, new Pair(lastLen += len, tokens.get(lastPairIdx).getSecond()));
+            } else {
                 lastLen = len;
                 lastType2 = type;
-
+                Pair pair = null;
                 switch (type) {
                     case KEYWORD:
                         tokens.add(new Pair(len, KEYWORD));
@@ -114,9 +152,6 @@ public class JavaTokenizer extends LexerTokenizer {
                     case NULL_LITERAL://null
                         //字符串
                         tokens.add(pair = new Pair(len, SINGLE_SYMBOL_DELIMITED_A));
-                        if (rowCount > maxRow)
-                            break;
-
                         break;
                     case COMMENT:
                         //注释
@@ -131,20 +166,58 @@ public class JavaTokenizer extends LexerTokenizer {
                         tokens.add(pair = new Pair(len, NORMAL));
                 }
 
-
                 if (pair != null)
-                    lastPair = pair;
-                idx += len;
+                    lastPairIdx = tokens.size() - 1;
+            }
+            if (atLineStart) {
+                // spans are not merged across checkpoints
+                lastType2 = null;
+                lastPairIdx = -1;
             }
-        } catch (IOException e) {
-            //throw new RuntimeException(e);
-            e.printStackTrace();
+            return true;
+        }
+
+        @Override
+        protected boolean isAtLineStart() {
+            return atLineStart;
+        }
+
+        @Override
+        protected int getOffset() {
+            return offset + lexer.yylength();
+        }
+
+        @Override
+        protected int getLine() {
+            int line = baseLine + lexer.yyline();
+            for (int i = lexer.yylength() - 1; i >= 0; i--) {
+                if (lexer.yycharat(i) == '\n') {
+                    line++;
+                }
+            }
+            return line;
+        }
+
+        @NotNull
+        @Override
+        protected Object save(int tokenCount) {
+            return lexer.yystate();
+        }
+
+        @Override
+        protected boolean matches(int checkpoint, @NotNull TextChange change, int lineDelta) {
+            return previous.getCheckpointState(checkpoint).equals(lexer.yystate());
         }
-        // return value cannot be empty
-        if (tokens.isEmpty())
-            tokens.add(new Pair(0, NORMAL));
-        return tokens;
-    }
 
+        @NotNull
+        @Override
+        protected Object shift(int checkpoint, int converged, @NotNull TextChange change, int lineDelta) {
+            return previous.getCheckpointState(checkpoint);
+        }
 
+        @Override
+        protected void finish(@NotNull LexResult result, int converged,
+                              @Nullable TextChange change, int lineDelta) {
+        }
+    }
 }
@@ -0,0 +1,43 @@
+package com.mcal.fridainjectorpe.editor.lang.javascript;
+
+import com.mcal.fridainjectorpe.editor.lang.DefFormatter;
+
+public class JavaScriptFormatter extends DefFormatter {
+    private static JavaScriptFormatter _theOne = null;
+
+    public static JavaScriptFormatter getInstance() {
+        if (_theOne == null) {
+            _theOne = new JavaScriptFormatter();
+        }
+        return _theOne;
+    }
+
+    @Override
+    public int createAutoIndent(CharSequence text) {
+        JavaScriptLexer lexer = new JavaScriptLexer(text, 0, null);
+        int idt = 0;
+        while (true) {
+            JavaScriptType type = lexer.yylex();
+            if (type == null)
+                break;
+            if (type == JavaScriptType.OPERATOR)
+                idt += indent(lexer.lastChar());
+        }
+        return idt;
+    }
+
+    private int indent(int c) {
+        switch (c) {
+            case '{'://{ and ${
+            case '(':
+            case '[':
+                return 1;
+            case '}':
+            case ')':
+            case ']':
+                return -1;
+            default:
+                return 0;
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package com.mcal.fridainjectorpe.editor.lang.javascript;
 
 import com.mcal.fridainjectorpe.editor.lang.Language;
-import com.mcal.fridainjectorpe.editor.lang.lua.LuaFormatter;
-import com.mcal.fridainjectorpe.editor.lang.lua.LuaTokenizer;
 
 public class JavaScriptLanguage extends Language {
     private final static String[] keywords = {
@@ -10,11 +8,11 @@ public class JavaScriptLanguage extends Language {
             "class", "const", "continue", "debugger", "default", "delete", "do",
             "double", "else", "enum", "export", "extends", "false", "final",
             "finally", "float", "for", "function", "goto", "if", "implements",
-            "import", "in", "instanceof", "int", "interface", "long", "native",
+            "import", "in", "instanceof", "int", "interface", "let", "long", "native",
             "new", "null", "package", "private", "protected", "public", "return",
             "short", "static", "super", "switch", "synchronized", "this", "throw",
             "throws", "transient", "true", "try", "typeof", "var", "void",
-            "volatile", "while", "with"
+            "volatile", "while", "with", "yield", "await"
     };
 
     private final static char[] JAVASCRIPT_OPERATORS = {
@@ -39,13 +37,13 @@ public class JavaScriptLanguage extends Language {
     }
 
     @Override
-    public LuaTokenizer getTokenizer() {
-        return LuaTokenizer.getInstance();
+    public JavaScriptTokenizer getTokenizer() {
+        return JavaScriptTokenizer.getInstance();
     }
 
     @Override
-    public LuaFormatter getFormatter() {
-        return LuaFormatter.getInstance();
+    public JavaScriptFormatter getFormatter() {
+        return JavaScriptFormatter.getInstance();
     }
 
     public boolean isLineAStart(char c) {
@@ -1,1291 +1,596 @@
-/* The following code was generated by JFlex 1.6.1 */
-
-/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
- * Copyright (C) 1998-2015  Gerwin Klein <lsf@jflex.de>                    *
- * All rights reserved.                                                    *
- *                                                                         *
- * License: BSD                                                            *
- *                                                                         *
- * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
-
-/* Java 1.2 language lexer specification */
-
-/* Use together with unicode.flex for Unicode preprocesssing */
-/* and java12.cup for a Java 1.2 parser                      */
-
-/* Note that this lexer specification is not tuned for speed.
-   It is in fact quite slow on integer and floating point literals, 
-   because the input is read twice and the methods used to parse
-   the numbers are not very fast. 
-   For a production quality application (e.g. a Java compiler) 
-   this could be optimized */
+package com.mcal.fridainjectorpe.editor.lang.javascript;
 
+import com.mcal.fridainjectorpe.editor.lang.KeywordTrie;
+import com.mcal.fridainjectorpe.editor.util.CharSeqReader;
 
-package com.mcal.fridainjectorpe.editor.lang.javascript;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 
 /**
- * This class is a scanner generated by
- * <a href="http://www.jflex.de/">JFlex</a> 1.6.1
- * from the specification file <tt>E:/code/Java/jflex-master/jflex/examples/java/Js.flex</tt>
+ * JavaScript lexer, including template literals and regular expression
+ * literals. It reads the text in blocks and allocates nothing per token.
+ * <p>
+ * A token that contains a line break ends with it, so the token after a '\n'
+ * starts a line. All that the lexer needs to go on from a line start is its
+ * {@link State}.
  */
 public class JavaScriptLexer {
-
-    /**
-     * This character denotes the end of file
-     */
-    public static final int YYEOF = -1;
     /**
      * lexical states
      */
     public static final int YYINITIAL = 0;
-    public static final int STRING = 2;
-    public static final int CHARLITERAL = 4;
+    public static final int BLOCK_COMMENT = 1;
+    public static final int TEMPLATE = 2;
     /**
-     * initial size of the lookahead buffer
+     * In a string continued on the next line with a backslash
      */
-    private static final int ZZ_BUFFERSIZE = 16384;
-    /**
-     * ZZ_LEXSTATE[l] is the state in the DFA for the lexical state l
-     * ZZ_LEXSTATE[l+1] is the state in the DFA for the lexical state l
-     * at the beginning of a line
-     * l is of the form l = 2*k, k a non negative integer
-     */
-    private static final int ZZ_LEXSTATE[] = {
-            0, 0, 1, 1, 2, 2
-    };
+    public static final int SINGLE_QUOTED = 3;
+    public static final int DOUBLE_QUOTED = 4;
 
+    private static final int BUFFER_SIZE = 4096;
     /**
-     * Translates characters to character classes
+     * Chars kept before a refill, so that lookahead never reads a block twice
      */
-    private static final String ZZ_CMAP_PACKED =
-            "\11\7\1\3\1\2\1\77\1\100\1\1\16\7\4\0\1\3\1\72" +
-                    "\1\24\1\0\1\6\1\72\1\74\1\25\1\57\1\60\1\5\1\76" +
-                    "\1\66\1\23\1\21\1\4\1\10\1\16\2\15\4\17\2\11\1\73" +
-                    "\1\65\1\71\1\67\1\70\1\73\1\0\3\14\1\20\1\22\1\20" +
-                    "\5\6\1\12\13\6\1\13\2\6\1\63\1\26\1\64\1\72\1\6" +
-                    "\1\0\1\27\1\30\1\34\1\50\1\40\1\51\1\35\1\46\1\47" +
-                    "\1\6\1\44\1\43\1\37\1\41\1\42\1\54\1\6\1\33\1\31" +
-                    "\1\32\1\36\1\52\1\55\1\53\1\45\1\56\1\61\1\75\1\62" +
-                    "\1\73\6\7\1\101\32\7\2\0\4\6\4\0\1\6\2\0\1\7" +
-                    "\7\0\1\6\4\0\1\6\5\0\27\6\1\0\37\6\1\0\u01ca\6" +
-                    "\4\0\14\6\16\0\5\6\7\0\1\6\1\0\1\6\21\0\160\7" +
-                    "\5\6\1\0\2\6\2\0\4\6\10\0\1\6\1\0\3\6\1\0" +
-                    "\1\6\1\0\24\6\1\0\123\6\1\0\213\6\1\0\5\7\2\0" +
-                    "\236\6\11\0\46\6\2\0\1\6\7\0\47\6\7\0\1\6\1\0" +
-                    "\55\7\1\0\1\7\1\0\2\7\1\0\2\7\1\0\1\7\10\0" +
-                    "\33\6\5\0\3\6\15\0\5\7\6\0\1\6\4\0\13\7\5\0" +
-                    "\53\6\37\7\4\0\2\6\1\7\143\6\1\0\1\6\10\7\1\0" +
-                    "\6\7\2\6\2\7\1\0\4\7\2\6\12\7\3\6\2\0\1\6" +
-                    "\17\0\1\7\1\6\1\7\36\6\33\7\2\0\131\6\13\7\1\6" +
-                    "\16\0\12\7\41\6\11\7\2\6\4\0\1\6\5\0\26\6\4\7" +
-                    "\1\6\11\7\1\6\3\7\1\6\5\7\22\0\31\6\3\7\104\0" +
-                    "\1\6\1\0\13\6\67\0\33\7\1\0\4\7\66\6\3\7\1\6" +
-                    "\22\7\1\6\7\7\12\6\2\7\2\0\12\7\1\0\7\6\1\0" +
-                    "\7\6\1\0\3\7\1\0\10\6\2\0\2\6\2\0\26\6\1\0" +
-                    "\7\6\1\0\1\6\3\0\4\6\2\0\1\7\1\6\7\7\2\0" +
-                    "\2\7\2\0\3\7\1\6\10\0\1\7\4\0\2\6\1\0\3\6" +
-                    "\2\7\2\0\12\7\4\6\7\0\1\6\5\0\3\7\1\0\6\6" +
-                    "\4\0\2\6\2\0\26\6\1\0\7\6\1\0\2\6\1\0\2\6" +
-                    "\1\0\2\6\2\0\1\7\1\0\5\7\4\0\2\7\2\0\3\7" +
-                    "\3\0\1\7\7\0\4\6\1\0\1\6\7\0\14\7\3\6\1\7" +
-                    "\13\0\3\7\1\0\11\6\1\0\3\6\1\0\26\6\1\0\7\6" +
-                    "\1\0\2\6\1\0\5\6\2\0\1\7\1\6\10\7\1\0\3\7" +
-                    "\1\0\3\7\2\0\1\6\17\0\2\6\2\7\2\0\12\7\1\0" +
-                    "\1\6\17\0\3\7\1\0\10\6\2\0\2\6\2\0\26\6\1\0" +
-                    "\7\6\1\0\2\6\1\0\5\6\2\0\1\7\1\6\7\7\2\0" +
-                    "\2\7\2\0\3\7\10\0\2\7\4\0\2\6\1\0\3\6\2\7" +
-                    "\2\0\12\7\1\0\1\6\20\0\1\7\1\6\1\0\6\6\3\0" +
-                    "\3\6\1\0\4\6\3\0\2\6\1\0\1\6\1\0\2\6\3\0" +
-                    "\2\6\3\0\3\6\3\0\14\6\4\0\5\7\3\0\3\7\1\0" +
-                    "\4\7\2\0\1\6\6\0\1\7\16\0\12\7\11\0\1\6\7\0" +
-                    "\3\7\1\0\10\6\1\0\3\6\1\0\27\6\1\0\12\6\1\0" +
-                    "\5\6\3\0\1\6\7\7\1\0\3\7\1\0\4\7\7\0\2\7" +
-                    "\1\0\2\6\6\0\2\6\2\7\2\0\12\7\22\0\2\7\1\0" +
-                    "\10\6\1\0\3\6\1\0\27\6\1\0\12\6\1\0\5\6\2\0" +
-                    "\1\7\1\6\7\7\1\0\3\7\1\0\4\7\7\0\2\7\7\0" +
-                    "\1\6\1\0\2\6\2\7\2\0\12\7\1\0\2\6\17\0\2\7" +
-                    "\1\0\10\6\1\0\3\6\1\0\51\6\2\0\1\6\7\7\1\0" +
-                    "\3\7\1\0\4\7\1\6\10\0\1\7\10\0\2\6\2\7\2\0" +
-                    "\12\7\12\0\6\6\2\0\2\7\1\0\22\6\3\0\30\6\1\0" +
-                    "\11\6\1\0\1\6\2\0\7\6\3\0\1\7\4\0\6\7\1\0" +
-                    "\1\7\1\0\10\7\22\0\2\7\15\0\60\6\1\7\2\6\7\7" +
-                    "\4\0\10\6\10\7\1\0\12\7\47\0\2\6\1\0\1\6\2\0" +
-                    "\2\6\1\0\1\6\2\0\1\6\6\0\4\6\1\0\7\6\1\0" +
-                    "\3\6\1\0\1\6\1\0\1\6\2\0\2\6\1\0\4\6\1\7" +
-                    "\2\6\6\7\1\0\2\7\1\6\2\0\5\6\1\0\1\6\1\0" +
-                    "\6\7\2\0\12\7\2\0\4\6\40\0\1\6\27\0\2\7\6\0" +
-                    "\12\7\13\0\1\7\1\0\1\7\1\0\1\7\4\0\2\7\10\6" +
-                    "\1\0\44\6\4\0\24\7\1\0\2\7\5\6\13\7\1\0\44\7" +
-                    "\11\0\1\7\71\0\53\6\24\7\1\6\12\7\6\0\6\6\4\7" +
-                    "\4\6\3\7\1\6\3\7\2\6\7\7\3\6\4\7\15\6\14\7" +
-                    "\1\6\17\7\2\0\46\6\1\0\1\6\5\0\1\6\2\0\53\6" +
-                    "\1\0\u014d\6\1\0\4\6\2\0\7\6\1\0\1\6\1\0\4\6" +
-                    "\2\0\51\6\1\0\4\6\2\0\41\6\1\0\4\6\2\0\7\6" +
-                    "\1\0\1\6\1\0\4\6\2\0\17\6\1\0\71\6\1\0\4\6" +
-                    "\2\0\103\6\2\0\3\7\40\0\20\6\20\0\125\6\14\0\u026c\6" +
-                    "\2\0\21\6\1\0\32\6\5\0\113\6\3\0\3\6\17\0\15\6" +
-                    "\1\0\4\6\3\7\13\0\22\6\3\7\13\0\22\6\2\7\14\0" +
-                    "\15\6\1\0\3\6\1\0\2\7\14\0\64\6\40\7\3\0\1\6" +
-                    "\3\0\2\6\1\7\2\0\12\7\41\0\3\7\2\0\12\7\6\0" +
-                    "\130\6\10\0\51\6\1\7\1\6\5\0\106\6\12\0\35\6\3\0" +
-                    "\14\7\4\0\14\7\12\0\12\7\36\6\2\0\5\6\13\0\54\6" +
-                    "\4\0\21\7\7\6\2\7\6\0\12\7\46\0\27\6\5\7\4\0" +
-                    "\65\6\12\7\1\0\35\7\2\0\13\7\6\0\12\7\15\0\1\6" +
-                    "\130\0\5\7\57\6\21\7\7\6\4\0\12\7\21\0\11\7\14\0" +
-                    "\3\7\36\6\15\7\2\6\12\7\54\6\16\7\14\0\44\6\24\7" +
-                    "\10\0\12\7\3\0\3\6\12\7\44\6\122\0\3\7\1\0\25\7" +
-                    "\4\6\1\7\4\6\3\7\2\6\11\0\300\6\47\7\25\0\4\7" +
-                    "\u0116\6\2\0\6\6\2\0\46\6\2\0\6\6\2\0\10\6\1\0" +
-                    "\1\6\1\0\1\6\1\0\1\6\1\0\37\6\2\0\65\6\1\0" +
-                    "\7\6\1\0\1\6\3\0\3\6\1\0\7\6\3\0\4\6\2\0" +
-                    "\6\6\4\0\15\6\5\0\3\6\1\0\7\6\16\0\5\7\30\0" +
-                    "\1\77\1\77\5\7\20\0\2\6\23\0\1\6\13\0\5\7\5\0" +
-                    "\6\7\1\0\1\6\15\0\1\6\20\0\15\6\3\0\33\6\25\0" +
-                    "\15\7\4\0\1\7\3\0\14\7\21\0\1\6\4\0\1\6\2\0" +
-                    "\12\6\1\0\1\6\3\0\5\6\6\0\1\6\1\0\1\6\1\0" +
-                    "\1\6\1\0\4\6\1\0\13\6\2\0\4\6\5\0\5\6\4\0" +
-                    "\1\6\21\0\51\6\u0a77\0\57\6\1\0\57\6\1\0\205\6\6\0" +
-                    "\4\6\3\7\2\6\14\0\46\6\1\0\1\6\5\0\1\6\2\0" +
-                    "\70\6\7\0\1\6\17\0\1\7\27\6\11\0\7\6\1\0\7\6" +
-                    "\1\0\7\6\1\0\7\6\1\0\7\6\1\0\7\6\1\0\7\6" +
-                    "\1\0\7\6\1\0\40\7\57\0\1\6\u01d5\0\3\6\31\0\11\6" +
-                    "\6\7\1\0\5\6\2\0\5\6\4\0\126\6\2\0\2\7\2\0" +
-                    "\3\6\1\0\132\6\1\0\4\6\5\0\51\6\3\0\136\6\21\0" +
-                    "\33\6\65\0\20\6\u0200\0\u19b6\6\112\0\u51cd\6\63\0\u048d\6\103\0" +
-                    "\56\6\2\0\u010d\6\3\0\20\6\12\7\2\6\24\0\57\6\1\7" +
-                    "\4\0\12\7\1\0\31\6\7\0\1\7\120\6\2\7\45\0\11\6" +
-                    "\2\0\147\6\2\0\4\6\1\0\4\6\14\0\13\6\115\0\12\6" +
-                    "\1\7\3\6\1\7\4\6\1\7\27\6\5\7\20\0\1\6\7\0" +
-                    "\64\6\14\0\2\7\62\6\21\7\13\0\12\7\6\0\22\7\6\6" +
-                    "\3\0\1\6\4\0\12\7\34\6\10\7\2\0\27\6\15\7\14\0" +
-                    "\35\6\3\0\4\7\57\6\16\7\16\0\1\6\12\7\46\0\51\6" +
-                    "\16\7\11\0\3\6\1\7\10\6\2\7\2\0\12\7\6\0\27\6" +
-                    "\3\0\1\6\1\7\4\0\60\6\1\7\1\6\3\7\2\6\2\7" +
-                    "\5\6\2\7\1\6\1\7\1\6\30\0\3\6\2\0\13\6\5\7" +
-                    "\2\0\3\6\2\7\12\0\6\6\2\0\6\6\2\0\6\6\11\0" +
-                    "\7\6\1\0\7\6\221\0\43\6\10\7\1\0\2\7\2\0\12\7" +
-                    "\6\0\u2ba4\6\14\0\27\6\4\0\61\6\u2104\0\u016e\6\2\0\152\6" +
-                    "\46\0\7\6\14\0\5\6\5\0\1\6\1\7\12\6\1\0\15\6" +
-                    "\1\0\5\6\1\0\1\6\1\0\2\6\1\0\2\6\1\0\154\6" +
-                    "\41\0\u016b\6\22\0\100\6\2\0\66\6\50\0\15\6\3\0\20\7" +
-                    "\20\0\7\7\14\0\2\6\30\0\3\6\31\0\1\6\6\0\5\6" +
-                    "\1\0\207\6\2\0\1\7\4\0\1\6\13\0\12\7\7\0\32\6" +
-                    "\4\0\1\6\1\0\32\6\13\0\131\6\3\0\6\6\2\0\6\6" +
-                    "\2\0\6\6\2\0\3\6\3\0\2\6\3\0\2\6\22\0\3\7" +
-                    "\4\0\14\6\1\0\32\6\1\0\23\6\1\0\2\6\1\0\17\6" +
-                    "\2\0\16\6\42\0\173\6\105\0\65\6\210\0\1\7\202\0\35\6" +
-                    "\3\0\61\6\57\0\37\6\21\0\33\6\65\0\36\6\2\0\44\6" +
-                    "\4\0\10\6\1\0\5\6\52\0\236\6\2\0\12\7\u0356\0\6\6" +
-                    "\2\0\1\6\1\0\54\6\1\0\2\6\3\0\1\6\2\0\27\6" +
-                    "\252\0\26\6\12\0\32\6\106\0\70\6\6\0\2\6\100\0\1\6" +
-                    "\3\7\1\0\2\7\5\0\4\7\4\6\1\0\3\6\1\0\33\6" +
-                    "\4\0\3\7\4\0\1\7\40\0\35\6\203\0\66\6\12\0\26\6" +
-                    "\12\0\23\6\215\0\111\6\u03b7\0\3\7\65\6\17\7\37\0\12\7" +
-                    "\20\0\3\7\55\6\13\7\2\0\1\7\22\0\31\6\7\0\12\7" +
-                    "\6\0\3\7\44\6\16\7\1\0\12\7\100\0\3\7\60\6\16\7" +
-                    "\4\6\13\0\12\7\u04a6\0\53\6\15\7\10\0\12\7\u0936\0\u036f\6" +
-                    "\221\0\143\6\u0b9d\0\u042f\6\u33d1\0\u0239\6\u04c7\0\105\6\13\0\1\6" +
-                    "\56\7\20\0\4\7\15\6\u4060\0\2\6\u2163\0\5\7\3\0\26\7" +
-                    "\2\0\7\7\36\0\4\7\224\0\3\7\u01bb\0\125\6\1\0\107\6" +
-                    "\1\0\2\6\2\0\1\6\2\0\2\6\2\0\4\6\1\0\14\6" +
-                    "\1\0\1\6\1\0\7\6\1\0\101\6\1\0\4\6\2\0\10\6" +
-                    "\1\0\7\6\1\0\34\6\1\0\4\6\1\0\5\6\1\0\1\6" +
-                    "\3\0\7\6\1\0\u0154\6\2\0\31\6\1\0\31\6\1\0\37\6" +
-                    "\1\0\31\6\1\0\37\6\1\0\31\6\1\0\37\6\1\0\31\6" +
-                    "\1\0\37\6\1\0\31\6\1\0\10\6\2\0\62\7\u1600\0\4\6" +
-                    "\1\0\33\6\1\0\2\6\1\0\1\6\2\0\1\6\1\0\12\6" +
-                    "\1\0\4\6\1\0\1\6\1\0\1\6\6\0\1\6\4\0\1\6" +
-                    "\1\0\1\6\1\0\1\6\1\0\3\6\1\0\2\6\1\0\1\6" +
-                    "\2\0\1\6\1\0\1\6\1\0\1\6\1\0\1\6\1\0\1\6" +
-                    "\1\0\2\6\1\0\1\6\2\0\4\6\1\0\7\6\1\0\4\6" +
-                    "\1\0\4\6\1\0\1\6\1\0\12\6\1\0\21\6\5\0\3\6" +
-                    "\1\0\5\6\1\0\21\6\u1144\0\ua6d7\6\51\0\u1035\6\13\0\336\6" +
-                    "\u3fe2\0\u021e\6\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\u05ee\0" +
-                    "\1\7\36\0\140\7\200\0\360\7\uffff\0\uffff\0\ufe12\0";
+    private static final int BUFFER_KEEP = 16;
 
+    private final CharSequence _text;
+    private final int _textEnd;
+    @Nullable
+    private final KeywordTrie _keywords;
+    private final char[] _buffer = new char[BUFFER_SIZE];
+    private int _bufferStart = 0;
+    private int _bufferEnd = 0;
+
+    private int _start;
+    private int _length = 0;
+    private int _keyword = KeywordTrie.NONE;
+
+    private int _state = YYINITIAL;
     /**
-     * Translates characters to character classes
-     */
-    private static final char[] ZZ_CMAP = zzUnpackCMap(ZZ_CMAP_PACKED);
-    private static final String ZZ_ACTION_PACKED_0 =
-            "\3\0\1\1\2\2\2\3\1\4\2\5\1\6\1\3" +
-                    "\1\7\1\10\21\4\1\11\1\12\1\13\1\14\1\15" +
-                    "\1\16\1\17\1\20\6\3\1\21\2\22\1\23\1\1" +
-                    "\1\24\2\25\1\26\1\1\1\27\1\0\1\5\1\30" +
-                    "\1\5\1\0\3\5\2\30\1\0\36\4\2\31\1\4" +
-                    "\1\31\13\4\1\3\1\21\1\24\2\27\1\0\4\5" +
-                    "\1\30\1\0\33\4\1\31\17\4\3\5\30\4\3\5" +
-                    "\7\4\1\31\10\4\1\31\2\4\3\5\12\4\3\5" +
-                    "\5\4\3\5\1\4\3\5\1\4\3\5\1\0\2\5" +
-                    "\1\0\2\5\1\0\2\5\1\0\2\5\1\0\2\5" +
-                    "\1\0\2\5\1\0\1\5\1\30\1\0\5\30";
-    /**
-     * Translates DFA states to action switch labels.
-     */
-    private static final int[] ZZ_ACTION = zzUnpackAction();
-    private static final String ZZ_ROWMAP_PACKED_0 =
-            "\0\0\0\102\0\204\0\306\0\u0108\0\306\0\u014a\0\u018c" +
-                    "\0\u01ce\0\u0210\0\u0252\0\u0294\0\u02d6\0\306\0\306\0\u0318" +
-                    "\0\u035a\0\u039c\0\u03de\0\u0420\0\u0462\0\u04a4\0\u04e6\0\u0528" +
-                    "\0\u056a\0\u05ac\0\u05ee\0\u0630\0\u0672\0\u06b4\0\u06f6\0\u0738" +
-                    "\0\306\0\306\0\306\0\306\0\306\0\306\0\306\0\306" +
-                    "\0\u077a\0\u07bc\0\306\0\u07fe\0\u0840\0\u0882\0\u08c4\0\u0906" +
-                    "\0\306\0\306\0\u0948\0\u098a\0\u09cc\0\306\0\306\0\u0a0e" +
-                    "\0\u0a50\0\u0a92\0\u0ad4\0\u0b16\0\306\0\u0b58\0\u0b9a\0\u0bdc" +
-                    "\0\u0c1e\0\306\0\u0c60\0\u0ca2\0\u0ce4\0\u0d26\0\u0d68\0\u0daa" +
-                    "\0\u0dec\0\u0e2e\0\u0e70\0\u0eb2\0\u0ef4\0\u0f36\0\u0f78\0\u0fba" +
-                    "\0\u0ffc\0\u103e\0\u1080\0\u10c2\0\u1104\0\u1146\0\u1188\0\u11ca" +
-                    "\0\u120c\0\u124e\0\u1290\0\u12d2\0\u1314\0\u1356\0\u1398\0\u13da" +
-                    "\0\u141c\0\u145e\0\u14a0\0\u01ce\0\u14e2\0\u1524\0\u1566\0\u15a8" +
-                    "\0\u15ea\0\u162c\0\u166e\0\u16b0\0\u16f2\0\u1734\0\u1776\0\u17b8" +
-                    "\0\u17fa\0\u183c\0\306\0\306\0\u187e\0\306\0\u18c0\0\u1902" +
-                    "\0\u1944\0\u1986\0\u19c8\0\u1a0a\0\u1a4c\0\u1a8e\0\u1ad0\0\u1b12" +
-                    "\0\u1b54\0\u1b96\0\u1bd8\0\u1c1a\0\u1c5c\0\u1c9e\0\u1ce0\0\u1d22" +
-                    "\0\u1d64\0\u1da6\0\u1de8\0\u1e2a\0\u1e6c\0\u1eae\0\u1ef0\0\u1f32" +
-                    "\0\u1f74\0\u1fb6\0\u1ff8\0\u203a\0\u207c\0\u20be\0\u2100\0\u2142" +
-                    "\0\u2184\0\u21c6\0\u2208\0\u224a\0\u228c\0\u22ce\0\u2310\0\u2352" +
-                    "\0\u2394\0\u23d6\0\u2418\0\u245a\0\u249c\0\u24de\0\u2520\0\u2562" +
-                    "\0\u25a4\0\u25e6\0\u2628\0\u266a\0\u26ac\0\u26ee\0\u2730\0\u2772" +
-                    "\0\u27b4\0\u27f6\0\u2838\0\u287a\0\u28bc\0\u28fe\0\u2940\0\u2982" +
-                    "\0\u29c4\0\u2a06\0\u2a48\0\u2a8a\0\u2acc\0\u2b0e\0\u2b50\0\u2b92" +
-                    "\0\u2bd4\0\u2c16\0\u2c58\0\u2c9a\0\u2cdc\0\u2d1e\0\u2d60\0\u2da2" +
-                    "\0\u2de4\0\u2e26\0\u2e68\0\u2eaa\0\u2eec\0\u1de8\0\u2f2e\0\u2f70" +
-                    "\0\u2fb2\0\u2ff4\0\u3036\0\u3078\0\u30ba\0\u30fc\0\u313e\0\u3180" +
-                    "\0\u31c2\0\u3204\0\u3246\0\u3288\0\u32ca\0\u330c\0\u334e\0\u3390" +
-                    "\0\u33d2\0\u3414\0\u3456\0\u3498\0\u34da\0\u351c\0\u355e\0\u35a0" +
-                    "\0\u35e2\0\u3624\0\u3666\0\u36a8\0\u36ea\0\u372c\0\u376e\0\u37b0" +
-                    "\0\u37f2\0\u3834\0\u3876\0\u38b8\0\u38fa\0\u393c\0\u397e\0\u39c0" +
-                    "\0\u3a02\0\u3a44\0\u3a86\0\u3ac8\0\u3b0a\0\u3b4c\0\u3b8e\0\u3bd0" +
-                    "\0\u3c12\0\u3c54\0\u3c96\0\u3cd8\0\u3d1a\0\u3d5c\0\u3d9e\0\u3de0" +
-                    "\0\u3e22\0\u3e64\0\u3ea6\0\u3ee8\0\u3f2a\0\u3f2a\0\u3f6c\0\u3fae" +
-                    "\0\u3ff0\0\u4032\0\u4074\0\u40b6";
-    /**
-     * Translates a state to a row index in the transition table
-     */
-    private static final int[] ZZ_ROWMAP = zzUnpackRowMap();
-    private static final String ZZ_TRANS_PACKED_0 =
-            "\1\4\1\5\2\6\1\7\1\10\1\11\1\4\1\12" +
-                    "\1\13\3\11\3\13\1\11\1\14\1\11\1\15\1\16" +
-                    "\1\17\1\4\1\20\1\21\1\22\1\23\1\24\1\25" +
-                    "\1\26\2\11\1\27\1\30\1\11\1\31\1\11\1\32" +
-                    "\1\11\1\33\1\34\1\35\1\36\1\11\1\37\1\40" +
-                    "\1\11\1\41\1\42\1\43\1\44\1\45\1\46\1\47" +
-                    "\1\50\1\10\1\51\1\52\1\10\1\53\1\54\1\55" +
-                    "\1\56\1\4\1\6\1\4\1\57\1\60\1\61\21\57" +
-                    "\1\62\1\57\1\63\53\57\1\64\1\65\1\66\22\64" +
-                    "\1\67\1\70\53\64\104\0\1\6\103\0\1\71\1\72" +
-                    "\61\0\1\53\101\0\1\53\20\0\13\11\1\0\1\11" +
-                    "\4\0\30\11\22\0\1\11\10\0\1\73\1\74\1\75" +
-                    "\1\76\1\0\1\77\1\100\1\101\1\102\1\103\1\104" +
-                    "\15\0\1\104\2\0\1\75\4\0\2\102\1\0\1\76" +
-                    "\36\0\2\13\1\75\2\0\3\13\1\102\1\103\1\104" +
-                    "\15\0\1\104\2\0\1\75\4\0\2\102\40\0\2\103" +
-                    "\3\0\3\103\105\0\1\53\43\0\1\53\20\0\13\11" +
-                    "\1\0\1\11\4\0\1\11\1\105\2\11\1\106\23\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\4\11" +
-                    "\1\107\6\11\1\110\2\11\1\111\11\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\3\11\1\112\3\11" +
-                    "\1\113\6\11\1\114\1\115\6\11\1\116\1\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\4\11\1\117" +
-                    "\11\11\1\120\1\121\10\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\11\11\1\122\16\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\1\123\12\11\1\124" +
-                    "\1\125\2\11\1\126\10\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\13\11\1\127\14\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\12\11\1\130\1\11" +
-                    "\1\131\6\11\1\132\1\133\3\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\1\134\6\11\1\135\1\11" +
-                    "\1\136\16\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\11\11\1\137\1\11\1\140\14\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\20\11\1\141\7\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\10\11" +
-                    "\1\142\1\11\1\143\7\11\1\144\5\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\11\11\1\145\1\11" +
-                    "\1\146\14\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\1\147\6\11\1\150\3\11\1\151\1\152\3\11" +
-                    "\1\153\7\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\1\151\12\11\1\154\14\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\1\155\3\11\1\156\2\11" +
-                    "\1\157\20\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\17\11\1\160\1\161\7\11\22\0\1\11\67\0" +
-                    "\1\53\1\162\100\0\1\53\1\0\1\10\77\0\1\53" +
-                    "\4\0\1\53\74\0\1\53\5\0\1\53\73\0\1\53" +
-                    "\6\0\1\53\3\0\1\57\2\0\21\57\1\0\1\57" +
-                    "\1\0\53\57\2\0\1\61\77\0\1\163\2\0\74\163" +
-                    "\3\0\1\64\2\0\22\64\2\0\53\64\2\0\1\66" +
-                    "\77\0\1\164\2\0\74\164\3\0\1\71\1\165\1\166" +
-                    "\77\71\5\72\1\167\74\72\10\0\1\73\1\74\1\75" +
-                    "\2\0\1\77\1\100\1\101\1\102\1\103\1\104\15\0" +
-                    "\1\104\2\0\1\75\4\0\2\102\40\0\2\74\3\0" +
-                    "\3\74\1\102\1\103\1\104\15\0\1\104\7\0\2\102" +
-                    "\40\0\1\170\1\171\2\0\5\171\1\0\1\171\4\0" +
-                    "\2\171\3\0\1\171\3\0\1\171\7\0\2\171\40\0" +
-                    "\1\172\1\74\1\75\2\0\3\172\1\102\1\103\1\104" +
-                    "\15\0\1\104\2\0\1\75\4\0\2\102\40\0\1\101" +
-                    "\1\74\1\75\2\0\3\101\1\102\1\103\1\104\15\0" +
-                    "\1\104\2\0\1\75\4\0\2\102\40\0\1\173\1\74" +
-                    "\1\75\2\0\3\173\1\102\1\103\1\104\15\0\1\104" +
-                    "\2\0\1\75\4\0\2\102\40\0\2\103\3\0\3\103" +
-                    "\1\102\1\0\1\104\15\0\1\104\7\0\2\102\40\0" +
-                    "\2\174\3\0\3\174\3\0\1\175\52\0\1\175\11\0" +
-                    "\13\11\1\0\1\11\4\0\2\11\1\176\25\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\6\11\1\177" +
-                    "\21\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\11\11\1\200\16\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\13\11\1\201\14\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\3\11\1\202\24\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\1\203\27\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\25\11" +
-                    "\1\204\2\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\12\11\1\205\15\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\13\11\1\206\14\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\20\11\1\207\7\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\1\210" +
-                    "\6\11\1\202\6\11\1\144\11\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\25\11\1\211\2\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\4\11\1\212" +
-                    "\13\11\1\213\7\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\3\11\1\214\24\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\2\11\1\202\1\215\24\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\12\11" +
-                    "\1\216\15\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\1\217\27\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\1\151\27\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\3\11\1\220\24\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\7\11\1\221\20\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\2\11" +
-                    "\1\202\25\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\1\222\27\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\3\11\1\223\21\11\1\115\2\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\3\11\1\224" +
-                    "\24\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\14\11\1\222\13\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\26\11\1\144\1\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\3\11\1\144\24\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\12\11\1\225" +
-                    "\15\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\11\11\1\226\16\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\25\11\1\227\2\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\2\11\1\230\1\231\24\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\1\11" +
-                    "\1\232\12\11\1\233\5\11\1\234\5\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\7\11\1\235\20\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\14\11" +
-                    "\1\131\13\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\12\11\1\236\15\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\4\11\1\144\23\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\13\11\1\237\14\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\12\11" +
-                    "\1\240\15\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\14\11\1\241\3\11\1\242\7\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\5\11\1\243\22\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\13\11" +
-                    "\1\244\4\11\1\245\7\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\1\11\1\246\26\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\20\11\1\247\7\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\3\11" +
-                    "\1\250\24\11\22\0\1\11\67\0\1\53\1\10\13\0" +
-                    "\1\166\77\0\4\72\1\166\1\167\74\72\10\0\1\170" +
-                    "\1\171\1\75\1\0\5\171\1\0\1\171\4\0\2\171" +
-                    "\3\0\1\171\3\0\1\171\2\0\1\75\4\0\2\171" +
-                    "\40\0\2\251\1\75\1\0\5\251\1\0\1\251\4\0" +
-                    "\2\251\3\0\1\251\3\0\1\251\2\0\1\75\4\0" +
-                    "\2\251\40\0\1\252\1\74\1\75\2\0\3\252\1\102" +
-                    "\1\103\1\104\15\0\1\104\2\0\1\75\4\0\2\102" +
-                    "\40\0\1\253\1\74\1\75\2\0\3\253\1\102\1\103" +
-                    "\1\104\15\0\1\104\2\0\1\75\4\0\2\102\40\0" +
-                    "\2\174\3\0\3\174\1\102\27\0\2\102\40\0\2\174" +
-                    "\3\0\3\174\70\0\13\11\1\0\1\11\4\0\3\11" +
-                    "\1\254\24\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\7\11\1\255\20\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\1\256\27\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\14\11\1\257\13\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\11\11\1\144" +
-                    "\16\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\3\11\1\260\24\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\11\11\1\151\16\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\5\11\1\261\22\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\4\11\1\137" +
-                    "\23\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\3\11\1\215\24\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\12\11\1\262\15\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\11\11\1\263\16\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\13\11\1\264" +
-                    "\14\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\2\11\1\144\25\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\7\11\1\265\20\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\5\11\1\250\22\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\2\11\1\137" +
-                    "\1\266\24\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\2\11\1\213\25\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\13\11\1\144\14\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\10\11\1\144\17\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\14\11" +
-                    "\1\144\13\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\11\11\1\267\16\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\20\11\1\270\7\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\6\11\1\144\21\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\14\11" +
-                    "\1\242\13\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\13\11\1\206\1\271\13\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\3\11\1\272\24\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\11\11\1\273" +
-                    "\16\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\7\11\1\274\20\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\11\11\1\111\16\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\1\275\27\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\1\11\1\247\26\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\5\11" +
-                    "\1\276\22\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\1\137\27\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\1\277\27\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\1\300\27\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\21\11\1\144\6\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\15\11\1\301" +
-                    "\12\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\3\11\1\302\24\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\23\11\1\303\4\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\14\11\1\260\13\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\14\11\1\202" +
-                    "\13\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\17\11\1\144\10\11\22\0\1\11\10\0\2\304\1\75" +
-                    "\1\0\5\304\1\0\1\304\4\0\2\304\3\0\1\304" +
-                    "\3\0\1\304\2\0\1\75\4\0\2\304\40\0\1\305" +
-                    "\1\74\1\75\2\0\3\305\1\102\1\103\1\104\15\0" +
-                    "\1\104\2\0\1\75\4\0\2\102\40\0\1\306\1\74" +
-                    "\1\75\2\0\3\306\1\102\1\103\1\104\15\0\1\104" +
-                    "\2\0\1\75\4\0\2\102\36\0\13\11\1\0\1\11" +
-                    "\4\0\4\11\1\307\23\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\10\11\1\310\17\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\15\11\1\144\12\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\11\11" +
-                    "\1\311\16\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\20\11\1\312\7\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\17\11\1\313\10\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\2\11\1\314\25\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\13\11" +
-                    "\1\315\14\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\26\11\1\316\1\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\4\11\1\317\23\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\20\11\1\320\7\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\12\11" +
-                    "\1\321\15\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\23\11\1\202\4\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\11\11\1\255\16\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\1\322\27\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\4\11\1\323" +
-                    "\23\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\6\11\1\324\21\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\7\11\1\325\20\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\3\11\1\326\24\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\14\11\1\327" +
-                    "\13\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\3\11\1\160\24\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\1\330\27\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\11\11\1\331\16\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\1\111\27\11\22\0" +
-                    "\1\11\10\0\2\332\1\75\1\0\5\332\1\0\1\332" +
-                    "\4\0\2\332\3\0\1\332\3\0\1\332\2\0\1\75" +
-                    "\4\0\2\332\40\0\1\333\1\74\1\75\2\0\3\333" +
-                    "\1\102\1\103\1\104\15\0\1\104\2\0\1\75\4\0" +
-                    "\2\102\40\0\1\334\1\74\1\75\2\0\3\334\1\102" +
-                    "\1\103\1\104\15\0\1\104\2\0\1\75\4\0\2\102" +
-                    "\36\0\13\11\1\0\1\11\4\0\1\335\27\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\11\11\1\336" +
-                    "\16\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\1\317\27\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\5\11\1\144\22\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\4\11\1\337\23\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\20\11\1\340\7\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\22\11" +
-                    "\1\144\5\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\12\11\1\144\15\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\12\11\1\341\15\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\21\11\1\213\6\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\12\11" +
-                    "\1\342\15\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\22\11\1\343\5\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\6\11\1\204\21\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\14\11\1\137\13\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\20\11" +
-                    "\1\344\7\11\22\0\1\11\6\0\13\11\1\0\1\11" +
-                    "\4\0\14\11\1\345\13\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\6\11\1\202\21\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\5\11\1\346\22\11" +
-                    "\22\0\1\11\10\0\2\347\1\75\1\0\5\347\1\0" +
-                    "\1\347\4\0\2\347\3\0\1\347\3\0\1\347\2\0" +
-                    "\1\75\4\0\2\347\40\0\1\350\1\74\1\75\2\0" +
-                    "\3\350\1\102\1\103\1\104\15\0\1\104\2\0\1\75" +
-                    "\4\0\2\102\40\0\1\351\1\74\1\75\2\0\3\351" +
-                    "\1\102\1\103\1\104\15\0\1\104\2\0\1\75\4\0" +
-                    "\2\102\36\0\13\11\1\0\1\11\4\0\5\11\1\137" +
-                    "\22\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\12\11\1\352\15\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\13\11\1\353\14\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\11\11\1\354\16\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\7\11\1\202" +
-                    "\20\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\5\11\1\211\22\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\1\355\27\11\22\0\1\11\6\0\13\11" +
-                    "\1\0\1\11\4\0\13\11\1\317\14\11\22\0\1\11" +
-                    "\6\0\13\11\1\0\1\11\4\0\16\11\1\144\11\11" +
-                    "\22\0\1\11\6\0\13\11\1\0\1\11\4\0\3\11" +
-                    "\1\356\24\11\22\0\1\11\10\0\2\357\1\75\1\0" +
-                    "\5\357\1\0\1\357\4\0\2\357\3\0\1\357\3\0" +
-                    "\1\357\2\0\1\75\4\0\2\357\40\0\1\360\1\74" +
-                    "\1\75\2\0\3\360\1\102\1\103\1\104\15\0\1\104" +
-                    "\2\0\1\75\4\0\2\102\40\0\1\361\1\74\1\75" +
-                    "\2\0\3\361\1\102\1\103\1\104\15\0\1\104\2\0" +
-                    "\1\75\4\0\2\102\36\0\13\11\1\0\1\11\4\0" +
-                    "\3\11\1\213\24\11\22\0\1\11\6\0\13\11\1\0" +
-                    "\1\11\4\0\12\11\1\362\15\11\22\0\1\11\6\0" +
-                    "\13\11\1\0\1\11\4\0\12\11\1\137\15\11\22\0" +
-                    "\1\11\6\0\13\11\1\0\1\11\4\0\5\11\1\202" +
-                    "\22\11\22\0\1\11\6\0\13\11\1\0\1\11\4\0" +
-                    "\11\11\1\242\16\11\22\0\1\11\10\0\2\363\1\75" +
-                    "\1\0\5\363\1\0\1\363\4\0\2\363\3\0\1\363" +
-                    "\3\0\1\363\2\0\1\75\4\0\2\363\40\0\1\364" +
-                    "\1\74\1\75\2\0\3\364\1\102\1\103\1\104\15\0" +
-                    "\1\104\2\0\1\75\4\0\2\102\40\0\1\365\1\74" +
-                    "\1\75\2\0\3\365\1\102\1\103\1\104\15\0\1\104" +
-                    "\2\0\1\75\4\0\2\102\36\0\13\11\1\0\1\11" +
-                    "\4\0\20\11\1\366\7\11\22\0\1\11\10\0\2\367" +
-                    "\1\75\1\0\5\367\1\0\1\367\4\0\2\367\3\0" +
-                    "\1\367\3\0\1\367\2\0\1\75\4\0\2\367\40\0" +
-                    "\1\370\1\74\1\75\2\0\3\370\1\102\1\103\1\104" +
-                    "\15\0\1\104\2\0\1\75\4\0\2\102\40\0\1\371" +
-                    "\1\74\1\75\2\0\3\371\1\102\1\103\1\104\15\0" +
-                    "\1\104\2\0\1\75\4\0\2\102\36\0\13\11\1\0" +
-                    "\1\11\4\0\27\11\1\356\22\0\1\11\10\0\2\372" +
-                    "\1\75\1\0\5\372\1\0\1\372\4\0\2\372\3\0" +
-                    "\1\372\3\0\1\372\2\0\1\75\4\0\2\372\40\0" +
-                    "\1\373\1\74\1\75\2\0\3\373\1\102\1\103\1\104" +
-                    "\15\0\1\104\2\0\1\75\4\0\2\102\40\0\1\374" +
-                    "\1\74\1\75\2\0\3\374\1\102\1\103\1\104\15\0" +
-                    "\1\104\2\0\1\75\4\0\2\102\40\0\2\375\1\75" +
-                    "\1\0\5\375\1\0\1\375\4\0\2\375\3\0\1\375" +
-                    "\3\0\1\375\2\0\1\75\4\0\2\375\40\0\1\376" +
-                    "\1\74\1\75\2\0\3\376\1\102\1\103\1\104\15\0" +
-                    "\1\104\2\0\1\75\4\0\2\102\40\0\1\377\1\74" +
-                    "\1\75\2\0\3\377\1\102\1\103\1\104\15\0\1\104" +
-                    "\2\0\1\75\4\0\2\102\40\0\2\u0100\1\75\1\0" +
-                    "\5\u0100\1\0\1\u0100\4\0\2\u0100\3\0\1\u0100\3\0" +
-                    "\1\u0100\2\0\1\75\4\0\2\u0100\40\0\1\u0101\1\74" +
-                    "\1\75\2\0\3\u0101\1\102\1\103\1\104\15\0\1\104" +
-                    "\2\0\1\75\4\0\2\102\40\0\1\u0102\1\74\1\75" +
-                    "\2\0\3\u0102\1\102\1\103\1\104\15\0\1\104\2\0" +
-                    "\1\75\4\0\2\102\40\0\2\u0103\1\75\1\0\5\u0103" +
-                    "\1\0\1\u0103\4\0\2\u0103\3\0\1\u0103\3\0\1\u0103" +
-                    "\2\0\1\75\4\0\2\u0103\40\0\1\u0104\1\74\1\75" +
-                    "\2\0\3\u0104\1\102\1\103\1\104\15\0\1\104\2\0" +
-                    "\1\75\4\0\2\102\40\0\1\u0105\1\74\1\75\2\0" +
-                    "\3\u0105\1\102\1\103\1\104\15\0\1\104\2\0\1\75" +
-                    "\4\0\2\102\40\0\2\u0106\1\75\1\0\5\u0106\1\0" +
-                    "\1\u0106\4\0\2\u0106\3\0\1\u0106\3\0\1\u0106\2\0" +
-                    "\1\75\4\0\2\u0106\40\0\1\u0107\1\74\1\75\2\0" +
-                    "\3\u0107\1\102\1\103\1\104\15\0\1\104\2\0\1\75" +
-                    "\4\0\2\102\40\0\1\u0108\1\74\1\75\2\0\3\u0108" +
-                    "\1\102\1\103\1\104\15\0\1\104\2\0\1\75\4\0" +
-                    "\2\102\40\0\2\u0109\1\75\1\0\5\u0109\1\0\1\u0109" +
-                    "\4\0\2\u0109\3\0\1\u0109\3\0\1\u0109\2\0\1\75" +
-                    "\4\0\2\u0109\40\0\1\u010a\1\74\1\75\2\0\3\u010a" +
-                    "\1\102\1\103\1\104\15\0\1\104\2\0\1\75\4\0" +
-                    "\2\102\40\0\1\u010b\1\74\1\75\2\0\3\u010b\1\102" +
-                    "\1\103\1\104\15\0\1\104\2\0\1\75\4\0\2\102" +
-                    "\40\0\2\u010c\1\75\1\0\5\u010c\1\0\1\u010c\4\0" +
-                    "\2\u010c\3\0\1\u010c\3\0\1\u010c\2\0\1\75\4\0" +
-                    "\2\u010c\40\0\1\u010d\1\74\1\75\2\0\3\u010d\1\102" +
-                    "\1\103\1\104\15\0\1\104\2\0\1\75\4\0\2\102" +
-                    "\40\0\1\u010e\1\74\1\75\2\0\3\u010e\1\102\1\103" +
-                    "\1\104\15\0\1\104\2\0\1\75\4\0\2\102\40\0" +
-                    "\2\u010f\1\75\1\0\5\u010f\1\0\1\u010f\4\0\2\u010f" +
-                    "\3\0\1\u010f\3\0\1\u010f\2\0\1\75\4\0\2\u010f" +
-                    "\40\0\1\u0110\1\74\1\75\2\0\3\u0110\1\102\1\103" +
-                    "\1\104\15\0\1\104\2\0\1\75\4\0\2\102\42\0" +
-                    "\1\75\30\0\1\75\46\0\1\u0111\1\74\1\75\2\0" +
-                    "\3\u0111\1\102\1\103\1\104\15\0\1\104\2\0\1\75" +
-                    "\4\0\2\102\40\0\1\u0112\1\74\1\75\2\0\3\u0112" +
-                    "\1\102\1\103\1\104\15\0\1\104\2\0\1\75\4\0" +
-                    "\2\102\40\0\1\u0113\1\74\1\75\2\0\3\u0113\1\102" +
-                    "\1\103\1\104\15\0\1\104\2\0\1\75\4\0\2\102" +
-                    "\40\0\1\u0114\1\74\1\75\2\0\3\u0114\1\102\1\103" +
-                    "\1\104\15\0\1\104\2\0\1\75\4\0\2\102\40\0" +
-                    "\2\74\1\75\2\0\3\74\1\102\1\103\1\104\15\0" +
-                    "\1\104\2\0\1\75\4\0\2\102\30\0";
-    /**
-     * The transition table of the DFA
-     */
-    private static final int[] ZZ_TRANS = zzUnpackTrans();
-    /* error codes */
-    private static final int ZZ_UNKNOWN_ERROR = 0;
-    private static final int ZZ_NO_MATCH = 1;
-    private static final int ZZ_PUSHBACK_2BIG = 2;
-    /* error messages for the codes above */
-    private static final String ZZ_ERROR_MSG[] = {
-            "Unknown internal scanner error",
-            "Error: could not match input",
-            "Error: pushback value was too large"
-    };
-    private static final String ZZ_ATTRIBUTE_PACKED_0 =
-            "\3\0\1\11\1\1\1\11\7\1\2\11\21\1\10\11" +
-                    "\2\1\1\11\5\1\2\11\3\1\2\11\2\1\1\0" +
-                    "\2\1\1\11\1\0\3\1\1\11\1\1\1\0\56\1" +
-                    "\2\11\1\1\1\11\1\0\5\1\1\0\174\1\1\0" +
-                    "\2\1\1\0\2\1\1\0\2\1\1\0\2\1\1\0" +
-                    "\2\1\1\0\2\1\1\0\2\1\1\0\5\1";
-    /**
-     * ZZ_ATTRIBUTE[aState] contains the attributes of state <code>aState</code>
-     */
-    private static final int[] ZZ_ATTRIBUTE = zzUnpackAttribute();
-    /**
-     * the input device
-     */
-    private java.io.Reader zzReader;
-    /**
-     * the current state of the DFA
-     */
-    private int zzState;
-    /**
-     * the current lexical state
-     */
-    private int zzLexicalState = YYINITIAL;
-    /**
-     * this buffer contains the current text to be matched and is
-     * the source of the yytext() string
-     */
-    private char zzBuffer[] = new char[ZZ_BUFFERSIZE];
-    /**
-     * the textposition at the last accepting state
-     */
-    private int zzMarkedPos;
-    /**
-     * the current text position in the buffer
-     */
-    private int zzCurrentPos;
-    /**
-     * startRead marks the beginning of the yytext() string in the buffer
-     */
-    private int zzStartRead;
-    /**
-     * endRead marks the last character in the buffer, that has been read
-     * from input
-     */
-    private int zzEndRead;
-    /**
-     * number of newlines encountered up to the start of the matched text
-     */
-    private int yyline;
-    /**
-     * the number of characters up to the start of the matched text
-     */
-    private int yychar;
-    /**
-     * the number of characters from the last newline up to the start of the
-     * matched text
-     */
-    private int yycolumn;
-    /**
-     * zzAtBOL == true <=> the scanner is currently at the beginning of a line
-     */
-    private boolean zzAtBOL = true;
-    /**
-     * zzAtEOF == true <=> the scanner is at the EOF
+     * Whether a '/' here starts a regular expression rather than divides
      */
-    private boolean zzAtEOF;
+    private boolean _regexAllowed = true;
     /**
-     * denotes if the user-EOF-code has already been executed
+     * Whether the last token was a member access '.', after which even a
+     * keyword is a property name
      */
-    private boolean zzEOFDone;
+    private boolean _propertyNext = false;
     /**
-     * The number of occupied positions in zzBuffer beyond zzEndRead.
-     * When a lead/high surrogate has been read from the input stream
-     * into the final zzBuffer position, this will have a value of 1;
-     * otherwise, it will have a value of 0.
+     * Open braces in each template substitution the lexer is in
      */
-    private int zzFinalHighSurrogate = 0;
+    private int[] _braces = new int[4];
+    private int _depth = 0;
 
     /**
-     * Creates a new scanner
-     *
-     * @param in the java.io.Reader to read input from.
+     * Creates a lexer of text from offset on, which finds keywords if they
+     * are given
      */
-    public JavaScriptLexer(java.io.Reader in) {
-        this.zzReader = in;
+    public JavaScriptLexer(@NotNull CharSequence text, int offset, @Nullable KeywordTrie keywords) {
+        _text = text;
+        _textEnd = text.length();
+        _start = offset;
+        _keywords = keywords;
     }
 
-    private static int[] zzUnpackAction() {
-        int[] result = new int[276];
-        int offset = 0;
-        offset = zzUnpackAction(ZZ_ACTION_PACKED_0, offset, result);
-        return result;
-    }
-
-    private static int zzUnpackAction(String packed, int offset, int[] result) {
-        int i = 0;       /* index in packed string  */
-        int j = offset;  /* index in unpacked array */
-        int l = packed.length();
-        while (i < l) {
-            int count = packed.charAt(i++);
-            int value = packed.charAt(i++);
-            do result[j++] = value; while (--count > 0);
+    /**
+     * Lexes the next token
+     *
+     * @return its type, or null at the end of the text
+     */
+    @Nullable
+    public JavaScriptType yylex() {
+        _start += _length;
+        _length = 0;
+        _keyword = KeywordTrie.NONE;
+        int p = _start;
+        int c = charAt(p);
+        if (c < 0) {
+            return null;
         }
-        return j;
-    }
 
-    private static int[] zzUnpackRowMap() {
-        int[] result = new int[276];
-        int offset = 0;
-        offset = zzUnpackRowMap(ZZ_ROWMAP_PACKED_0, offset, result);
-        return result;
+        JavaScriptType type;
+        switch (_state) {
+            case BLOCK_COMMENT:
+                p = blockComment(p);
+                type = JavaScriptType.COMMENT;
+                break;
+            case SINGLE_QUOTED:
+                p = string(p, '\'');
+                type = JavaScriptType.STRING;
+                break;
+            case DOUBLE_QUOTED:
+                p = string(p, '"');
+                type = JavaScriptType.STRING;
+                break;
+            case TEMPLATE:
+                if (c == '$' && charAt(p + 1) == '{') {
+                    p = openSubstitution(p);
+                    type = JavaScriptType.OPERATOR;
+                } else {
+                    p = template(p);
+                    type = JavaScriptType.TEMPLATE;
+                }
+                break;
+            default:
+                return initial(p, c);
+        }
+        _length = p - _start;
+        return type;
     }
 
-    private static int zzUnpackRowMap(String packed, int offset, int[] result) {
-        int i = 0;  /* index in packed string  */
-        int j = offset;  /* index in unpacked array */
-        int l = packed.length();
-        while (i < l) {
-            int high = packed.charAt(i++) << 16;
-            result[j++] = high | packed.charAt(i++);
+    @NotNull
+    private JavaScriptType initial(int p, int c) {
+        boolean propertyNext = _propertyNext;
+        _propertyNext = false;
+        JavaScriptType type;
+        if (c == '\n') {
+            p++;
+            type = JavaScriptType.WHITE_SPACE;
+            _propertyNext = propertyNext;
+        } else if (isWhitespace(c)) {
+            p = whitespace(p + 1);
+            type = JavaScriptType.WHITE_SPACE;
+            _propertyNext = propertyNext;
+        } else if (isIdentifierStart(c)) {
+            p = identifier(p);
+            if (propertyNext) {
+                // obj.return
+                _keyword = KeywordTrie.NONE;
+            }
+            type = _keyword != KeywordTrie.NONE ? JavaScriptType.KEYWORD : JavaScriptType.IDENTIFIER;
+            _regexAllowed = _keyword != KeywordTrie.NONE && !endsOperand(_keywords.getWord(_keyword));
+        } else if (isDigit(c) || c == '.' && isDigit(charAt(p + 1))) {
+            p = number(p);
+            type = JavaScriptType.NUMBER;
+            _regexAllowed = false;
+        } else if (c == '"' || c == '\'') {
+            p = string(p + 1, (char) c);
+            type = JavaScriptType.STRING;
+            _regexAllowed = false;
+        } else if (c == '`') {
+            p = template(p + 1);
+            type = JavaScriptType.TEMPLATE;
+            _regexAllowed = false;
+        } else if (c == '/' && charAt(p + 1) == '/') {
+            p = lineComment(p + 2);
+            type = JavaScriptType.COMMENT;
+            _propertyNext = propertyNext;
+        } else if (c == '/' && charAt(p + 1) == '*') {
+            p = blockComment(p + 2);
+            type = JavaScriptType.COMMENT;
+            _propertyNext = propertyNext;
+        } else if (c == '/' && _regexAllowed) {
+            p = regex(p + 1);
+            type = JavaScriptType.REGEX;
+            _regexAllowed = false;
+        } else if (c == '#' && isIdentifierStart(charAt(p + 1))) {
+            // private class member
+            p = identifier(p + 1);
+            _keyword = KeywordTrie.NONE;
+            type = JavaScriptType.IDENTIFIER;
+            _regexAllowed = false;
+        } else if (isOperator(c)) {
+            type = JavaScriptType.OPERATOR;
+            if ((c == '+' || c == '-') && charAt(p + 1) == c) {
+                p += 2;
+                _regexAllowed = false;
+            } else {
+                // '.' but not part of a "..." spread
+                _propertyNext = c == '.' && charAt(p + 1) != '.' && (p == 0 || charAt(p - 1) != '.');
+                p++;
+                _regexAllowed = c != ')' && c != ']' && c != '}';
+            }
+            if (c == '{' && _depth > 0) {
+                _braces[_depth - 1]++;
+            } else if (c == '}' && _depth > 0) {
+                if (_braces[_depth - 1] == 0) {
+                    // end of a template substitution
+                    _depth--;
+                    _state = TEMPLATE;
+                } else {
+                    _braces[_depth - 1]--;
+                }
+            }
+        } else {
+            p++;
+            type = JavaScriptType.OTHER;
         }
-        return j;
+        _length = p - _start;
+        return type;
     }
 
-    private static int[] zzUnpackTrans() {
-        int[] result = new int[16632];
-        int offset = 0;
-        offset = zzUnpackTrans(ZZ_TRANS_PACKED_0, offset, result);
-        return result;
+    /**
+     * Keywords after which an operator, not an operand, is expected
+     */
+    @Contract(pure = true)
+    private static boolean endsOperand(@NotNull String keyword) {
+        switch (keyword) {
+            case "this":
+            case "super":
+            case "true":
+            case "false":
+            case "null":
+                return true;
+            default:
+                return false;
+        }
     }
 
-    private static int zzUnpackTrans(String packed, int offset, int[] result) {
-        int i = 0;       /* index in packed string  */
-        int j = offset;  /* index in unpacked array */
-        int l = packed.length();
-        while (i < l) {
-            int count = packed.charAt(i++);
-            int value = packed.charAt(i++);
-            value--;
-            do result[j++] = value; while (--count > 0);
+    private int whitespace(int p) {
+        int c;
+        while (isWhitespace(c = charAt(p))) {
+            p++;
         }
-        return j;
+        return c == '\n' ? p + 1 : p;
     }
 
-    private static int[] zzUnpackAttribute() {
-        int[] result = new int[276];
-        int offset = 0;
-        offset = zzUnpackAttribute(ZZ_ATTRIBUTE_PACKED_0, offset, result);
-        return result;
+    private int identifier(int p) {
+        int node = _keywords != null ? KeywordTrie.ROOT : KeywordTrie.NONE;
+        int c;
+        while (isIdentifierPart(c = charAt(p))) {
+            if (node != KeywordTrie.NONE) {
+                node = _keywords.next(node, (char) c);
+            }
+            p++;
+        }
+        _keyword = _keywords != null ? _keywords.getWordIndex(node) : KeywordTrie.NONE;
+        return p;
     }
 
-    /* user code: */
-
-    private static int zzUnpackAttribute(String packed, int offset, int[] result) {
-        int i = 0;       /* index in packed string  */
-        int j = offset;  /* index in unpacked array */
-        int l = packed.length();
-        while (i < l) {
-            int count = packed.charAt(i++);
-            int value = packed.charAt(i++);
-            do result[j++] = value; while (--count > 0);
+    private int number(int p) {
+        int c = charAt(p);
+        if (c == '0') {
+            int radix = charAt(p + 1) | 0x20;
+            if (radix == 'x' || radix == 'b' || radix == 'o') {
+                p += 2;
+                while (isIdentifierPart(charAt(p))) {
+                    p++;
+                }
+                return p;
+            }
         }
-        return j;
+        while (isDigit(c = charAt(p)) || c == '_') {
+            p++;
+        }
+        if (c == '.') {
+            p++;
+            while (isDigit(c = charAt(p)) || c == '_') {
+                p++;
+            }
+        }
+        if ((c | 0x20) == 'e') {
+            int q = p + 1;
+            c = charAt(q);
+            if (c == '+' || c == '-') {
+                c = charAt(++q);
+            }
+            if (isDigit(c)) {
+                p = q;
+                while (isDigit(c = charAt(p)) || c == '_') {
+                    p++;
+                }
+            }
+        }
+        return c == 'n' ? p + 1 : p;
     }
 
     /**
-     * Unpacks the compressed character translation table.
-     *
-     * @param packed the packed character translation table
-     * @return the unpacked character translation table
+     * Scans a string from after its opening quote or from a line it was
+     * continued on. An unclosed string ends at the end of its line.
      */
-    private static char[] zzUnpackCMap(String packed) {
-        char[] map = new char[0x110000];
-        int i = 0;  /* index in packed string  */
-        int j = 0;  /* index in unpacked array */
-        while (i < 2884) {
-            int count = packed.charAt(i++);
-            char value = packed.charAt(i++);
-            do map[j++] = value; while (--count > 0);
+    private int string(int p, char quote) {
+        _state = YYINITIAL;
+        while (true) {
+            int c = charAt(p);
+            if (c < 0 || c == '\n') {
+                return p;
+            }
+            if (c == quote) {
+                return p + 1;
+            }
+            if (c == '\\') {
+                c = charAt(p + 1);
+                if (c == '\r' && charAt(p + 2) == '\n') {
+                    p++;
+                    c = '\n';
+                }
+                if (c == '\n') {
+                    _state = quote == '\'' ? SINGLE_QUOTED : DOUBLE_QUOTED;
+                    return p + 2;
+                }
+                p += c < 0 ? 1 : 2;
+            } else {
+                p++;
+            }
         }
-        return map;
     }
 
-
     /**
-     * Refills the input buffer.
-     *
-     * @return <code>false</code>, iff there was new input.
-     * @throws java.io.IOException if any I/O-Error occurs
+     * Scans template text from after a '`', a '}' that closes a substitution
+     * or a line break, up to a substitution or the end of the line or of the
+     * template
      */
-    private boolean zzRefill() throws java.io.IOException {
-
-        /* first: make room (if you can) */
-        if (zzStartRead > 0) {
-            zzEndRead += zzFinalHighSurrogate;
-            zzFinalHighSurrogate = 0;
-            System.arraycopy(zzBuffer, zzStartRead,
-                    zzBuffer, 0,
-                    zzEndRead - zzStartRead);
-
-            /* translate stored positions */
-            zzEndRead -= zzStartRead;
-            zzCurrentPos -= zzStartRead;
-            zzMarkedPos -= zzStartRead;
-            zzStartRead = 0;
+    private int template(int p) {
+        _state = TEMPLATE;
+        while (true) {
+            int c = charAt(p);
+            if (c < 0) {
+                return p;
+            }
+            if (c == '`') {
+                _state = YYINITIAL;
+                _regexAllowed = false;
+                return p + 1;
+            }
+            if (c == '\n') {
+                return p + 1;
+            }
+            if (c == '$' && charAt(p + 1) == '{') {
+                return p;
+            }
+            if (c == '\\' && charAt(p + 1) >= 0 && charAt(p + 1) != '\n') {
+                p += 2;
+            } else {
+                p++;
+            }
         }
+    }
 
-        /* is the buffer big enough? */
-        if (zzCurrentPos >= zzBuffer.length - zzFinalHighSurrogate) {
-            /* if not: blow it up */
-            char newBuffer[] = new char[zzBuffer.length * 2];
-            System.arraycopy(zzBuffer, 0, newBuffer, 0, zzBuffer.length);
-            zzBuffer = newBuffer;
-            zzEndRead += zzFinalHighSurrogate;
-            zzFinalHighSurrogate = 0;
+    private int openSubstitution(int p) {
+        if (_depth == _braces.length) {
+            _braces = Arrays.copyOf(_braces, _depth * 2);
         }
+        _braces[_depth++] = 0;
+        _state = YYINITIAL;
+        _regexAllowed = true;
+        return p + 2;
+    }
 
-        /* fill the buffer with new input */
-        int requested = zzBuffer.length - zzEndRead;
-        int numRead = zzReader.read(zzBuffer, zzEndRead, requested);
+    private int lineComment(int p) {
+        int c;
+        while ((c = charAt(p)) >= 0 && c != '\n') {
+            p++;
+        }
+        return p;
+    }
 
-        /* not supposed to occur according to specification of java.io.Reader */
-        if (numRead == 0) {
-            throw new java.io.IOException("Reader returned 0 characters. See JFlex examples for workaround.");
+    /**
+     * Scans a block comment from after its "/*" or from a line it goes on
+     * to, up to its end or the end of the line
+     */
+    private int blockComment(int p) {
+        _state = BLOCK_COMMENT;
+        while (true) {
+            int c = charAt(p);
+            if (c < 0) {
+                return p;
+            }
+            if (c == '\n') {
+                return p + 1;
+            }
+            if (c == '*' && charAt(p + 1) == '/') {
+                _state = YYINITIAL;
+                return p + 2;
+            }
+            p++;
         }
-        if (numRead > 0) {
-            zzEndRead += numRead;
-      /* If numRead == requested, we might have requested to few chars to
-         encode a full Unicode character. We assume that a Reader would
-         otherwise never return half characters. */
-            if (numRead == requested) {
-                if (Character.isHighSurrogate(zzBuffer[zzEndRead - 1])) {
-                    --zzEndRead;
-                    zzFinalHighSurrogate = 1;
+    }
+
+    /**
+     * Scans a regular expression from after its opening '/'. An unclosed
+     * one ends at the end of its line.
+     */
+    private int regex(int p) {
+        boolean inClass = false;
+        while (true) {
+            int c = charAt(p);
+            if (c < 0 || c == '\n') {
+                return p;
+            }
+            if (c == '\\') {
+                c = charAt(p + 1);
+                p += c < 0 || c == '\n' ? 1 : 2;
+            } else if (c == '[') {
+                inClass = true;
+                p++;
+            } else if (c == ']') {
+                inClass = false;
+                p++;
+            } else if (c == '/' && !inClass) {
+                p++;
+                // flags
+                while (isIdentifierPart(charAt(p))) {
+                    p++;
                 }
+                return p;
+            } else {
+                p++;
             }
-            /* potentially more input available */
-            return false;
         }
-
-        /* numRead < 0 ==> end of stream */
-        return true;
     }
 
-
     /**
-     * Closes the input stream.
+     * Returns the char at offset p of the text, or -1 past its end
      */
-    public final void yyclose() throws java.io.IOException {
-        zzAtEOF = true;            /* indicate end of file */
-        zzEndRead = zzStartRead;  /* invalidate buffer    */
-
-        if (zzReader != null)
-            zzReader.close();
+    private int charAt(int p) {
+        if (p >= _textEnd) {
+            return -1;
+        }
+        if (p < _bufferStart || p >= _bufferEnd) {
+            _bufferStart = Math.max(0, p - BUFFER_KEEP);
+            _bufferEnd = Math.min(_textEnd, _bufferStart + BUFFER_SIZE);
+            CharSeqReader.getChars(_text, _bufferStart, _bufferEnd, _buffer, 0);
+        }
+        return _buffer[p - _bufferStart];
     }
 
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
 
-    /**
-     * Resets the scanner to read from a new input stream.
-     * Does not close the old reader.
-     * <p>
-     * All internal variables are reset, the old input stream
-     * <b>cannot</b> be reused (internal buffer is discarded and lost).
-     * Lexical state is set to <tt>ZZ_INITIAL</tt>.
-     * <p>
-     * Internal scan buffer is resized down to its initial length, if it has grown.
-     *
-     * @param reader the new input stream
-     */
-    public final void yyreset(java.io.Reader reader) {
-        zzReader = reader;
-        zzAtBOL = true;
-        zzAtEOF = false;
-        zzEOFDone = false;
-        zzEndRead = zzStartRead = 0;
-        zzCurrentPos = zzMarkedPos = 0;
-        zzFinalHighSurrogate = 0;
-        yyline = yychar = yycolumn = 0;
-        zzLexicalState = YYINITIAL;
-        if (zzBuffer.length > ZZ_BUFFERSIZE)
-            zzBuffer = new char[ZZ_BUFFERSIZE];
+    private static boolean isWhitespace(int c) {
+        if (c < 128) {
+            return c == ' ' || c == '\t' || c == '\r' || c == '\f' || c == 0x0b;
+        }
+        return c == '\uFEFF' || Character.isSpaceChar(c);
     }
 
+    private static boolean isIdentifierStart(int c) {
+        if (c < 128) {
+            return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c == '$';
+        }
+        return Character.isJavaIdentifierStart(c);
+    }
 
-    /**
-     * Returns the current lexical state.
-     */
-    public final int yystate() {
-        return zzLexicalState;
+    private static boolean isIdentifierPart(int c) {
+        if (c < 128) {
+            return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                    || c == '_' || c == '$';
+        }
+        return c != '\uFEFF' && Character.isJavaIdentifierPart(c) && !Character.isSpaceChar(c);
     }
 
+    private static boolean isOperator(int c) {
+        switch (c) {
+            case '{':
+            case '}':
+            case '(':
+            case ')':
+            case '[':
+            case ']':
+            case ';':
+            case ',':
+            case '.':
+            case '<':
+            case '>':
+            case '=':
+            case '+':
+            case '-':
+            case '*':
+            case '/':
+            case '%':
+            case '&':
+            case '|':
+            case '^':
+            case '!':
+            case '~':
+            case '?':
+            case ':':
+            case '@':
+                return true;
+            default:
+                return false;
+        }
+    }
 
     /**
-     * Enters a new lexical state
-     *
-     * @param newState the new lexical state
+     * Returns the offset of the last token
      */
-    public final void yybegin(int newState) {
-        zzLexicalState = newState;
+    public int getTokenStart() {
+        return _start;
     }
 
+    public int yylength() {
+        return _length;
+    }
+
+    @NotNull
+    public String yytext() {
+        return _text.subSequence(_start, _start + _length).toString();
+    }
 
     /**
-     * Returns the text matched by the current regular expression.
+     * Returns the index in the keywords of the last token, or
+     * {@link KeywordTrie#NONE} if it is no keyword
      */
-    public final String yytext() {
-        return new String(zzBuffer, zzStartRead, zzMarkedPos - zzStartRead);
+    public int getKeyword() {
+        return _keyword;
     }
 
-
     /**
-     * Returns the character at position <tt>pos</tt> from the
-     * matched text.
-     * <p>
-     * It is equivalent to yytext().charAt(pos), but faster
-     *
-     * @param pos the position of the character to fetch.
-     *            A value from 0 to yylength()-1.
-     * @return the character at position pos
+     * Returns the last char of the last token, or -1 if there is none
      */
-    public final char yycharat(int pos) {
-        return zzBuffer[zzStartRead + pos];
+    public int lastChar() {
+        return _length > 0 ? charAt(_start + _length - 1) : -1;
     }
 
-
     /**
-     * Returns the length of the matched text region.
+     * Returns whether the token after the last one starts a line
      */
-    public final int yylength() {
-        return zzMarkedPos - zzStartRead;
+    public boolean isAtLineStart() {
+        return lastChar() == '\n';
+    }
+
+    public int yystate() {
+        return _state;
     }
 
+    @NotNull
+    public State getState() {
+        return new State(_state, _regexAllowed, _propertyNext, Arrays.copyOf(_braces, _depth));
+    }
 
     /**
-     * Reports an error that occured while scanning.
-     * <p>
-     * In a wellformed scanner (no or only correct usage of
-     * yypushback(int) and a match-all fallback rule) this method
-     * will only be called with things that "Can't Possibly Happen".
-     * If this method is called, something is seriously wrong
-     * (e.g. a JFlex bug producing a faulty scanner etc.).
-     * <p>
-     * Usual syntax/scanner level error handling should be done
-     * in error fallback rules.
-     *
-     * @param errorCode the code of the errormessage to display
+     * Returns whether the lexer is in state, without making a State of its own
      */
-    private void zzScanError(int errorCode) {
-        String message;
-        try {
-            message = ZZ_ERROR_MSG[errorCode];
-        } catch (ArrayIndexOutOfBoundsException e) {
-            message = ZZ_ERROR_MSG[ZZ_UNKNOWN_ERROR];
+    public boolean isInState(@NotNull State state) {
+        if (state.lexState != _state || state.regexAllowed != _regexAllowed
+                || state.propertyNext != _propertyNext || state.braces.length != _depth) {
+            return false;
         }
-
-        throw new Error(message);
+        for (int i = 0; i < _depth; i++) {
+            if (state.braces[i] != _braces[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
-
     /**
-     * Pushes the specified amount of characters back into the input stream.
-     * <p>
-     * They will be read again by then next call of the scanning method
-     *
-     * @param number the number of characters to be read again.
-     *               This number must not be greater than yylength()!
+     * Continues lexing in state, which must have been saved at the offset the
+     * lexer starts at
      */
-    public void yypushback(int number) {
-        if (number > yylength())
-            zzScanError(ZZ_PUSHBACK_2BIG);
-
-        zzMarkedPos -= number;
+    public void setState(@NotNull State state) {
+        _state = state.lexState;
+        _regexAllowed = state.regexAllowed;
+        _propertyNext = state.propertyNext;
+        _depth = state.braces.length;
+        _braces = Arrays.copyOf(state.braces, Math.max(4, _depth));
     }
 
-
     /**
-     * Resumes scanning until the next regular expression is matched,
-     * the end of input is encountered or an I/O-Error occurs.
-     *
-     * @return the next token
-     * @throws java.io.IOException if any I/O-Error occurs
+     * Everything the lexer has to know at a line start to go on from there
      */
-    public JavaScriptType yylex() throws java.io.IOException {
-        int zzInput;
-        int zzAction;
-
-        // cached fields:
-        int zzCurrentPosL;
-        int zzMarkedPosL;
-        int zzEndReadL = zzEndRead;
-        char[] zzBufferL = zzBuffer;
-        char[] zzCMapL = ZZ_CMAP;
-
-        int[] zzTransL = ZZ_TRANS;
-        int[] zzRowMapL = ZZ_ROWMAP;
-        int[] zzAttrL = ZZ_ATTRIBUTE;
-
-        while (true) {
-            zzMarkedPosL = zzMarkedPos;
-
-            yychar += zzMarkedPosL - zzStartRead;
-
-            boolean zzR = false;
-            int zzCh;
-            int zzCharCount;
-            for (zzCurrentPosL = zzStartRead;
-                 zzCurrentPosL < zzMarkedPosL;
-                 zzCurrentPosL += zzCharCount) {
-                zzCh = Character.codePointAt(zzBufferL, zzCurrentPosL, zzMarkedPosL);
-                zzCharCount = Character.charCount(zzCh);
-                switch (zzCh) {
-                    case '\u000B':
-                    case '\u000C':
-                    case '\u0085':
-                    case '\u2028':
-                    case '\u2029':
-                        yyline++;
-                        yycolumn = 0;
-                        zzR = false;
-                        break;
-                    case '\r':
-                        yyline++;
-                        yycolumn = 0;
-                        zzR = true;
-                        break;
-                    case '\n':
-                        if (zzR)
-                            zzR = false;
-                        else {
-                            yyline++;
-                            yycolumn = 0;
-                        }
-                        break;
-                    default:
-                        zzR = false;
-                        yycolumn += zzCharCount;
-                }
-            }
-
-            if (zzR) {
-                // peek one character ahead if it is \n (if we have counted one line too much)
-                boolean zzPeek;
-                if (zzMarkedPosL < zzEndReadL)
-                    zzPeek = zzBufferL[zzMarkedPosL] == '\n';
-                else if (zzAtEOF)
-                    zzPeek = false;
-                else {
-                    boolean eof = zzRefill();
-                    zzEndReadL = zzEndRead;
-                    zzMarkedPosL = zzMarkedPos;
-                    zzBufferL = zzBuffer;
-                    if (eof)
-                        zzPeek = false;
-                    else
-                        zzPeek = zzBufferL[zzMarkedPosL] == '\n';
-                }
-                if (zzPeek) yyline--;
-            }
-            zzAction = -1;
-
-            zzCurrentPosL = zzCurrentPos = zzStartRead = zzMarkedPosL;
-
-            zzState = ZZ_LEXSTATE[zzLexicalState];
-
-            // set up zzAction for empty match case:
-            int zzAttributes = zzAttrL[zzState];
-            if ((zzAttributes & 1) == 1) {
-                zzAction = zzState;
-            }
-
-
-            zzForAction:
-            {
-                while (true) {
+    public static final class State {
+        private final int lexState;
+        private final boolean regexAllowed;
+        private final boolean propertyNext;
+        private final int[] braces;
 
-                    if (zzCurrentPosL < zzEndReadL) {
-                        zzInput = Character.codePointAt(zzBufferL, zzCurrentPosL, zzEndReadL);
-                        zzCurrentPosL += Character.charCount(zzInput);
-                    } else if (zzAtEOF) {
-                        zzInput = YYEOF;
-                        break zzForAction;
-                    } else {
-                        // store back cached positions
-                        zzCurrentPos = zzCurrentPosL;
-                        zzMarkedPos = zzMarkedPosL;
-                        boolean eof = zzRefill();
-                        // get translated positions and possibly new buffer
-                        zzCurrentPosL = zzCurrentPos;
-                        zzMarkedPosL = zzMarkedPos;
-                        zzBufferL = zzBuffer;
-                        zzEndReadL = zzEndRead;
-                        if (eof) {
-                            zzInput = YYEOF;
-                            break zzForAction;
-                        } else {
-                            zzInput = Character.codePointAt(zzBufferL, zzCurrentPosL, zzEndReadL);
-                            zzCurrentPosL += Character.charCount(zzInput);
-                        }
-                    }
-                    int zzNext = zzTransL[zzRowMapL[zzState] + zzCMapL[zzInput]];
-                    if (zzNext == -1) break zzForAction;
-                    zzState = zzNext;
-
-                    zzAttributes = zzAttrL[zzState];
-                    if ((zzAttributes & 1) == 1) {
-                        zzAction = zzState;
-                        zzMarkedPosL = zzCurrentPosL;
-                        if ((zzAttributes & 8) == 8) break zzForAction;
-                    }
+        private State(int lexState, boolean regexAllowed, boolean propertyNext, @NotNull int[] braces) {
+            this.lexState = lexState;
+            this.regexAllowed = regexAllowed;
+            this.propertyNext = propertyNext;
+            this.braces = braces;
+        }
 
-                }
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof State)) {
+                return false;
             }
+            State s = (State) o;
+            return lexState == s.lexState && regexAllowed == s.regexAllowed
+                    && propertyNext == s.propertyNext && Arrays.equals(braces, s.braces);
+        }
 
-            // store back cached position
-            zzMarkedPos = zzMarkedPosL;
-
-            if (zzInput == YYEOF && zzStartRead == zzCurrentPos) {
-                zzAtEOF = true;
-                {
-                    return JavaScriptType.EOF;
-                }
-            } else {
-                switch (zzAction < 0 ? zzAction : ZZ_ACTION[zzAction]) {
-                    case 1: {
-                        throw new RuntimeException("Illegal character \"" + yytext() +
-                                "\" at line " + yyline + ", column " + yycolumn);
-                    }
-                    case 26:
-                        break;
-                    case 2: {
-                        return JavaScriptType.WHITE_SPACE;
-                    }
-                    case 27:
-                        break;
-                    case 3: {
-                        return JavaScriptType.OPERATOR;
-                    }
-                    case 28:
-                        break;
-                    case 4: {
-                        return JavaScriptType.IDENTIFIER;
-                    }
-                    case 29:
-                        break;
-                    case 5: {
-                        return JavaScriptType.INTEGER_LITERAL;
-                    }
-                    case 30:
-                        break;
-                    case 6: {
-                        return JavaScriptType.DOT;
-                    }
-                    case 31:
-                        break;
-                    case 7: {
-                        yybegin(STRING);
-                        return JavaScriptType.STRING;
-                    }
-                    case 32:
-                        break;
-                    case 8: {
-                        yybegin(CHARLITERAL);
-                        return JavaScriptType.CHARACTER_LITERAL;
-                    }
-                    case 33:
-                        break;
-                    case 9: {
-                        return JavaScriptType.LPAREN;
-                    }
-                    case 34:
-                        break;
-                    case 10: {
-                        return JavaScriptType.RPAREN;
-                    }
-                    case 35:
-                        break;
-                    case 11: {
-                        return JavaScriptType.LBRACE;
-                    }
-                    case 36:
-                        break;
-                    case 12: {
-                        return JavaScriptType.RBRACE;
-                    }
-                    case 37:
-                        break;
-                    case 13: {
-                        return JavaScriptType.LBRACK;
-                    }
-                    case 38:
-                        break;
-                    case 14: {
-                        return JavaScriptType.RBRACK;
-                    }
-                    case 39:
-                        break;
-                    case 15: {
-                        return JavaScriptType.SEMICOLON;
-                    }
-                    case 40:
-                        break;
-                    case 16: {
-                        return JavaScriptType.COMMA;
-                    }
-                    case 41:
-                        break;
-                    case 17: {
-                        return JavaScriptType.STRING;
-                    }
-                    case 42:
-                        break;
-                    case 18: {
-                        throw new RuntimeException("Unterminated string at end of line");
-                    }
-                    case 43:
-                        break;
-                    case 19: {
-                        yybegin(YYINITIAL);
-                        return JavaScriptType.STRING;
-                    }
-                    case 44:
-                        break;
-                    case 20: {
-                        return JavaScriptType.CHARACTER_LITERAL;
-                    }
-                    case 45:
-                        break;
-                    case 21: {
-                        throw new RuntimeException("Unterminated character literal at end of line");
-                    }
-                    case 46:
-                        break;
-                    case 22: {
-                        yybegin(YYINITIAL);
-                        return JavaScriptType.CHARACTER_LITERAL;
-                    }
-                    case 47:
-                        break;
-                    case 23: {
-                        return JavaScriptType.COMMENT;
-                    }
-                    case 48:
-                        break;
-                    case 24: {
-                        return JavaScriptType.FLOATING_POINT_LITERAL;
-                    }
-                    case 49:
-                        break;
-                    case 25: {
-                        return JavaScriptType.KEYWORD;
-                    }
-                    case 50:
-                        break;
-                    default:
-                        zzScanError(ZZ_NO_MATCH);
-                }
-            }
+        @Override
+        public int hashCode() {
+            return ((lexState * 31 + (regexAllowed ? 1 : 0)) * 31 + (propertyNext ? 1 : 0)) * 31
+                    + Arrays.hashCode(braces);
         }
     }
-
-
 }
@@ -0,0 +1,353 @@
+package com.mcal.fridainjectorpe.editor.lang.javascript;
+
+import android.graphics.Rect;
+
+import com.mcal.fridainjectorpe.editor.lang.KeywordTrie;
+import com.mcal.fridainjectorpe.editor.lang.Language;
+import com.mcal.fridainjectorpe.editor.lang.ResumableTokenizer;
+import com.mcal.fridainjectorpe.editor.util.LexResult;
+import com.mcal.fridainjectorpe.editor.util.Lexer;
+import com.mcal.fridainjectorpe.editor.util.Pair;
+import com.mcal.fridainjectorpe.editor.util.TextChange;
+import com.mcal.fridainjectorpe.editor.util.TextSnapshot;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static com.mcal.fridainjectorpe.editor.util.Lexer.DOUBLE_SYMBOL_LINE;
+import static com.mcal.fridainjectorpe.editor.util.Lexer.KEYWORD;
+import static com.mcal.fridainjectorpe.editor.util.Lexer.LITERAL;
+import static com.mcal.fridainjectorpe.editor.util.Lexer.NORMAL;
+import static com.mcal.fridainjectorpe.editor.util.Lexer.NUMBER;
+import static com.mcal.fridainjectorpe.editor.util.Lexer.OPERATOR;
+import static com.mcal.fridainjectorpe.editor.util.Lexer.SINGLE_SYMBOL_DELIMITED_A;
+import static com.mcal.fridainjectorpe.editor.util.Lexer.SINGLE_SYMBOL_DELIMITED_B;
+
+/**
+ * Tokenizer for JavaScript. Consecutive tokens of the same color make one
+ * span, and white space joins the span before it, so most spans cover
+ * several tokens.
+ * <p>
+ * Names of functions and classes are colored where they are declared and
+ * become user words, and braces over several lines make block lines.
+ */
+public class JavaScriptTokenizer extends ResumableTokenizer {
+    private static JavaScriptTokenizer _theOne = null;
+
+    private String[] _keywordsFrom = null;
+    private KeywordTrie _keywords = null;
+
+    public static JavaScriptTokenizer getInstance() {
+        if (_theOne == null) {
+            _theOne = new JavaScriptTokenizer();
+        }
+        return _theOne;
+    }
+
+    @NotNull
+    private synchronized KeywordTrie getKeywords(@NotNull Language language) {
+        String[] keywords = language.getKeywords();
+        if (_keywords == null || _keywordsFrom != keywords) {
+            _keywords = new KeywordTrie(keywords != null ? keywords : new String[0]);
+            _keywordsFrom = keywords;
+        }
+        return _keywords;
+    }
+
+    @NotNull
+    @Override
+    protected Scanner newScanner(@NotNull TextSnapshot text, @NotNull Language language,
+                                 @Nullable LexResult previous, int from) {
+        return new JavaScriptScanner(text, language, getKeywords(language), previous, from, 0, false);
+    }
+
+    @NotNull
+    @Override
+    protected Scanner newPreviewScanner(@NotNull TextSnapshot text, @NotNull Language language, int offset) {
+        return new JavaScriptScanner(text, language, getKeywords(language), null, -1, offset, true);
+    }
+
+    /**
+     * Block lines and user words found by a pass
+     */
+    private static final class JavaScriptData {
+        final ArrayList<Rect> lines;
+        /**
+         * User words in the order they were first found
+         */
+        final ArrayList<String> words;
+
+        JavaScriptData(ArrayList<Rect> lines, ArrayList<String> words) {
+            this.lines = lines;
+            this.words = words;
+        }
+    }
+
+    private static final class State {
+        final JavaScriptLexer.State lexState;
+        final boolean nameNext;
+        /**
+         * Offsets and lines of the unclosed braces
+         */
+        final int[] braces;
+        /**
+         * Number of block lines and user words found before the checkpoint
+         */
+        final int lineCount;
+        final int wordCount;
+
+        State(JavaScriptLexer.State lexState, boolean nameNext, int[] braces, int lineCount, int wordCount) {
+            this.lexState = lexState;
+            this.nameNext = nameNext;
+            this.braces = braces;
+            this.lineCount = lineCount;
+            this.wordCount = wordCount;
+        }
+    }
+
+    private static final class JavaScriptScanner extends Scanner {
+        private final Language language;
+        /**
+         * Whether user words are kept to this scan rather than added to language
+         */
+        private final boolean preview;
+        private final LexResult previous;
+        private final JavaScriptLexer lexer;
+        private final int functionKeyword;
+        private final int classKeyword;
+        private int line;
+
+        private final ArrayList<Rect> lines;
+        private final ArrayList<String> words;
+        private final HashSet<String> wordSet = new HashSet<>();
+        /**
+         * Offset and line of each unclosed brace
+         */
+        private int[] braces = new int[32];
+        private int braceCount = 0;
+        /**
+         * Whether the next identifier is the name of a function or class
+         */
+        private boolean nameNext = false;
+
+        /**
+         * Color and length of the span being built
+         */
+        private int spanType = NORMAL;
+        private int spanLength = 0;
+        private boolean atLineStart;
+
+        JavaScriptScanner(TextSnapshot text, Language language, KeywordTrie keywords, LexResult previous,
+                          int from, int start, boolean preview) {
+            this.language = language;
+            this.previous = previous;
+            this.preview = preview;
+            functionKeyword = keywords.find("function");
+            classKeyword = keywords.find("class");
+            if (!preview) {
+                language.clearUserWord();
+            }
+            if (from < 0) {
+                lexer = new JavaScriptLexer(text, start, keywords);
+                line = 0;
+                lines = new ArrayList<>();
+                words = new ArrayList<>();
+            } else {
+                State state = (State) previous.getCheckpointState(from);
+                JavaScriptData data = (JavaScriptData) previous.getData();
+                lexer = new JavaScriptLexer(text, previous.getCheckpointOffset(from), keywords);
+                lexer.setState(state.lexState);
+                line = previous.getCheckpointLine(from);
+                lines = new ArrayList<>(data.lines.subList(0, state.lineCount));
+                words = new ArrayList<>(state.wordCount + 16);
+                for (int i = 0; i < state.wordCount; i++) {
+                    addUserWord(data.words.get(i));
+                }
+                nameNext = state.nameNext;
+                braces = Arrays.copyOf(state.braces, Math.max(32, state.braces.length));
+                braceCount = state.braces.length / 2;
+            }
+        }
+
+        private void addUserWord(String name) {
+            if (wordSet.add(name)) {
+                words.add(name);
+            }
+            if (!preview) {
+                language.addUserWord(name);
+            }
+        }
+
+        @Override
+        protected boolean next(@NotNull ArrayList<Pair> tokens) {
+            JavaScriptType type = lexer.yylex();
+            if (type == null) {
+                endSpan(tokens);
+                return false;
+            }
+            int len = lexer.yylength();
+            int color;
+            switch (type) {
+                case WHITE_SPACE:
+                    color = spanLength > 0 ? spanType : NORMAL;
+                    break;
+                case COMMENT:
+                    color = DOUBLE_SYMBOL_LINE;
+                    break;
+                case KEYWORD:
+                    color = KEYWORD;
+                    int keyword = lexer.getKeyword();
+                    nameNext = keyword == functionKeyword || keyword == classKeyword;
+                    break;
+                case IDENTIFIER:
+                    if (nameNext) {
+                        color = LITERAL;
+                        addUserWord(lexer.yytext());
+                    } else {
+                        color = NORMAL;
+                    }
+                    nameNext = false;
+                    break;
+                case NUMBER:
+                    color = NUMBER;
+                    nameNext = false;
+                    break;
+                case STRING:
+                case TEMPLATE:
+                    color = SINGLE_SYMBOL_DELIMITED_A;
+                    nameNext = false;
+                    break;
+                case REGEX:
+                    color = SINGLE_SYMBOL_DELIMITED_B;
+                    nameNext = false;
+                    break;
+                case OPERATOR:
+                    color = OPERATOR;
+                    // function* name
+                    nameNext = nameNext && lexer.lastChar() == '*';
+                    brace(lexer.lastChar());
+                    break;
+                default:
+                    color = NORMAL;
+                    nameNext = false;
+            }
+            if (color != spanType) {
+                endSpan(tokens);
+                spanType = color;
+            }
+            spanLength += len;
+
+            atLineStart = lexer.isAtLineStart();
+            if (atLineStart) {
+                // spans are not merged across checkpoints
+                line++;
+                endSpan(tokens);
+            }
+            return true;
+        }
+
+        private void brace(int c) {
+            if (c == '{') {
+                if (2 * braceCount == braces.length) {
+                    braces = Arrays.copyOf(braces, braces.length * 2);
+                }
+                braces[2 * braceCount] = lexer.getTokenStart() + lexer.yylength() - 1;
+                braces[2 * braceCount + 1] = line;
+                braceCount++;
+            } else if (c == '}' && braceCount > 0) {
+                braceCount--;
+                int top = braces[2 * braceCount + 1];
+                if (line - top > 1) {
+                    lines.add(new Rect(braces[2 * braceCount], top, lexer.getTokenStart(), line));
+                }
+            }
+        }
+
+        private void endSpan(@NotNull ArrayList<Pair> tokens) {
+            if (spanLength > 0) {
+                tokens.add(newSpan(spanLength, spanType));
+                spanLength = 0;
+            }
+        }
+
+        @Override
+        protected boolean isAtLineStart() {
+            return atLineStart;
+        }
+
+        @Override
+        protected int getOffset() {
+            return lexer.getTokenStart() + lexer.yylength();
+        }
+
+        @Override
+        protected int getLine() {
+            return line;
+        }
+
+        @NotNull
+        @Override
+        protected Object save(int tokenCount) {
+            return new State(lexer.getState(), nameNext, Arrays.copyOf(braces, 2 * braceCount),
+                    lines.size(), words.size());
+        }
+
+        @Override
+        protected boolean matches(int checkpoint, @NotNull TextChange change, int lineDelta) {
+            State state = (State) previous.getCheckpointState(checkpoint);
+            if (!lexer.isInState(state.lexState) || nameNext != state.nameNext
+                    || words.size() != state.wordCount || state.braces.length != 2 * braceCount) {
+                return false;
+            }
+            for (int i = 0; i < state.braces.length; i += 2) {
+                int offset = state.braces[i];
+                if (change.map(offset) != braces[i]
+                        || state.braces[i + 1] + (offset < change.start ? 0 : lineDelta) != braces[i + 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @NotNull
+        @Override
+        protected Object shift(int checkpoint, int converged, @NotNull TextChange change, int lineDelta) {
+            State state = (State) previous.getCheckpointState(checkpoint);
+            State at = (State) previous.getCheckpointState(converged);
+            int[] shifted = state.braces.clone();
+            for (int i = 0; i < shifted.length; i += 2) {
+                if (shifted[i] >= change.start) {
+                    shifted[i] += change.delta();
+                    shifted[i + 1] += lineDelta;
+                }
+            }
+            return new State(state.lexState, state.nameNext, shifted,
+                    state.lineCount - at.lineCount + lines.size(), state.wordCount);
+        }
+
+        @Override
+        protected void finish(@NotNull LexResult result, int converged,
+                              @Nullable TextChange change, int lineDelta) {
+            if (converged >= 0) {
+                State at = (State) previous.getCheckpointState(converged);
+                JavaScriptData data = (JavaScriptData) previous.getData();
+                for (int i = at.lineCount; i < data.lines.size(); i++) {
+                    Rect rect = data.lines.get(i);
+                    int topDelta = rect.left < change.start ? 0 : lineDelta;
+                    lines.add(new Rect(change.map(rect.left), rect.top + topDelta,
+                            change.map(rect.right), rect.bottom + lineDelta));
+                }
+                for (int i = at.wordCount; i < data.words.size(); i++) {
+                    addUserWord(data.words.get(i));
+                }
+            }
+            result.setData(new JavaScriptData(lines, words));
+            language.updateUserWord();
+            Lexer.mLines = lines;
+        }
+    }
+}
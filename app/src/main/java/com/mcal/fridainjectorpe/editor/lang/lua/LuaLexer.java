@@ -585,6 +585,14 @@ public class LuaLexer {
         this(new CharSeqReader(src));
     }
 
+    /**
+     * Creates a scanner of src from offset on, which must be where a token
+     * starts. yychar() and yyline() count from there.
+     */
+    public LuaLexer(CharSequence src, int offset) {
+        this(new CharSeqReader(src, offset));
+    }
+
     /**
      * Creates a new scanner
      *
@@ -702,6 +710,18 @@ public class LuaLexer {
         return yychar;
     }
 
+    /**
+     * Returns the level of the long bracket being scanned, which goes with
+     * the lexical state when scanning is resumed
+     */
+    public int getBrackets() {
+        return nBrackets;
+    }
+
+    public void setBrackets(int brackets) {
+        nBrackets = brackets;
+    }
+
     private boolean checkAhead(char c, int offset) {
         return this.zzMarkedPos + offset >= this.zzBuffer.length ? false : this.zzBuffer[this.zzMarkedPos + offset] == c;
     }
@@ -3,17 +3,22 @@ package com.mcal.fridainjectorpe.editor.lang.lua;
 import android.graphics.Rect;
 
 import com.mcal.fridainjectorpe.editor.lang.Language;
-import com.mcal.fridainjectorpe.editor.lang.LexerTokenizer;
-import com.mcal.fridainjectorpe.editor.util.DocumentProvider;
-import com.mcal.fridainjectorpe.editor.util.Flag;
+import com.mcal.fridainjectorpe.editor.lang.ResumableTokenizer;
+import com.mcal.fridainjectorpe.editor.util.LexResult;
 import com.mcal.fridainjectorpe.editor.util.Lexer;
 import com.mcal.fridainjectorpe.editor.util.Pair;
-import com.mcal.fridainjectorpe.editor.util.TextWarriorException;
+import com.mcal.fridainjectorpe.editor.util.TextChange;
+import com.mcal.fridainjectorpe.editor.util.TextSnapshot;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 
 
-public class LuaTokenizer extends LexerTokenizer {
+public class LuaTokenizer extends ResumableTokenizer {
     private static LuaTokenizer _theOne = null;
 
     //private LuaTokenize() {}
@@ -24,224 +29,455 @@ public class LuaTokenizer extends LexerTokenizer {
         return _theOne;
     }
 
+    @NotNull
     @Override
-    public ArrayList<Pair> tokenize(DocumentProvider hDoc, Flag _abort) {
-        int rowCount = hDoc.getRowCount();
-        int maxRow = 99999999;
-        ArrayList<Pair> tokens = new ArrayList<Pair>(8196);
-        ArrayList<Rect> lines = new ArrayList<>(8196);
-        ArrayList<Rect> lineStacks = new ArrayList<>(8196);
-        ArrayList<Rect> lineStacks2 = new ArrayList<>(8196);
-
-        LuaLexer lexer = new LuaLexer(hDoc);
-        Language language = Lexer.getLanguage();
-        language.clearUserWord();
-        try {
-            int idx = 0;
-
-            LuaType lastType = null;
-            LuaType lastType2 = null;
-
-            String lastName = "";
-            Pair lastPair = null;
-            int lastLen = 0;
-            StringBuilder bul = new StringBuilder();
-            boolean isModule = false;
-            boolean hasDo = true;
-            int lastNameIdx = -1;
-            while (!_abort.isSet()) {
-                Pair pair = null;
-                LuaType type = lexer.advance();
-                if (type == null)
-                    break;
-                int len = lexer.yylength();
-
-                if (isModule && lastType == LuaType.STRING && type != LuaType.STRING) {
-                    String mod = bul.toString();
-                    if (bul.length() > 2)
-                        language.addUserWord(mod.substring(1, mod.length() - 1));
-                    bul = new StringBuilder();
-                    isModule = false;
+    protected Scanner newScanner(@NotNull TextSnapshot text, @NotNull Language language,
+                                 @Nullable LexResult previous, int from) {
+        return new LuaScanner(text, language, previous, from, 0, false);
+    }
+
+    @NotNull
+    @Override
+    protected Scanner newPreviewScanner(@NotNull TextSnapshot text, @NotNull Language language, int offset) {
+        return new LuaScanner(text, language, null, -1, offset, true);
+    }
+
+    /**
+     * Block lines and user words found by a pass
+     */
+    private static final class LuaData {
+        final ArrayList<Rect> lines;
+        /**
+         * User words in the order they were first found
+         */
+        final ArrayList<String> words;
+
+        LuaData(ArrayList<Rect> lines, ArrayList<String> words) {
+            this.lines = lines;
+            this.words = words;
+        }
+    }
+
+    private static final class State {
+        final int lexState;
+        final int brackets;
+        final LuaType lastType;
+        final LuaType lastType2;
+        final String lastName;
+        final String module;
+        final boolean isModule;
+        final boolean hasDo;
+        /**
+         * Offsets and lines of the unclosed blocks and braces
+         */
+        final int[] blocks;
+        final int[] braces;
+        /**
+         * Number of block lines and user words found before the checkpoint
+         */
+        final int lineCount;
+        final int wordCount;
+
+        State(int lexState, int brackets, LuaType lastType, LuaType lastType2, String lastName, String module,
+              boolean isModule, boolean hasDo, int[] blocks, int[] braces, int lineCount, int wordCount) {
+            this.lexState = lexState;
+            this.brackets = brackets;
+            this.lastType = lastType;
+            this.lastType2 = lastType2;
+            this.lastName = lastName;
+            this.module = module;
+            this.isModule = isModule;
+            this.hasDo = hasDo;
+            this.blocks = blocks;
+            this.braces = braces;
+            this.lineCount = lineCount;
+            this.wordCount = wordCount;
+        }
+    }
+
+    private static final class LuaScanner extends Scanner {
+        private final Language language;
+        /**
+         * Whether user words are kept to this scan rather than added to language
+         */
+        private final boolean preview;
+        private final LexResult previous;
+        private final LuaLexer lexer;
+        /**
+         * Offset and line where the lexer started
+         */
+        private final int base;
+        private final int baseLine;
+
+        private final ArrayList<Rect> lines;
+        private final ArrayList<Rect> lineStacks = new ArrayList<>();
+        private final ArrayList<Rect> lineStacks2 = new ArrayList<>();
+        private final ArrayList<String> words;
+        private final HashSet<String> wordSet = new HashSet<>();
+
+        private LuaType lastType = null;
+        private LuaType lastType2 = null;
+        private String lastName = "";
+        private StringBuilder bul = new StringBuilder();
+        private boolean isModule = false;
+        private boolean hasDo = true;
+        private int lastNameIdx = -1;
+        private boolean atLineStart;
+
+        LuaScanner(TextSnapshot text, Language language, LexResult previous, int from, int start, boolean preview) {
+            this.language = language;
+            this.previous = previous;
+            this.preview = preview;
+            if (!preview) {
+                language.clearUserWord();
+            }
+            if (from < 0) {
+                base = start;
+                baseLine = 0;
+                lines = new ArrayList<>();
+                words = new ArrayList<>();
+            } else {
+                base = previous.getCheckpointOffset(from);
+                baseLine = previous.getCheckpointLine(from);
+                State state = (State) previous.getCheckpointState(from);
+                LuaData data = (LuaData) previous.getData();
+                lines = new ArrayList<>(data.lines.subList(0, state.lineCount));
+                words = new ArrayList<>(state.wordCount + 16);
+                for (int i = 0; i < state.wordCount; i++) {
+                    addUserWord(data.words.get(i));
                 }
+                lastType = state.lastType;
+                lastType2 = state.lastType2;
+                lastName = state.lastName;
+                bul.append(state.module);
+                isModule = state.isModule;
+                hasDo = state.hasDo;
+                restoreStack(lineStacks, state.blocks);
+                restoreStack(lineStacks2, state.braces);
+            }
+            lexer = new LuaLexer(text, base);
+            if (from >= 0) {
+                State state = (State) previous.getCheckpointState(from);
+                lexer.yybegin(state.lexState);
+                lexer.setBrackets(state.brackets);
+            }
+        }
 
-                    /*if (lastType2 == type && lastPair != null) {
-                        lastPair.setFirst(lastLen += len);
-                        continue;
-                    }*/
-                lastLen = len;
-                switch (type) {
-                    case DO:
-                        if (hasDo) {
-                            lineStacks.add(new Rect(lexer.yychar(), lexer.yyline(), 0, lexer.yyline()));
-                        }
-                        hasDo = true;
-                        //关键字
-                        tokens.add(new Pair(len, Lexer.KEYWORD));
-                        break;
-                    case WHILE:
-                    case FOR:
-                        hasDo = false;
-                        lineStacks.add(new Rect(lexer.yychar(), lexer.yyline(), 0, lexer.yyline()));
-                        //关键字
-                        tokens.add(new Pair(len, Lexer.KEYWORD));
-                        break;
-                    case FUNCTION:
-                    case IF:
-                    case SWITCH:
-                        lineStacks.add(new Rect(lexer.yychar(), lexer.yyline(), 0, lexer.yyline()));
-                        //关键字
-                        tokens.add(new Pair(len, Lexer.KEYWORD));
-                        break;
-                    case END:
-                        int size = lineStacks.size();
-                        if (size > 0) {
-                            Rect rect = lineStacks.remove(size - 1);
-                            rect.bottom = lexer.yyline();
-                            rect.right = lexer.yychar();
-                            if (rect.bottom - rect.top > 1)
-                                lines.add(rect);
-                        }
-                        //关键字
-                        tokens.add(new Pair(len, Lexer.KEYWORD));
-                        hasDo = true;
-                        break;
-                    case TRUE:
-                    case FALSE:
-                    case NOT:
-                    case AND:
-                    case OR:
-                    case THEN:
-                    case ELSEIF:
-                    case ELSE:
-                    case IN:
-                    case RETURN:
-                    case BREAK:
-                    case LOCAL:
-                    case REPEAT:
-                    case UNTIL:
-                    case NIL:
-
-                    case CASE:
-                    case DEFAULT:
-                    case CONTINUE:
-                    case GOTO:
-                        //关键字
-                        tokens.add(new Pair(len, Lexer.KEYWORD));
-                        break;
-                    case LCURLY:
-                        lineStacks2.add(new Rect(lexer.yychar(), lexer.yyline(), 0, lexer.yyline()));
-                        //符号
-                        tokens.add(pair = new Pair(len, Lexer.OPERATOR));
-                        break;
-                    case RCURLY:
-                        int size2 = lineStacks2.size();
-                        if (size2 > 0) {
-                            Rect rect = lineStacks2.remove(size2 - 1);
-                            rect.bottom = lexer.yyline();
-                            rect.right = lexer.yychar();
-                            if (rect.bottom - rect.top > 1)
-                                lines.add(rect);
-                        }
-                        //符号
-                        tokens.add(pair = new Pair(len, Lexer.OPERATOR));
-                        break;
-                    case LPAREN:
-                    case RPAREN:
-                    case LBRACK:
-                    case RBRACK:
-                    case COMMA:
-                    case DOT:
-                        //符号
-                        tokens.add(pair = new Pair(len, Lexer.OPERATOR));
-                        break;
-                    case STRING:
-                    case LONG_STRING:
-                        //字符串
-                        tokens.add(pair = new Pair(len, Lexer.SINGLE_SYMBOL_DELIMITED_A));
-                        if (rowCount > maxRow)
-                            break;
-
-                        if (lastName.equals("require"))
-                            isModule = true;
-
-                        if (isModule)
-                            bul.append(lexer.yytext());
-                        break;
-                    case NAME:
-                        if (rowCount > maxRow) {
-                            tokens.add(new Pair(len, Lexer.NORMAL));
-                            break;
-                        }
-                        if (lastType2 == LuaType.NUMBER) {
-                            Pair p = tokens.get(tokens.size() - 1);
-                            p.setSecond(Lexer.NORMAL);
-                            p.setFirst(p.first + len);
-                        }
-                        String name = lexer.yytext();
-                        if (lastType == LuaType.FUNCTION) {
-                            //函数名
-                            tokens.add(new Pair(len, Lexer.LITERAL));
-                            language.addUserWord(name);
-                        } else if (language.isUserWord(name)) {
-                            tokens.add(new Pair(len, Lexer.LITERAL));
-                        } else if (lastType == LuaType.GOTO || lastType == LuaType.AT) {
-                            tokens.add(new Pair(len, Lexer.LITERAL));
-                        } else if (language.isBasePackage(name)) {
-                            tokens.add(new Pair(len, Lexer.NAME));
-                        } else if (lastType == LuaType.DOT && language.isBasePackage(lastName) && language.isBaseWord(lastName, name)) {
-                            //标准库函数
-                            tokens.add(new Pair(len, Lexer.NAME));
-                        } else if (language.isName(name)) {
-                            tokens.add(new Pair(len, Lexer.NAME));
-                        } else {
-                            tokens.add(new Pair(len, Lexer.NORMAL));
-                        }
+        private static void restoreStack(ArrayList<Rect> stack, int[] saved) {
+            for (int i = 0; i < saved.length; i += 2) {
+                stack.add(new Rect(saved[i], saved[i + 1], 0, saved[i + 1]));
+            }
+        }
 
-                        if (lastType == LuaType.ASSIGN && name.equals("require")) {
-                            language.addUserWord(lastName);
-                            if (lastNameIdx >= 0) {
-                                Pair p = tokens.get(lastNameIdx - 1);
-                                p.setSecond(Lexer.LITERAL);
-                                lastNameIdx = -1;
-                            }
-                        }
-                        lastNameIdx = tokens.size();
-                        lastName = name;
-                        break;
-                    case SHORT_COMMENT:
-                    case BLOCK_COMMENT:
-                    case DOC_COMMENT:
-                        //注释
-                        tokens.add(pair = new Pair(len, Lexer.DOUBLE_SYMBOL_LINE));
-                        break;
-                    case NUMBER:
-                        //数字
+        @NotNull
+        private static int[] saveStack(ArrayList<Rect> stack) {
+            int[] saved = new int[2 * stack.size()];
+            for (int i = 0; i < stack.size(); i++) {
+                saved[2 * i] = stack.get(i).left;
+                saved[2 * i + 1] = stack.get(i).top;
+            }
+            return saved;
+        }
+
+        /**
+         * Returns whether the stack holds the saved one of the previous pass,
+         * moved for change
+         */
+        private static boolean matchesStack(ArrayList<Rect> stack, int[] saved, TextChange change, int lineDelta) {
+            if (saved.length != 2 * stack.size()) {
+                return false;
+            }
+            for (int i = 0; i < stack.size(); i++) {
+                Rect rect = stack.get(i);
+                int offset = saved[2 * i];
+                if (change.map(offset) != rect.left
+                        || saved[2 * i + 1] + (offset < change.start ? 0 : lineDelta) != rect.top) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @NotNull
+        private static int[] shiftStack(int[] saved, TextChange change, int lineDelta) {
+            int[] shifted = saved.clone();
+            for (int i = 0; i < shifted.length; i += 2) {
+                if (shifted[i] >= change.start) {
+                    shifted[i] += change.delta();
+                    shifted[i + 1] += lineDelta;
+                }
+            }
+            return shifted;
+        }
+
+        private void addUserWord(String name) {
+            if (wordSet.add(name)) {
+                words.add(name);
+            }
+            if (!preview) {
+                language.addUserWord(name);
+            }
+        }
+
+        private boolean isUserWord(String name) {
+            return language.isUserWord(name) || preview && wordSet.contains(name);
+        }
+
+        @Override
+        protected boolean next(@NotNull ArrayList<Pair> tokens) throws IOException {
+            LuaType type = lexer.advance();
+            if (type == null)
+                return false;
+            int len = lexer.yylength();
+            int yychar = base + lexer.yychar();
+            int yyline = baseLine + lexer.yyline();
+
+            if (isModule && lastType == LuaType.STRING && type != LuaType.STRING) {
+                String mod = bul.toString();
+                if (bul.length() > 2)
+                    addUserWord(mod.substring(1, mod.length() - 1));
+                bul = new StringBuilder();
+                isModule = false;
+            }
+
+            switch (type) {
+                case DO:
+                    if (hasDo) {
+                        lineStacks.add(new Rect(yychar, yyline, 0, yyline));
+                    }
+                    hasDo = true;
+                    //关键字
+                    tokens.add(new Pair(len, Lexer.KEYWORD));
+                    break;
+                case WHILE:
+                case FOR:
+                    hasDo = false;
+                    lineStacks.add(new Rect(yychar, yyline, 0, yyline));
+                    //关键字
+                    tokens.add(new Pair(len, Lexer.KEYWORD));
+                    break;
+                case FUNCTION:
+                case IF:
+                case SWITCH:
+                    lineStacks.add(new Rect(yychar, yyline, 0, yyline));
+                    //关键字
+                    tokens.add(new Pair(len, Lexer.KEYWORD));
+                    break;
+                case END:
+                    int size = lineStacks.size();
+                    if (size > 0) {
+                        Rect rect = lineStacks.remove(size - 1);
+                        rect.bottom = yyline;
+                        rect.right = yychar;
+                        if (rect.bottom - rect.top > 1)
+                            lines.add(rect);
+                    }
+                    //关键字
+                    tokens.add(new Pair(len, Lexer.KEYWORD));
+                    hasDo = true;
+                    break;
+                case TRUE:
+                case FALSE:
+                case NOT:
+                case AND:
+                case OR:
+                case THEN:
+                case ELSEIF:
+                case ELSE:
+                case IN:
+                case RETURN:
+                case BREAK:
+                case LOCAL:
+                case REPEAT:
+                case UNTIL:
+                case NIL:
+
+                case CASE:
+                case DEFAULT:
+                case CONTINUE:
+                case GOTO:
+                    //关键字
+                    tokens.add(new Pair(len, Lexer.KEYWORD));
+                    break;
+                case LCURLY:
+                    lineStacks2.add(new Rect(yychar, yyline, 0, yyline));
+                    //符号
+                    tokens.add(new Pair(len, Lexer.OPERATOR));
+                    break;
+                case RCURLY:
+                    int size2 = lineStacks2.size();
+                    if (size2 > 0) {
+                        Rect rect = lineStacks2.remove(size2 - 1);
+                        rect.bottom = yyline;
+                        rect.right = yychar;
+                        if (rect.bottom - rect.top > 1)
+                            lines.add(rect);
+                    }
+                    //符号
+                    tokens.add(new Pair(len, Lexer.OPERATOR));
+                    break;
+                case LPAREN:
+                case RPAREN:
+                case LBRACK:
+                case RBRACK:
+                case COMMA:
+                case DOT:
+                    //符号
+                    tokens.add(new Pair(len, Lexer.OPERATOR));
+                    break;
+                case STRING:
+                case LONG_STRING:
+                    //字符串
+                    tokens.add(new Pair(len, Lexer.SINGLE_SYMBOL_DELIMITED_A));
+
+                    if (lastName.equals("require"))
+                        isModule = true;
+
+                    if (isModule)
+                        bul.append(lexer.yytext());
+                    break;
+                case NAME:
+                    if (lastType2 == LuaType.NUMBER) {
+                        int last = tokens.size() - 1;
+                        tokens.set(last, new Pair(tokens.get(last).getFirst() + len, Lexer.NORMAL));
+                    }
+                    String name = lexer.yytext();
+                    if (lastType == LuaType.FUNCTION) {
+                        //函数名
+                        tokens.add(new Pair(len, Lexer.LITERAL));
+                        addUserWord(name);
+                    } else if (isUserWord(name)) {
+                        tokens.add(new Pair(len, Lexer.LITERAL));
+                    } else if (lastType == LuaType.GOTO || lastType == LuaType.AT) {
                         tokens.add(new Pair(len, Lexer.LITERAL));
-                        break;
-                    default:
-                        tokens.add(pair = new Pair(len, Lexer.NORMAL));
+                    } else if (language.isBasePackage(name)) {
+                        tokens.add(new Pair(len, Lexer.NAME));
+                    } else if (lastType == LuaType.DOT && language.isBasePackage(lastName) && language.isBaseWord(lastName, name)) {
+                        //标准库函数
+                        tokens.add(new Pair(len, Lexer.NAME));
+                    } else if (language.isName(name)) {
+                        tokens.add(new Pair(len, Lexer.NAME));
+                    } else {
+                        tokens.add(new Pair(len, Lexer.NORMAL));
+                    }
+
+                    if (lastType == LuaType.ASSIGN && name.equals("require")) {
+                        addUserWord(lastName);
+                        if (lastNameIdx >= 0) {
+                            Pair p = tokens.get(lastNameIdx - 1);
+                            tokens.set(lastNameIdx - 1, new Pair(p.getFirst(), Lexer.LITERAL));
+                            lastNameIdx = -1;
+                        }
+                    }
+                    lastNameIdx = tokens.size();
+                    lastName = name;
+                    break;
+                case SHORT_COMMENT:
+                case BLOCK_COMMENT:
+                case DOC_COMMENT:
+                    //注释
+                    tokens.add(new Pair(len, Lexer.DOUBLE_SYMBOL_LINE));
+                    break;
+                case NUMBER:
+                    //数字
+                    tokens.add(new Pair(len, Lexer.LITERAL));
+                    break;
+                default:
+                    tokens.add(new Pair(len, Lexer.NORMAL));
+            }
+
+            if (type != LuaType.WHITE_SPACE
+                //&& type != LuaTokenTypes.NEWLINE && type != LuaTokenTypes.NL_BEFORE_LONGSTRING
+            ) {
+                lastType = type;
+            }
+            lastType2 = type;
+            atLineStart = lexer.yycharat(len - 1) == '\n';
+            if (atLineStart) {
+                // spans before a checkpoint are never changed after it, so
+                // a name is only marked by a require on its own line
+                lastNameIdx = -1;
+            }
+            return true;
+        }
+
+        @Override
+        protected boolean isAtLineStart() {
+            return atLineStart;
+        }
+
+        @Override
+        protected int getOffset() {
+            return base + lexer.yychar() + lexer.yylength();
+        }
+
+        @Override
+        protected int getLine() {
+            int line = baseLine + lexer.yyline();
+            for (int i = lexer.yylength() - 1; i >= 0; i--) {
+                if (lexer.yycharat(i) == '\n') {
+                    line++;
                 }
+            }
+            return line;
+        }
 
-                if (type != LuaType.WHITE_SPACE
-                    //&& type != LuaTokenTypes.NEWLINE && type != LuaTokenTypes.NL_BEFORE_LONGSTRING
-                ) {
-                    lastType = type;
+        @NotNull
+        @Override
+        protected Object save(int tokenCount) {
+            return new State(lexer.yystate(), lexer.getBrackets(), lastType, lastType2, lastName, bul.toString(),
+                    isModule, hasDo, saveStack(lineStacks), saveStack(lineStacks2), lines.size(), words.size());
+        }
+
+        @Override
+        protected boolean matches(int checkpoint, @NotNull TextChange change, int lineDelta) {
+            State state = (State) previous.getCheckpointState(checkpoint);
+            if (lexer.yystate() != state.lexState || lexer.getBrackets() != state.brackets
+                    || lastType != state.lastType || lastType2 != state.lastType2 || isModule != state.isModule
+                    || hasDo != state.hasDo || !lastName.equals(state.lastName)
+                    || !bul.toString().equals(state.module) || words.size() != state.wordCount
+                    || !matchesStack(lineStacks, state.blocks, change, lineDelta)
+                    || !matchesStack(lineStacks2, state.braces, change, lineDelta)) {
+                return false;
+            }
+            // names are colored by the user words found before them
+            ArrayList<String> oldWords = ((LuaData) previous.getData()).words;
+            for (int i = 0; i < state.wordCount; i++) {
+                if (!wordSet.contains(oldWords.get(i))) {
+                    return false;
                 }
-                lastType2 = type;
-                if (pair != null)
-                    lastPair = pair;
-                idx += len;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            TextWarriorException.fail(e.getMessage());
-        }
-        if (tokens.isEmpty()) {
-            // return value cannot be empty
-            tokens.add(new Pair(0, Lexer.NORMAL));
-        }
-        language.updateUserWord();
-        Lexer.mLines = lines;
-        return tokens;
+            }
+            return true;
+        }
+
+        @NotNull
+        @Override
+        protected Object shift(int checkpoint, int converged, @NotNull TextChange change, int lineDelta) {
+            State state = (State) previous.getCheckpointState(checkpoint);
+            State at = (State) previous.getCheckpointState(converged);
+            return new State(state.lexState, state.brackets, state.lastType, state.lastType2, state.lastName,
+                    state.module, state.isModule, state.hasDo, shiftStack(state.blocks, change, lineDelta),
+                    shiftStack(state.braces, change, lineDelta), state.lineCount - at.lineCount + lines.size(), state.wordCount);
+        }
+
+        @Override
+        protected void finish(@NotNull LexResult result, int converged, @Nullable TextChange change, int lineDelta) {
+            if (converged >= 0) {
+                State at = (State) previous.getCheckpointState(converged);
+                LuaData data = (LuaData) previous.getData();
+                for (int i = at.lineCount; i < data.lines.size(); i++) {
+                    Rect rect = data.lines.get(i);
+                    int topDelta = rect.left < change.start ? 0 : lineDelta;
+                    lines.add(new Rect(change.map(rect.left), rect.top + topDelta,
+                            change.map(rect.right), rect.bottom + lineDelta));
+                }
+                for (int i = at.wordCount; i < data.words.size(); i++) {
+                    addUserWord(data.words.get(i));
+                }
+            }
+            result.setData(new LuaData(lines, words));
+            language.updateUserWord();
+            Lexer.mLines = lines;
+        }
     }
 }
@@ -2,6 +2,10 @@ package com.mcal.fridainjectorpe.editor.util;
 
 import java.io.Reader;
 
+/**
+ * Reader over a CharSequence. Documents, snapshots, Strings and StringBuilders
+ * are read in bulk, a whole request at a time, rather than char by char.
+ */
 public class CharSeqReader extends Reader {
     int offset = 0;
     CharSequence src;
@@ -10,6 +14,14 @@ public class CharSeqReader extends Reader {
         this.src = src;
     }
 
+    /**
+     * Creates a reader of the chars of src from offset on
+     */
+    public CharSeqReader(CharSequence src, int offset) {
+        this.src = src;
+        this.offset = offset;
+    }
+
     @Override
     public void close() {
         src = null;
@@ -19,16 +31,32 @@ public class CharSeqReader extends Reader {
     @Override
     public int read(char[] chars, int i, int i1) {
         int len = Math.min(src.length() - offset, i1);
-        for (int n = 0; n < len; n++) {
-            try {
-                char c = src.charAt(offset++);
-                chars[i++] = c;
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
         if (len <= 0)
             return -1;
+        getChars(src, offset, offset + len, chars, i);
+        offset += len;
         return len;
     }
-}
\ No newline at end of file
+
+    /**
+     * Copies the chars of src from start to end into dst at dstBegin, in bulk
+     * where src allows it
+     */
+    public static void getChars(CharSequence src, int start, int end, char[] dst, int dstBegin) {
+        if (src instanceof DocumentProvider) {
+            ((DocumentProvider) src).getChars(start, end, dst, dstBegin);
+        } else if (src instanceof TextSnapshot) {
+            ((TextSnapshot) src).getChars(start, end, dst, dstBegin);
+        } else if (src instanceof TextBuffer) {
+            ((TextBuffer) src).getChars(start, end, dst, dstBegin);
+        } else if (src instanceof String) {
+            ((String) src).getChars(start, end, dst, dstBegin);
+        } else if (src instanceof StringBuilder) {
+            ((StringBuilder) src).getChars(start, end, dst, dstBegin);
+        } else {
+            for (int n = start; n < end; n++) {
+                dst[dstBegin++] = src.charAt(n);
+            }
+        }
+    }
+}
@@ -22,6 +22,8 @@ import java.util.ArrayList;
  */
 public class Document extends TextBuffer {
 
+    private final static int WRAP_CHUNK_SIZE = 4096;
+
     private boolean _isWordWrap = false;
 
     /**
@@ -34,6 +36,11 @@ public class Document extends TextBuffer {
      * Values are valid only in word-wrap mode
      */
     private ArrayList<Integer> _rowTable;
+    /**
+     * True while _rowTable holds one row per line, as it does when word wrap
+     * is disabled, so that it need not be analyzed again
+     */
+    private boolean _rowTableIsLines = false;
 
     public Document(TextFieldMetrics metrics) {
         super();
@@ -53,6 +60,31 @@ public class Document extends TextBuffer {
         setBuffer(ca, len, lineCount);
     }
 
+    @Override
+    synchronized public void setBuffer(char[] newBuffer, int textSize, int lineCount) {
+        _rowTableIsLines = false;
+        super.setBuffer(newBuffer, textSize, lineCount);
+    }
+
+    /**
+     * Also builds the row table from lineLengths when word wrap is disabled.
+     */
+    @Override
+    synchronized public void setBuffer(char[] newBuffer, int textSize, @NotNull int[] lineLengths, int lineCount) {
+        super.setBuffer(newBuffer, textSize, lineLengths, lineCount);
+        resetRowTable();
+        if (_isWordWrap) {
+            return;
+        }
+        _rowTable.ensureCapacity(lineCount);
+        int offset = 0;
+        for (int i = 0; i < lineCount - 1; ++i) {
+            offset += lineLengths[i];
+            _rowTable.add(offset);
+        }
+        _rowTableIsLines = true;
+    }
+
     private void resetRowTable() {
         ArrayList<Integer> rowTable = new ArrayList<Integer>();
         rowTable.add(0); //every document contains at least 1 row
@@ -101,8 +133,8 @@ public class Document extends TextBuffer {
 
     @Override
     /**
-     * Moves _gapStartIndex by displacement units. Note that displacement can be
-     * negative and will move _gapStartIndex to the left.
+     * Moves the edit point by displacement units. Note that displacement can be
+     * negative and will move the edit point to the left.
      *
      * Only UndoStack should use this method to carry out a simple undo/redo
      * of insertions/deletions. No error checking is done.
@@ -111,33 +143,20 @@ public class Document extends TextBuffer {
         super.shiftGapStart(displacement);
 
         if (displacement != 0) {
+            int editPoint = getEditPoint();
             int startOffset = (displacement > 0)
-                    ? _gapStartIndex - displacement
-                    : _gapStartIndex;
+                    ? editPoint - displacement
+                    : editPoint;
             int startRow = findRowNumber(startOffset);
-            int analyzeEnd = findNextLineFrom(_gapStartIndex);
+            int analyzeEnd = findNextLineFrom(editPoint);
             updateWordWrapAfterEdit(startRow, analyzeEnd, displacement);
         }
     }
 
     //No error checking is done on parameters.
     private int findNextLineFrom(int charOffset) {
-        int lineEnd = logicalToRealIndex(charOffset);
-
-        while (lineEnd < _contents.length) {
-            // skip the gap
-            if (lineEnd == _gapStartIndex) {
-                lineEnd = _gapEndIndex;
-            }
-
-            if (_contents[lineEnd] == Language.NEWLINE ||
-                    _contents[lineEnd] == Language.EOF) {
-                break;
-            }
-
-            ++lineEnd;
-        }
-        return realToLogicalIndex(lineEnd) + 1;
+        int line = _lines.findLine(charOffset);
+        return _lines.getLineOffset(line) + _lines.getLineLength(line);
     }
 
     private void updateWordWrapAfterEdit(int startRow, int analyzeEnd, int delta) {
@@ -174,9 +193,14 @@ public class Document extends TextBuffer {
     }
 
     public void analyzeWordWrap() {
+        if (!_isWordWrap && _rowTableIsLines) {
+            // rows are lines, and have been kept up to date across edits
+            return;
+        }
 
         resetRowTable();
 
+        _rowTableIsLines = false;
         if (_isWordWrap && !hasMinimumWidthForWordWrap()) {
             if (_metrics.getRowWidth() > 0) {
                 TextWarriorException.fail("Text field has non-zero width but still too small for word wrap");
@@ -186,6 +210,7 @@ public class Document extends TextBuffer {
         }
 
         analyzeWordWrap(1, 0, getTextLength());
+        _rowTableIsLines = !_isWordWrap;
     }
 
     private boolean hasMinimumWidthForWordWrap() {
@@ -199,22 +224,17 @@ public class Document extends TextBuffer {
     //exactly one whitespace character. Note that EOF is considered whitespace.
     private void analyzeWordWrap(int rowIndex, int startOffset, int endOffset) {
         if (!_isWordWrap) {
-            int offset = logicalToRealIndex(startOffset);
-            int end = logicalToRealIndex(endOffset);
+            // rows are lines; take their starts from the line index
             ArrayList<Integer> rowTable = new ArrayList<Integer>();
+            int line = _lines.findLine(startOffset);
+            int lineCount = _lines.getLineCount();
+            int nextLineOffset = _lines.getLineOffset(line) + _lines.getLineLength(line);
 
-            while (offset < end) {
-                // skip the gap
-                if (offset == _gapStartIndex) {
-                    offset = _gapEndIndex;
-                }
-                char c = _contents[offset];
-                if (c == Language.NEWLINE) {
-                    //start a new row
-                    rowTable.add(realToLogicalIndex(offset) + 1);
-                }
-                ++offset;
-
+            while (line + 1 < lineCount && nextLineOffset <= endOffset) {
+                //start a new row
+                rowTable.add(nextLineOffset);
+                ++line;
+                nextLineOffset += _lines.getLineLength(line);
             }
             _rowTable.addAll(rowIndex, rowTable);
             return;
@@ -225,20 +245,23 @@ public class Document extends TextBuffer {
         }
 
         ArrayList<Integer> rowTable = new ArrayList<Integer>();
-        int offset = logicalToRealIndex(startOffset);
-        int end = logicalToRealIndex(endOffset);
+        char[] chunk = new char[WRAP_CHUNK_SIZE];
+        int chunkStart = startOffset;
+        int chunkEnd = startOffset;
+        int offset = startOffset;
         int potentialBreakPoint = startOffset;
         int wordExtent = 0;
         final int maxWidth = _metrics.getRowWidth();
         int remainingWidth = maxWidth;
 
-        while (offset < end) {
-            // skip the gap
-            if (offset == _gapStartIndex) {
-                offset = _gapEndIndex;
+        while (offset < endOffset) {
+            if (offset == chunkEnd) {
+                chunkStart = offset;
+                chunkEnd = Math.min(endOffset, offset + chunk.length);
+                getChars(chunkStart, chunkEnd, chunk, 0);
             }
 
-            char c = _contents[offset];
+            char c = chunk[offset - chunkStart];
             wordExtent += _metrics.getAdvance(c);
 
             boolean isWhitespace = (c == ' ' || c == Language.TAB
@@ -250,7 +273,7 @@ public class Document extends TextBuffer {
                     remainingWidth -= wordExtent;
                 } else if (wordExtent > maxWidth) {
                     //handle a word too long to fit on one row
-                    int current = logicalToRealIndex(potentialBreakPoint);
+                    int current = potentialBreakPoint;
                     remainingWidth = maxWidth;
 
                     //start the word on a new row, if it isn't already
@@ -260,14 +283,12 @@ public class Document extends TextBuffer {
                     }
 
                     while (current <= offset) {
-                        // skip the gap
-                        if (current == _gapStartIndex) {
-                            current = _gapEndIndex;
-                        }
-
-                        int advance = _metrics.getAdvance(_contents[current]);
+                        char wordChar = (current >= chunkStart)
+                                ? chunk[current - chunkStart]
+                                : charAt(current);
+                        int advance = _metrics.getAdvance(wordChar);
                         if (advance > remainingWidth) {
-                            rowTable.add(realToLogicalIndex(current));
+                            rowTable.add(current);
                             remainingWidth = maxWidth - advance;
                         } else {
                             remainingWidth -= advance;
@@ -282,7 +303,7 @@ public class Document extends TextBuffer {
                 }
 
                 wordExtent = 0;
-                potentialBreakPoint = realToLogicalIndex(offset) + 1;
+                potentialBreakPoint = offset + 1;
             }
 
             if (c == Language.NEWLINE) {
@@ -12,6 +12,8 @@ import com.mcal.fridainjectorpe.editor.lang.Language;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 
@@ -63,6 +65,31 @@ public class DocumentProvider implements java.lang.CharSequence {
         return _theText.subSequence(charOffset, maxChars);
     }
 
+    /**
+     * Copies the chars in [srcBegin, srcEnd) to dst, starting at dstBegin, in
+     * one call. The range must lie within the text, EOF included.
+     */
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        _theText.getChars(srcBegin, srcEnd, dst, dstBegin);
+    }
+
+    /**
+     * Writes the whole text to out chunk by chunk, without making a String
+     * of it
+     */
+    public void writeTo(@NotNull Writer out) throws IOException {
+        _theText.writeTo(out);
+    }
+
+    /**
+     * Returns an immutable view of the current text that background tasks can
+     * read without locking the document
+     */
+    @NotNull
+    public TextSnapshot snapshot() {
+        return _theText.snapshot();
+    }
+
     public char charAt(int charOffset) {
         if (_theText.isValid(charOffset)) {
             return _theText.charAt(charOffset);
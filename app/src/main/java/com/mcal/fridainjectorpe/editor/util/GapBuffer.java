@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2013 Tah Wei Hoon.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License Version 2.0,
+ * with full text available at http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * This software is provided "as is". Use at your own risk.
+ */
+package com.mcal.fridainjectorpe.editor.util;
+
+import com.mcal.fridainjectorpe.editor.lang.Language;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * Gap buffer storage: one char array with a movable gap at the edit point.
+ * Edits near the previous one are cheap; the gap is moved to distant edits.
+ * Characters deleted next to the gap remain in the gap until overwritten.
+ * <p>
+ * The array grows by at least half its size when the gap runs out, and is
+ * shrunk again when the text takes up less than a quarter of it.
+ * <p>
+ * Snapshots share the array. Until it is next reallocated, edits write in
+ * place only where no live snapshot reads, that is inside the gaps the
+ * snapshots still unreleased were taken with; anything else copies the array
+ * first. Releasing each snapshot once it has been read keeps the copies to
+ * edits that race a reader. A snapshot that is never released pins its
+ * gap, so typing after a backspace, outside that gap, copies the whole array
+ * once and then writes to the copy in place.
+ */
+public class GapBuffer implements TextStorage {
+
+    // gap size must be > 0 to insert into full buffers successfully
+    protected final static int MIN_GAP_SIZE = 50;
+    /**
+     * Buffers up to this size are never shrunk
+     */
+    private final static int MIN_SHRINK_CAPACITY = 4096;
+    protected char[] _contents;
+    protected int _gapStartIndex;
+    /**
+     * One past end of gap
+     */
+    protected int _gapEndIndex;
+    /**
+     * Number of chars at the start of the gap that were removed by the latest
+     * contiguous deletions and can still be restored
+     */
+    private int _deletedCount;
+    /**
+     * Unreleased snapshots that read _contents, which may then only be
+     * written in [_writableStart, _writableEnd), the gap they all share
+     */
+    private final ArrayList<GapBuffer> _snapshots = new ArrayList<>();
+    private int _writableStart;
+    private int _writableEnd;
+
+    public GapBuffer() {
+        _contents = new char[MIN_GAP_SIZE + 1]; // extra char for EOF
+        _contents[MIN_GAP_SIZE] = Language.EOF;
+        _gapStartIndex = 0;
+        _gapEndIndex = MIN_GAP_SIZE;
+        updateWritable();
+    }
+
+    /**
+     * Takes over newBuffer, whose first textSize chars are the text. The array
+     * must have room for the EOF sentinel after them.
+     */
+    public GapBuffer(@NotNull char[] newBuffer, int textSize) {
+        _contents = newBuffer;
+        initGap(textSize);
+        updateWritable();
+    }
+
+    private GapBuffer(@NotNull char[] contents, int gapStartIndex, int gapEndIndex) {
+        _contents = contents;
+        _gapStartIndex = gapStartIndex;
+        _gapEndIndex = gapEndIndex;
+        updateWritable();
+    }
+
+    /**
+     * Calculate the implementation size of the char array needed to store
+     * textSize number of characters.
+     *
+     * @return The size, measured in number of chars, required by the
+     * implementation to store textSize characters, or -1 if the request
+     * cannot be satisfied
+     */
+    @Contract(pure = true)
+    public static int memoryNeeded(int textSize) {
+        long bufferSize = textSize + MIN_GAP_SIZE + 1; // extra char for EOF
+        if (bufferSize < Integer.MAX_VALUE) {
+            return (int) bufferSize;
+        }
+        return -1;
+    }
+
+    @Override
+    public int length() {
+        return _contents.length - gapSize();
+    }
+
+    @Override
+    public char charAt(int offset) {
+        return _contents[logicalToRealIndex(offset)];
+    }
+
+    @Override
+    public void getChars(int start, int end, @NotNull char[] dst, int dstBegin) {
+        if (end <= _gapStartIndex) {
+            System.arraycopy(_contents, start, dst, dstBegin, end - start);
+        } else if (start >= _gapStartIndex) {
+            System.arraycopy(_contents, start + gapSize(), dst, dstBegin, end - start);
+        } else {
+            int before = _gapStartIndex - start;
+            System.arraycopy(_contents, start, dst, dstBegin, before);
+            System.arraycopy(_contents, _gapEndIndex, dst, dstBegin + before, end - _gapStartIndex);
+        }
+    }
+
+    @Override
+    public void writeTo(@NotNull Writer out, int start, int end) throws IOException {
+        if (start < _gapStartIndex) {
+            out.write(_contents, start, Math.min(end, _gapStartIndex) - start);
+        }
+        if (end > _gapStartIndex) {
+            int from = Math.max(start, _gapStartIndex);
+            out.write(_contents, from + gapSize(), end - from);
+        }
+    }
+
+    @Override
+    public void insert(int offset, @NotNull char[] c, int start, int count) {
+        int insertIndex = logicalToRealIndex(offset);
+
+        // shift gap to insertion point
+        if (insertIndex != _gapEndIndex) {
+            if (isBeforeGap(insertIndex)) {
+                shiftGapLeft(insertIndex);
+            } else {
+                shiftGapRight(insertIndex);
+            }
+        }
+
+        _deletedCount = 0;
+        if (count >= gapSize()) {
+            growBufferBy(count - gapSize());
+        }
+
+        ensureWritable(_gapStartIndex, _gapStartIndex + count);
+        System.arraycopy(c, start, _contents, _gapStartIndex, count);
+        _gapStartIndex += count;
+    }
+
+    @Override
+    public void delete(int offset, int count) {
+        int newGapStart = offset + count;
+
+        // shift gap to deletion point
+        if (newGapStart != _gapStartIndex) {
+            _deletedCount = 0;
+            if (isBeforeGap(newGapStart)) {
+                shiftGapLeft(newGapStart);
+            } else {
+                shiftGapRight(newGapStart + gapSize());
+            }
+        }
+
+        // increase gap size
+        _gapStartIndex -= count;
+        _deletedCount += count;
+
+        if (_contents.length > MIN_SHRINK_CAPACITY
+                && _contents.length / 4 > length() + _deletedCount) {
+            resize(2 * (length() + _deletedCount) + MIN_GAP_SIZE);
+        }
+    }
+
+    @Override
+    public int getEditPoint() {
+        return _gapStartIndex;
+    }
+
+    /**
+     * Gets count number of consecutive characters starting from _gapStartIndex.
+     */
+    @NotNull
+    @Override
+    public char[] getDeleted(int count) {
+        char[] chars = new char[count];
+        System.arraycopy(_contents, _gapStartIndex, chars, 0, count);
+        return chars;
+    }
+
+    @Override
+    public void restoreDeleted(int count) {
+        _gapStartIndex += count;
+        _deletedCount -= count;
+    }
+
+    @NotNull
+    @Override
+    public TextStorage snapshot() {
+        GapBuffer snapshot = new GapBuffer(_contents, _gapStartIndex, _gapEndIndex);
+        _snapshots.add(snapshot);
+        updateWritable();
+        return snapshot;
+    }
+
+    @Override
+    public void release(@NotNull TextStorage snapshot) {
+        // snapshots of an array since replaced need not be tracked any more
+        if (_snapshots.remove(snapshot)) {
+            updateWritable();
+        }
+    }
+
+    private void updateWritable() {
+        _writableStart = 0;
+        _writableEnd = _contents.length;
+        for (GapBuffer snapshot : _snapshots) {
+            _writableStart = Math.max(_writableStart, snapshot._gapStartIndex);
+            _writableEnd = Math.min(_writableEnd, snapshot._gapEndIndex);
+        }
+    }
+
+    /**
+     * Copies _contents if snapshots may read any of [start, end)
+     */
+    private void ensureWritable(int start, int end) {
+        if (start < _writableStart || end > _writableEnd) {
+            resize(_contents.length);
+        }
+    }
+
+    /**
+     * Adjusts gap so that _gapStartIndex is at newGapStart
+     */
+    final protected void shiftGapLeft(int newGapStart) {
+        int count = _gapStartIndex - newGapStart;
+        if (count <= 0) {
+            return;
+        }
+        ensureWritable(_gapEndIndex - count, _gapEndIndex);
+        _gapStartIndex -= count;
+        _gapEndIndex -= count;
+        System.arraycopy(_contents, _gapStartIndex, _contents, _gapEndIndex, count);
+    }
+
+    /**
+     * Adjusts gap so that _gapEndIndex is at newGapEnd
+     */
+    final protected void shiftGapRight(int newGapEnd) {
+        int count = newGapEnd - _gapEndIndex;
+        if (count <= 0) {
+            return;
+        }
+        ensureWritable(_gapStartIndex, _gapStartIndex + count);
+        System.arraycopy(_contents, _gapEndIndex, _contents, _gapStartIndex, count);
+        _gapStartIndex += count;
+        _gapEndIndex += count;
+    }
+
+    /**
+     * Create a gap at the start of _contents[] and tack a EOF at the end.
+     * Precondition: real contents are from _contents[0] to _contents[contentsLength-1]
+     */
+    protected void initGap(int contentsLength) {
+        int eofPosition = _contents.length - 1;
+        _gapEndIndex = eofPosition - contentsLength;
+        System.arraycopy(_contents, 0, _contents, _gapEndIndex, contentsLength);
+        _contents[eofPosition] = Language.EOF; // mark end of file
+        _gapStartIndex = 0;
+        _deletedCount = 0;
+    }
+
+    /**
+     * Enlarges the gap by at least minIncrement + MIN_GAP_SIZE chars, and the
+     * buffer by at least half its size, so that a run of insertions causes
+     * O(log n) reallocations.
+     */
+    protected void growBufferBy(int minIncrement) {
+        //TODO handle new size > MAX_INT or allocation failure
+        int capacity = _contents.length + minIncrement + MIN_GAP_SIZE;
+        resize(Math.max(capacity, _contents.length + (_contents.length >> 1)));
+    }
+
+    /**
+     * Moves the text into a buffer of newCapacity chars, keeping the chars
+     * that can still be restored at the start of the gap.
+     */
+    private void resize(int newCapacity) {
+        char[] temp = new char[newCapacity];
+        int head = _gapStartIndex + _deletedCount;
+        int tail = _contents.length - _gapEndIndex;
+        System.arraycopy(_contents, 0, temp, 0, head);
+        System.arraycopy(_contents, _gapEndIndex, temp, newCapacity - tail, tail);
+        _gapEndIndex = newCapacity - tail;
+        _contents = temp;
+        _snapshots.clear();
+        updateWritable();
+    }
+
+    @Contract(pure = true)
+    final protected int gapSize() {
+        return _gapEndIndex - _gapStartIndex;
+    }
+
+    final protected int logicalToRealIndex(int i) {
+        if (isBeforeGap(i)) {
+            return i;
+        } else {
+            return i + gapSize();
+        }
+    }
+
+    @Contract(pure = true)
+    final protected boolean isBeforeGap(int i) {
+        return i < _gapStartIndex;
+    }
+}
@@ -0,0 +1,146 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import com.mcal.fridainjectorpe.editor.lang.Language;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * The spans a tokenizer found in one version of a text, together with the
+ * states it was in at checkpoints along the way. A checkpoint is a line start
+ * where a token begins; lexing an edited version of the text can resume from
+ * the last checkpoint before the edit instead of from the start.
+ * <p>
+ * A result is built by its tokenizer and never modified once published; its
+ * spans must not be modified either.
+ */
+public class LexResult {
+    private final Object _tokenizer;
+    private final Language _language;
+    private final TextBuffer _source;
+    private final long _version;
+    private final int _lineCount;
+    private final ArrayList<Pair> _tokens;
+    private int[] _offsets = new int[16];
+    private int[] _lines = new int[16];
+    private int[] _tokenCounts = new int[16];
+    private Object[] _states = new Object[16];
+    private int _count;
+    /**
+     * Anything else the tokenizer found, such as block boundaries
+     */
+    private Object _data;
+
+    public LexResult(@NotNull Object tokenizer, @NotNull Language language,
+                     @NotNull TextSnapshot text, @NotNull ArrayList<Pair> tokens) {
+        _tokenizer = tokenizer;
+        _language = language;
+        _source = text.getSource();
+        _version = text.getVersion();
+        _lineCount = text.getLineCount();
+        _tokens = tokens;
+    }
+
+    /**
+     * Returns whether this result came from the tokenizer and language given
+     * lexing an older version of the buffer text is a snapshot of, so that a
+     * new pass of theirs over text may reuse it
+     */
+    public boolean isFrom(@NotNull Object tokenizer, @NotNull Language language, @NotNull TextSnapshot text) {
+        return tokenizer == _tokenizer && language == _language && text.getSource() == _source;
+    }
+
+    public long getVersion() {
+        return _version;
+    }
+
+    public int getLineCount() {
+        return _lineCount;
+    }
+
+    /**
+     * Returns the spans, as Pairs of length and type
+     */
+    @NotNull
+    public ArrayList<Pair> getTokens() {
+        return _tokens;
+    }
+
+    @Nullable
+    public Object getData() {
+        return _data;
+    }
+
+    public void setData(@Nullable Object data) {
+        _data = data;
+    }
+
+    /**
+     * Records that lexing can resume at offset, the start of line, with the
+     * first tokenCount spans done and the tokenizer in state. Checkpoints
+     * must be added in order of offset.
+     */
+    public void addCheckpoint(int offset, int line, int tokenCount, @NotNull Object state) {
+        if (_count == _offsets.length) {
+            int capacity = 2 * _count;
+            int[] offsets = new int[capacity];
+            int[] lines = new int[capacity];
+            int[] tokenCounts = new int[capacity];
+            Object[] states = new Object[capacity];
+            System.arraycopy(_offsets, 0, offsets, 0, _count);
+            System.arraycopy(_lines, 0, lines, 0, _count);
+            System.arraycopy(_tokenCounts, 0, tokenCounts, 0, _count);
+            System.arraycopy(_states, 0, states, 0, _count);
+            _offsets = offsets;
+            _lines = lines;
+            _tokenCounts = tokenCounts;
+            _states = states;
+        }
+        _offsets[_count] = offset;
+        _lines[_count] = line;
+        _tokenCounts[_count] = tokenCount;
+        _states[_count] = state;
+        _count++;
+    }
+
+    public int getCheckpointCount() {
+        return _count;
+    }
+
+    public int getCheckpointOffset(int i) {
+        return _offsets[i];
+    }
+
+    public int getCheckpointLine(int i) {
+        return _lines[i];
+    }
+
+    public int getCheckpointTokenCount(int i) {
+        return _tokenCounts[i];
+    }
+
+    @NotNull
+    public Object getCheckpointState(int i) {
+        return _states[i];
+    }
+
+    /**
+     * Returns the index of the last checkpoint before offset, or -1 if there
+     * is none
+     */
+    public int findCheckpointBefore(int offset) {
+        int low = 0;
+        int high = _count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (_offsets[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low - 1;
+    }
+}
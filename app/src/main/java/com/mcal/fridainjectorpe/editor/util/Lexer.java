@@ -5,6 +5,9 @@ import android.graphics.Rect;
 import com.mcal.fridainjectorpe.editor.lang.DefFormatter;
 import com.mcal.fridainjectorpe.editor.lang.Language;
 import com.mcal.fridainjectorpe.editor.lang.LanguageNonProg;
+import com.mcal.fridainjectorpe.editor.lang.LexerTokenizer;
+
+import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -64,8 +67,30 @@ public class Lexer {
     public static ArrayList<Rect> mLines = new ArrayList<>();
     private static Language mGlobalLanguage = LanguageNonProg.getInstance();
     LexCallback mCallback = null;
-    private DocumentProvider hDoc;
+    private TextSnapshot mText;
+    /**
+     * Result of the last completed pass, from which the next one resumes
+     */
+    private LexResult mResult;
+    /**
+     * Offsets of the part of the text on screen, and the number of times it moved
+     */
+    private int mViewStart;
+    private int mViewEnd;
+    private int mViewMoves;
+    /**
+     * Whether mText is yet to be lexed
+     */
+    private boolean mPending;
     private LexThread mWorkerThread = null;
+    /**
+     * Number of passes run and of those aborted, and their durations in ns
+     */
+    private int mPassCount;
+    private int mAbortedPassCount;
+    private long mLastPassTime;
+    private long mTotalPassTime;
+    private long mMaxPassTime;
 
     public Lexer(LexCallback callback) {
         mCallback = callback;
@@ -84,13 +109,30 @@ public class Lexer {
     }
 
     public void tokenize(DocumentProvider hDoc) {
-        //tokenize will modify the state of hDoc; make a copy
-        setDocument(new DocumentProvider(hDoc));
-        if (mWorkerThread == null) {
-            mWorkerThread = new LexThread(this);
-            mWorkerThread.start();
-        } else {
-            mWorkerThread.restart();
+        // lex an immutable version of the text, so that the UI thread can keep
+        // editing hDoc without either thread waiting for the other
+        TextSnapshot text = hDoc.snapshot();
+        synchronized (this) {
+            if (mPending) {
+                // superseded before the worker took it up
+                mText.release();
+            }
+            mText = text;
+            mPending = true;
+            if (mWorkerThread == null) {
+                mWorkerThread = new LexThread();
+                mWorkerThread.start();
+            } else {
+                // only the latest version is worth lexing
+                mWorkerThread.abort();
+                notifyAll();
+            }
+        }
+    }
+
+    void tokenizeProgress(List<Pair> result) {
+        if (mCallback != null) {
+            mCallback.lexProgress(result);
         }
     }
 
@@ -98,64 +140,197 @@ public class Lexer {
         if (mCallback != null) {
             mCallback.lexDone(result);
         }
-        mWorkerThread = null;
     }
 
-    public void cancelTokenize() {
+    /**
+     * Drops the request not yet taken up, if any, and stops the pass under way
+     * without calling back
+     */
+    public synchronized void cancelTokenize() {
+        if (mPending) {
+            mText.release();
+        }
+        mPending = false;
         if (mWorkerThread != null) {
             mWorkerThread.abort();
-            mWorkerThread = null;
         }
     }
 
-    public synchronized DocumentProvider getDocument() {
-        return hDoc;
+    /**
+     * Cancels lexing and ends the worker thread. A later call to tokenize
+     * starts a new one.
+     */
+    public synchronized void quit() {
+        cancelTokenize();
+        mWorkerThread = null;
+        notifyAll();
+    }
+
+    private synchronized void passDone(long time, boolean aborted) {
+        mPassCount++;
+        if (aborted) {
+            mAbortedPassCount++;
+        }
+        mLastPassTime = time;
+        mTotalPassTime += time;
+        mMaxPassTime = Math.max(mMaxPassTime, time);
+    }
+
+    /**
+     * Returns the number of passes run, including aborted ones
+     */
+    public synchronized int getPassCount() {
+        return mPassCount;
+    }
+
+    public synchronized int getAbortedPassCount() {
+        return mAbortedPassCount;
+    }
+
+    /**
+     * Returns how long the last pass took, in nanoseconds
+     */
+    public synchronized long getLastPassTime() {
+        return mLastPassTime;
     }
 
-    public synchronized void setDocument(DocumentProvider hDoc) {
-        this.hDoc = hDoc;
+    public synchronized long getTotalPassTime() {
+        return mTotalPassTime;
+    }
+
+    public synchronized long getMaxPassTime() {
+        return mMaxPassTime;
+    }
+
+    /**
+     * Returns the text last requested. Once lexed it has been released, see
+     * {@link TextSnapshot#release()}, and may only be read while the document
+     * is not edited.
+     */
+    public synchronized TextSnapshot getDocument() {
+        return mText;
+    }
+
+    public synchronized void setDocument(TextSnapshot text) {
+        mText = text;
+    }
+
+    /**
+     * Sets the part of the text on screen, which is lexed first. A pass that
+     * is under way turns to the new viewport at its next line.
+     */
+    public synchronized void setViewport(int start, int end) {
+        if (start != mViewStart || end != mViewEnd) {
+            mViewStart = start;
+            mViewEnd = end;
+            mViewMoves++;
+        }
+    }
+
+    synchronized LexResult getResult() {
+        return mResult;
     }
 
     public interface LexCallback {
+        /**
+         * Called with spans that are right on screen while the rest of the
+         * text is still being lexed
+         */
+        public void lexProgress(List<Pair> results);
+
         public void lexDone(List<Pair> results);
     }
 
-    private class LexThread extends Thread {
-        private final Lexer _lexManager;
+    /**
+     * Lexes the latest text requested, one pass at a time, until quit
+     */
+    private class LexThread extends Thread implements LexerTokenizer.Viewport {
         /**
          * can be set by another thread to stop the scan immediately
          */
-        private final Flag _abort;
-        private boolean rescan = false;
-        //private int max=2 ^ 18;
-        /**
-         * A collection of Pairs, where Pair.first is the start
-         * position of the token, and Pair.second is the type of the token.
-         */
-        private ArrayList<Pair> _tokens;
+        private final Flag _abort = new Flag();
 
-        public LexThread(Lexer p) {
-            _lexManager = p;
-            _abort = new Flag();
+        LexThread() {
+            super("Lexer");
+            setDaemon(true);
         }
 
-        //@Override
+        @Override
         public void run() {
-            do {
-                rescan = false;
-                _abort.clear();
-                _tokens = Lexer.getLanguage().getTokenizer().tokenize(getDocument(), _abort);
-            } while (rescan);
-
-            if (!_abort.isSet()) {
-                // lex complete
-                _lexManager.tokenizeDone(_tokens);
+            while (true) {
+                TextSnapshot text;
+                synchronized (Lexer.this) {
+                    while (!mPending && mWorkerThread == this) {
+                        try {
+                            Lexer.this.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (mWorkerThread != this) {
+                        return;
+                    }
+                    mPending = false;
+                    text = mText;
+                    // requests made from here on abort this pass
+                    _abort.clear();
+                }
+
+                setPriority(NORM_PRIORITY);
+                long start = System.nanoTime();
+                LexResult result = Lexer.getLanguage().getTokenizer().tokenize(text, getResult(), _abort, this);
+                passDone(System.nanoTime() - start, result == null);
+                // results keep no reference to the text, so edits need not
+                // work around it any more
+                text.release();
+                if (result == null) {
+                    continue;
+                }
+                // the document edits its spans, which the result must keep
+                // as they are for the next pass
+                ArrayList<Pair> spans = new ArrayList<>(result.getTokens());
+                synchronized (Lexer.this) {
+                    mResult = result;
+                    // a pass done just as it was superseded or cancelled is
+                    // still good to resume from, but not to show
+                    if (!_abort.isSet()) {
+                        tokenizeDone(spans);
+                    }
+                }
             }
         }
 
-        public void restart() {
-            rescan = true;
-            _abort.set();
+        @Override
+        public int getMoves() {
+            synchronized (Lexer.this) {
+                return mViewMoves;
+            }
+        }
+
+        @Override
+        public int getStart() {
+            synchronized (Lexer.this) {
+                return mViewStart;
+            }
+        }
+
+        @Override
+        public int getEnd() {
+            synchronized (Lexer.this) {
+                return mViewEnd;
+            }
+        }
+
+        @Override
+        public void publish(@NotNull ArrayList<Pair> spans) {
+            synchronized (Lexer.this) {
+                if (_abort.isSet()) {
+                    return;
+                }
+                tokenizeProgress(spans);
+            }
+            // what is on screen is done; the rest can wait for the UI
+            setPriority(MIN_PRIORITY);
         }
 
         public void abort() {
@@ -0,0 +1,377 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import com.mcal.fridainjectorpe.editor.lang.Language;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Lengths of the lines of a TextBuffer, kept in an implicit treap so that both
+ * line-to-offset and offset-to-line queries take O(log n) time.
+ * <p>
+ * A line's length includes its terminator: the newline, or the EOF sentinel for
+ * the last line. The lengths therefore always add up to the text length.
+ * <p>
+ * Edits are applied incrementally: an insertion splits the line it lands in, a
+ * deletion joins the first and last line it touches and drops those in between.
+ * Nodes live in parallel int arrays; index 0 is the empty tree.
+ */
+public class LineIndex {
+    private static final int NIL = 0;
+
+    private int[] _left;
+    private int[] _right;
+    private int[] _prio;
+    private int[] _count;
+    private int[] _length;
+    private int[] _sum;
+    private int _root = NIL;
+    private int _used = 1;
+    private int _free = NIL;
+    private int _seed = 0x2545F491;
+
+    /**
+     * Start offset of the line found by the last call to {@link #findLine(int)}
+     */
+    private int _foundStart;
+
+    private int _splitLeft;
+    private int _splitRight;
+
+    public LineIndex() {
+        allocate(64);
+        reset(new int[]{1}, 1);
+    }
+
+    private void allocate(int capacity) {
+        _left = new int[capacity];
+        _right = new int[capacity];
+        _prio = new int[capacity];
+        _count = new int[capacity];
+        _length = new int[capacity];
+        _sum = new int[capacity];
+    }
+
+    private void ensureCapacity(int extra) {
+        int needed = _used + extra;
+        if (needed <= _left.length) {
+            return;
+        }
+        int capacity = Math.max(needed, _left.length + (_left.length >> 1));
+        _left = copyOf(_left, capacity);
+        _right = copyOf(_right, capacity);
+        _prio = copyOf(_prio, capacity);
+        _count = copyOf(_count, capacity);
+        _length = copyOf(_length, capacity);
+        _sum = copyOf(_sum, capacity);
+    }
+
+    @NotNull
+    private static int[] copyOf(int[] a, int capacity) {
+        int[] res = new int[capacity];
+        System.arraycopy(a, 0, res, 0, a.length);
+        return res;
+    }
+
+    private int nextPriority() {
+        _seed ^= _seed << 13;
+        _seed ^= _seed >>> 17;
+        _seed ^= _seed << 5;
+        return _seed & Integer.MAX_VALUE;
+    }
+
+    private int newNode(int length) {
+        int node;
+        if (_free != NIL) {
+            node = _free;
+            _free = _left[node];
+        } else {
+            node = _used++;
+        }
+        _left[node] = NIL;
+        _right[node] = NIL;
+        _prio[node] = nextPriority();
+        _count[node] = 1;
+        _length[node] = length;
+        _sum[node] = length;
+        return node;
+    }
+
+    private void freeTree(int node) {
+        if (node == NIL) {
+            return;
+        }
+        freeTree(_left[node]);
+        freeTree(_right[node]);
+        _left[node] = _free;
+        _free = node;
+    }
+
+    private void update(int node) {
+        _count[node] = 1 + _count[_left[node]] + _count[_right[node]];
+        _sum[node] = _length[node] + _sum[_left[node]] + _sum[_right[node]];
+    }
+
+    /**
+     * Replaces the index with the given line lengths.
+     */
+    public void reset(@NotNull int[] lengths, int lineCount) {
+        _used = 1;
+        _free = NIL;
+        if (_left.length < lineCount + 1) {
+            allocate(lineCount + 1);
+        }
+        _root = build(lengths, 0, lineCount);
+    }
+
+    /**
+     * Replaces the index with the lines of text, given as a char array that
+     * ends with the EOF sentinel.
+     */
+    public void reset(@NotNull char[] text, int start, int textLength) {
+        int lines = 1;
+        for (int i = start; i < start + textLength; i++) {
+            if (text[i] == Language.NEWLINE) {
+                lines++;
+            }
+        }
+        int[] lengths = new int[lines];
+        int line = 0;
+        int lineStart = start;
+        for (int i = start; i < start + textLength; i++) {
+            if (text[i] == Language.NEWLINE) {
+                lengths[line++] = i + 1 - lineStart;
+                lineStart = i + 1;
+            }
+        }
+        lengths[line] = start + textLength - lineStart;
+        reset(lengths, lines);
+    }
+
+    /**
+     * Builds a treap over lengths[from, from + n) in linear time, keeping the
+     * right spine on a stack.
+     */
+    private int build(int[] lengths, int from, int n) {
+        ensureCapacity(n);
+        int[] spine = new int[n];
+        int top = 0;
+        for (int i = 0; i < n; i++) {
+            int node = newNode(lengths[from + i]);
+            int last = NIL;
+            while (top > 0 && _prio[spine[top - 1]] < _prio[node]) {
+                last = spine[--top];
+                update(last);
+            }
+            _left[node] = last;
+            if (top > 0) {
+                _right[spine[top - 1]] = node;
+            }
+            spine[top++] = node;
+        }
+        while (top > 0) {
+            update(spine[--top]);
+        }
+        return n > 0 ? spine[0] : NIL;
+    }
+
+    /**
+     * Splits t so that its first k lines end up in _splitLeft and the rest in
+     * _splitRight.
+     */
+    private void split(int t, int k) {
+        if (t == NIL) {
+            _splitLeft = NIL;
+            _splitRight = NIL;
+            return;
+        }
+        if (_count[_left[t]] >= k) {
+            split(_left[t], k);
+            _left[t] = _splitRight;
+            update(t);
+            _splitRight = t;
+        } else {
+            split(_right[t], k - _count[_left[t]] - 1);
+            _right[t] = _splitLeft;
+            update(t);
+            _splitLeft = t;
+        }
+    }
+
+    private int merge(int a, int b) {
+        if (a == NIL) {
+            return b;
+        }
+        if (b == NIL) {
+            return a;
+        }
+        if (_prio[a] > _prio[b]) {
+            _right[a] = merge(_right[a], b);
+            update(a);
+            return a;
+        } else {
+            _left[b] = merge(a, _left[b]);
+            update(b);
+            return b;
+        }
+    }
+
+    public int getLineCount() {
+        return _count[_root];
+    }
+
+    /**
+     * Returns the total length of all lines, including the EOF sentinel.
+     */
+    public int getTextLength() {
+        return _sum[_root];
+    }
+
+    /**
+     * Returns the offset of the first character of line, which must exist.
+     */
+    public int getLineOffset(int line) {
+        int offset = 0;
+        int node = _root;
+        while (node != NIL) {
+            int left = _count[_left[node]];
+            if (line < left) {
+                node = _left[node];
+            } else {
+                offset += _sum[_left[node]];
+                if (line == left) {
+                    return offset;
+                }
+                offset += _length[node];
+                line -= left + 1;
+                node = _right[node];
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the length of line, including its terminator, which must exist.
+     */
+    public int getLineLength(int line) {
+        int node = _root;
+        while (node != NIL) {
+            int left = _count[_left[node]];
+            if (line < left) {
+                node = _left[node];
+            } else if (line == left) {
+                return _length[node];
+            } else {
+                line -= left + 1;
+                node = _right[node];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the line that contains offset, which must be within the text.
+     */
+    public int findLine(int offset) {
+        int line = 0;
+        int start = 0;
+        int node = _root;
+        while (node != NIL) {
+            int leftSum = _sum[_left[node]];
+            if (offset < leftSum) {
+                node = _left[node];
+                continue;
+            }
+            offset -= leftSum;
+            start += leftSum;
+            line += _count[_left[node]];
+            if (offset < _length[node] || _right[node] == NIL) {
+                break;
+            }
+            offset -= _length[node];
+            start += _length[node];
+            line++;
+            node = _right[node];
+        }
+        _foundStart = start;
+        return line;
+    }
+
+    private void addLength(int line, int delta) {
+        int node = _root;
+        while (node != NIL) {
+            _sum[node] += delta;
+            int left = _count[_left[node]];
+            if (line < left) {
+                node = _left[node];
+            } else if (line == left) {
+                _length[node] += delta;
+                return;
+            } else {
+                line -= left + 1;
+                node = _right[node];
+            }
+        }
+    }
+
+    /**
+     * Accounts for the insertion of c[start, start + n) at offset.
+     */
+    public void insert(int offset, @NotNull char[] c, int start, int n) {
+        int newlines = 0;
+        for (int i = start; i < start + n; i++) {
+            if (c[i] == Language.NEWLINE) {
+                newlines++;
+            }
+        }
+        int line = findLine(offset);
+        if (newlines == 0) {
+            addLength(line, n);
+            return;
+        }
+
+        int pos = offset - _foundStart;
+        int oldLength = getLineLength(line);
+        int[] lengths = new int[newlines];
+        int k = -1;
+        int pieceStart = start;
+        for (int i = start; i < start + n; i++) {
+            if (c[i] == Language.NEWLINE) {
+                if (k < 0) {
+                    addLength(line, pos + i + 1 - pieceStart - oldLength);
+                } else {
+                    lengths[k] = i + 1 - pieceStart;
+                }
+                k++;
+                pieceStart = i + 1;
+            }
+        }
+        lengths[newlines - 1] = start + n - pieceStart + oldLength - pos;
+
+        int added = build(lengths, 0, newlines);
+        split(_root, line + 1);
+        int right = _splitRight;
+        _root = merge(merge(_splitLeft, added), right);
+    }
+
+    /**
+     * Accounts for the deletion of n chars starting at offset.
+     */
+    public void delete(int offset, int n) {
+        int first = findLine(offset);
+        int firstStart = _foundStart;
+        int last = findLine(offset + n);
+        if (first == last) {
+            addLength(first, -n);
+            return;
+        }
+
+        int joined = (offset - firstStart) + (_foundStart + getLineLength(last) - offset - n);
+        split(_root, last + 1);
+        int right = _splitRight;
+        split(_splitLeft, first + 1);
+        int left = _splitLeft;
+        freeTree(_splitRight);
+        _root = merge(left, right);
+        addLength(first, joined - getLineLength(first));
+    }
+}
@@ -0,0 +1,369 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import com.mcal.fridainjectorpe.editor.lang.Language;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Piece table storage for large texts.
+ * <p>
+ * The text is a sequence of pieces, each a range of an immutable char array:
+ * the original text as loaded, or a chunk of the append-only add buffer that
+ * receives inserted characters. Pieces are kept in an implicit treap ordered
+ * by position and weighted by length, so insertions, deletions and random
+ * access take O(log n) time regardless of the text size. Nothing is ever
+ * copied when the text is edited; typing at one place extends a single piece.
+ * <p>
+ * Nodes are immutable and edits copy only the paths they change, so a root
+ * remains a valid, unchanging view of the text it was taken from. Snapshots
+ * are such roots: taking one copies nothing, and edits never write to the
+ * parts of the arrays that the snapshot's pieces cover.
+ */
+public class PieceTable implements TextStorage {
+    private static final int ADD_CHUNK_SIZE = 16 * 1024;
+
+    private static final char[] NO_CHARS = new char[0];
+
+    private Node _root;
+    /**
+     * Pieces removed by the latest contiguous deletions, see {@link TextStorage}
+     */
+    private Node _deleted;
+    private int _editPoint;
+    private char[] _add;
+    private int _addUsed;
+    private int _seed = 0x6F4A7C15;
+
+    /**
+     * Piece of the last charAt, valid until the next edit. Replaced as a
+     * whole so that snapshots can be read by several threads at once.
+     */
+    private Hit _hit;
+
+    /**
+     * Takes over text, whose first textSize chars are the document. The array
+     * must have room for the EOF sentinel after them, and must not be modified
+     * afterwards.
+     */
+    public PieceTable(@NotNull char[] text, int textSize) {
+        text[textSize] = Language.EOF;
+        _root = new Node(text, 0, textSize + 1, null, null, nextPriority());
+        _add = new char[ADD_CHUNK_SIZE];
+    }
+
+    private PieceTable(@Nullable Node root) {
+        _root = root;
+        _add = NO_CHARS;
+    }
+
+    private int nextPriority() {
+        _seed ^= _seed << 13;
+        _seed ^= _seed >>> 17;
+        _seed ^= _seed << 5;
+        return _seed & Integer.MAX_VALUE;
+    }
+
+    private static int size(@Nullable Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    @Nullable
+    private static Node merge(@Nullable Node a, @Nullable Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.prio > b.prio) {
+            return a.with(a.left, merge(a.right, b));
+        } else {
+            return b.with(merge(a, b.left), b.right);
+        }
+    }
+
+    /**
+     * Splits t at char offset; returns {left, right}. A piece that straddles
+     * the offset is cut in two.
+     */
+    @NotNull
+    private Node[] split(@Nullable Node t, int offset) {
+        if (t == null) {
+            return new Node[2];
+        }
+        int leftSize = size(t.left);
+        if (offset <= leftSize) {
+            Node[] res = split(t.left, offset);
+            res[1] = t.with(res[1], t.right);
+            return res;
+        }
+        if (offset >= leftSize + t.length) {
+            Node[] res = split(t.right, offset - leftSize - t.length);
+            res[0] = t.with(t.left, res[0]);
+            return res;
+        }
+        int cut = offset - leftSize;
+        Node head = new Node(t.buf, t.start, cut, t.left, null, t.prio);
+        Node tail = merge(new Node(t.buf, t.start + cut, t.length - cut, null, null, nextPriority()), t.right);
+        return new Node[]{head, tail};
+    }
+
+    @Override
+    public int length() {
+        return size(_root);
+    }
+
+    @Override
+    public char charAt(int offset) {
+        Hit hit = _hit;
+        if (hit == null || offset < hit.start || offset >= hit.end) {
+            Node n = _root;
+            int base = 0;
+            while (n != null) {
+                int leftSize = size(n.left);
+                if (offset < base + leftSize) {
+                    n = n.left;
+                } else if (offset < base + leftSize + n.length) {
+                    hit = new Hit(n, base + leftSize);
+                    _hit = hit;
+                    break;
+                } else {
+                    base += leftSize + n.length;
+                    n = n.right;
+                }
+            }
+            if (n == null) {
+                throw new IndexOutOfBoundsException("offset " + offset + ", length " + length());
+            }
+        }
+        return hit.buf[hit.bufStart + offset - hit.start];
+    }
+
+    @Override
+    public void getChars(int start, int end, @NotNull char[] dst, int dstBegin) {
+        copy(_root, 0, start, end, dst, dstBegin - start);
+    }
+
+    /**
+     * Copies the part of [start, end) covered by subtree n, whose first char is
+     * at offset base, to dst[offset + delta].
+     */
+    private static void copy(@Nullable Node n, int base, int start, int end, char[] dst, int delta) {
+        while (n != null) {
+            int pieceStart = base + size(n.left);
+            int pieceEnd = pieceStart + n.length;
+            if (start < pieceStart) {
+                copy(n.left, base, start, Math.min(end, pieceStart), dst, delta);
+            }
+            if (start < pieceEnd && end > pieceStart) {
+                int from = Math.max(start, pieceStart);
+                int to = Math.min(end, pieceEnd);
+                System.arraycopy(n.buf, n.start + from - pieceStart, dst, from + delta, to - from);
+            }
+            if (end <= pieceEnd) {
+                return;
+            }
+            base = pieceEnd;
+            start = Math.max(start, pieceEnd);
+            n = n.right;
+        }
+    }
+
+    @Override
+    public void writeTo(@NotNull Writer out, int start, int end) throws IOException {
+        write(_root, 0, start, end, out);
+    }
+
+    /**
+     * Writes the part of [start, end) covered by subtree n, whose first char
+     * is at offset base, to out.
+     */
+    private static void write(@Nullable Node n, int base, int start, int end, Writer out) throws IOException {
+        while (n != null) {
+            int pieceStart = base + size(n.left);
+            int pieceEnd = pieceStart + n.length;
+            if (start < pieceStart) {
+                write(n.left, base, start, Math.min(end, pieceStart), out);
+            }
+            if (start < pieceEnd && end > pieceStart) {
+                int from = Math.max(start, pieceStart);
+                int to = Math.min(end, pieceEnd);
+                out.write(n.buf, n.start + from - pieceStart, to - from);
+            }
+            if (end <= pieceEnd) {
+                return;
+            }
+            base = pieceEnd;
+            start = Math.max(start, pieceEnd);
+            n = n.right;
+        }
+    }
+
+    @Override
+    public void insert(int offset, @NotNull char[] c, int start, int count) {
+        invalidateHit();
+        _deleted = null;
+        _editPoint = offset + count;
+        Node[] parts = split(_root, offset);
+        Node left = parts[0];
+        while (count > 0) {
+            if (count > ADD_CHUNK_SIZE / 2) {
+                // large pastes get a chunk of their own
+                char[] chunk = new char[count];
+                System.arraycopy(c, start, chunk, 0, count);
+                left = merge(left, new Node(chunk, 0, count, null, null, nextPriority()));
+                break;
+            }
+            if (_addUsed == _add.length) {
+                _add = new char[ADD_CHUNK_SIZE];
+                _addUsed = 0;
+            }
+            int n = Math.min(count, _add.length - _addUsed);
+            System.arraycopy(c, start, _add, _addUsed, n);
+            Node extended = extendLast(left, n);
+            if (extended != null) {
+                left = extended;
+            } else {
+                left = merge(left, new Node(_add, _addUsed, n, null, null, nextPriority()));
+            }
+            _addUsed += n;
+            start += n;
+            count -= n;
+        }
+        _root = merge(left, parts[1]);
+    }
+
+    /**
+     * If the last piece of t ends where the add buffer will be appended to,
+     * returns a copy of t with that piece grown by n chars; otherwise null.
+     */
+    @Nullable
+    private Node extendLast(@Nullable Node t, int n) {
+        if (t == null) {
+            return null;
+        }
+        if (t.right != null) {
+            Node right = extendLast(t.right, n);
+            return right == null ? null : t.with(t.left, right);
+        }
+        if (t.buf != _add || t.start + t.length != _addUsed) {
+            return null;
+        }
+        return new Node(t.buf, t.start, t.length + n, t.left, null, t.prio);
+    }
+
+    @Override
+    public void delete(int offset, int count) {
+        invalidateHit();
+        Node[] head = split(_root, offset);
+        Node[] tail = split(head[1], count);
+        _root = merge(head[0], tail[1]);
+        if (_deleted != null && offset + count == _editPoint) {
+            _deleted = merge(tail[0], _deleted);
+        } else {
+            _deleted = tail[0];
+        }
+        _editPoint = offset;
+    }
+
+    @Override
+    public int getEditPoint() {
+        return _editPoint;
+    }
+
+    /**
+     * Chars beyond those deleted are returned as NULs, standing in for the
+     * stale gap contents a gap buffer would return
+     */
+    @NotNull
+    @Override
+    public char[] getDeleted(int count) {
+        char[] chars = new char[count];
+        copy(_deleted, 0, 0, Math.min(count, size(_deleted)), chars, 0);
+        return chars;
+    }
+
+    /**
+     * Re-inserts exactly count chars, as a gap buffer does, so that the length
+     * stays in step with what TextBuffer records; the chars beyond those
+     * deleted are the NULs {@link #getDeleted(int)} returns
+     */
+    @Override
+    public void restoreDeleted(int count) {
+        invalidateHit();
+        Node[] parts = split(_deleted, count);
+        Node restored = parts[0];
+        int missing = count - size(restored);
+        if (missing > 0) {
+            restored = merge(restored, new Node(new char[missing], 0, missing, null, null, nextPriority()));
+        }
+        Node[] at = split(_root, _editPoint);
+        _root = merge(merge(at[0], restored), at[1]);
+        _deleted = parts[1];
+        _editPoint += count;
+    }
+
+    @NotNull
+    @Override
+    public TextStorage snapshot() {
+        return new PieceTable(_root);
+    }
+
+    @Override
+    public void release(@NotNull TextStorage snapshot) {
+        // pieces are never overwritten, so there is nothing to free
+    }
+
+    private void invalidateHit() {
+        _hit = null;
+    }
+
+    private static final class Hit {
+        final char[] buf;
+        final int bufStart;
+        final int start;
+        final int end;
+
+        Hit(@NotNull Node n, int start) {
+            this.buf = n.buf;
+            this.bufStart = n.start;
+            this.start = start;
+            this.end = start + n.length;
+        }
+    }
+
+    private static final class Node {
+        final char[] buf;
+        final int start;
+        final int length;
+        final Node left;
+        final Node right;
+        final int prio;
+        /**
+         * Total length of the pieces in this subtree
+         */
+        final int size;
+
+        Node(char[] buf, int start, int length, Node left, Node right, int prio) {
+            this.buf = buf;
+            this.start = start;
+            this.length = length;
+            this.left = left;
+            this.right = right;
+            this.prio = prio;
+            this.size = length + size(left) + size(right);
+        }
+
+        @NotNull
+        Node with(Node left, Node right) {
+            if (left == this.left && right == this.right) {
+                return this;
+            }
+            return new Node(buf, start, length, left, right, prio);
+        }
+    }
+}
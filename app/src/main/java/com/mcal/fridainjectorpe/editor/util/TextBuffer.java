@@ -13,41 +13,54 @@ import com.mcal.fridainjectorpe.editor.lang.Language;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 import java.util.Vector;
 
 
-//TODO Have all methods work with charOffsets and move all gap handling to logicalToRealIndex()
 public class TextBuffer implements java.lang.CharSequence {
 
-    // gap size must be > 0 to insert into full buffers successfully
-    protected final static int MIN_GAP_SIZE = 50;
-    protected char[] _contents;
-    protected int _gapStartIndex;
     /**
-     * One past end of gap
+     * Texts of at least this many chars are stored in a piece table rather
+     * than a gap buffer
      */
-    protected int _gapEndIndex;
-    protected int _lineCount;
+    public final static int PIECE_TABLE_THRESHOLD = 1024 * 1024;
+    /**
+     * Number of recent edits kept in the edit log
+     */
+    private final static int MAX_LOGGED_EDITS = 1024;
+    protected TextStorage _storage;
+    /**
+     * Lengths of all lines, for line/offset lookups in O(log n)
+     */
+    protected final LineIndex _lines;
     /**
      * Continuous seq of chars that have the same format (color, font, etc.)
      */
     protected List<Pair> _spans;
+    private UndoStack _undoStack;
     /**
-     * The number of times memory is allocated for the buffer
+     * Number of edits made so far, see {@link TextSnapshot#getVersion()}
      */
-    private int _allocMultiplier;
-    private TextBufferCache _cache;
-    private UndoStack _undoStack;
+    private long _version;
+    /**
+     * Snapshot of the current version, if one has been taken and not released
+     * by all its holders since
+     */
+    private TextSnapshot _snapshot;
+    /**
+     * Recent edits as (offset, removed, inserted) triples; the edit that made
+     * version _logBase + i + 1 is at 3 * i. Entries are only ever appended, or
+     * the log is replaced, so snapshots can share it.
+     */
+    private int[] _log = new int[3 * 64];
+    private int _logSize;
+    private long _logBase;
 
     public TextBuffer() {
-        _contents = new char[MIN_GAP_SIZE + 1]; // extra char for EOF
-        _contents[MIN_GAP_SIZE] = Language.EOF;
-        _allocMultiplier = 1;
-        _gapStartIndex = 0;
-        _gapEndIndex = MIN_GAP_SIZE;
-        _lineCount = 1;
-        _cache = new TextBufferCache();
+        _storage = new GapBuffer();
+        _lines = new LineIndex();
         _undoStack = new UndoStack(this);
     }
 
@@ -64,11 +77,7 @@ public class TextBuffer implements java.lang.CharSequence {
      */
     @Contract(pure = true)
     public static int memoryNeeded(int textSize) {
-        long bufferSize = textSize + MIN_GAP_SIZE + 1; // extra char for EOF
-        if (bufferSize < Integer.MAX_VALUE) {
-            return (int) bufferSize;
-        }
-        return -1;
+        return GapBuffer.memoryNeeded(textSize);
     }
 
     @Override
@@ -77,11 +86,47 @@ public class TextBuffer implements java.lang.CharSequence {
         return getTextLength() - 1;
     }
 
+    /**
+     * Replaces the text with the first textSize chars of newBuffer. The buffer
+     * is taken over, not copied, when it has room for the EOF sentinel; see
+     * {@link #memoryNeeded(int)}. Large texts go to a piece table.
+     */
     synchronized public void setBuffer(char[] newBuffer, int textSize, int lineCount) {
-        _contents = newBuffer;
-        initGap(textSize);
-        _lineCount = lineCount;
-        _allocMultiplier = 1;
+        newBuffer = withSentinel(newBuffer, textSize);
+        _lines.reset(newBuffer, 0, textSize + 1);
+        _storage = createStorage(newBuffer, textSize);
+        newText();
+    }
+
+    /**
+     * Like {@link #setBuffer(char[], int, int)}, but takes the line lengths
+     * counted by the caller instead of scanning the text again. The lengths
+     * include the line terminators, and the EOF sentinel for the last line.
+     */
+    synchronized public void setBuffer(char[] newBuffer, int textSize, @NotNull int[] lineLengths, int lineCount) {
+        newBuffer = withSentinel(newBuffer, textSize);
+        _lines.reset(lineLengths, lineCount);
+        _storage = createStorage(newBuffer, textSize);
+        newText();
+    }
+
+    @NotNull
+    private static char[] withSentinel(@NotNull char[] newBuffer, int textSize) {
+        if (newBuffer.length <= textSize) {
+            char[] buffer = new char[memoryNeeded(textSize)];
+            System.arraycopy(newBuffer, 0, buffer, 0, textSize);
+            newBuffer = buffer;
+        }
+        newBuffer[textSize] = Language.EOF;
+        return newBuffer;
+    }
+
+    @NotNull
+    private static TextStorage createStorage(@NotNull char[] newBuffer, int textSize) {
+        if (textSize >= PIECE_TABLE_THRESHOLD) {
+            return new PieceTable(newBuffer, textSize);
+        }
+        return new GapBuffer(newBuffer, textSize);
     }
 
     synchronized public void setBuffer(@NotNull char[] newBuffer) {
@@ -120,95 +165,10 @@ public class TextBuffer implements java.lang.CharSequence {
      * @return The character offset of lineNumber, or -1 if the line does not exist
      */
     synchronized public int getLineOffset(int lineNumber) {
-        if (lineNumber < 0) {
+        if (lineNumber < 0 || lineNumber >= _lines.getLineCount()) {
             return -1;
         }
-
-        // start search from nearest known lineIndex~charOffset pair
-        Pair cachedEntry = _cache.getNearestLine(lineNumber);
-        int cachedLine = cachedEntry.first;
-        int cachedOffset = cachedEntry.second;
-
-        int offset;
-        if (lineNumber > cachedLine) {
-            offset = findCharOffset(lineNumber, cachedLine, cachedOffset);
-        } else if (lineNumber < cachedLine) {
-            offset = findCharOffsetBackward(lineNumber, cachedLine, cachedOffset);
-        } else {
-            offset = cachedOffset;
-        }
-
-        if (offset >= 0) {
-            // seek successful
-            _cache.updateEntry(lineNumber, offset);
-        }
-        return offset;
-    }
-
-    /*
-     * Precondition: startOffset is the offset of startLine
-     */
-    private int findCharOffset(int targetLine, int startLine, int startOffset) {
-        int workingLine = startLine;
-        int offset = logicalToRealIndex(startOffset);
-
-        TextWarriorException.assertVerbose(isValid(startOffset),
-                "findCharOffsetBackward: Invalid startingOffset given");
-
-        while ((workingLine < targetLine) && (offset < _contents.length)) {
-            if (_contents[offset] == Language.NEWLINE) {
-                ++workingLine;
-            }
-            ++offset;
-
-            // skip the gap
-            if (offset == _gapStartIndex) {
-                offset = _gapEndIndex;
-            }
-        }
-
-        if (workingLine != targetLine) {
-            return -1;
-        }
-        return realToLogicalIndex(offset);
-    }
-
-    /*
-     * Precondition: startOffset is the offset of startLine
-     */
-    private int findCharOffsetBackward(int targetLine, int startLine, int startOffset) {
-        if (targetLine == 0) {
-            return 0;
-        }
-
-        TextWarriorException.assertVerbose(isValid(startOffset),
-                "findCharOffsetBackward: Invalid startOffset given");
-
-        int workingLine = startLine;
-        int offset = logicalToRealIndex(startOffset);
-        while (workingLine > (targetLine - 1) && offset >= 0) {
-            // skip behind the gap
-            if (offset == _gapEndIndex) {
-                offset = _gapStartIndex;
-            }
-            --offset;
-
-            if (_contents[offset] == Language.NEWLINE) {
-                --workingLine;
-            }
-        }
-
-        int charOffset;
-        if (offset >= 0) {
-            // now at the '\n' of the line before targetLine
-            charOffset = realToLogicalIndex(offset);
-            ++charOffset;
-        } else {
-            TextWarriorException.assertVerbose(false,
-                    "findCharOffsetBackward: Invalid cache entry or line arguments");
-            charOffset = -1;
-        }
-        return charOffset;
+        return _lines.getLineOffset(lineNumber);
     }
 
     /**
@@ -220,55 +180,7 @@ public class TextBuffer implements java.lang.CharSequence {
         if (!isValid(charOffset)) {
             return -1;
         }
-
-        Pair cachedEntry = _cache.getNearestCharOffset(charOffset);
-        int line = cachedEntry.first;
-        int offset = logicalToRealIndex(cachedEntry.second);
-        int targetOffset = logicalToRealIndex(charOffset);
-        int lastKnownLine = -1;
-        int lastKnownCharOffset = -1;
-
-        if (targetOffset > offset) {
-            // search forward
-            while ((offset < targetOffset) && (offset < _contents.length)) {
-                if (_contents[offset] == Language.NEWLINE) {
-                    ++line;
-                    lastKnownLine = line;
-                    lastKnownCharOffset = realToLogicalIndex(offset) + 1;
-                }
-
-                ++offset;
-                // skip the gap
-                if (offset == _gapStartIndex) {
-                    offset = _gapEndIndex;
-                }
-            }
-        } else if (targetOffset < offset) {
-            // search backward
-            while ((offset > targetOffset) && (offset > 0)) {
-                // skip behind the gap
-                if (offset == _gapEndIndex) {
-                    offset = _gapStartIndex;
-                }
-                --offset;
-
-                if (_contents[offset] == Language.NEWLINE) {
-                    lastKnownLine = line;
-                    lastKnownCharOffset = realToLogicalIndex(offset) + 1;
-                    --line;
-                }
-            }
-        }
-
-        if (offset == targetOffset) {
-            if (lastKnownLine != -1) {
-                // cache the lookup entry
-                _cache.updateEntry(lastKnownLine, lastKnownCharOffset);
-            }
-            return line;
-        } else {
-            return -1;
-        }
+        return _lines.findLine(charOffset);
     }
 
     /**
@@ -279,25 +191,10 @@ public class TextBuffer implements java.lang.CharSequence {
      * @return The number of chars in lineNumber, or 0 if the line does not exist.
      */
     synchronized public int getLineSize(int lineNumber) {
-        int lineLength = 0;
-        int pos = getLineOffset(lineNumber);
-
-        if (pos != -1) {
-            pos = logicalToRealIndex(pos);
-            //TODO consider adding check for (pos < _contents.length) in case EOF is not properly set
-            while (_contents[pos] != Language.NEWLINE &&
-                    _contents[pos] != Language.EOF) {
-                ++lineLength;
-                ++pos;
-
-                // skip the gap
-                if (pos == _gapStartIndex) {
-                    pos = _gapEndIndex;
-                }
-            }
-            ++lineLength; // account for the line terminator char
+        if (lineNumber < 0 || lineNumber >= _lines.getLineCount()) {
+            return 0;
         }
-        return lineLength;
+        return _lines.getLineLength(lineNumber);
     }
 
     /**
@@ -308,7 +205,7 @@ public class TextBuffer implements java.lang.CharSequence {
      * is undefined.
      */
     synchronized public char charAt(int charOffset) {
-        return _contents[logicalToRealIndex(charOffset)];
+        return _storage.charAt(charOffset);
     }
 
     /**
@@ -326,32 +223,35 @@ public class TextBuffer implements java.lang.CharSequence {
         if ((charOffset + totalChars) > getTextLength()) {
             totalChars = getTextLength() - charOffset;
         }
-        int realIndex = logicalToRealIndex(charOffset);
         char[] chars = new char[totalChars];
-
-        for (int i = 0; i < totalChars; ++i) {
-            chars[i] = _contents[realIndex];
-            ++realIndex;
-            // skip the gap
-            if (realIndex == _gapStartIndex) {
-                realIndex = _gapEndIndex;
-            }
-        }
+        _storage.getChars(charOffset, charOffset + totalChars, chars, 0);
         return new String(chars);
     }
 
     /**
-     * Gets charCount number of consecutive characters starting from _gapStartIndex.
+     * Copies the chars in [start, end) into dst, starting at dstBegin.
+     * No error checking is done.
+     */
+    synchronized public void getChars(int start, int end, char[] dst, int dstBegin) {
+        _storage.getChars(start, end, dst, dstBegin);
+    }
+
+    /**
+     * Writes the text, without the EOF sentinel, to out in as many chunks as
+     * the storage holds it in. No copy of the whole text is made.
+     */
+    synchronized public void writeTo(@NotNull Writer out) throws IOException {
+        _storage.writeTo(out, 0, length());
+    }
+
+    /**
+     * Gets charCount number of consecutive characters removed at the edit
+     * point by the latest deletions.
      * <p>
      * Only UndoStack should use this method. No error checking is done.
      */
     char[] gapSubSequence(int charCount) {
-        char[] chars = new char[charCount];
-
-        for (int i = 0; i < charCount; ++i) {
-            chars[i] = _contents[_gapStartIndex + i];
-        }
-        return chars;
+        return _storage.getDeleted(charCount);
     }
 
     /**
@@ -365,30 +265,9 @@ public class TextBuffer implements java.lang.CharSequence {
             _undoStack.captureInsert(charOffset, c.length, timestamp);
         }
 
-        int insertIndex = logicalToRealIndex(charOffset);
-
-        // shift gap to insertion point
-        if (insertIndex != _gapEndIndex) {
-            if (isBeforeGap(insertIndex)) {
-                shiftGapLeft(insertIndex);
-            } else {
-                shiftGapRight(insertIndex);
-            }
-        }
-
-        if (c.length >= gapSize()) {
-            growBufferBy(c.length - gapSize());
-        }
-
-        for (int i = 0; i < c.length; ++i) {
-            if (c[i] == Language.NEWLINE) {
-                ++_lineCount;
-            }
-            _contents[_gapStartIndex] = c[i];
-            ++_gapStartIndex;
-        }
-
-        _cache.invalidateCache(charOffset);
+        _storage.insert(charOffset, c, 0, c.length);
+        _lines.insert(charOffset, c, 0, c.length);
+        newVersion(charOffset, 0, c.length);
 
         onAdd(charOffset, c.length);
     }
@@ -405,33 +284,19 @@ public class TextBuffer implements java.lang.CharSequence {
             _undoStack.captureDelete(charOffset, totalChars, timestamp);
         }
 
-        int newGapStart = charOffset + totalChars;
+        _storage.delete(charOffset, totalChars);
+        _lines.delete(charOffset, totalChars);
+        newVersion(charOffset, totalChars, 0);
 
-        // shift gap to deletion point
-        if (newGapStart != _gapStartIndex) {
-            if (isBeforeGap(newGapStart)) {
-                shiftGapLeft(newGapStart);
-            } else {
-                shiftGapRight(newGapStart + gapSize());
-            }
-        }
-
-        // increase gap size
-        for (int i = 0; i < totalChars; ++i) {
-            --_gapStartIndex;
-            if (_contents[_gapStartIndex] == Language.NEWLINE) {
-                --_lineCount;
-            }
-        }
-
-        _cache.invalidateCache(charOffset);
         onDel(charOffset, totalChars);
     }
 
+    // spans are replaced rather than modified, as the lexer may share them
+
     private void onAdd(int charOffset, int totalChars) {
         Pair s = findSpan(charOffset);
         Pair p = _spans.get(s.first);
-        p.setFirst(p.first + totalChars);
+        _spans.set(s.first, new Pair(p.first + totalChars, p.second));
     }
 
     private void onDel(int charOffset, int totalChars) {
@@ -445,7 +310,7 @@ public class TextBuffer implements java.lang.CharSequence {
         if (totalChars == 1) {
             Pair p = _spans.get(s.first);
             if (p.first > 1) {
-                p.setFirst(p.first - 1);
+                _spans.set(s.first, new Pair(p.first - 1, p.second));
             } else {
                 _spans.remove(s.first);
             }
@@ -454,7 +319,7 @@ public class TextBuffer implements java.lang.CharSequence {
             int l = charOffset - o;
             Pair p = _spans.get(s.first);
             if (p.first > l) {
-                p.setFirst(p.first - l);
+                _spans.set(s.first, new Pair(p.first - l, p.second));
             } else {
                 _spans.remove(s.first);
             }
@@ -467,7 +332,7 @@ public class TextBuffer implements java.lang.CharSequence {
                         totalChars -= l;
                         _spans.remove(i);
                     } else {
-                        p1.setFirst(p1.first - totalChars);
+                        _spans.set(i, new Pair(p1.first - totalChars, p1.second));
                         break;
                     }
                 }
@@ -504,101 +369,90 @@ public class TextBuffer implements java.lang.CharSequence {
     }
 
     /**
-     * Moves _gapStartIndex by displacement units. Note that displacement can be
-     * negative and will move _gapStartIndex to the left.
+     * Moves the edit point by displacement units, restoring the chars deleted
+     * there or deleting the chars before it. Note that displacement can be
+     * negative and will move the edit point to the left.
      * <p>
      * Only UndoStack should use this method to carry out a simple undo/redo
      * of insertions/deletions. No error checking is done.
      */
     synchronized void shiftGapStart(int displacement) {
+        int editPoint = _storage.getEditPoint();
         if (displacement >= 0) {
-            onAdd(_gapStartIndex, displacement);
-            _lineCount += countNewlines(_gapStartIndex, displacement);
+            onAdd(editPoint, displacement);
+            char[] restored = _storage.getDeleted(displacement);
+            _lines.insert(editPoint, restored, 0, displacement);
+            _storage.restoreDeleted(displacement);
+            newVersion(editPoint, 0, displacement);
         } else {
-            onDel(_gapStartIndex, 0 - displacement);
-            _lineCount -= countNewlines(_gapStartIndex + displacement, -displacement);
+            onDel(editPoint, 0 - displacement);
+            _lines.delete(editPoint + displacement, -displacement);
+            _storage.delete(editPoint + displacement, -displacement);
+            newVersion(editPoint + displacement, -displacement, 0);
         }
-
-        _gapStartIndex += displacement;
-        _cache.invalidateCache(realToLogicalIndex(_gapStartIndex - 1) + 1);
     }
 
-    //does NOT skip the gap when examining consecutive positions
-    @Contract(pure = true)
-    private int countNewlines(int start, int totalChars) {
-        int newlines = 0;
-        for (int i = start; i < (start + totalChars); ++i) {
-            if (_contents[i] == Language.NEWLINE) {
-                ++newlines;
-            }
+    private void newVersion(int offset, int removed, int inserted) {
+        if (3 * _logSize == _log.length) {
+            int keep = _logSize < MAX_LOGGED_EDITS ? _logSize : _logSize / 2;
+            int[] log = new int[3 * Math.max(2 * keep, 64)];
+            System.arraycopy(_log, 3 * (_logSize - keep), log, 0, 3 * keep);
+            _log = log;
+            _logBase += _logSize - keep;
+            _logSize = keep;
         }
-
-        return newlines;
+        _log[3 * _logSize] = offset;
+        _log[3 * _logSize + 1] = removed;
+        _log[3 * _logSize + 2] = inserted;
+        _logSize++;
+        _version++;
+        _snapshot = null;
     }
 
     /**
-     * Adjusts gap so that _gapStartIndex is at newGapStart
+     * Starts a new version whose changes from older ones are unknown
      */
-    final protected void shiftGapLeft(int newGapStart) {
-        while (_gapStartIndex > newGapStart) {
-            --_gapEndIndex;
-            --_gapStartIndex;
-            _contents[_gapEndIndex] = _contents[_gapStartIndex];
-        }
+    private void newText() {
+        _version++;
+        _snapshot = null;
+        _log = new int[3 * 64];
+        _logSize = 0;
+        _logBase = _version;
     }
 
     /**
-     * Adjusts gap so that _gapEndIndex is at newGapEnd
+     * Returns an immutable view of the current text, for reading on other
+     * threads without holding the lock of this buffer. Snapshots share
+     * memory with the buffer; one taken between two edits costs O(1) for
+     * large texts, and at most one copy of a small text on the next edit.
+     * Callers release it when done reading, see {@link TextSnapshot#release()}.
      */
-    final protected void shiftGapRight(int newGapEnd) {
-        while (_gapEndIndex < newGapEnd) {
-            _contents[_gapStartIndex] = _contents[_gapEndIndex];
-            ++_gapStartIndex;
-            ++_gapEndIndex;
+    @NotNull
+    synchronized public TextSnapshot snapshot() {
+        if (_snapshot == null || !_snapshot.isHeld()) {
+            _snapshot = new TextSnapshot(this, _storage.snapshot(), _lines.getLineCount(), _version,
+                    _log, _logBase, _logSize);
         }
+        _snapshot.hold();
+        return _snapshot;
     }
 
     /**
-     * Create a gap at the start of _contents[] and tack a EOF at the end.
-     * Precondition: real contents are from _contents[0] to _contents[contentsLength-1]
+     * Lets edits overwrite what snapshot shares with this buffer once all its
+     * holders have released it, see {@link TextSnapshot#release()}
      */
-    protected void initGap(int contentsLength) {
-        int toPosition = _contents.length - 1;
-        _contents[toPosition--] = Language.EOF; // mark end of file
-        int fromPosition = contentsLength - 1;
-        while (fromPosition >= 0) {
-            _contents[toPosition--] = _contents[fromPosition--];
+    synchronized void release(@NotNull TextSnapshot snapshot) {
+        if (snapshot.unhold()) {
+            _storage.release(snapshot.getStorage());
         }
-        _gapStartIndex = 0;
-        _gapEndIndex = toPosition + 1; // went one-past in the while loop
     }
 
     /**
-     * Copies _contents into a buffer that is larger by
-     * minIncrement + INITIAL_GAP_SIZE * _allocCount bytes.
-     * <p>
-     * _allocMultiplier doubles on every call to this method, to avoid the
-     * overhead of repeated allocations.
+     * Returns the position where the latest edit ended, which is the gap
+     * start for a gap buffer.
      */
-    protected void growBufferBy(int minIncrement) {
-        //TODO handle new size > MAX_INT or allocation failure
-        int increasedSize = minIncrement + MIN_GAP_SIZE * _allocMultiplier;
-        char[] temp = new char[_contents.length + increasedSize];
-        int i = 0;
-        while (i < _gapStartIndex) {
-            temp[i] = _contents[i];
-            ++i;
-        }
-
-        i = _gapEndIndex;
-        while (i < _contents.length) {
-            temp[i + increasedSize] = _contents[i];
-            ++i;
-        }
-
-        _gapEndIndex += increasedSize;
-        _contents = temp;
-        _allocMultiplier <<= 1;
+    final protected int getEditPoint() {
+        return _storage.getEditPoint();
     }
 
     /**
@@ -607,11 +461,11 @@ public class TextBuffer implements java.lang.CharSequence {
      */
     @Contract(pure = true)
     final synchronized public int getTextLength() {
-        return _contents.length - gapSize();
+        return _storage.length();
     }
 
     synchronized public int getLineCount() {
-        return _lineCount;
+        return _lines.getLineCount();
     }
 
     @Contract(pure = true)
@@ -619,32 +473,6 @@ public class TextBuffer implements java.lang.CharSequence {
         return (charOffset >= 0 && charOffset < getTextLength());
     }
 
-    @Contract(pure = true)
-    final protected int gapSize() {
-        return _gapEndIndex - _gapStartIndex;
-    }
-
-    final protected int logicalToRealIndex(int i) {
-        if (isBeforeGap(i)) {
-            return i;
-        } else {
-            return i + gapSize();
-        }
-    }
-
-    final protected int realToLogicalIndex(int i) {
-        if (isBeforeGap(i)) {
-            return i;
-        } else {
-            return i - gapSize();
-        }
-    }
-
-    @Contract(pure = true)
-    final protected boolean isBeforeGap(int i) {
-        return i < _gapStartIndex;
-    }
-
     public void clearSpans() {
         _spans = new Vector<Pair>();
         _spans.add(new Pair(length(), Lexer.NORMAL));
@@ -706,16 +534,7 @@ public class TextBuffer implements java.lang.CharSequence {
     }
 
     @Override
-    public String toString() {
-        // TODO: Implement this method
-        int len = getTextLength();
-        StringBuffer buf = new StringBuffer();
-        for (int i = 0; i < len; i++) {
-            char c = charAt(i);
-            if (c == Language.EOF)
-                break;
-            buf.append(c);
-        }
-        return new String(buf);
+    synchronized public String toString() {
+        return subSequence(0, length()).toString();
     }
 }
\ No newline at end of file
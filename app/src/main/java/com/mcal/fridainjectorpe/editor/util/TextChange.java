@@ -0,0 +1,43 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import org.jetbrains.annotations.Contract;
+
+/**
+ * Span of a text that differs from an older version of it: the chars in
+ * [start, oldEnd) of the old text were replaced by those in [start, newEnd)
+ * of the new one. Text outside the span is the same in both versions.
+ */
+public final class TextChange {
+    public final int start;
+    public final int oldEnd;
+    public final int newEnd;
+
+    public TextChange(int start, int oldEnd, int newEnd) {
+        this.start = start;
+        this.oldEnd = oldEnd;
+        this.newEnd = newEnd;
+    }
+
+    /**
+     * Returns how far text after the change has moved
+     */
+    @Contract(pure = true)
+    public int delta() {
+        return newEnd - oldEnd;
+    }
+
+    /**
+     * Maps an offset in the old text to the new one, or returns -1 if the
+     * char at offset was replaced. The end of the change maps to its new end.
+     */
+    @Contract(pure = true)
+    public int map(int offset) {
+        if (offset < start) {
+            return offset;
+        }
+        if (offset >= oldEnd) {
+            return offset + newEnd - oldEnd;
+        }
+        return -1;
+    }
+}
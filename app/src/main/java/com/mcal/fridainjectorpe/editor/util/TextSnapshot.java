@@ -0,0 +1,175 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Immutable view of the text of a TextBuffer as it was at one version.
+ * <p>
+ * A snapshot shares its storage with the buffer, which copies only what it
+ * would otherwise overwrite, so taking one is cheap. Reads need no locking:
+ * background tasks see a consistent text and never block, or are blocked by,
+ * edits made on the UI thread in the meantime.
+ */
+public final class TextSnapshot implements CharSequence {
+    private final TextBuffer _source;
+    private final TextStorage _text;
+    private final int _lineCount;
+    private final long _version;
+    /**
+     * Edit log of the buffer, see TextBuffer
+     */
+    private final int[] _log;
+    private final long _logBase;
+    private final int _logSize;
+    /**
+     * Number of holders yet to release this snapshot, guarded by the lock of
+     * _source
+     */
+    private int _holds;
+
+    TextSnapshot(@NotNull TextBuffer source, @NotNull TextStorage text, int lineCount, long version,
+                 @NotNull int[] log, long logBase, int logSize) {
+        _source = source;
+        _text = text;
+        _lineCount = lineCount;
+        _version = version;
+        _log = log;
+        _logBase = logBase;
+        _logSize = logSize;
+    }
+
+    /**
+     * Returns the number of edits made to the buffer before this snapshot was
+     * taken. Snapshots of the same buffer with equal versions hold the same text.
+     */
+    public long getVersion() {
+        return _version;
+    }
+
+    /**
+     * Tells the buffer that the caller will not read this snapshot again, so
+     * that edits may write over the memory they share instead of copying it.
+     * Release each snapshot obtained from {@link TextBuffer#snapshot()} at most
+     * once; one never released stays readable, at the cost of a copy on the
+     * next edit it is in the way of.
+     */
+    public void release() {
+        _source.release(this);
+    }
+
+    void hold() {
+        _holds++;
+    }
+
+    /**
+     * Returns whether this was the last hold
+     */
+    boolean unhold() {
+        return _holds > 0 && --_holds == 0;
+    }
+
+    boolean isHeld() {
+        return _holds > 0;
+    }
+
+    @NotNull
+    TextStorage getStorage() {
+        return _text;
+    }
+
+    /**
+     * Returns the buffer this snapshot was taken of
+     */
+    @NotNull
+    TextBuffer getSource() {
+        return _source;
+    }
+
+    /**
+     * Returns the part of this text that differs from the version of the same
+     * buffer given, or null if that is not known, as happens when the whole
+     * text was replaced since or too many edits were made.
+     */
+    @Nullable
+    public TextChange getChange(long sinceVersion) {
+        if (sinceVersion < _logBase || sinceVersion > _version) {
+            return null;
+        }
+        int first = (int) (sinceVersion - _logBase);
+        if (first == _logSize) {
+            return new TextChange(length(), length(), length());
+        }
+        int start = _log[3 * first];
+        int oldEnd = start + _log[3 * first + 1];
+        int newEnd = start + _log[3 * first + 2];
+        for (int i = first + 1; i < _logSize; i++) {
+            int offset = _log[3 * i];
+            int removed = _log[3 * i + 1];
+            int inserted = _log[3 * i + 2];
+            // the changed span, in the coordinates before this edit, grows to
+            // cover the removed chars; text after it maps back unchanged
+            int end = Math.max(newEnd, offset + removed);
+            oldEnd += end - newEnd;
+            start = Math.min(start, offset);
+            newEnd = end - removed + inserted;
+        }
+        return new TextChange(start, oldEnd, newEnd);
+    }
+
+    @Override
+    public int length() {
+        return _text.length() - 1;
+    }
+
+    /**
+     * Returns the total number of characters, including the EOF sentinel
+     */
+    public int getTextLength() {
+        return _text.length();
+    }
+
+    public int getLineCount() {
+        return _lineCount;
+    }
+
+    /**
+     * Does not do bounds-checking; offset may be that of the EOF sentinel.
+     */
+    @Override
+    public char charAt(int offset) {
+        return _text.charAt(offset);
+    }
+
+    /**
+     * Copies the chars in [start, end) into dst, starting at dstBegin.
+     * No error checking is done.
+     */
+    public void getChars(int start, int end, @NotNull char[] dst, int dstBegin) {
+        _text.getChars(start, end, dst, dstBegin);
+    }
+
+    /**
+     * Writes the text, without the EOF sentinel, to out chunk by chunk.
+     */
+    public void writeTo(@NotNull Writer out) throws IOException {
+        _text.writeTo(out, 0, length());
+    }
+
+    @NotNull
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        char[] chars = new char[end - start];
+        _text.getChars(start, end, chars, 0);
+        return new String(chars);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+}
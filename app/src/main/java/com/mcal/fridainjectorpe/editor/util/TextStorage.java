@@ -0,0 +1,78 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Character storage behind a TextBuffer. Offsets are logical positions in the
+ * text; the EOF sentinel at the end is stored like any other character.
+ * <p>
+ * Besides plain edits, a storage supports the undo fast path of UndoStack:
+ * characters removed by the latest deletions stay available at the edit point
+ * until the next edit, so the deletion can be reverted without a copy having
+ * been taken beforehand.
+ * <p>
+ * Implementations are not thread-safe; TextBuffer serializes access. The
+ * storages returned by {@link #snapshot()} are the exception.
+ */
+public interface TextStorage {
+    /**
+     * Returns the number of characters, including the EOF sentinel.
+     */
+    int length();
+
+    char charAt(int offset);
+
+    /**
+     * Copies the characters in [start, end) into dst, starting at dstBegin.
+     */
+    void getChars(int start, int end, @NotNull char[] dst, int dstBegin);
+
+    /**
+     * Writes the characters in [start, end) to out, straight from the
+     * underlying arrays, one contiguous segment at a time.
+     */
+    void writeTo(@NotNull Writer out, int start, int end) throws IOException;
+
+    /**
+     * Inserts c[start, start + count) before offset.
+     */
+    void insert(int offset, @NotNull char[] c, int start, int count);
+
+    void delete(int offset, int count);
+
+    /**
+     * Returns the position where the latest insertion ended or deletion started.
+     */
+    int getEditPoint();
+
+    /**
+     * Returns the first count characters removed at the edit point by the
+     * latest contiguous deletions.
+     */
+    @NotNull
+    char[] getDeleted(int count);
+
+    /**
+     * Re-inserts the first count characters returned by {@link #getDeleted(int)}
+     * at the edit point.
+     */
+    void restoreDeleted(int count);
+
+    /**
+     * Returns a storage holding the current text that is never modified
+     * afterwards, so that it can be read from any thread without locking.
+     * It may share memory with this storage, which must then leave the shared
+     * parts untouched by later edits.
+     */
+    @NotNull
+    TextStorage snapshot();
+
+    /**
+     * Tells this storage that snapshot, which it returned, will not be read
+     * again, so that later edits may overwrite the memory they share.
+     */
+    void release(@NotNull TextStorage snapshot);
+}
@@ -85,6 +85,9 @@ public class UndoStack {
             }
             while (canUndo());
 
+            // the next edit must not merge into a command that is undone, or
+            // that is no longer the one the caret was left after
+            _lastEditTime = -1;
             return lastUndone.findUndoPosition();
         }
 
@@ -113,6 +116,7 @@ public class UndoStack {
             }
             while (canRedo());
 
+            _lastEditTime = -1;
             return lastRedone.findRedoPosition();
         }
 
@@ -134,7 +138,7 @@ public class UndoStack {
             if (c instanceof InsertCommand
                     && c.merge(start, length, time)) {
                 mergeSuccess = true;
-            } else {
+            } else if (c._data == null) {
                 c.recordData();
             }
         }
@@ -163,7 +167,7 @@ public class UndoStack {
             if (c instanceof DeleteCommand
                     && c.merge(start, length, time)) {
                 mergeSuccess = true;
-            } else {
+            } else if (c._data == null) {
                 c.recordData();
             }
         }
@@ -339,7 +343,7 @@ public class UndoStack {
             }
 
             if ((time - _lastEditTime) < MERGE_TIME
-                    && newStart == _start - _length - length + 1) {
+                    && newStart + length == _start) {
                 _start = newStart;
                 _length += length;
                 trimStack();
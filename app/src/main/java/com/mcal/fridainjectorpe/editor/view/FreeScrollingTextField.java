@@ -241,6 +241,10 @@ public abstract class FreeScrollingTextField extends View implements Document.Te
      */
     private int mTopOffset, mLeftOffset;
     private int mLineMaxWidth, xExtent;
+    /**
+     * Chars of the rows being painted, fetched from the document in one call
+     */
+    private char[] mDrawBuffer = new char[0];
     private int mAlphaWidth, mSpaceWidth;
     private long mLastScroll;
     private boolean isAutoCompeted = true; //代码提示
@@ -664,6 +668,15 @@ public abstract class FreeScrollingTextField extends View implements Document.Te
         mFieldController.updateCaretRow();
         if (h < oldh)
             makeCharVisible(mCaretPosition);
+        mFieldController.updateViewport();
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        if (t != oldt && mFieldController != null) {
+            mFieldController.updateViewport();
+        }
     }
 
     private int useAllDimensions(int measureSpec) {
@@ -842,6 +855,15 @@ public abstract class FreeScrollingTextField extends View implements Document.Te
         }
 
         mTextPaint.setTypeface(lastTypeface);
+
+        int drawStart = currIndex;
+        int lastDrawRow = Math.min(endRowNum, rowCount - 1);
+        int drawEnd = hDoc.getRowOffset(lastDrawRow) + hDoc.getRowSize(lastDrawRow);
+        if (mDrawBuffer.length < drawEnd - drawStart) {
+            mDrawBuffer = new char[drawEnd - drawStart];
+        }
+        hDoc.getChars(drawStart, drawEnd, mDrawBuffer, 0);
+
         while (currRowNum <= endRowNum) {
             int spanLen = spanOffset - currIndex;
 
@@ -911,7 +933,7 @@ public abstract class FreeScrollingTextField extends View implements Document.Te
                     }
                 }
 
-                char c = hDoc.charAt(currIndex);
+                char c = mDrawBuffer[currIndex - drawStart];
                 int x = paintX;//解决光标被Selection挡住
                 if (mFieldController.inSelectionRange(currIndex)) {
                     paintX += drawSelectedText(canvas, c, paintX, paintY);
@@ -929,7 +951,7 @@ public abstract class FreeScrollingTextField extends View implements Document.Te
                 spanLen--;
             }
 
-            if (hDoc.charAt(currIndex - 1) == Language.NEWLINE)
+            if (currIndex > drawStart && mDrawBuffer[currIndex - 1 - drawStart] == Language.NEWLINE)
                 ++currLineNum;
 
             paintY += rowHeight();
@@ -2319,7 +2341,7 @@ public abstract class FreeScrollingTextField extends View implements Document.Te
     }
 
     void onDestroy() {
-        mFieldController.cancelSpanning();
+        mFieldController.stopSpanning();
     }
 
     //*********************************************************************
@@ -2340,14 +2362,44 @@ public abstract class FreeScrollingTextField extends View implements Document.Te
          */
         public void determineSpans() {
             isShowRegion = false;
+            updateViewport();
             _lexer.tokenize(hDoc);
         }
 
+        /**
+         * Tells the lexer which part of the text is on screen, with a screenful
+         * of rows either side, so that it is highlighted before the rest
+         */
+        public void updateViewport() {
+            int visibleRows = getNumVisibleRows();
+            int topRow = getScrollY() / rowHeight();
+            int lastRow = Math.min(hDoc.getRowCount() - 1, topRow + 2 * visibleRows);
+            int firstRow = Math.min(lastRow, Math.max(0, topRow - visibleRows));
+            _lexer.setViewport(hDoc.getRowOffset(firstRow), hDoc.getRowOffset(lastRow) + hDoc.getRowSize(lastRow));
+        }
+
         public void cancelSpanning() {
             isShowRegion = true;
             _lexer.cancelTokenize();
         }
 
+        /**
+         * Cancels spanning and ends the lexer thread
+         */
+        public void stopSpanning() {
+            isShowRegion = true;
+            _lexer.quit();
+        }
+
+        @Override
+        //This is usually called from a non-UI thread
+        public void lexProgress(final List<Pair> results) {
+            post(() -> {
+                hDoc.setSpans(results);
+                invalidate();
+            });
+        }
+
         @Override
         //This is usually called from a non-UI thread
         public void lexDone(final List<Pair> results) {
@@ -0,0 +1,378 @@
+package com.mcal.fridainjectorpe.injector;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves require()/import between script files of a library directory and
+ * concatenates them into a single agent, each module wrapped in its own scope.
+ * <p>
+ * Transformed modules are cached by content hash; files whose size and mtime did
+ * not change since the previous bundle are not even read again.
+ */
+public class AgentBundler {
+    private static final String ENTRY_ID = "<entry>";
+    private static final String[] EXTENSIONS = {"", ".js", "/index.js"};
+
+    private static final Pattern REQUIRE = Pattern.compile(
+            "\\brequire\\s*\\(\\s*(['\"])([^'\"]+)\\1\\s*\\)");
+    private static final Pattern IMPORT_FROM = Pattern.compile(
+            "(?m)^[ \\t]*import\\s+([^;'\"]+?)\\s+from\\s+(['\"])([^'\"]+)\\2\\s*;?");
+    private static final Pattern IMPORT_BARE = Pattern.compile(
+            "(?m)^[ \\t]*import\\s+(['\"])([^'\"]+)\\1\\s*;?");
+    private static final Pattern EXPORT_DEFAULT = Pattern.compile(
+            "(?m)^([ \\t]*)export\\s+default\\s+");
+    private static final Pattern EXPORT_DECL = Pattern.compile(
+            "(?m)^([ \\t]*)export\\s+(function\\s*\\*?|class|var|let|const)\\s+([A-Za-z_$][\\w$]*)");
+    private static final Pattern EXPORT_LIST = Pattern.compile(
+            "(?m)^[ \\t]*export\\s*\\{([^}]*)\\}\\s*;?");
+
+    private static final HashMap<String, AgentBundler> sBundlers = new HashMap<>();
+
+    private final File mLibraryDir;
+    private final HashMap<String, Module> mModules = new HashMap<>();
+
+    private AgentBundler(File libraryDir) {
+        mLibraryDir = libraryDir;
+    }
+
+    /**
+     * Returns the bundler for the given library directory, sharing its module cache
+     * with every previous bundle of the same directory.
+     */
+    @NotNull
+    public static AgentBundler forLibrary(@NotNull File libraryDir) {
+        String key = libraryDir.getAbsolutePath();
+        synchronized (sBundlers) {
+            AgentBundler bundler = sBundlers.get(key);
+            if (bundler == null) {
+                bundler = new AgentBundler(libraryDir.getAbsoluteFile());
+                sBundlers.put(key, bundler);
+            }
+            return bundler;
+        }
+    }
+
+    /**
+     * Returns whether source requires or imports another module. Comments and
+     * literals are not looked at.
+     */
+    public static boolean hasDependencies(@NotNull String source) {
+        CodeMask mask = CodeMask.of(source);
+        String code = mask.getText();
+        return find(REQUIRE, code, mask) || find(IMPORT_FROM, code, mask) || find(IMPORT_BARE, code, mask);
+    }
+
+    private static boolean find(@NotNull Pattern pattern, @NotNull String code, @NotNull CodeMask mask) {
+        Matcher matcher = pattern.matcher(code);
+        while (matcher.find()) {
+            if (mask.isCode(matcher.start())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NotNull
+    public String bundle(@NotNull String entryPath) throws IOException {
+        File entry = resolve(mLibraryDir, entryPath);
+        if (entry == null) {
+            throw new IOException("cannot resolve entry module: " + entryPath);
+        }
+        return bundle(null, entry);
+    }
+
+    /**
+     * Bundles an in-memory entry script (e.g. the editor contents) whose relative
+     * requires are resolved against the library directory. A script without any
+     * dependency is returned untouched.
+     */
+    @NotNull
+    public String bundleSource(@NotNull String entrySource) throws IOException {
+        if (!hasDependencies(entrySource)) {
+            return entrySource;
+        }
+        return bundle(entrySource, null);
+    }
+
+    @NotNull
+    private synchronized String bundle(@Nullable String entrySource, @Nullable File entryFile) throws IOException {
+        LinkedHashMap<String, Module> graph = new LinkedHashMap<>();
+        ArrayDeque<Module> pending = new ArrayDeque<>();
+
+        Module entry;
+        if (entrySource != null) {
+            entry = new Module(ENTRY_ID, mLibraryDir);
+            update(entry, entrySource.getBytes(StandardCharsets.UTF_8));
+        } else {
+            entry = load(entryFile);
+        }
+        graph.put(entry.mId, entry);
+        pending.add(entry);
+
+        while (!pending.isEmpty()) {
+            Module module = pending.poll();
+            for (String dependency : module.mDependencies.values()) {
+                if (!graph.containsKey(dependency)) {
+                    Module child = load(new File(dependency));
+                    graph.put(child.mId, child);
+                    pending.add(child);
+                }
+            }
+        }
+
+        StringBuilder out = new StringBuilder(estimateSize(graph));
+        out.append("(function(){var __defs={},__cache={};")
+                .append("function __require(id){var m=__cache[id];if(m)return m.exports;")
+                .append("m=__cache[id]={exports:{}};")
+                .append("__defs[id].call(m.exports,m,m.exports);return m.exports;}\n");
+        for (Module module : graph.values()) {
+            out.append("__defs[").append(quote(module.mId)).append("]=function(module,exports){")
+                    .append("var require=function(p){return __require(")
+                    .append(module.mDependencies.isEmpty() ? "p" : "(" + mapLiteral(module.mDependencies) + ")[p]||p")
+                    .append(");};\n")
+                    .append(module.mTransformed)
+                    .append("\n};\n");
+        }
+        out.append("__require(").append(quote(entry.mId)).append(");})();\n");
+        return out.toString();
+    }
+
+    @NotNull
+    private Module load(@NotNull File file) throws IOException {
+        String id = file.getAbsolutePath();
+        Module module = mModules.get(id);
+        if (module == null) {
+            module = new Module(id, file.getParentFile());
+            mModules.put(id, module);
+        }
+        long length = file.length();
+        long modified = file.lastModified();
+        if (module.mTransformed == null || module.mLength != length || module.mModified != modified) {
+            update(module, readBytes(file));
+            module.mLength = length;
+            module.mModified = modified;
+        }
+        return module;
+    }
+
+    private void update(@NotNull Module module, @NotNull byte[] content) throws IOException {
+        String hash = digest(content);
+        if (hash.equals(module.mHash)) {
+            return;
+        }
+        String source = new String(content, StandardCharsets.UTF_8);
+        module.mDependencies.clear();
+        module.mTransformed = transform(source, module);
+        module.mHash = hash;
+    }
+
+    @NotNull
+    private String transform(@NotNull String source, @NotNull Module module) throws IOException {
+        List<String> exported = new ArrayList<>();
+
+        source = replace(IMPORT_FROM, source, m -> importStatement(m.group(1).trim(), m.group(3)));
+        source = replace(IMPORT_BARE, source, m -> "require(" + quote(m.group(2)) + ");");
+        source = replace(EXPORT_DEFAULT, source, m -> m.group(1) + "module.exports.default=");
+        source = replace(EXPORT_DECL, source, m -> {
+            exported.add(m.group(3));
+            return m.group(1) + m.group(2) + " " + m.group(3);
+        });
+        source = replace(EXPORT_LIST, source, m -> {
+            StringBuilder sb = new StringBuilder();
+            for (String item : m.group(1).split(",")) {
+                String[] parts = item.trim().split("\\s+as\\s+");
+                if (!parts[0].isEmpty()) {
+                    sb.append("exports.").append(parts[parts.length - 1]).append('=').append(parts[0]).append(';');
+                }
+            }
+            return sb.toString();
+        });
+
+        CodeMask mask = CodeMask.of(source);
+        Matcher matcher = REQUIRE.matcher(mask.getText());
+        while (matcher.find()) {
+            if (!mask.isCode(matcher.start())) {
+                continue;
+            }
+            String request = matcher.group(2);
+            if (!request.startsWith(".") && !request.startsWith("/")) {
+                continue;
+            }
+            File target = resolve(module.mDir, request);
+            if (target == null) {
+                throw new IOException("cannot resolve module '" + request + "' from " + module.mId);
+            }
+            module.mDependencies.put(request, target.getAbsolutePath());
+        }
+
+        if (exported.isEmpty()) {
+            return source;
+        }
+        StringBuilder sb = new StringBuilder(source).append('\n');
+        for (String name : exported) {
+            sb.append("exports.").append(name).append('=').append(name).append(';');
+        }
+        return sb.toString();
+    }
+
+    @NotNull
+    private static String importStatement(@NotNull String clause, @NotNull String request) {
+        String req = "require(" + quote(request) + ")";
+        if (clause.startsWith("* as ")) {
+            return "var " + clause.substring(5).trim() + "=" + req + ";";
+        }
+        StringBuilder sb = new StringBuilder();
+        String named = null;
+        int brace = clause.indexOf('{');
+        if (brace >= 0) {
+            named = clause.substring(brace + 1, clause.lastIndexOf('}'));
+            clause = clause.substring(0, brace).replace(",", "").trim();
+        }
+        String tmp = "__m" + Integer.toHexString(request.hashCode() & 0x7fffffff);
+        sb.append("var ").append(tmp).append('=').append(req).append(';');
+        if (!clause.isEmpty()) {
+            sb.append("var ").append(clause).append('=').append(tmp).append(".default!==undefined?")
+                    .append(tmp).append(".default:").append(tmp).append(';');
+        }
+        if (named != null) {
+            for (String item : named.split(",")) {
+                String[] parts = item.trim().split("\\s+as\\s+");
+                if (!parts[0].isEmpty()) {
+                    sb.append("var ").append(parts[parts.length - 1]).append('=')
+                            .append(tmp).append('.').append(parts[0]).append(';');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    @Nullable
+    private static File resolve(@NotNull File base, @NotNull String request) {
+        File target = request.startsWith("/") ? new File(request) : new File(base, request);
+        for (String ext : EXTENSIONS) {
+            File candidate = new File(target.getPath() + ext);
+            if (candidate.isFile()) {
+                try {
+                    return candidate.getCanonicalFile();
+                } catch (IOException e) {
+                    return candidate.getAbsoluteFile();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int estimateSize(@NotNull Map<String, Module> graph) {
+        int size = 256;
+        for (Module module : graph.values()) {
+            size += module.mTransformed.length() + 128;
+        }
+        return size;
+    }
+
+    @NotNull
+    private static String mapLiteral(@NotNull Map<String, String> map) {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(quote(entry.getKey())).append(':').append(quote(entry.getValue()));
+        }
+        return sb.append('}').toString();
+    }
+
+    @NotNull
+    private static String quote(@NotNull String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    /**
+     * Replaces the matches of pattern in the code of source; matches inside
+     * comments and literals are left alone
+     */
+    @NotNull
+    private static String replace(@NotNull Pattern pattern, @NotNull String source, @NotNull Replacer replacer) {
+        CodeMask mask = CodeMask.of(source);
+        Matcher matcher = pattern.matcher(mask.getText());
+        StringBuilder sb = null;
+        int last = 0;
+        while (matcher.find()) {
+            if (!mask.isCode(matcher.start())) {
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(source.length());
+            }
+            sb.append(source, last, matcher.start()).append(replacer.replace(matcher));
+            last = matcher.end();
+        }
+        if (sb == null) {
+            return source;
+        }
+        return sb.append(source, last, source.length()).toString();
+    }
+
+    @NotNull
+    private static byte[] readBytes(@NotNull File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            int read;
+            while (offset < data.length && (read = in.read(data, offset, data.length - offset)) != -1) {
+                offset += read;
+            }
+        }
+        return data;
+    }
+
+    @NotNull
+    private static String digest(@NotNull byte[] content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(content);
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private interface Replacer {
+        String replace(Matcher matcher);
+    }
+
+    private static class Module {
+        final String mId;
+        final File mDir;
+        final LinkedHashMap<String, String> mDependencies = new LinkedHashMap<>();
+        String mHash;
+        String mTransformed;
+        long mLength = -1;
+        long mModified = -1;
+
+        Module(String id, File dir) {
+            mId = id;
+            mDir = dir;
+        }
+    }
+}
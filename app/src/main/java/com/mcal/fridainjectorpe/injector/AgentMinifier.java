@@ -0,0 +1,198 @@
+package com.mcal.fridainjectorpe.injector;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Removes comments and redundant whitespace from an agent script.
+ * <p>
+ * String, template and regular expression literals are copied verbatim. Line breaks
+ * are only dropped where automatic semicolon insertion cannot depend on them.
+ */
+public class AgentMinifier {
+    static final HashSet<String> sRegexKeywords = new HashSet<>(Arrays.asList(
+            "return", "typeof", "instanceof", "in", "of", "new", "delete", "void",
+            "throw", "case", "do", "else", "yield", "await"));
+
+    private final String mSrc;
+    private final int mLength;
+    private final StringBuilder mOut;
+    private int mPos;
+    private boolean mRegexAllowed = true;
+
+    private AgentMinifier(String src) {
+        mSrc = src;
+        mLength = src.length();
+        mOut = new StringBuilder(mLength);
+    }
+
+    @NotNull
+    public static String minify(@NotNull String src) {
+        AgentMinifier minifier = new AgentMinifier(src);
+        minifier.code(false);
+        return minifier.mOut.toString();
+    }
+
+    static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '\\';
+    }
+
+    /**
+     * Copies code until the end of input or, inside a template substitution,
+     * until the closing brace that matches its opening.
+     */
+    private void code(boolean inTemplate) {
+        int depth = 0;
+        boolean pendingSpace = false;
+        boolean pendingNewline = false;
+
+        while (mPos < mLength) {
+            char c = mSrc.charAt(mPos);
+
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\f' || c == 0xa0 || c == 0xfeff) {
+                pendingSpace = true;
+                mPos++;
+                continue;
+            }
+            if (c == '\n' || c == 0x2028 || c == 0x2029) {
+                pendingNewline = true;
+                mPos++;
+                continue;
+            }
+            if (c == '/' && mPos + 1 < mLength) {
+                char n = mSrc.charAt(mPos + 1);
+                if (n == '/') {
+                    while (mPos < mLength && mSrc.charAt(mPos) != '\n') {
+                        mPos++;
+                    }
+                    continue;
+                }
+                if (n == '*') {
+                    int end = mSrc.indexOf("*/", mPos + 2);
+                    end = end < 0 ? mLength : end + 2;
+                    if (mSrc.lastIndexOf('\n', end - 1) >= mPos) {
+                        pendingNewline = true;
+                    } else {
+                        pendingSpace = true;
+                    }
+                    mPos = end;
+                    continue;
+                }
+            }
+
+            if (inTemplate && depth == 0 && c == '}') {
+                mPos++;
+                return;
+            }
+
+            separator(c, pendingSpace, pendingNewline);
+            pendingSpace = false;
+            pendingNewline = false;
+
+            if (c == '\'' || c == '"') {
+                quoted(c);
+                mRegexAllowed = false;
+            } else if (c == '`') {
+                template();
+                mRegexAllowed = false;
+            } else if (c == '/' && mRegexAllowed) {
+                regex();
+                mRegexAllowed = false;
+            } else if (isIdentifierPart(c)) {
+                int start = mPos;
+                while (mPos < mLength && isIdentifierPart(mSrc.charAt(mPos))) {
+                    mPos++;
+                }
+                String word = mSrc.substring(start, mPos);
+                mOut.append(word);
+                mRegexAllowed = sRegexKeywords.contains(word);
+            } else {
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}') {
+                    depth--;
+                }
+                mOut.append(c);
+                mPos++;
+                mRegexAllowed = c != ')' && c != ']' && c != '}';
+            }
+        }
+    }
+
+    private void separator(char next, boolean space, boolean newline) {
+        if (!space && !newline || mOut.length() == 0) {
+            return;
+        }
+        char prev = mOut.charAt(mOut.length() - 1);
+        if (newline && "{;,([=:?&|!<>*%^~".indexOf(prev) < 0 && ")]},;.:?".indexOf(next) < 0) {
+            mOut.append('\n');
+        } else if (isIdentifierPart(prev) && isIdentifierPart(next)
+                // 1 .toString() must not become 1.toString()
+                || Character.isDigit(prev) && next == '.'
+                || (prev == '+' || prev == '-') && prev == next
+                || prev == '/' && (next == '/' || next == '*')) {
+            mOut.append(' ');
+        }
+    }
+
+    private void quoted(char quote) {
+        int start = mPos++;
+        while (mPos < mLength) {
+            char c = mSrc.charAt(mPos++);
+            if (c == '\\') {
+                mPos++;
+            } else if (c == quote || c == '\n') {
+                break;
+            }
+        }
+        mOut.append(mSrc, start, Math.min(mPos, mLength));
+    }
+
+    private void template() {
+        mOut.append('`');
+        mPos++;
+        while (mPos < mLength) {
+            char c = mSrc.charAt(mPos++);
+            if (c == '\\') {
+                mOut.append(c);
+                if (mPos < mLength) {
+                    mOut.append(mSrc.charAt(mPos++));
+                }
+            } else if (c == '`') {
+                mOut.append(c);
+                return;
+            } else if (c == '$' && mPos < mLength && mSrc.charAt(mPos) == '{') {
+                mOut.append("${");
+                mPos++;
+                mRegexAllowed = true;
+                code(true);
+                mOut.append('}');
+            } else {
+                mOut.append(c);
+            }
+        }
+    }
+
+    private void regex() {
+        int start = mPos++;
+        boolean inClass = false;
+        while (mPos < mLength) {
+            char c = mSrc.charAt(mPos++);
+            if (c == '\\') {
+                mPos++;
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == ']') {
+                inClass = false;
+            } else if (c == '/' && !inClass || c == '\n') {
+                break;
+            }
+        }
+        while (mPos < mLength && isIdentifierPart(mSrc.charAt(mPos))) {
+            mPos++;
+        }
+        mOut.append(mSrc, start, Math.min(mPos, mLength));
+    }
+}
@@ -0,0 +1,179 @@
+package com.mcal.fridainjectorpe.injector;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A script with its comments blanked out, together with which of its chars lie
+ * inside string, template or regular expression literals.
+ * <p>
+ * The blanked text has the same length and line breaks as the script, so match
+ * offsets found in it apply to the script as well. It is lexed the way
+ * {@link AgentMinifier} lexes, without the output.
+ */
+final class CodeMask {
+    private final String mSrc;
+    private final int mLength;
+    private final char[] mText;
+    /**
+     * Chars in comments and literals
+     */
+    private final BitSet mSkipped = new BitSet();
+    private int mPos;
+    private boolean mRegexAllowed = true;
+    /**
+     * Open braces in each template substitution the scan is in
+     */
+    private int[] mBraces = new int[4];
+    private int mDepth;
+
+    private CodeMask(String src) {
+        mSrc = src;
+        mLength = src.length();
+        mText = src.toCharArray();
+    }
+
+    @NotNull
+    static CodeMask of(@NotNull String src) {
+        CodeMask mask = new CodeMask(src);
+        mask.scan();
+        return mask;
+    }
+
+    /**
+     * Returns the script with every comment replaced by spaces, line breaks kept
+     */
+    @NotNull
+    String getText() {
+        return new String(mText);
+    }
+
+    /**
+     * Returns whether the char at index is code rather than part of a comment
+     * or literal
+     */
+    boolean isCode(int index) {
+        return !mSkipped.get(index);
+    }
+
+    private void scan() {
+        while (mPos < mLength) {
+            char c = mSrc.charAt(mPos);
+            char n = mPos + 1 < mLength ? mSrc.charAt(mPos + 1) : 0;
+
+            if (Character.isWhitespace(c) || c == 0xa0 || c == 0xfeff) {
+                mPos++;
+            } else if (c == '/' && n == '/') {
+                int end = mSrc.indexOf('\n', mPos);
+                blank(mPos, end < 0 ? mLength : end);
+            } else if (c == '/' && n == '*') {
+                int end = mSrc.indexOf("*/", mPos + 2);
+                blank(mPos, end < 0 ? mLength : end + 2);
+            } else if (c == '\'' || c == '"') {
+                quoted(c);
+                mRegexAllowed = false;
+            } else if (c == '`') {
+                mPos++;
+                template();
+            } else if (c == '/' && mRegexAllowed) {
+                regex();
+                mRegexAllowed = false;
+            } else if (AgentMinifier.isIdentifierPart(c)) {
+                int start = mPos;
+                while (mPos < mLength && AgentMinifier.isIdentifierPart(mSrc.charAt(mPos))) {
+                    mPos++;
+                }
+                mRegexAllowed = AgentMinifier.sRegexKeywords.contains(mSrc.substring(start, mPos));
+            } else {
+                mPos++;
+                mRegexAllowed = c != ')' && c != ']' && c != '}';
+                if (c == '{' && mDepth > 0) {
+                    mBraces[mDepth - 1]++;
+                } else if (c == '}' && mDepth > 0) {
+                    if (mBraces[mDepth - 1] == 0) {
+                        // end of a template substitution
+                        mDepth--;
+                        template();
+                    } else {
+                        mBraces[mDepth - 1]--;
+                    }
+                }
+            }
+        }
+    }
+
+    private void blank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (mText[i] != '\n' && mText[i] != '\r') {
+                mText[i] = ' ';
+            }
+        }
+        mSkipped.set(start, end);
+        mPos = end;
+    }
+
+    private void quoted(char quote) {
+        int start = mPos++;
+        while (mPos < mLength) {
+            char c = mSrc.charAt(mPos++);
+            if (c == '\\') {
+                mPos++;
+            } else if (c == quote || c == '\n') {
+                break;
+            }
+        }
+        mPos = Math.min(mPos, mLength);
+        mSkipped.set(start, mPos);
+    }
+
+    /**
+     * Scans template text from after its '`' or the '}' of a substitution, up
+     * to its end or the next substitution
+     */
+    private void template() {
+        int start = mPos - 1;
+        mRegexAllowed = false;
+        while (mPos < mLength) {
+            char c = mSrc.charAt(mPos++);
+            if (c == '\\') {
+                mPos++;
+            } else if (c == '`') {
+                break;
+            } else if (c == '$' && mPos < mLength && mSrc.charAt(mPos) == '{') {
+                mPos++;
+                if (mDepth == mBraces.length) {
+                    mBraces = Arrays.copyOf(mBraces, mDepth * 2);
+                }
+                mBraces[mDepth++] = 0;
+                mRegexAllowed = true;
+                break;
+            }
+        }
+        mPos = Math.min(mPos, mLength);
+        mSkipped.set(start, mPos);
+    }
+
+    private void regex() {
+        int start = mPos++;
+        boolean inClass = false;
+        while (mPos < mLength) {
+            char c = mSrc.charAt(mPos++);
+            if (c == '\\') {
+                mPos++;
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == ']') {
+                inClass = false;
+            } else if (c == '/' && !inClass || c == '\n') {
+                break;
+            }
+        }
+        while (mPos < mLength && AgentMinifier.isIdentifierPart(mSrc.charAt(mPos))) {
+            mPos++;
+        }
+        mPos = Math.min(mPos, mLength);
+        mSkipped.set(start, mPos);
+    }
+}
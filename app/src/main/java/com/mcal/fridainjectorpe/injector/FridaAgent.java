@@ -6,70 +6,192 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 
+import com.mcal.fridainjectorpe.editor.util.DocumentProvider;
+import com.mcal.fridainjectorpe.editor.util.TextSnapshot;
 import com.mcal.fridainjectorpe.utils.Utils;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 
 public class FridaAgent {
 
     static final String sRegisterClassLoaderAgent = "" +
             "Java.performNow(function() {" +
-            "    var app = Java.use('android.app.ActivityThread').currentApplication();" +
-            "    var context = app.getApplicationContext();" +
-            "    var pm = context.getPackageManager();" +
-            "    var ai = pm.getApplicationInfo(context.getPackageName(), 0);" +
-            "    var apkPath = ai.publicSourceDir.value;" +
-            "    apkPath = apkPath.substring(0, apkPath.lastIndexOf('/')) + '/xd.apk';" +
-            "    var cl = Java.use('dalvik.system.DexClassLoader').$new(" +
-            "            apkPath, context.getCacheDir().getAbsolutePath(), null," +
-            "            context.getClass().getClassLoader());" +
-            "    Java.classFactory['xd_loader'] = cl;" +
+            "var app = Java.use('android.app.ActivityThread').currentApplication();" +
+            "var context = app.getApplicationContext();" +
+            "var pm = context.getPackageManager();" +
+            "var ai = pm.getApplicationInfo(context.getPackageName(), 0);" +
+            "var apkPath = ai.publicSourceDir.value;" +
+            "apkPath = apkPath.substring(0, apkPath.lastIndexOf('/')) + '/xd.apk';" +
+            "var cl = Java.use('dalvik.system.DexClassLoader').$new(" +
+            "apkPath, context.getCacheDir().getAbsolutePath(), null," +
+            "context.getClass().getClassLoader());" +
+            "Java.classFactory['xd_loader'] = cl;" +
             "});" +
             "\n";
-    private static final String sWrapper = "" +
+    private static final String sConsoleWrapper = "" +
             "console.log = function() {" +
-            "    var args = arguments;" +
-            "    Java.performNow(function() {" +
-            "        for (var i=0;i<args.length;i++) {" +
-            "            Java.use('android.util.Log').e('FridaAndroidInject', args[i].toString());" +
-            "        }" +
-            "    });" +
+            "var args = arguments;" +
+            "Java.performNow(function() {" +
+            "for (var i=0;i<args.length;i++) {" +
+            "Java.use('android.util.Log').e('FridaAndroidInject', args[i].toString());" +
+            "}" +
+            "});" +
             "};" +
-            "" +
+            "\n";
+    private static final String sSendWrapper = "" +
             "Java['send'] = function(data) {" +
-            "    Java.performNow(function () {" +
-            "        var Intent = Java.use('android.content.Intent');" +
-            "        var ActivityThread = Java.use('android.app.ActivityThread');" +
-            "        var Context = Java.use('android.content.Context');" +
-            "        var ctx = Java.cast(ActivityThread.currentApplication().getApplicationContext(), Context);" +
-            "        var intent = Intent.$new('com.frida.injector.SEND');" +
-            "        intent.putExtra('data', JSON.stringify(data));" +
-            "        ctx.sendBroadcast(intent);" +
-            "    });" +
+            "Java.performNow(function () {" +
+            "var Intent = Java.use('android.content.Intent');" +
+            "var ActivityThread = Java.use('android.app.ActivityThread');" +
+            "var Context = Java.use('android.content.Context');" +
+            "var ctx = Java.cast(ActivityThread.currentApplication().getApplicationContext(), Context);" +
+            "var intent = Intent.$new('com.frida.injector.SEND');" +
+            "intent.putExtra('data', JSON.stringify(data));" +
+            "ctx.sendBroadcast(intent);" +
+            "});" +
             "}" +
             "\n";
+    /**
+     * Reference name standing for any use of console.*
+     */
+    private static final String CONSOLE = "console.";
+
     private final Context mContext;
-    private final String mWrappedAgent;
+    private final String mAgent;
+    private final TextSnapshot mDocument;
+    private final boolean mTrimPrelude;
     private final LinkedHashMap<String, Class<? extends FridaInterface>> mInterfaces =
             new LinkedHashMap<>();
+    /**
+     * Prelude helpers and interfaces the script refers to, found on first use
+     */
+    private HashSet<String> mReferences;
 
     private FridaAgent(@NotNull Builder builder) {
         mContext = builder.getContext();
-        mWrappedAgent = builder.getWrappedAgent();
+        mAgent = builder.getAgent();
+        mDocument = builder.getDocument();
+        mTrimPrelude = builder.isTrimPrelude();
     }
 
-    String getWrappedAgent() {
-        return mWrappedAgent;
+    /**
+     * Whether the user script refers to the Java helper of the given name, either
+     * as Java.name or as Java['name'].
+     */
+    static boolean references(@NotNull String agent, @NotNull String name) {
+        return agent.contains("Java." + name)
+                || agent.contains("Java['" + name + "']")
+                || agent.contains("Java[\"" + name + "\"]");
+    }
+
+    @NotNull
+    private static String[] referenceForms(@NotNull String name) {
+        if (CONSOLE.equals(name)) {
+            return new String[]{CONSOLE};
+        }
+        return new String[]{"Java." + name, "Java['" + name + "']", "Java[\"" + name + "\"]"};
+    }
+
+    private boolean isReferenced(@NotNull String name) {
+        if (!mTrimPrelude) {
+            return true;
+        }
+        if (mReferences == null) {
+            ArrayList<String> names = new ArrayList<>(mInterfaces.keySet());
+            names.add(CONSOLE);
+            names.add("send");
+            mReferences = findReferences(names);
+        }
+        return mReferences.contains(name);
+    }
+
+    /**
+     * Returns the names the script refers to, scanning a document agent chunk
+     * by chunk in a single pass.
+     */
+    @NotNull
+    private HashSet<String> findReferences(@NotNull ArrayList<String> names) {
+        HashSet<String> found = new HashSet<>();
+        if (mDocument == null) {
+            for (String name : names) {
+                if (CONSOLE.equals(name) ? mAgent.contains(CONSOLE) : references(mAgent, name)) {
+                    found.add(name);
+                }
+            }
+            return found;
+        }
+
+        ArrayList<String> needles = new ArrayList<>();
+        for (String name : names) {
+            for (String form : referenceForms(name)) {
+                needles.add(form);
+            }
+        }
+        ReferenceScanner scanner = new ReferenceScanner(needles.toArray(new String[0]));
+        try {
+            mDocument.writeTo(scanner);
+        } catch (IOException e) {
+            // the scanner does not throw
+            throw new RuntimeException(e);
+        }
+        int needle = 0;
+        for (String name : names) {
+            for (String ignored : referenceForms(name)) {
+                if (scanner.isFound(needle++)) {
+                    found.add(name);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Writes the prelude helpers the script needs, followed by the script
+     * itself. A document agent is written straight from the editor's buffer.
+     */
+    void writeWrappedAgent(@NotNull Writer out) throws IOException {
+        if (isReferenced(CONSOLE)) {
+            out.write(sConsoleWrapper);
+        }
+        if (isReferenced("send")) {
+            out.write(sSendWrapper);
+        }
+        if (mDocument != null) {
+            mDocument.writeTo(out);
+        } else {
+            out.write(mAgent);
+        }
     }
 
     LinkedHashMap<String, Class<? extends FridaInterface>> getInterfaces() {
         return mInterfaces;
     }
 
+    /**
+     * Registered interfaces the script actually calls; the class loader bootstrap
+     * and the APK copy are skipped when this is empty.
+     */
+    LinkedHashMap<String, Class<? extends FridaInterface>> getReferencedInterfaces() {
+        if (!mTrimPrelude) {
+            return mInterfaces;
+        }
+        LinkedHashMap<String, Class<? extends FridaInterface>> referenced = new LinkedHashMap<>();
+        for (LinkedHashMap.Entry<String, Class<? extends FridaInterface>> entry : mInterfaces.entrySet()) {
+            if (isReferenced(entry.getKey())) {
+                referenced.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return referenced;
+    }
+
 
     PackageManager getPackageManager() {
         return mContext.getPackageManager();
@@ -85,13 +207,17 @@ public class FridaAgent {
 
     public void registerInterface(String cmd, Class<? extends FridaInterface> fridaInterface) {
         mInterfaces.put(cmd, fridaInterface);
+        mReferences = null;
     }
 
     public static class Builder {
         private final Context mContext;
 
-        private String mWrappedAgent;
+        private String mAgent;
+        private TextSnapshot mDocument;
         private OnMessage mOnMessage;
+        private boolean mMinify;
+        private boolean mTrimPrelude;
 
         public Builder(Context context) {
             mContext = context;
@@ -103,17 +229,72 @@ public class FridaAgent {
         }
 
         public Builder withAgentFromString(String agent) {
-            mWrappedAgent = sWrapper + agent;
+            mAgent = agent;
+            mDocument = null;
+            return this;
+        }
+
+        public Builder withAgentFromString(String agent, File libraryDir) throws IOException {
+            return withAgentFromString(AgentBundler.forLibrary(libraryDir).bundleSource(agent));
+        }
+
+        /**
+         * Uses the current text of doc as the agent. A snapshot of it is streamed
+         * into the agent file on injection instead of being copied, so doc may be
+         * edited in the meantime.
+         */
+        public Builder withAgentFromDocument(@NotNull DocumentProvider doc) {
+            return withAgentFromSnapshot(doc.snapshot());
+        }
+
+        /**
+         * Like {@link #withAgentFromString(String, File)}; the text is only copied
+         * when it may have dependencies to bundle.
+         */
+        public Builder withAgentFromDocument(@NotNull DocumentProvider doc, File libraryDir) throws IOException {
+            TextSnapshot text = doc.snapshot();
+            ReferenceScanner scanner = new ReferenceScanner("require", "import");
+            text.writeTo(scanner);
+            if (scanner.isFound(0) || scanner.isFound(1)) {
+                String agent = text.toString();
+                text.release();
+                return withAgentFromString(agent, libraryDir);
+            }
+            return withAgentFromSnapshot(text);
+        }
+
+        private Builder withAgentFromSnapshot(@NotNull TextSnapshot text) {
+            mAgent = null;
+            mDocument = text;
             return this;
         }
 
+        public Builder withAgentFromLibrary(File libraryDir, String entryPath) throws IOException {
+            return withAgentFromString(AgentBundler.forLibrary(libraryDir).bundle(entryPath));
+        }
+
         public Builder withOnMessage(OnMessage onMessage) {
             mOnMessage = onMessage;
             return this;
         }
 
+        public Builder withMinify(boolean minify) {
+            mMinify = minify;
+            return this;
+        }
+
+        /**
+         * Drop prelude helpers and interfaces that the script never references.
+         * Off by default: a script that reaches them dynamically, e.g. console['log']
+         * or Java[name], would lose them.
+         */
+        public Builder withTrimPrelude(boolean trim) {
+            mTrimPrelude = trim;
+            return this;
+        }
+
         public FridaAgent build() {
-            if (mWrappedAgent == null) {
+            if (mAgent == null && mDocument == null) {
                 throw new RuntimeException("no agent specified");
             }
 
@@ -122,11 +303,30 @@ public class FridaAgent {
                         new IntentFilter("com.frida.injector.SEND"));
             }
 
+            if (mMinify) {
+                if (mDocument != null) {
+                    mAgent = AgentMinifier.minify(mDocument.toString());
+                    mDocument.release();
+                    mDocument = null;
+                } else {
+                    mAgent = AgentMinifier.minify(mAgent);
+                }
+            }
+
             return new FridaAgent(this);
         }
 
-        String getWrappedAgent() {
-            return mWrappedAgent;
+        String getAgent() {
+            return mAgent;
+        }
+
+        @Nullable
+        TextSnapshot getDocument() {
+            return mDocument;
+        }
+
+        boolean isTrimPrelude() {
+            return mTrimPrelude;
         }
 
         Context getContext() {
@@ -12,8 +12,15 @@ import com.mcal.fridainjectorpe.utils.Utils;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.concurrent.TimeUnit;
@@ -22,10 +29,14 @@ public class FridaInjector {
     private final Context mContext;
 
     private final File mInjector;
+    private final String mRuntime;
+    private final StartupProfiler mProfiler;
 
     private FridaInjector(@NotNull FridaInjector.Builder builder) {
         mContext = builder.mContext;
         mInjector = builder.getInjector();
+        mRuntime = builder.mRuntime;
+        mProfiler = builder.mProfiler;
     }
 
     @NotNull
@@ -78,9 +89,10 @@ public class FridaInjector {
             spawn = true;
         }
 
-        StringBuilder agent = new StringBuilder(fridaAgent.getWrappedAgent());
+        LinkedHashMap<String, Class<? extends FridaInterface>> interfaces = fridaAgent.getReferencedInterfaces();
+        boolean loaderInstalled = false;
 
-        if (!fridaAgent.getInterfaces().isEmpty()) {
+        if (!interfaces.isEmpty()) {
             try {
                 ApplicationInfo ownAi = fridaAgent.getPackageManager().getApplicationInfo(
                         fridaAgent.getPackageName(), 0);
@@ -99,11 +111,27 @@ public class FridaInjector {
                 } else {
                     RootManager.getInstance().runCommand("chown system:system " + targetPath + "/xd.apk");
                 }
+                loaderInstalled = true;
+            } catch (PackageManager.NameNotFoundException e) {
+                e.printStackTrace();
+            }
+        }
 
-                agent.append(FridaAgent.sRegisterClassLoaderAgent);
+        // the agent file is streamed out piece by piece; the script digest is
+        // taken from the bytes written before the ready notification
+        final File fridaAgentFile = new File(fridaAgent.getFilesDir(), "wrapped_agent.js");
+        MessageDigest md = StartupProfiler.newDigest();
+        final String runtime;
+        final String token;
+        try (Writer agent = new BufferedWriter(new OutputStreamWriter(
+                new DigestOutputStream(new FileOutputStream(fridaAgentFile), md), StandardCharsets.UTF_8))) {
+            fridaAgent.writeWrappedAgent(agent);
+
+            if (loaderInstalled) {
+                agent.write(FridaAgent.sRegisterClassLoaderAgent);
 
                 for (LinkedHashMap.Entry<String, Class<? extends FridaInterface>> entry :
-                        fridaAgent.getInterfaces().entrySet()) {
+                        interfaces.entrySet()) {
                     agent.append("Java['")
                             .append(entry.getKey())
                             .append("'] = function() {")
@@ -121,13 +149,26 @@ public class FridaInjector {
                             .append("};")
                             .append("\n");
                 }
-            } catch (PackageManager.NameNotFoundException e) {
-                e.printStackTrace();
             }
-        }
+            agent.flush();
 
-        final File fridaAgentFile = new File(fridaAgent.getFilesDir(), "wrapped_agent.js");
-        Utils.writeToFile(fridaAgentFile, agent.toString());
+            String digest = StartupProfiler.digest(md);
+            if (StartupProfiler.RUNTIME_AUTO.equals(mRuntime)) {
+                runtime = mProfiler.chooseRuntime(packageName, digest);
+            } else {
+                runtime = mRuntime;
+            }
+
+            if (mProfiler != null) {
+                token = mProfiler.register(packageName, runtime, digest);
+                agent.write(mProfiler.getReadyAgent(token));
+            } else {
+                token = null;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
         RootManager.getInstance().runCommand("chmod 777 " + fridaAgentFile.getPath());
 
         if (spawn) {
@@ -147,7 +188,7 @@ public class FridaInjector {
                         e.printStackTrace();
                     }
                 }
-                inject(packageName, fridaAgentFile.getPath());
+                inject(packageName, fridaAgentFile.getPath(), runtime, token);
             }).start();
 
             if (launchIntent != null) {
@@ -158,13 +199,16 @@ public class FridaInjector {
                 // todo: handle cases here
             }
         } else {
-            inject(packageName, fridaAgentFile.getPath());
+            inject(packageName, fridaAgentFile.getPath(), runtime, token);
         }
     }
 
-    private void inject(String packageName, String agentPath) {
+    private void inject(String packageName, String agentPath, String runtime, String token) {
+        if (token != null) {
+            mProfiler.markAttach(token);
+        }
         RootManager.getInstance().runCommand(mInjector.getPath() + " -f " + packageName +
-                " -s " + agentPath + " --runtime=v8 -e");
+                " -s " + agentPath + " --runtime=" + runtime + " -e");
     }
 
     public static class Builder {
@@ -174,6 +218,9 @@ public class FridaInjector {
         private String mX86BinaryPath;
         private String mX86_64BinaryPath;
 
+        private String mRuntime = StartupProfiler.RUNTIME_V8;
+        private StartupProfiler mProfiler;
+
         private File mInjector;
 
         public Builder(Context context) {
@@ -206,6 +253,24 @@ public class FridaInjector {
             return this;
         }
 
+        /**
+         * @param runtime {@link StartupProfiler#RUNTIME_V8}, {@link StartupProfiler#RUNTIME_QJS}
+         *                or {@link StartupProfiler#RUNTIME_AUTO} to pick the fastest profiled runtime
+         */
+        public Builder withRuntime(String runtime) {
+            mRuntime = runtime;
+            return this;
+        }
+
+        /**
+         * Measure attach-to-ready latency of every injection and report it to onAgentReady.
+         */
+        public Builder withStartupProfiling(OnAgentReady onAgentReady) {
+            mProfiler = StartupProfiler.getInstance(mContext);
+            mProfiler.setOnAgentReady(onAgentReady);
+            return this;
+        }
+
         public FridaInjector build() throws IOException {
             if (mArmBinaryPath == null && mArm64BinaryPath == null &&
                     mX86BinaryPath == null && mX86_64BinaryPath == null) {
@@ -233,6 +298,10 @@ public class FridaInjector {
                 throw new RuntimeException("injector binary not provided for arch: " + arch);
             }
 
+            if (StartupProfiler.RUNTIME_AUTO.equals(mRuntime) && mProfiler == null) {
+                mProfiler = StartupProfiler.getInstance(mContext);
+            }
+
             mInjector = extractInjectorIfNeeded(mContext, injectorName);
             return new FridaInjector(this);
         }
@@ -0,0 +1,5 @@
+package com.mcal.fridainjectorpe.injector;
+
+public interface OnAgentReady {
+    void onAgentReady(String packageName, String runtime, long latencyMs, String recommendedRuntime);
+}
@@ -0,0 +1,89 @@
+package com.mcal.fridainjectorpe.injector;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Writer;
+
+/**
+ * Finds which of a few fixed strings occur in text written to it, one chunk at
+ * a time. Matches may straddle chunks; nothing written is kept.
+ */
+class ReferenceScanner extends Writer {
+    private final String[] mNeedles;
+    /**
+     * KMP failure functions of the needles
+     */
+    private final int[][] mFailure;
+    /**
+     * Number of chars of each needle matched at the end of the text so far
+     */
+    private final int[] mMatched;
+    private final boolean[] mFound;
+    private int mRemaining;
+
+    ReferenceScanner(@NotNull String... needles) {
+        mNeedles = needles;
+        mFailure = new int[needles.length][];
+        mMatched = new int[needles.length];
+        mFound = new boolean[needles.length];
+        mRemaining = needles.length;
+        for (int i = 0; i < needles.length; i++) {
+            mFailure[i] = failure(needles[i]);
+        }
+    }
+
+    @NotNull
+    private static int[] failure(@NotNull String needle) {
+        int[] failure = new int[needle.length() + 1];
+        int k = 0;
+        for (int i = 1; i < needle.length(); i++) {
+            while (k > 0 && needle.charAt(i) != needle.charAt(k)) {
+                k = failure[k];
+            }
+            if (needle.charAt(i) == needle.charAt(k)) {
+                k++;
+            }
+            failure[i + 1] = k;
+        }
+        return failure;
+    }
+
+    boolean isFound(int needle) {
+        return mFound[needle];
+    }
+
+    @Override
+    public void write(@NotNull char[] cbuf, int off, int len) {
+        for (int n = 0; n < mNeedles.length && mRemaining > 0; n++) {
+            if (mFound[n]) {
+                continue;
+            }
+            String needle = mNeedles[n];
+            int[] failure = mFailure[n];
+            int k = mMatched[n];
+            for (int i = off; i < off + len; i++) {
+                char c = cbuf[i];
+                while (k > 0 && c != needle.charAt(k)) {
+                    k = failure[k];
+                }
+                if (c == needle.charAt(k)) {
+                    k++;
+                    if (k == needle.length()) {
+                        mFound[n] = true;
+                        mRemaining--;
+                        break;
+                    }
+                }
+            }
+            mMatched[n] = k;
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
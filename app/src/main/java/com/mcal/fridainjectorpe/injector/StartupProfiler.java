@@ -0,0 +1,264 @@
+package com.mcal.fridainjectorpe.injector;
+
+import android.annotation.SuppressLint;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Records attach-to-ready latency of injected agents per target, JS runtime and
+ * script digest, and recommends the runtime that starts fastest for a target.
+ * <p>
+ * The agent posts its ready timestamp through a broadcast appended after the user
+ * script; the host compares it with the time the injector was started.
+ */
+public class StartupProfiler {
+    public static final String RUNTIME_AUTO = "auto";
+    public static final String RUNTIME_V8 = "v8";
+    public static final String RUNTIME_QJS = "qjs";
+    static final String[] RUNTIMES = {RUNTIME_QJS, RUNTIME_V8};
+
+    private static final String ACTION_READY = "com.frida.injector.READY";
+    private static final int MIN_SAMPLES = 3;
+    /**
+     * Injections whose agent has not reported within this time never will
+     */
+    private static final long PENDING_TIMEOUT = 5 * 60 * 1000;
+
+    private static final String sReadyAgent = "" +
+            "(function() {" +
+            "var readyTime = Date.now();" +
+            "var post = function() {" +
+            "Java.performNow(function() {" +
+            "var app = Java.use('android.app.ActivityThread').currentApplication();" +
+            "if (app === null) {" +
+            "setTimeout(post, 10);" +
+            "return;" +
+            "}" +
+            "var intent = Java.use('android.content.Intent').$new('" + ACTION_READY + "');" +
+            "intent.putExtra('token', '%s');" +
+            "intent.putExtra('time', '' + readyTime);" +
+            "app.getApplicationContext().sendBroadcast(intent);" +
+            "});" +
+            "};" +
+            "post();" +
+            "})();" +
+            "\n";
+
+    @SuppressLint("StaticFieldLeak")
+    private static StartupProfiler sInstance;
+
+    private final SharedPreferences mStore;
+    private final HashMap<String, Sample> mPending = new HashMap<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private OnAgentReady mOnAgentReady;
+    private int mNextToken;
+
+    private StartupProfiler(@NotNull Context context) {
+        mStore = context.getSharedPreferences("startup_profile", Context.MODE_PRIVATE);
+        context.registerReceiver(new ReadyBroadcast(), new IntentFilter(ACTION_READY));
+    }
+
+    @NotNull
+    public static synchronized StartupProfiler getInstance(@NotNull Context context) {
+        if (sInstance == null) {
+            sInstance = new StartupProfiler(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns a message digest for the UTF-8 bytes of a script, to be passed
+     * to {@link #digest(MessageDigest)} once the script has been fed to it.
+     */
+    @NotNull
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @NotNull
+    static String digest(@NotNull MessageDigest md) {
+        byte[] hash = md.digest();
+        StringBuilder sb = new StringBuilder(16);
+        for (int i = 0; i < 8; i++) {
+            sb.append(Character.forDigit((hash[i] >> 4) & 0xf, 16)).append(Character.forDigit(hash[i] & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    public synchronized void setOnAgentReady(OnAgentReady onAgentReady) {
+        mOnAgentReady = onAgentReady;
+    }
+
+    /**
+     * Picks the runtime for the next injection. Runtimes with fewer than
+     * {@link #MIN_SAMPLES} samples for this script are tried first, so that
+     * profiling gathers data for every runtime before settling on one.
+     */
+    @NotNull
+    public synchronized String chooseRuntime(@NotNull String packageName, @NotNull String digest) {
+        for (String runtime : RUNTIMES) {
+            if (getStats(packageName, runtime, digest)[0] < MIN_SAMPLES) {
+                return runtime;
+            }
+        }
+        String recommended = getRecommendedRuntime(packageName, digest);
+        return recommended != null ? recommended : RUNTIME_V8;
+    }
+
+    /**
+     * Returns the runtime with the lowest mean startup latency for the target,
+     * preferring samples taken with the same script, or null without data.
+     */
+    @Nullable
+    public synchronized String getRecommendedRuntime(@NotNull String packageName, @Nullable String digest) {
+        String best = null;
+        double bestMean = Double.MAX_VALUE;
+        for (String runtime : RUNTIMES) {
+            long[] stats = digest != null ? getStats(packageName, runtime, digest) : new long[2];
+            if (stats[0] == 0) {
+                stats = getStats(packageName, runtime, null);
+            }
+            if (stats[0] > 0 && (double) stats[1] / stats[0] < bestMean) {
+                bestMean = (double) stats[1] / stats[0];
+                best = runtime;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Starts a sample for an injection into packageName. Only the latest
+     * injection into a package is profiled, so samples of earlier ones are
+     * dropped, as are samples whose agent never reported.
+     */
+    @NotNull
+    synchronized String register(@NotNull String packageName, @NotNull String runtime, @NotNull String digest) {
+        long now = System.currentTimeMillis();
+        Iterator<Sample> it = mPending.values().iterator();
+        while (it.hasNext()) {
+            Sample sample = it.next();
+            if (sample.mPackageName.equals(packageName) || now - sample.mRegisterTime > PENDING_TIMEOUT) {
+                it.remove();
+            }
+        }
+        String token = Integer.toString(mNextToken++);
+        mPending.put(token, new Sample(packageName, runtime, digest, now));
+        return token;
+    }
+
+    synchronized void markAttach(@NotNull String token) {
+        Sample sample = mPending.get(token);
+        if (sample != null) {
+            sample.mAttachTime = System.currentTimeMillis();
+        }
+    }
+
+    @NotNull
+    String getReadyAgent(@NotNull String token) {
+        return String.format(sReadyAgent, token);
+    }
+
+    private synchronized void onReady(String token, long readyTime) {
+        Sample sample = mPending.remove(token);
+        if (sample == null || sample.mAttachTime == 0) {
+            return;
+        }
+        long latency = Math.max(0, readyTime - sample.mAttachTime);
+        String key = key(sample.mPackageName, sample.mRuntime, sample.mDigest);
+        long[] stats = getStats(sample.mPackageName, sample.mRuntime, sample.mDigest);
+        mStore.edit().putString(key, (stats[0] + 1) + ":" + (stats[1] + latency)).apply();
+
+        final OnAgentReady onAgentReady = mOnAgentReady;
+        if (onAgentReady != null) {
+            final String recommended = getRecommendedRuntime(sample.mPackageName, sample.mDigest);
+            mHandler.post(() -> onAgentReady.onAgentReady(sample.mPackageName, sample.mRuntime,
+                    latency, recommended));
+        }
+    }
+
+    /**
+     * Returns {count, total latency in ms}, summed over every digest when digest is null.
+     */
+    @NotNull
+    private long[] getStats(String packageName, String runtime, @Nullable String digest) {
+        long[] stats = new long[2];
+        if (digest != null) {
+            addStats(stats, mStore.getString(key(packageName, runtime, digest), null));
+        } else {
+            String prefix = key(packageName, runtime, "");
+            for (Map.Entry<String, ?> entry : mStore.getAll().entrySet()) {
+                if (entry.getKey().startsWith(prefix)) {
+                    addStats(stats, String.valueOf(entry.getValue()));
+                }
+            }
+        }
+        return stats;
+    }
+
+    private static void addStats(@NotNull long[] stats, @Nullable String value) {
+        if (value == null) {
+            return;
+        }
+        int sep = value.indexOf(':');
+        try {
+            stats[0] += Long.parseLong(value.substring(0, sep));
+            stats[1] += Long.parseLong(value.substring(sep + 1));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @NotNull
+    private static String key(String packageName, String runtime, String digest) {
+        return packageName + "/" + runtime + "/" + digest;
+    }
+
+    private static class Sample {
+        final String mPackageName;
+        final String mRuntime;
+        final String mDigest;
+        final long mRegisterTime;
+        long mAttachTime;
+
+        Sample(String packageName, String runtime, String digest, long registerTime) {
+            mPackageName = packageName;
+            mRuntime = runtime;
+            mDigest = digest;
+            mRegisterTime = registerTime;
+        }
+    }
+
+    private class ReadyBroadcast extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, @NotNull Intent intent) {
+            String token = intent.getStringExtra("token");
+            String time = intent.getStringExtra("time");
+            if (token == null || time == null) {
+                return;
+            }
+            try {
+                onReady(token, Long.parseLong(time));
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
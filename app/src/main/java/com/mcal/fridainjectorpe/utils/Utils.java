@@ -6,6 +6,7 @@ import android.content.res.AssetManager;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -14,6 +15,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 public class Utils {
     public static void extractAsset(@NotNull Context context, String assetName, File dest) throws IOException {
@@ -31,11 +34,9 @@ public class Utils {
     }
 
     public static void writeToFile(File dest, String data) {
-        try {
-            OutputStreamWriter outputStreamWriter = new OutputStreamWriter(
-                    new FileOutputStream(dest));
-            outputStreamWriter.write(data);
-            outputStreamWriter.close();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(dest), StandardCharsets.UTF_8))) {
+            writer.write(data);
         } catch (IOException e) {
             e.printStackTrace();
         }
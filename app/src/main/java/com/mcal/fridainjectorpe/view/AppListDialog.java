@@ -19,6 +19,8 @@ package com.mcal.fridainjectorpe.view;
 import android.annotation.SuppressLint;
 import android.app.AlertDialog;
 import android.content.Context;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -27,31 +29,106 @@ import android.widget.ArrayAdapter;
 import androidx.appcompat.widget.AppCompatEditText;
 
 import com.mcal.fridainjectorpe.R;
+import com.mcal.fridainjectorpe.async.AppIconLoader;
 import com.mcal.fridainjectorpe.async.ApplicationLoader;
 import com.mcal.fridainjectorpe.data.Preferences;
 import com.mcal.fridainjectorpe.data.dto.applist.AppInteractor;
+import com.mcal.fridainjectorpe.data.dto.applist.AppSearchIndex;
 import com.mcal.fridainjectorpe.data.dto.applist.PackageInfoHolder;
 import com.mcal.fridainjectorpe.data.dto.applist.ViewHolder;
+import com.mcal.fridainjectorpe.databinding.DialogAppListBinding;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 public class AppListDialog implements AppInteractor {
     private Context mContext;
     private AlertDialog adx;
     private AppCompatEditText mEdit;
+    private ArrayAdapter<PackageInfoHolder> mAdapter;
+    private DialogAppListBinding mBinding;
+    private final ArrayList<PackageInfoHolder> mAll = new ArrayList<>();
+    private final ArrayList<PackageInfoHolder> mShown = new ArrayList<>();
+    private final HashMap<String, PackageInfoHolder> mPackages = new HashMap<>();
+    private final ApplicationLoader mLoader;
+    private final AppIconLoader mIconLoader;
+    private AppSearchIndex mIndex;
 
     public AppListDialog(Context c, AppCompatEditText e) {
         mContext = c;
         mEdit = e;
-        ApplicationLoader runner = new ApplicationLoader(mContext, this);
-        runner.execute();
+        mIconLoader = new AppIconLoader(mContext);
+        mLoader = new ApplicationLoader(mContext, this);
+        mLoader.execute();
+    }
+
+    @Override
+    public void add(List<PackageInfoHolder> packages) {
+        for (PackageInfoHolder pkg : packages) {
+            PackageInfoHolder old = mPackages.put(pkg.packageName, pkg);
+            if (old != null) {
+                mAll.remove(old);
+            }
+            mAll.add(findInsertPosition(pkg), pkg);
+        }
+        mIndex = null;
+        refresh();
+    }
+
+    @Override
+    public void onLoadFinished(Set<String> installedPackages) {
+        Iterator<PackageInfoHolder> it = mAll.iterator();
+        while (it.hasNext()) {
+            PackageInfoHolder pkg = it.next();
+            if (!installedPackages.contains(pkg.packageName)) {
+                mPackages.remove(pkg.packageName);
+                it.remove();
+            }
+        }
+        mIndex = null;
+        refresh();
+    }
+
+    private int findInsertPosition(PackageInfoHolder pkg) {
+        int pos = Collections.binarySearch(mAll, pkg, PackageInfoHolder.LABEL_ORDER);
+        return pos < 0 ? -pos - 1 : pos;
+    }
+
+    /**
+     * Shows the applications matching the current query. The search index is
+     * built lazily, once per change of the loaded list.
+     */
+    private void refresh() {
+        if (mAdapter == null) {
+            return;
+        }
+        String query = mBinding.search.getText() != null ? mBinding.search.getText().toString() : "";
+        mShown.clear();
+        if (query.trim().isEmpty()) {
+            mShown.addAll(mAll);
+        } else {
+            if (mIndex == null) {
+                mIndex = new AppSearchIndex(mAll);
+            }
+            mShown.addAll(mIndex.search(query));
+        }
+        mAdapter.notifyDataSetChanged();
     }
 
     @Override
     public void setup(ArrayList<PackageInfoHolder> packageInfoHolders) {
-        final ArrayAdapter<PackageInfoHolder> aa = new ArrayAdapter<PackageInfoHolder>(mContext, R.layout.package_list_item, packageInfoHolders) {
+        for (PackageInfoHolder pkg : packageInfoHolders) {
+            mPackages.put(pkg.packageName, pkg);
+        }
+        mAll.addAll(packageInfoHolders);
+        mShown.addAll(packageInfoHolders);
+        final ArrayAdapter<PackageInfoHolder> aa = new ArrayAdapter<PackageInfoHolder>(mContext, R.layout.package_list_item, mShown) {
             @NotNull
             @SuppressLint({"InflateParams", "SetTextI18n"})
             @Override
@@ -62,36 +139,59 @@ public class AppListDialog implements AppInteractor {
 
                 PackageInfoHolder pkg = getItem(position);
 
-                ViewHolder holder = new ViewHolder();
-
-                holder.packageLabel = convertView.findViewById(R.id.pkg_name);
-                holder.packageName = convertView.findViewById(R.id.pkg_id);
-                holder.packageVersion = convertView.findViewById(R.id.pkg_version);
-                holder.packageFilePath = convertView.findViewById(R.id.pkg_dir);
-                holder.packageIcon = convertView.findViewById(R.id.pkg_img);
+                ViewHolder holder = (ViewHolder) convertView.getTag();
+                if (holder == null) {
+                    holder = new ViewHolder();
+                    holder.packageLabel = convertView.findViewById(R.id.pkg_name);
+                    holder.packageName = convertView.findViewById(R.id.pkg_id);
+                    holder.packageVersion = convertView.findViewById(R.id.pkg_version);
+                    holder.packageFilePath = convertView.findViewById(R.id.pkg_dir);
+                    holder.packageIcon = convertView.findViewById(R.id.pkg_img);
+                    convertView.setTag(holder);
+                }
                 holder.position = position;
 
-                convertView.setTag(holder);
-
                 holder.packageLabel.setText(pkg.packageLabel);
                 holder.packageName.setText(pkg.packageName);
                 holder.packageVersion.setText("Version " + pkg.packageVersion);
                 holder.packageFilePath.setText(pkg.packageFilePath);
 
-                holder.packageIcon.setImageDrawable(pkg.packageIcon);
+                mIconLoader.bind(holder, pkg);
 
                 return convertView;
             }
         };
-        AlertDialog.Builder adb = new AlertDialog.Builder(mContext, R.style.AlertDialogTheme);
-        adb.setTitle("Select apk");
-        adb.setNegativeButton(android.R.string.cancel, null);
-        adb.setAdapter(aa, (p1, p2) -> {
-            PackageInfoHolder pkg = aa.getItem(p2);
+        mAdapter = aa;
+        mBinding = DialogAppListBinding.inflate(LayoutInflater.from(mContext));
+        mBinding.list.setAdapter(aa);
+        mBinding.list.setOnItemClickListener((parent, view, position, id) -> {
+            PackageInfoHolder pkg = aa.getItem(position);
             mEdit.setText(pkg.packageName);
             Preferences.packageName(pkg.packageName);
             adx.dismiss();
         });
+        mBinding.search.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                refresh();
+            }
+        });
+        AlertDialog.Builder adb = new AlertDialog.Builder(mContext, R.style.AlertDialogTheme);
+        adb.setTitle("Select apk");
+        adb.setNegativeButton(android.R.string.cancel, null);
+        adb.setView(mBinding.getRoot());
+        adb.setOnDismissListener(dialog -> {
+            mLoader.cancel();
+            mIconLoader.shutdown();
+        });
         adb.create();
         adx = adb.show();
     }
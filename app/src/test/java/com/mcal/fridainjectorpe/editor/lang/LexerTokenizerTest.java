@@ -0,0 +1,257 @@
+package com.mcal.fridainjectorpe.editor.lang;
+
+import com.mcal.fridainjectorpe.editor.util.Document;
+import com.mcal.fridainjectorpe.editor.util.DocumentProvider;
+import com.mcal.fridainjectorpe.editor.util.Flag;
+import com.mcal.fridainjectorpe.editor.util.Lexer;
+import com.mcal.fridainjectorpe.editor.util.Pair;
+import com.mcal.fridainjectorpe.editor.util.TextSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LexerTokenizerTest {
+    /**
+     * A C-like language that also has chars outside ASCII in its predicates
+     * and words
+     */
+    private static class TestLanguage extends Language {
+        TestLanguage() {
+            setKeywords(new String[]{"int", "if", "función", "in"});
+            setNames(new String[]{"print", "größe"});
+        }
+
+        @Override
+        public boolean isWhitespace(char c) {
+            return super.isWhitespace(c) || c == '　';
+        }
+
+        @Override
+        public boolean isDelimiterB(char c) {
+            return c == '\'' || c == '§';
+        }
+
+        @Override
+        public boolean isLineBStart(char c) {
+            return c == '¶';
+        }
+
+        @Override
+        public boolean isWordStart(char c) {
+            return c == '@';
+        }
+
+        @Override
+        public boolean isLineStart(char c0, char c1) {
+            return super.isLineStart(c0, c1) || c0 == '-' && c1 == '-' || c0 == '→' && c1 == '→';
+        }
+
+        @Override
+        public boolean isMultilineStartDelimiter(char c0, char c1) {
+            return super.isMultilineStartDelimiter(c0, c1) || c0 == '«' && c1 == '«';
+        }
+
+        @Override
+        public boolean isMultilineEndDelimiter(char c0, char c1) {
+            return super.isMultilineEndDelimiter(c0, c1) || c0 == '»' && c1 == '»';
+        }
+    }
+
+    private TestLanguage mLanguage;
+
+    @Before
+    public void setUp() {
+        mLanguage = new TestLanguage();
+        Lexer.setLanguage(mLanguage);
+    }
+
+    @Test
+    public void tableClassifiesEveryCharAsTheLanguageDoes() {
+        LanguageTable table = new LanguageTable(mLanguage);
+        for (int i = 0; i <= Character.MAX_VALUE; i++) {
+            char c = (char) i;
+            int cls = table.classOf(c);
+            String name = "char " + i;
+            assertEquals(name, mLanguage.isWhitespace(c), (cls & LanguageTable.WHITESPACE) != 0);
+            assertEquals(name, mLanguage.isOperator(c), (cls & LanguageTable.OPERATOR) != 0);
+            assertEquals(name, mLanguage.isDelimiterA(c), (cls & LanguageTable.DELIMITER_A) != 0);
+            assertEquals(name, mLanguage.isDelimiterB(c), (cls & LanguageTable.DELIMITER_B) != 0);
+            assertEquals(name, mLanguage.isLineAStart(c), (cls & LanguageTable.LINE_A_START) != 0);
+            assertEquals(name, mLanguage.isLineBStart(c), (cls & LanguageTable.LINE_B_START) != 0);
+            assertEquals(name, mLanguage.isEscapeChar(c), (cls & LanguageTable.ESCAPE) != 0);
+            assertEquals(name, mLanguage.isWordStart(c), (cls & LanguageTable.WORD_START) != 0);
+        }
+        // pairs within ASCII come from the bit sets, the rest from the language
+        char[] chars = new char[130];
+        for (int i = 0; i < 128; i++) {
+            chars[i] = (char) i;
+        }
+        chars[128] = '→';
+        chars[129] = '«';
+        for (char c0 : chars) {
+            for (char c1 : chars) {
+                String name = "chars " + (int) c0 + ", " + (int) c1;
+                assertEquals(name, mLanguage.isLineStart(c0, c1), table.isLineStart(c0, c1));
+                assertEquals(name, mLanguage.isMultilineStartDelimiter(c0, c1),
+                        table.isMultilineStartDelimiter(c0, c1));
+                assertEquals(name, mLanguage.isMultilineEndDelimiter(c0, c1),
+                        table.isMultilineEndDelimiter(c0, c1));
+            }
+        }
+        assertTrue(table.isLineStart('→', '→'));
+        assertTrue(table.isMultilineEndDelimiter('»', '»'));
+    }
+
+    @Test
+    public void keywordTrieMatchesWholeWordsOnly() {
+        KeywordTrie trie = new KeywordTrie(new String[]{"in", "int", "if", "función", "int"});
+        assertEquals(0, trie.find("in"));
+        // the first of equal words
+        assertEquals(1, trie.find("int"));
+        assertEquals(2, trie.find("if"));
+        assertEquals(3, trie.find("función"));
+        assertEquals("función", trie.getWord(trie.find("función")));
+        // prefixes, longer words and chars in no word
+        assertEquals(KeywordTrie.NONE, trie.find("i"));
+        assertEquals(KeywordTrie.NONE, trie.find("inte"));
+        assertEquals(KeywordTrie.NONE, trie.find("funció"));
+        assertEquals(KeywordTrie.NONE, trie.find("funcióñ"));
+        assertEquals(KeywordTrie.NONE, trie.find("x"));
+        assertEquals(KeywordTrie.NONE, trie.find(""));
+
+        char[] chars = "xxintxx".toCharArray();
+        assertEquals(1, trie.find(chars, 2, 5));
+        assertEquals(0, trie.find(chars, 2, 4));
+
+        int node = trie.next(KeywordTrie.ROOT, 'i');
+        assertNotEquals(KeywordTrie.NONE, node);
+        assertEquals(KeywordTrie.NONE, trie.getWordIndex(node));
+        node = trie.next(node, 'n');
+        assertEquals(0, trie.getWordIndex(node));
+        assertEquals(KeywordTrie.NONE, trie.next(node, 'ó'));
+        assertEquals(KeywordTrie.NONE, trie.getWordIndex(KeywordTrie.NONE));
+
+        KeywordTrie empty = new KeywordTrie(new String[0]);
+        assertEquals(KeywordTrie.NONE, empty.find("in"));
+        assertEquals(KeywordTrie.NONE, empty.next(KeywordTrie.ROOT, 'i'));
+    }
+
+    @Test
+    public void spansAreLengthsThatCoverTheText() {
+        String text = "int x = \"s\"; // c\n/* m */ print @tag 'q' if\n¶ line\nx -- too\nend";
+        List<Pair> spans = tokenize(text);
+        int covered = 0;
+        int lastType = Integer.MIN_VALUE;
+        for (Pair span : spans) {
+            assertTrue(spans.toString(), span.getFirst() > 0);
+            assertNotEquals("neighbours of the same type " + spans, lastType, span.getSecond());
+            lastType = span.getSecond();
+            covered += span.getFirst();
+        }
+        assertEquals(text.length(), covered);
+
+        int[] types = typesOf(spans, text.length());
+        assertType(text, types, "int", Lexer.KEYWORD);
+        assertType(text, types, "x =", Lexer.NORMAL);
+        assertType(text, types, "\"s\"", Lexer.SINGLE_SYMBOL_DELIMITED_A);
+        assertType(text, types, "// c", Lexer.DOUBLE_SYMBOL_LINE);
+        assertType(text, types, "/* m */", Lexer.DOUBLE_SYMBOL_DELIMITED_MULTILINE);
+        assertType(text, types, "print", Lexer.NAME);
+        assertType(text, types, "@tag", Lexer.SINGLE_SYMBOL_WORD);
+        assertType(text, types, "'q'", Lexer.SINGLE_SYMBOL_DELIMITED_B);
+        assertType(text, types, "if", Lexer.KEYWORD);
+        assertType(text, types, "¶ line", Lexer.SINGLE_SYMBOL_LINE_B);
+        assertType(text, types, "-- too", Lexer.DOUBLE_SYMBOL_LINE);
+        assertType(text, types, "end", Lexer.NORMAL);
+    }
+
+    @Test
+    public void charsOutsideAsciiFallBackToTheLanguage() {
+        String text = "función　größe §x y§ «« a\nb »» →→ note\nz";
+        int[] types = typesOf(tokenize(text), text.length());
+        assertType(text, types, "función", Lexer.KEYWORD);
+        assertType(text, types, "größe", Lexer.NAME);
+        assertType(text, types, "§x y§", Lexer.SINGLE_SYMBOL_DELIMITED_B);
+        assertType(text, types, "«« a\nb »»", Lexer.DOUBLE_SYMBOL_DELIMITED_MULTILINE);
+        assertType(text, types, "→→ note", Lexer.DOUBLE_SYMBOL_LINE);
+        assertType(text, types, "z", Lexer.NORMAL);
+    }
+
+    @Test
+    public void tableIsRebuiltWhenTheWordsChange() {
+        LanguageTable table = new LanguageTable(mLanguage);
+        assertTrue(table.isOf(mLanguage));
+        assertFalse(table.isOf(new TestLanguage()));
+
+        LexerTokenizer tokenizer = new LexerTokenizer();
+        String text = "foo int bar";
+        int[] types = typesOf(tokenize(tokenizer, text), text.length());
+        assertType(text, types, "foo", Lexer.NORMAL);
+        assertType(text, types, "int", Lexer.KEYWORD);
+
+        mLanguage.setKeywords(new String[]{"foo"});
+        assertFalse(table.isOf(mLanguage));
+        types = typesOf(tokenize(tokenizer, text), text.length());
+        assertType(text, types, "foo", Lexer.KEYWORD);
+        assertType(text, types, "int", Lexer.NORMAL);
+
+        mLanguage.setNames(new String[]{"bar"});
+        assertFalse(new LanguageTable(mLanguage).isOf(new TestLanguage()));
+        types = typesOf(tokenize(tokenizer, text), text.length());
+        assertType(text, types, "bar", Lexer.NAME);
+    }
+
+    private static List<Pair> tokenize(String text) {
+        return tokenize(new LexerTokenizer(), text);
+    }
+
+    private static List<Pair> tokenize(LexerTokenizer tokenizer, String text) {
+        Document doc = new Document(new Document.TextFieldMetrics() {
+            @Override
+            public int getAdvance(char c) {
+                return 1;
+            }
+
+            @Override
+            public int getRowWidth() {
+                return 1000;
+            }
+        });
+        doc.clearSpans();
+        DocumentProvider provider = new DocumentProvider(doc);
+        provider.insertBefore(text.toCharArray(), 0, 0);
+        TextSnapshot snapshot = provider.snapshot();
+        List<Pair> spans = tokenizer.tokenize(snapshot, new Flag());
+        snapshot.release();
+        return spans;
+    }
+
+    /**
+     * Returns the type of each char of a text of length chars
+     */
+    private static int[] typesOf(List<Pair> spans, int length) {
+        int[] types = new int[length];
+        int offset = 0;
+        for (Pair span : spans) {
+            for (int i = 0; i < span.getFirst(); i++) {
+                types[offset++] = span.getSecond();
+            }
+        }
+        assertEquals(length, offset);
+        return types;
+    }
+
+    private static void assertType(String text, int[] types, String part, int type) {
+        int start = text.indexOf(part);
+        for (int i = start; i < start + part.length(); i++) {
+            assertEquals("'" + part + "' at " + (i - start), type, types[i]);
+        }
+    }
+}
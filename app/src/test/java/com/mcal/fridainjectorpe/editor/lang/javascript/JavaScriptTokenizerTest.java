@@ -0,0 +1,185 @@
+package com.mcal.fridainjectorpe.editor.lang.javascript;
+
+import com.mcal.fridainjectorpe.editor.lang.KeywordTrie;
+import com.mcal.fridainjectorpe.editor.util.Document;
+import com.mcal.fridainjectorpe.editor.util.DocumentProvider;
+import com.mcal.fridainjectorpe.editor.util.Flag;
+import com.mcal.fridainjectorpe.editor.util.LexResult;
+import com.mcal.fridainjectorpe.editor.util.Lexer;
+import com.mcal.fridainjectorpe.editor.util.Pair;
+import com.mcal.fridainjectorpe.editor.util.TextSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class JavaScriptTokenizerTest {
+    private static final String[] SNIPPETS = {
+            "Interceptor.attach(ptr(\"0x1234\"), {\n",
+            "    onEnter: function (args) { this.n = args[0].toInt32() / 2; },\n",
+            "});\n",
+            "var re = /[/\\\\]+$/g, half = total / 2 / count;\n",
+            "send(`value ${ `nested ${ obj.x } and ${ {a: 1}.a }` } done`);\n",
+            "/* block\n   comment */ x = obj.return / 2;\n",
+            "const s = 'line \\\n  continued';\n",
+            "if (a) /re/.test(b);\n",
+            "[...this.items].forEach(i => console.log(i));\n",
+            "\n",
+            "}",
+            "`",
+            "/",
+            "/*",
+    };
+
+    private KeywordTrie mKeywords;
+
+    @Before
+    public void setUp() {
+        Lexer.setLanguage(JavaScriptLanguage.getInstance());
+        mKeywords = new KeywordTrie(JavaScriptLanguage.getInstance().getKeywords());
+    }
+
+    @Test
+    public void slashAfterAnOperandDivides() {
+        assertTokens("a / b / c", "a", "IDENTIFIER", "/", "OPERATOR", "b", "IDENTIFIER", "/", "OPERATOR", "c", "IDENTIFIER");
+        assertTokens("(a) / 2", "(", "OPERATOR", "a", "IDENTIFIER", ")", "OPERATOR", "/", "OPERATOR", "2", "NUMBER");
+        assertTokens("a[0] / 2", "a", "IDENTIFIER", "[", "OPERATOR", "0", "NUMBER", "]", "OPERATOR", "/", "OPERATOR",
+                "2", "NUMBER");
+        assertTokens("i++ / 2", "i", "IDENTIFIER", "++", "OPERATOR", "/", "OPERATOR", "2", "NUMBER");
+        assertTokens("this / 2", "this", "KEYWORD", "/", "OPERATOR", "2", "NUMBER");
+        assertTokens("1 /2/ 3", "1", "NUMBER", "/", "OPERATOR", "2", "NUMBER", "/", "OPERATOR", "3", "NUMBER");
+    }
+
+    @Test
+    public void slashWhereAnOperandIsExpectedStartsARegex() {
+        assertTokens("x = /ab+c/gi", "x", "IDENTIFIER", "=", "OPERATOR", "/ab+c/gi", "REGEX");
+        assertTokens("return /a/", "return", "KEYWORD", "/a/", "REGEX");
+        assertTokens("typeof /a/", "typeof", "KEYWORD", "/a/", "REGEX");
+        assertTokens("f(/[/]/)", "f", "IDENTIFIER", "(", "OPERATOR", "/[/]/", "REGEX", ")", "OPERATOR");
+        assertTokens("/a\\/b/", "/a\\/b/", "REGEX");
+    }
+
+    @Test
+    public void keywordAfterADotIsAPropertyName() {
+        assertTokens("obj.return / 2", "obj", "IDENTIFIER", ".", "OPERATOR", "return", "IDENTIFIER", "/", "OPERATOR",
+                "2", "NUMBER");
+        assertTokens("a.new /* c */ / b.typeof", "a", "IDENTIFIER", ".", "OPERATOR", "new", "IDENTIFIER",
+                "/* c */", "COMMENT", "/", "OPERATOR", "b", "IDENTIFIER", ".", "OPERATOR", "typeof", "IDENTIFIER");
+        assertTokens("a?.in / 2", "a", "IDENTIFIER", "?", "OPERATOR", ".", "OPERATOR", "in", "IDENTIFIER",
+                "/", "OPERATOR", "2", "NUMBER");
+        // spread is no member access
+        assertTokens("[...this]", "[", "OPERATOR", ".", "OPERATOR", ".", "OPERATOR", ".", "OPERATOR",
+                "this", "KEYWORD", "]", "OPERATOR");
+        assertTokens("a.\nreturn / 2", "a", "IDENTIFIER", ".", "OPERATOR", "return", "IDENTIFIER",
+                "/", "OPERATOR", "2", "NUMBER");
+    }
+
+    @Test
+    public void templatesNest() {
+        assertTokens("`a${b}c`", "`a", "TEMPLATE", "${", "OPERATOR", "b", "IDENTIFIER", "}", "OPERATOR", "c`", "TEMPLATE");
+        assertTokens("`a${ `b${ {x: 1}.x }c` }d` / 2",
+                "`a", "TEMPLATE", "${", "OPERATOR", "`b", "TEMPLATE", "${", "OPERATOR", "{", "OPERATOR",
+                "x", "IDENTIFIER", ":", "OPERATOR", "1", "NUMBER", "}", "OPERATOR", ".", "OPERATOR",
+                "x", "IDENTIFIER", "}", "OPERATOR", "c`", "TEMPLATE", "}", "OPERATOR", "d`", "TEMPLATE",
+                "/", "OPERATOR", "2", "NUMBER");
+        assertTokens("`${ /}/ }`", "`", "TEMPLATE", "${", "OPERATOR", "/}/", "REGEX", "}", "OPERATOR", "`", "TEMPLATE");
+        assertTokens("`a\n${b}\nc`", "`a\n", "TEMPLATE", "${", "OPERATOR", "b", "IDENTIFIER", "}", "OPERATOR",
+                "\n", "TEMPLATE", "c`", "TEMPLATE");
+    }
+
+    /**
+     * Edits a document at random and checks that each pass resumed from the
+     * previous one comes out as a pass over the whole text, with spans that
+     * cover the text exactly
+     */
+    @Test
+    public void incrementalPassesMatchFullPasses() {
+        JavaScriptTokenizer tokenizer = JavaScriptTokenizer.getInstance();
+        Flag abort = new Flag();
+        for (int seed = 0; seed < 30; seed++) {
+            Random random = new Random(seed);
+            DocumentProvider doc = newDocument();
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 400; i++) {
+                text.append(SNIPPETS[random.nextInt(SNIPPETS.length - 4)]);
+            }
+            doc.insertBefore(text.toString().toCharArray(), 0, 0);
+            TextSnapshot snapshot = doc.snapshot();
+            LexResult previous = tokenizer.tokenize(snapshot, null, abort, null);
+            // a copy, as the Lexer hands over, since the document edits its spans
+            doc.setSpans(new ArrayList<>(previous.getTokens()));
+            for (int step = 0; step < 60; step++) {
+                int length = doc.docLength() - 1;
+                if (random.nextInt(3) > 0 || length < 100) {
+                    String snippet = SNIPPETS[random.nextInt(SNIPPETS.length)];
+                    if (random.nextBoolean()) {
+                        int cut = random.nextInt(snippet.length()) + 1;
+                        snippet = snippet.substring(0, cut);
+                    }
+                    doc.insertBefore(snippet.toCharArray(), random.nextInt(length + 1), step + 1);
+                } else {
+                    doc.deleteAt(random.nextInt(length - 20), 1 + random.nextInt(20), step + 1);
+                }
+                snapshot = doc.snapshot();
+                LexResult resumed = tokenizer.tokenize(snapshot, previous, abort, null);
+                LexResult full = tokenizer.tokenize(snapshot, null, abort, null);
+                String name = "seed " + seed + ", step " + step;
+                assertEquals(name, spans(full), spans(resumed));
+                int covered = 0;
+                for (Pair span : resumed.getTokens()) {
+                    covered += span.getFirst();
+                }
+                assertEquals(name, snapshot.length(), covered);
+                previous = resumed;
+                doc.setSpans(new ArrayList<>(previous.getTokens()));
+                snapshot.release();
+            }
+        }
+    }
+
+    static DocumentProvider newDocument() {
+        Document doc = new Document(new Document.TextFieldMetrics() {
+            @Override
+            public int getAdvance(char c) {
+                return 1;
+            }
+
+            @Override
+            public int getRowWidth() {
+                return 1000;
+            }
+        });
+        doc.clearSpans();
+        return new DocumentProvider(doc);
+    }
+
+    private static String spans(LexResult result) {
+        StringBuilder s = new StringBuilder();
+        for (Pair span : result.getTokens()) {
+            s.append(span.getFirst()).append(':').append(span.getSecond()).append(' ');
+        }
+        return s.toString();
+    }
+
+    private void assertTokens(String text, String... expected) {
+        JavaScriptLexer lexer = new JavaScriptLexer(text, 0, mKeywords);
+        List<String> tokens = new ArrayList<>();
+        JavaScriptType type;
+        while ((type = lexer.yylex()) != null) {
+            if (type != JavaScriptType.WHITE_SPACE) {
+                tokens.add(lexer.yytext());
+                tokens.add(type.name());
+            }
+        }
+        List<String> want = new ArrayList<>();
+        for (String s : expected) {
+            want.add(s);
+        }
+        assertEquals(text, want, tokens);
+    }
+}
@@ -0,0 +1,109 @@
+package com.mcal.fridainjectorpe.editor.lang.javascript;
+
+import com.mcal.fridainjectorpe.editor.lang.Language;
+import com.mcal.fridainjectorpe.editor.lang.lua.LuaLanguage;
+import com.mcal.fridainjectorpe.editor.util.DocumentProvider;
+import com.mcal.fridainjectorpe.editor.util.Flag;
+import com.mcal.fridainjectorpe.editor.util.LexResult;
+import com.mcal.fridainjectorpe.editor.util.Lexer;
+import com.mcal.fridainjectorpe.editor.util.TextSnapshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passes of the JavaScript tokenizer over a large Frida script, against the
+ * Lua tokenizer that such scripts were highlighted with before, over the same
+ * text.
+ * <p>
+ * Run with ./gradlew :app:jmh -Pjmh=TokenizerBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+    @Param({"javascript", "lua"})
+    public String language;
+
+    /**
+     * Number of hooks in the script, each about 700 chars
+     */
+    @Param({"100", "2000"})
+    public int hooks;
+
+    private final Flag _abort = new Flag();
+    private DocumentProvider _doc;
+    private TextSnapshot _text;
+    private LexResult _result;
+    private int _edits;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Language lang = language.equals("lua") ? LuaLanguage.getInstance() : JavaScriptLanguage.getInstance();
+        Lexer.setLanguage(lang);
+        _doc = JavaScriptTokenizerTest.newDocument();
+        _doc.insertBefore(fridaScript(hooks).toCharArray(), 0, 0);
+        _text = _doc.snapshot();
+        _result = lang.getTokenizer().tokenize(_text, null, _abort, null);
+    }
+
+    /**
+     * A pass over the whole script, as when it is opened
+     */
+    @Benchmark
+    public LexResult fullPass() {
+        return Lexer.getLanguage().getTokenizer().tokenize(_text, null, _abort, null);
+    }
+
+    /**
+     * A char typed in the middle of the script and the pass resumed from the
+     * previous one
+     */
+    @Benchmark
+    public LexResult typeAndResume() {
+        int offset = _doc.docLength() / 2;
+        _doc.insertBefore(_edits++ % 2 == 0 ? 'x' : ' ', offset, 0);
+        TextSnapshot text = _doc.snapshot();
+        _result = Lexer.getLanguage().getTokenizer().tokenize(text, _result, _abort, null);
+        text.release();
+        return _result;
+    }
+
+    static String fridaScript(int hooks) {
+        StringBuilder s = new StringBuilder("'use strict';\n\nconst base = Module.findBaseAddress('libgame.so');\n");
+        for (int i = 0; i < hooks; i++) {
+            s.append("\n/* hook ").append(i).append(" */\n")
+                    .append("Interceptor.attach(base.add(0x").append(Integer.toHexString(0x1000 + 16 * i)).append("), {\n")
+                    .append("    onEnter: function (args) {\n")
+                    .append("        this.size = args[1].toInt32() / 4;\n")
+                    .append("        if (/^[a-z]+\\d*$/i.test(args[0].readUtf8String())) {\n")
+                    .append("            console.log(`hook").append(i).append(": ${ this.size } ${ JSON.stringify({n: this.size}) }`);\n")
+                    .append("        }\n")
+                    .append("    },\n")
+                    .append("    onLeave: function (retval) {\n")
+                    .append("        // keep the original result unless it failed\n")
+                    .append("        if (retval.toInt32() === -1) {\n")
+                    .append("            retval.replace(ptr(\"0x0\"));\n")
+                    .append("        }\n")
+                    .append("        send({type: 'leave', id: ").append(i).append(", ret: retval.toString()});\n")
+                    .append("    }\n")
+                    .append("});\n");
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,190 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import com.mcal.fridainjectorpe.editor.lang.Language;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The gap buffer TextBuffer used to be, kept as a storage so that benchmarks
+ * and tests can compare against it: chars are moved one at a time, and the
+ * buffer grows by MIN_GAP_SIZE times a multiplier that doubles on every
+ * growth and never shrinks.
+ */
+class LegacyGapBuffer implements TextStorage {
+    private static final int MIN_GAP_SIZE = 50;
+
+    private char[] _contents;
+    private int _gapStartIndex;
+    private int _gapEndIndex;
+    private int _allocMultiplier = 1;
+
+    LegacyGapBuffer(@NotNull char[] newBuffer, int textSize) {
+        _contents = new char[textSize + MIN_GAP_SIZE + 1];
+        System.arraycopy(newBuffer, 0, _contents, 0, textSize);
+        initGap(textSize);
+    }
+
+    private LegacyGapBuffer(@NotNull char[] contents, int gapStartIndex, int gapEndIndex) {
+        _contents = contents;
+        _gapStartIndex = gapStartIndex;
+        _gapEndIndex = gapEndIndex;
+    }
+
+    @Override
+    public int length() {
+        return _contents.length - gapSize();
+    }
+
+    @Override
+    public char charAt(int offset) {
+        return _contents[logicalToRealIndex(offset)];
+    }
+
+    @Override
+    public void getChars(int start, int end, @NotNull char[] dst, int dstBegin) {
+        int realIndex = logicalToRealIndex(start);
+        for (int i = start; i < end; ++i) {
+            dst[dstBegin++] = _contents[realIndex];
+            ++realIndex;
+            // skip the gap
+            if (realIndex == _gapStartIndex) {
+                realIndex = _gapEndIndex;
+            }
+        }
+    }
+
+    @Override
+    public void writeTo(@NotNull Writer out, int start, int end) throws IOException {
+        char[] chars = new char[end - start];
+        getChars(start, end, chars, 0);
+        out.write(chars);
+    }
+
+    @Override
+    public void insert(int offset, @NotNull char[] c, int start, int count) {
+        int insertIndex = logicalToRealIndex(offset);
+        if (insertIndex != _gapEndIndex) {
+            if (isBeforeGap(insertIndex)) {
+                shiftGapLeft(insertIndex);
+            } else {
+                shiftGapRight(insertIndex);
+            }
+        }
+        if (count >= gapSize()) {
+            growBufferBy(count - gapSize());
+        }
+        for (int i = 0; i < count; ++i) {
+            _contents[_gapStartIndex] = c[start + i];
+            ++_gapStartIndex;
+        }
+    }
+
+    @Override
+    public void delete(int offset, int count) {
+        int newGapStart = offset + count;
+        if (newGapStart != _gapStartIndex) {
+            if (isBeforeGap(newGapStart)) {
+                shiftGapLeft(newGapStart);
+            } else {
+                shiftGapRight(newGapStart + gapSize());
+            }
+        }
+        for (int i = 0; i < count; ++i) {
+            --_gapStartIndex;
+        }
+    }
+
+    @Override
+    public int getEditPoint() {
+        return _gapStartIndex;
+    }
+
+    @NotNull
+    @Override
+    public char[] getDeleted(int count) {
+        char[] chars = new char[count];
+        for (int i = 0; i < count; ++i) {
+            chars[i] = _contents[_gapStartIndex + i];
+        }
+        return chars;
+    }
+
+    @Override
+    public void restoreDeleted(int count) {
+        _gapStartIndex += count;
+    }
+
+    /**
+     * The old buffer had no snapshots; readers locked it instead. A copy is
+     * the nearest equivalent.
+     */
+    @NotNull
+    @Override
+    public TextStorage snapshot() {
+        return new LegacyGapBuffer(_contents.clone(), _gapStartIndex, _gapEndIndex);
+    }
+
+    @Override
+    public void release(@NotNull TextStorage snapshot) {
+    }
+
+    private void shiftGapLeft(int newGapStart) {
+        while (_gapStartIndex > newGapStart) {
+            --_gapEndIndex;
+            --_gapStartIndex;
+            _contents[_gapEndIndex] = _contents[_gapStartIndex];
+        }
+    }
+
+    private void shiftGapRight(int newGapEnd) {
+        while (_gapEndIndex < newGapEnd) {
+            _contents[_gapStartIndex] = _contents[_gapEndIndex];
+            ++_gapStartIndex;
+            ++_gapEndIndex;
+        }
+    }
+
+    private void initGap(int contentsLength) {
+        int toPosition = _contents.length - 1;
+        _contents[toPosition--] = Language.EOF;
+        int fromPosition = contentsLength - 1;
+        while (fromPosition >= 0) {
+            _contents[toPosition--] = _contents[fromPosition--];
+        }
+        _gapStartIndex = 0;
+        _gapEndIndex = toPosition + 1;
+    }
+
+    private void growBufferBy(int minIncrement) {
+        int increasedSize = minIncrement + MIN_GAP_SIZE * _allocMultiplier;
+        char[] temp = new char[_contents.length + increasedSize];
+        int i = 0;
+        while (i < _gapStartIndex) {
+            temp[i] = _contents[i];
+            ++i;
+        }
+        i = _gapEndIndex;
+        while (i < _contents.length) {
+            temp[i + increasedSize] = _contents[i];
+            ++i;
+        }
+        _gapEndIndex += increasedSize;
+        _contents = temp;
+        _allocMultiplier <<= 1;
+    }
+
+    private int gapSize() {
+        return _gapEndIndex - _gapStartIndex;
+    }
+
+    private int logicalToRealIndex(int i) {
+        return isBeforeGap(i) ? i : i + gapSize();
+    }
+
+    private boolean isBeforeGap(int i) {
+        return i < _gapStartIndex;
+    }
+}
@@ -0,0 +1,183 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import com.mcal.fridainjectorpe.editor.lang.c.CLanguage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LexerTest {
+    private static final long TIMEOUT = 20000;
+
+    private DocumentProvider mDoc;
+    private Lexer mLexer;
+    /**
+     * Length of the text each lexDone was for, which tells the versions apart
+     * since the text only grows
+     */
+    private final List<Integer> mDone = new ArrayList<>();
+    /**
+     * Texts shorter than this were requested before a cancel that has returned
+     */
+    private final AtomicInteger mCancelledBelow = new AtomicInteger();
+    private final List<String> mErrors = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Lexer.setLanguage(CLanguage.getInstance());
+        Document doc = new Document(new Document.TextFieldMetrics() {
+            @Override
+            public int getAdvance(char c) {
+                return 1;
+            }
+
+            @Override
+            public int getRowWidth() {
+                return 1000;
+            }
+        });
+        mDoc = new DocumentProvider(doc);
+        doc.clearSpans();
+        mLexer = new Lexer(new Lexer.LexCallback() {
+            @Override
+            public void lexProgress(List<Pair> results) {
+            }
+
+            @Override
+            public void lexDone(List<Pair> results) {
+                int length = 0;
+                for (Pair span : results) {
+                    length += span.getFirst();
+                }
+                synchronized (mDone) {
+                    if (length < mCancelledBelow.get()) {
+                        mErrors.add("lexDone for " + length + " after it was cancelled");
+                    }
+                    mDone.add(length);
+                    mDone.notifyAll();
+                }
+            }
+        });
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("int x").append(i).append(" = f(\"s\") * 2; /* c */\n");
+        }
+        mDoc.insertBefore(text.toString().toCharArray(), 0, 0);
+    }
+
+    @After
+    public void tearDown() {
+        mLexer.quit();
+    }
+
+    @Test
+    public void concurrentRequestsAndCancelsDeliverEachVersionAtMostOnce() throws InterruptedException {
+        final int edits = 2000;
+        final AtomicInteger editsMade = new AtomicInteger();
+        Thread editor = new Thread() {
+            @Override
+            public void run() {
+                Random random = new Random(1);
+                for (int i = 0; i < edits; i++) {
+                    int offset = random.nextInt(mDoc.docLength() - 1);
+                    mDoc.insertBefore((i % 40 == 0 ? "\n" : " y").toCharArray(), offset, i + 1);
+                    mLexer.tokenize(mDoc);
+                    editsMade.incrementAndGet();
+                    if (random.nextInt(4) == 0) {
+                        Thread.yield();
+                    }
+                }
+            }
+        };
+        Thread[] cancellers = new Thread[3];
+        for (int t = 0; t < cancellers.length; t++) {
+            final int seed = t;
+            cancellers[t] = new Thread() {
+                @Override
+                public void run() {
+                    Random random = new Random(100 + seed);
+                    while (editsMade.get() < edits) {
+                        int length = mDoc.docLength() - 1;
+                        mLexer.cancelTokenize();
+                        raise(mCancelledBelow, length);
+                        try {
+                            Thread.sleep(random.nextInt(3));
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            };
+        }
+        editor.start();
+        for (Thread canceller : cancellers) {
+            canceller.start();
+        }
+        editor.join();
+        for (Thread canceller : cancellers) {
+            canceller.join();
+        }
+
+        // the last request of the editor may have been cancelled
+        mDoc.insertBefore("z".toCharArray(), 0, edits + 1);
+        int finalLength = mDoc.docLength() - 1;
+        mLexer.tokenize(mDoc);
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        synchronized (mDone) {
+            while (!mDone.contains(finalLength) && System.currentTimeMillis() < deadline) {
+                mDone.wait(100);
+            }
+        }
+        // let any stray callbacks arrive
+        Thread.sleep(200);
+
+        synchronized (mDone) {
+            assertTrue(mErrors.toString(), mErrors.isEmpty());
+            assertTrue("final version lost after " + mLexer.getPassCount() + " passes",
+                    mDone.contains(finalLength));
+            for (int i = 1; i < mDone.size(); i++) {
+                if (mDone.get(i) <= mDone.get(i - 1)) {
+                    fail("lexDone for " + mDone.get(i) + " after " + mDone.get(i - 1));
+                }
+            }
+            assertEquals(finalLength, (int) mDone.get(mDone.size() - 1));
+        }
+    }
+
+    @Test
+    public void quitEndsTheWorker() throws InterruptedException {
+        mLexer.tokenize(mDoc);
+        mLexer.quit();
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (isLexerThreadAlive() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse("lexer thread still alive", isLexerThreadAlive());
+    }
+
+    private static boolean isLexerThreadAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("Lexer") && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void raise(AtomicInteger value, int to) {
+        int current;
+        while ((current = value.get()) < to && !value.compareAndSet(current, to)) {
+            // retry
+        }
+    }
+}
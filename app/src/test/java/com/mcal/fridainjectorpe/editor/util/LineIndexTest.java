@@ -0,0 +1,175 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import com.mcal.fridainjectorpe.editor.lang.Language;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineIndexTest {
+    private static final String TEXT = "first line\nsecond line\n\nfourth line, the last";
+
+    private LineIndex newIndex(String text) {
+        char[] chars = new char[text.length() + 1];
+        text.getChars(0, text.length(), chars, 0);
+        chars[text.length()] = Language.EOF;
+        LineIndex index = new LineIndex();
+        index.reset(chars, 0, chars.length);
+        return index;
+    }
+
+    @Test
+    public void resetCountsTheLinesOfTheText() {
+        assertMatches("", newIndex(""));
+        assertMatches("\n", newIndex("\n"));
+        assertMatches(TEXT, newIndex(TEXT));
+
+        // text that starts further into the array
+        char[] chars = ("xx" + TEXT + Language.EOF + "yy").toCharArray();
+        LineIndex index = new LineIndex();
+        index.reset(chars, 2, TEXT.length() + 1);
+        assertMatches(TEXT, index);
+
+        index.reset(new int[]{3, 1, 2}, 3);
+        assertMatches("ab\n\nc", index);
+    }
+
+    @Test
+    public void insertsWithinAndAcrossLineBreaks() {
+        StringBuilder text = new StringBuilder(TEXT);
+        LineIndex index = newIndex(TEXT);
+        // within a line, at a line start, just before and after a break
+        insert(index, text, 3, "abc");
+        insert(index, text, text.indexOf("second"), "xy");
+        insert(index, text, text.indexOf("\n"), "z");
+        insert(index, text, text.indexOf("\n") + 1, "w");
+        // breaks alone, into the empty line and at both ends
+        insert(index, text, 5, "\n");
+        insert(index, text, text.indexOf("\n\n") + 1, "\n");
+        insert(index, text, 0, "\n");
+        insert(index, text, text.length(), "\n");
+        insert(index, text, text.length(), "tail");
+    }
+
+    @Test
+    public void multiLinePastes() {
+        StringBuilder text = new StringBuilder(TEXT);
+        LineIndex index = newIndex(TEXT);
+        insert(index, text, 4, "a\nb\nc");
+        insert(index, text, text.indexOf("second"), "line\nstart\n");
+        insert(index, text, text.indexOf("second") + 6, "\nending with a break\n");
+        insert(index, text, text.length(), "\n\n\nafter the last\n");
+
+        // enough lines that the index has to grow
+        StringBuilder paste = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            paste.append("pasted line ").append(i).append('\n');
+        }
+        insert(index, text, text.length() / 2, paste.toString());
+        insert(index, text, 0, paste.toString());
+    }
+
+    @Test
+    public void deletingWholeLines() {
+        StringBuilder text = new StringBuilder(TEXT);
+        LineIndex index = newIndex(TEXT);
+        // the second line with its break, then the empty line
+        delete(index, text, text.indexOf("second"), "second line\n".length());
+        delete(index, text, text.indexOf("\n") + 1, 1);
+        // a break, which joins two lines
+        delete(index, text, text.indexOf("\n"), 1);
+        assertEquals(1, index.getLineCount());
+
+        text = new StringBuilder(TEXT);
+        index = newIndex(TEXT);
+        // from inside the first line into the last
+        delete(index, text, 5, text.indexOf("fourth") + 2 - 5);
+        assertEquals(1, index.getLineCount());
+
+        text = new StringBuilder(TEXT);
+        index = newIndex(TEXT);
+        // all lines but the last, then everything
+        delete(index, text, 0, text.indexOf("fourth"));
+        delete(index, text, 0, text.length());
+        assertEquals(1, index.getLineCount());
+        assertEquals(1, index.getTextLength());
+
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            lines.append("line ").append(i).append('\n');
+        }
+        text = new StringBuilder(lines);
+        index = newIndex(lines.toString());
+        // whole lines from the middle, then from the start
+        int from = text.indexOf("line 1000\n");
+        delete(index, text, from, text.indexOf("line 2000\n") - from);
+        delete(index, text, 0, text.indexOf("line 500\n"));
+    }
+
+    /**
+     * Random inserts and deletes, checked against a scan of the text after
+     * every edit
+     */
+    @Test
+    public void randomEditsMatchANaiveScan() {
+        for (int seed = 0; seed < 100; seed++) {
+            Random random = new Random(seed);
+            StringBuilder text = new StringBuilder(TEXT);
+            LineIndex index = newIndex(TEXT);
+            for (int step = 0; step < 200; step++) {
+                if (random.nextInt(5) < 3 || text.length() == 0) {
+                    char[] chars = new char[1 + random.nextInt(random.nextInt(10) == 0 ? 100 : 4)];
+                    for (int i = 0; i < chars.length; i++) {
+                        chars[i] = random.nextInt(4) == 0 ? '\n' : 'a';
+                    }
+                    insert(index, text, random.nextInt(text.length() + 1), new String(chars));
+                } else {
+                    int count = 1 + random.nextInt(Math.min(text.length(), 30));
+                    delete(index, text, random.nextInt(text.length() - count + 1), count);
+                }
+            }
+        }
+    }
+
+    private static void insert(LineIndex index, StringBuilder text, int offset, String s) {
+        index.insert(offset, s.toCharArray(), 0, s.length());
+        text.insert(offset, s);
+        assertMatches(text.toString(), index);
+    }
+
+    private static void delete(LineIndex index, StringBuilder text, int offset, int count) {
+        index.delete(offset, count);
+        text.delete(offset, offset + count);
+        assertMatches(text.toString(), index);
+    }
+
+    /**
+     * Checks every line and offset of index against a scan of text, which
+     * goes without the EOF sentinel
+     */
+    private static void assertMatches(String text, LineIndex index) {
+        int lineCount = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == Language.NEWLINE) {
+                lineCount++;
+            }
+        }
+        assertEquals(text, lineCount, index.getLineCount());
+        assertEquals(text, text.length() + 1, index.getTextLength());
+
+        int line = 0;
+        int lineStart = 0;
+        for (int offset = 0; offset <= text.length(); offset++) {
+            assertEquals("line of " + offset, line, index.findLine(offset));
+            if (offset == text.length() || text.charAt(offset) == Language.NEWLINE) {
+                assertEquals("offset of line " + line, lineStart, index.getLineOffset(line));
+                assertEquals("length of line " + line, offset + 1 - lineStart, index.getLineLength(line));
+                assertEquals(line, index.findLine(index.getLineOffset(line)));
+                line++;
+                lineStart = offset + 1;
+            }
+        }
+    }
+}
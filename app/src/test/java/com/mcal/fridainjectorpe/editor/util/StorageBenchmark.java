@@ -0,0 +1,121 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Editing workloads run against each text storage. "legacy" is the gap
+ * buffer TextBuffer had before it moved chars in bulk, kept in
+ * {@link LegacyGapBuffer}; "piece" is the {@link PieceTable} TextBuffer
+ * switches to for texts of {@link TextBuffer#PIECE_TABLE_THRESHOLD} chars or
+ * more.
+ * <p>
+ * Run with ./gradlew :app:jmh -Pjmh=StorageBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageBenchmark {
+    private static final int PASTE_SIZE = 4096;
+
+    @Param({"legacy", "gap", "piece"})
+    public String storage;
+
+    @Param({"65536", "1048576"})
+    public int size;
+
+    private TextStorage _storage;
+    private Random _random;
+    private char[] _paste;
+    private int _caret;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        _random = new Random(42);
+        char[] text = new char[size + 1];
+        for (int i = 0; i < size; i++) {
+            text[i] = i % 60 == 59 ? '\n' : (char) ('a' + _random.nextInt(26));
+        }
+        _storage = create(storage, text, size);
+        _paste = new char[PASTE_SIZE];
+        for (int i = 0; i < PASTE_SIZE; i++) {
+            _paste[i] = i % 60 == 59 ? '\n' : 'p';
+        }
+        _caret = size / 2;
+    }
+
+    static TextStorage create(String name, char[] text, int textSize) {
+        switch (name) {
+            case "legacy":
+                return new LegacyGapBuffer(text, textSize);
+            case "gap":
+                return new GapBuffer(text, textSize);
+            case "piece":
+                return new PieceTable(text, textSize);
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    /**
+     * A word typed at the caret and then backspaced, after the caret moved a
+     * few lines away
+     */
+    @Benchmark
+    public void typing(Blackhole blackhole) {
+        _caret = clamp(_caret + _random.nextInt(241) - 120);
+        char[] typed = {'x'};
+        for (int i = 0; i < 8; i++) {
+            _storage.insert(_caret + i, typed, 0, 1);
+        }
+        for (int i = 8; i > 0; i--) {
+            _storage.delete(_caret + i - 1, 1);
+        }
+        blackhole.consume(_storage.charAt(_caret));
+    }
+
+    /**
+     * Single edits anywhere in the text, as from find and replace
+     */
+    @Benchmark
+    public void randomJump(Blackhole blackhole) {
+        int offset = _random.nextInt(_storage.length() - 1);
+        char[] typed = {'y', 'z'};
+        _storage.insert(offset, typed, 0, 2);
+        offset = _random.nextInt(_storage.length() - 3);
+        _storage.delete(offset, 2);
+        blackhole.consume(_storage.charAt(offset));
+    }
+
+    /**
+     * A large block pasted somewhere and cut again
+     */
+    @Benchmark
+    public void paste(Blackhole blackhole) {
+        int offset = _random.nextInt(_storage.length() - 1);
+        _storage.insert(offset, _paste, 0, PASTE_SIZE);
+        _storage.delete(offset, PASTE_SIZE);
+        blackhole.consume(_storage.length());
+    }
+
+    private int clamp(int offset) {
+        return Math.max(0, Math.min(offset, _storage.length() - 1));
+    }
+}
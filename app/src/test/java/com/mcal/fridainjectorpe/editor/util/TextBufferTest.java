@@ -0,0 +1,133 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextBufferTest {
+    private static final String TEXT = "first line\nsecond line\n\nfourth line, the last";
+
+    /**
+     * Returns a buffer holding text, stored in a piece table or a gap buffer
+     * whatever its size
+     */
+    private static TextBuffer newBuffer(String text, boolean pieceTable) {
+        TextBuffer buffer = new TextBuffer();
+        char[] chars = new char[text.length() + 1];
+        text.getChars(0, text.length(), chars, 0);
+        buffer.setBuffer(chars, text.length(), 1);
+        if (pieceTable) {
+            buffer._storage = new PieceTable(chars.clone(), text.length());
+        } else {
+            buffer._storage = new GapBuffer(chars.clone(), text.length());
+        }
+        buffer.clearSpans();
+        return buffer;
+    }
+
+    private static void assertInStep(String message, TextBuffer buffer) {
+        assertEquals(message, buffer._lines.getTextLength(), buffer._storage.length());
+        assertEquals(message, buffer._lines.getTextLength(), buffer.getTextLength());
+        String text = buffer.toString();
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        assertEquals(message, lines, buffer.getLineCount());
+    }
+
+    /**
+     * Types, deletes, undoes and redoes at random the way an editor does, on
+     * both backends at once, checking that storage and line index agree
+     */
+    @Test
+    public void randomEditsUndoAndRedoKeepStorageAndLinesInStep() {
+        for (int seed = 0; seed < 300; seed++) {
+            Random random = new Random(seed);
+            TextBuffer[] buffers = {newBuffer(TEXT, false), newBuffer(TEXT, true)};
+            int caret = TEXT.length() / 2;
+            long time = 1;
+            for (int step = 0; step < 300; step++) {
+                int op = random.nextInt(10);
+                time += random.nextInt(4) == 0 ? 2000000000L : random.nextInt(200000000);
+                int length = buffers[0].length();
+                if (random.nextInt(8) == 0) {
+                    caret = random.nextInt(length + 1);
+                }
+                caret = Math.min(caret, length);
+                for (TextBuffer buffer : buffers) {
+                    // undo and redo patch spans in ways that need not add up
+                    buffer.clearSpans();
+                    if (op < 4) {
+                        char[] typed = random(seed, step);
+                        buffer.insert(typed, caret, time, true);
+                    } else if (op < 7) {
+                        if (caret > 0) {
+                            int count = Math.min(caret, 1 + (step % 3 == 0 ? step % 5 : 0));
+                            buffer.delete(caret - count, count, time, true);
+                        }
+                    } else if (op < 9) {
+                        buffer.undo();
+                    } else {
+                        buffer.redo();
+                    }
+                }
+                if (op < 4) {
+                    caret += random(seed, step).length;
+                } else if (op < 7 && caret > 0) {
+                    caret -= Math.min(caret, 1 + (step % 3 == 0 ? step % 5 : 0));
+                }
+                String message = "seed " + seed + ", step " + step;
+                assertInStep(message + ", gap buffer", buffers[0]);
+                assertInStep(message + ", piece table", buffers[1]);
+                assertEquals(message, buffers[0].toString(), buffers[1].toString());
+            }
+            for (TextBuffer buffer : buffers) {
+                while (buffer.canUndo()) {
+                    buffer.clearSpans();
+                    buffer.undo();
+                }
+                assertEquals("seed " + seed, TEXT, buffer.toString());
+                assertInStep("seed " + seed, buffer);
+            }
+        }
+    }
+
+    /**
+     * Restoring more chars than were deleted must still restore exactly as
+     * many as asked for, which TextBuffer then records
+     */
+    @Test
+    public void restoringMoreThanWasDeletedRestoresTheCountAskedFor() {
+        char[] text = (TEXT + '\0').toCharArray();
+        TextStorage[] storages = {
+                new GapBuffer(text.clone(), TEXT.length()),
+                new PieceTable(text.clone(), TEXT.length())
+        };
+        for (TextStorage storage : storages) {
+            storage.delete(5, 2);
+            assertEquals(5, storage.getEditPoint());
+            assertEquals(4, storage.getDeleted(4).length);
+            storage.restoreDeleted(4);
+            String name = storage.getClass().getSimpleName();
+            assertEquals(name, TEXT.length() + 1 + 2, storage.length());
+            assertEquals(name, 9, storage.getEditPoint());
+            char[] restored = new char[4];
+            storage.getChars(5, 9, restored, 0);
+            assertEquals(name, " l", new String(restored, 0, 2));
+        }
+    }
+
+    private static char[] random(int seed, int step) {
+        Random random = new Random(seed * 1000L + step);
+        char[] typed = new char[1 + random.nextInt(random.nextInt(6) == 0 ? 12 : 2)];
+        for (int i = 0; i < typed.length; i++) {
+            typed[i] = random.nextInt(6) == 0 ? '\n' : (char) ('a' + random.nextInt(26));
+        }
+        return typed;
+    }
+}
@@ -0,0 +1,207 @@
+package com.mcal.fridainjectorpe.editor.util;
+
+import com.mcal.fridainjectorpe.editor.lang.Language;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TextStorageTest {
+    private static final String TEXT = "first line\nsecond line\n\nfourth line, the last";
+
+    private interface Factory {
+        TextStorage create(char[] text, int textSize);
+    }
+
+    private static final Factory[] FACTORIES = {
+            new Factory() {
+                @Override
+                public TextStorage create(char[] text, int textSize) {
+                    return new LegacyGapBuffer(text, textSize);
+                }
+            },
+            new Factory() {
+                @Override
+                public TextStorage create(char[] text, int textSize) {
+                    return new GapBuffer(text, textSize);
+                }
+            },
+            new Factory() {
+                @Override
+                public TextStorage create(char[] text, int textSize) {
+                    return new PieceTable(text, textSize);
+                }
+            }
+    };
+
+    private static String textOf(TextStorage storage) {
+        char[] chars = new char[storage.length() - 1];
+        storage.getChars(0, chars.length, chars, 0);
+        return new String(chars);
+    }
+
+    private static char[] withRoom(String text) {
+        char[] chars = new char[text.length() + 1];
+        text.getChars(0, text.length(), chars, 0);
+        return chars;
+    }
+
+    /**
+     * Edits, restores deleted chars and takes snapshots at random, checking
+     * every storage against a plain model of the text and its deleted run
+     */
+    @Test
+    public void randomEditsMatchTheModel() {
+        for (Factory factory : FACTORIES) {
+            for (int seed = 0; seed < 200; seed++) {
+                Random random = new Random(seed);
+                TextStorage storage = factory.create(withRoom(TEXT), TEXT.length());
+                String name = storage.getClass().getSimpleName() + ", seed " + seed;
+                StringBuilder text = new StringBuilder(TEXT);
+                // chars removed by the latest contiguous deletions
+                String deleted = "";
+                int editPoint = 0;
+                ArrayList<TextStorage> snapshots = new ArrayList<>();
+                ArrayList<String> expected = new ArrayList<>();
+                for (int step = 0; step < 400; step++) {
+                    int op = random.nextInt(10);
+                    if (op < 4) {
+                        int offset = random.nextInt(4) == 0 ? random.nextInt(text.length() + 1)
+                                : Math.min(editPoint, text.length());
+                        char[] chars = randomChars(random, random.nextInt(8) == 0 ? 200 : 3);
+                        storage.insert(offset, chars, 0, chars.length);
+                        text.insert(offset, chars);
+                        deleted = "";
+                        editPoint = offset + chars.length;
+                    } else if (op < 7 && text.length() > 0) {
+                        int count = 1 + random.nextInt(Math.min(text.length(), 4));
+                        int offset = random.nextInt(3) == 0 ? random.nextInt(text.length() - count + 1)
+                                : Math.max(0, Math.min(editPoint, text.length()) - count);
+                        String removed = text.substring(offset, offset + count);
+                        storage.delete(offset, count);
+                        text.delete(offset, offset + count);
+                        deleted = offset + count == editPoint ? removed + deleted : removed;
+                        editPoint = offset;
+                    } else if (op < 8 && deleted.length() > 0) {
+                        int count = 1 + random.nextInt(deleted.length());
+                        assertEquals(name, editPoint, storage.getEditPoint());
+                        assertEquals(name, deleted.substring(0, count), new String(storage.getDeleted(count)));
+                        storage.restoreDeleted(count);
+                        text.insert(editPoint, deleted, 0, count);
+                        deleted = deleted.substring(count);
+                        editPoint += count;
+                    } else if (op < 9) {
+                        snapshots.add(storage.snapshot());
+                        expected.add(text.toString());
+                    } else if (!snapshots.isEmpty()) {
+                        int i = random.nextInt(snapshots.size());
+                        storage.release(snapshots.remove(i));
+                        expected.remove(i);
+                    }
+                    assertEquals(name, text.length() + 1, storage.length());
+                    assertEquals(name, Language.EOF, storage.charAt(text.length()));
+                    if (text.length() > 0) {
+                        int offset = random.nextInt(text.length());
+                        assertEquals(name, text.charAt(offset), storage.charAt(offset));
+                    }
+                    for (int i = 0; i < snapshots.size(); i++) {
+                        assertEquals(name + ", step " + step, expected.get(i), textOf(snapshots.get(i)));
+                    }
+                }
+                assertEquals(name, text.toString(), textOf(storage));
+            }
+        }
+    }
+
+    @Test
+    public void gapBufferGrowsGeometricallyAndShrinksAgain() {
+        GapBuffer buffer = new GapBuffer();
+        char[] typed = {'x'};
+        int reallocations = 0;
+        char[] contents = buffer._contents;
+        for (int i = 0; i < 1000000; i++) {
+            buffer.insert(i, typed, 0, 1);
+            if (buffer._contents != contents) {
+                contents = buffer._contents;
+                reallocations++;
+            }
+        }
+        assertTrue("reallocations: " + reallocations, reallocations < 40);
+        // each deletion starts a new deleted run rather than growing the last
+        while (buffer.length() > 1001) {
+            buffer.delete(0, Math.min(10000, buffer.length() - 1001));
+        }
+        // what is left, and the last deletion, which can still be restored
+        assertTrue("capacity: " + buffer._contents.length, buffer._contents.length < 64 * 1024);
+        assertEquals(1001, buffer.length());
+    }
+
+    /**
+     * Runs the same random edits on every storage and checks that they all
+     * read back the same text, in whole and in ranges across their internal
+     * boundaries
+     */
+    @Test
+    public void storagesAgree() {
+        for (int seed = 0; seed < 100; seed++) {
+            Random random = new Random(seed);
+            TextStorage[] storages = new TextStorage[FACTORIES.length];
+            for (int i = 0; i < storages.length; i++) {
+                storages[i] = FACTORIES[i].create(withRoom(TEXT), TEXT.length());
+            }
+            for (int step = 0; step < 500; step++) {
+                int length = storages[0].length() - 1;
+                if (random.nextInt(3) > 0 || length == 0) {
+                    int offset = random.nextInt(length + 1);
+                    char[] chars = randomChars(random, random.nextInt(10) == 0 ? 500 : 5);
+                    for (TextStorage storage : storages) {
+                        storage.insert(offset, chars, 0, chars.length);
+                    }
+                } else {
+                    int count = 1 + random.nextInt(Math.min(length, 20));
+                    int offset = random.nextInt(length - count + 1);
+                    for (TextStorage storage : storages) {
+                        storage.delete(offset, count);
+                    }
+                }
+                length = storages[0].length() - 1;
+                int start = random.nextInt(length + 1);
+                int end = start + random.nextInt(length - start + 1);
+                char[] expected = new char[end - start];
+                storages[0].getChars(start, end, expected, 0);
+                for (TextStorage storage : storages) {
+                    String name = storage.getClass().getSimpleName() + ", seed " + seed + ", step " + step;
+                    assertEquals(name, length + 1, storage.length());
+                    assertEquals(name, storages[0].getEditPoint(), storage.getEditPoint());
+                    char[] chars = new char[end - start];
+                    storage.getChars(start, end, chars, 0);
+                    assertEquals(name, new String(expected), new String(chars));
+                    StringWriter out = new StringWriter();
+                    try {
+                        storage.writeTo(out, start, end);
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                    assertEquals(name, new String(expected), out.toString());
+                }
+            }
+            for (TextStorage storage : storages) {
+                assertEquals(textOf(storages[0]), textOf(storage));
+            }
+        }
+    }
+
+    private static char[] randomChars(Random random, int maxLength) {
+        char[] chars = new char[1 + random.nextInt(maxLength)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = random.nextInt(6) == 0 ? '\n' : (char) ('a' + random.nextInt(26));
+        }
+        return chars;
+    }
+}
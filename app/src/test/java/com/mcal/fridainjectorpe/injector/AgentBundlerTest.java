@@ -0,0 +1,73 @@
+package com.mcal.fridainjectorpe.injector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AgentBundlerTest {
+    private File mLibraryDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mLibraryDir = Files.createTempDirectory("bundler").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mLibraryDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mLibraryDir.delete();
+    }
+
+    @Test
+    public void commentedOutRequiresAreNoDependencies() throws IOException {
+        String script = "// var old = require('./old');\n"
+                + "/* import { a } from './gone';\n"
+                + "import './gone'; */\n"
+                + "console.log('hello');\n";
+        assertFalse(AgentBundler.hasDependencies(script));
+        assertEquals(script, AgentBundler.forLibrary(mLibraryDir).bundleSource(script));
+    }
+
+    @Test
+    public void requiresInLiteralsAreNoDependencies() throws IOException {
+        String script = "var s = \"require('./old')\";\n"
+                + "var t = `\nimport \"x\";\n${s}`;\n"
+                + "var r = /require\\('\\.\\/old'\\)/;\n";
+        assertFalse(AgentBundler.hasDependencies(script));
+        assertEquals(script, AgentBundler.forLibrary(mLibraryDir).bundleSource(script));
+    }
+
+    @Test
+    public void commentedOutRequiresBesideRealOnesAreIgnored() throws IOException {
+        write("util.js", "exports.greet = function () { return 'hi'; };\n");
+        String script = "var util = require('./util');\n"
+                + "// var old = require('./old');\n"
+                + "console.log(util.greet());\n";
+        assertTrue(AgentBundler.hasDependencies(script));
+        String bundle = AgentBundler.forLibrary(mLibraryDir).bundleSource(script);
+        assertTrue(bundle.contains("exports.greet"));
+        assertFalse(bundle.contains("old.js"));
+    }
+
+    private void write(String name, String content) throws IOException {
+        try (OutputStream out = new FileOutputStream(new File(mLibraryDir, name))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
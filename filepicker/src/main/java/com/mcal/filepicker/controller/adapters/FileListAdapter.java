@@ -17,14 +17,15 @@ import com.mcal.filepicker.controller.NotifyItemChecked;
 import com.mcal.filepicker.model.DialogConfigs;
 import com.mcal.filepicker.model.DialogProperties;
 import com.mcal.filepicker.model.FileListItem;
-import com.mcal.filepicker.model.MarkedItemList;
-import com.mcal.filepicker.utils.ApkIcon;
+import com.mcal.filepicker.model.SelectionModel;
+import com.mcal.filepicker.utils.ApkIconLoader;
 import com.mcal.filepicker.widget.MaterialCheckbox;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.Future;
 
 /**
  * @author akshay sunil masram
@@ -33,12 +34,17 @@ public class FileListAdapter extends BaseAdapter {
     private ArrayList<FileListItem> listItem;
     private Context context;
     private DialogProperties properties;
+    private final SelectionModel selection;
     private NotifyItemChecked notifyItemChecked;
+    private final ApkIconLoader apkIconLoader;
 
-    public FileListAdapter(ArrayList<FileListItem> listItem, Context context, DialogProperties properties) {
+    public FileListAdapter(ArrayList<FileListItem> listItem, Context context, DialogProperties properties,
+                           SelectionModel selection) {
         this.listItem = listItem;
         this.context = context;
         this.properties = properties;
+        this.selection = selection;
+        this.apkIconLoader = new ApkIconLoader(context);
     }
 
     @Override
@@ -68,7 +74,12 @@ public class FileListAdapter extends BaseAdapter {
             holder = (ViewHolder) view.getTag();
         }
         final FileListItem item = listItem.get(i);
-        if (MarkedItemList.hasItem(item.getLocation())) {
+        if (holder.iconTask != null) {
+            holder.iconTask.cancel(true);
+            holder.iconTask = null;
+        }
+        holder.type_icon.setTag(null);
+        if (selection.isSelected(i)) {
             Animation animation = AnimationUtils.loadAnimation(context, R.anim.marked_item_animation);
             view.setAnimation(animation);
         } else {
@@ -90,8 +101,7 @@ public class FileListAdapter extends BaseAdapter {
         } else {
             holder.type_icon.setImageResource(R.drawable.ic_file);
             if (item.isApk()) {
-                holder.type_icon.setTag(item.getFilename());
-                new ApkIcon(context, holder.type_icon).execute(item.getLocation());
+                holder.iconTask = apkIconLoader.load(holder.type_icon, item);
             } else {
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
                     //    holder.type_icon.setColorFilter(context.getResources().getColor(R.color.colorAccent, context.getTheme()));
@@ -119,7 +129,7 @@ public class FileListAdapter extends BaseAdapter {
             if (i == 0 && item.getFilename().startsWith(context.getString(R.string.label_parent_dir))) {
                 holder.fmark.setVisibility(View.INVISIBLE);
             }
-            if (MarkedItemList.hasItem(item.getLocation())) {
+            if (selection.isSelected(i)) {
                 holder.fmark.setChecked(true);
             } else {
                 holder.fmark.setChecked(false);
@@ -127,16 +137,7 @@ public class FileListAdapter extends BaseAdapter {
         }
 
         holder.fmark.setOnCheckedChangedListener((checkbox, isChecked) -> {
-            item.setMarked(isChecked);
-            if (item.isMarked()) {
-                if (properties.selection_mode == DialogConfigs.MULTI_MODE) {
-                    MarkedItemList.addSelectedItem(item);
-                } else {
-                    MarkedItemList.addSingleFile(item);
-                }
-            } else {
-                MarkedItemList.removeSelectedItem(item.getLocation());
-            }
+            selection.setSelected(i, isChecked);
             notifyItemChecked.notifyCheckBoxIsClicked();
         });
         return view;
@@ -150,6 +151,7 @@ public class FileListAdapter extends BaseAdapter {
         ImageView type_icon;
         TextView name, type;
         MaterialCheckbox fmark;
+        Future<?> iconTask;
 
         ViewHolder(View itemView) {
             name = itemView.findViewById(R.id.fname);
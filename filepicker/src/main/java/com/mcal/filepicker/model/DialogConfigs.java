@@ -10,6 +10,15 @@ public abstract class DialogConfigs {
     public static final int DIR_SELECT = 1;
     public static final int FILE_AND_DIR_SELECT = 2;
 
+    public static final int SORT_BY_NAME = 0;
+    public static final int SORT_BY_TIME = 1;
+    public static final int SORT_BY_SIZE = 2;
+    public static final int SORT_BY_TYPE = 3;
+
+    /*  Maximum number of matches collected by a recursive search.
+     */
+    public static final int DEFAULT_SEARCH_LIMIT = 1000;
+
     /*  PARENT_DIRECTORY*/
     private static final String DIRECTORY_SEPERATOR = "/";
     private static final String STORAGE_DIR = "mnt";
@@ -13,6 +13,8 @@ public class DialogProperties {
     public File offset;
     public String[] extensions;
     public boolean show_hidden_files;
+    public int search_limit;
+    public int sort_by;
 
     public DialogProperties() {
         selection_mode = DialogConfigs.SINGLE_MODE;
@@ -22,5 +24,7 @@ public class DialogProperties {
         offset = new File(DialogConfigs.DEFAULT_DIR);
         extensions = null;
         show_hidden_files = false;
+        search_limit = DialogConfigs.DEFAULT_SEARCH_LIMIT;
+        sort_by = DialogConfigs.SORT_BY_NAME;
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.mcal.filepicker.model;
 
+import java.text.CollationKey;
+import java.text.Collator;
 import java.util.Locale;
 
 /**
@@ -7,8 +9,20 @@ import java.util.Locale;
  */
 public class FileListItem implements Comparable<FileListItem> {
     private String filename, location;
-    private boolean directory, marked;
-    private long time;
+    private boolean directory;
+    private long time, size;
+    private CollationKey nameKey;
+    private String typeKey;
+
+    private static final int NUMBER_WIDTH = 20;
+    private static final ThreadLocal<Collator> collator = new ThreadLocal<Collator>() {
+        @Override
+        protected Collator initialValue() {
+            Collator collator = Collator.getInstance();
+            collator.setStrength(Collator.SECONDARY);
+            return collator;
+        }
+    };
 
     public String getFilename() {
         return filename;
@@ -16,6 +30,61 @@ public class FileListItem implements Comparable<FileListItem> {
 
     public void setFilename(String filename) {
         this.filename = filename;
+        this.nameKey = null;
+        this.typeKey = null;
+    }
+
+    /**
+     * Returns the key that orders names case-insensitively by the current locale,
+     * with runs of digits compared by value, so that "file2" sorts before "file10".
+     * It is computed on first use and then reused by every comparison.
+     */
+    public CollationKey getNameKey() {
+        if (nameKey == null) {
+            nameKey = collator.get().getCollationKey(padNumbers(filename));
+        }
+        return nameKey;
+    }
+
+    /**
+     * Returns the lower-case extension, or an empty string for directories and
+     * names without one.
+     */
+    public String getTypeKey() {
+        if (typeKey == null) {
+            int dot = filename.lastIndexOf('.');
+            typeKey = directory || dot <= 0 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        }
+        return typeKey;
+    }
+
+    private static String padNumbers(String name) {
+        StringBuilder sb = null;
+        int len = name.length();
+        for (int i = 0; i < len; i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                if (sb != null) {
+                    sb.append(name.charAt(i));
+                }
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(len + NUMBER_WIDTH).append(name, 0, i);
+            }
+            int end = i;
+            while (end < len && Character.isDigit(name.charAt(end))) {
+                end++;
+            }
+            while (i < end - 1 && name.charAt(i) == '0') {
+                i++;
+            }
+            for (int pad = end - i; pad < NUMBER_WIDTH; pad++) {
+                sb.append('0');
+            }
+            sb.append(name, i, end);
+            i = end - 1;
+        }
+        return sb != null ? sb.toString() : name;
     }
 
     public String getLocation() {
@@ -32,6 +101,7 @@ public class FileListItem implements Comparable<FileListItem> {
 
     public void setDirectory(boolean directory) {
         this.directory = directory;
+        this.typeKey = null;
     }
 
     public boolean isApk() {
@@ -46,20 +116,18 @@ public class FileListItem implements Comparable<FileListItem> {
         this.time = time;
     }
 
-    public boolean isMarked() {
-        return marked;
+    public long getSize() {
+        return size;
     }
 
-    public void setMarked(boolean marked) {
-        this.marked = marked;
+    public void setSize(long size) {
+        this.size = size;
     }
 
     @Override
     public int compareTo(FileListItem fileListItem) {
-        if (fileListItem.isDirectory() && isDirectory()) {
-            return filename.toLowerCase().compareTo(fileListItem.getFilename().toLowerCase(Locale.getDefault()));
-        } else if (!fileListItem.isDirectory() && !isDirectory()) {
-            return filename.toLowerCase().compareTo(fileListItem.getFilename().toLowerCase(Locale.getDefault()));
+        if (fileListItem.isDirectory() == isDirectory()) {
+            return getNameKey().compareTo(fileListItem.getNameKey());
         } else if (fileListItem.isDirectory() && !isDirectory()) {
             return 1;
         } else {
@@ -0,0 +1,176 @@
+package com.mcal.filepicker.model;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Selection state of one picker dialog.
+ * <p>
+ * Entries of the listing on screen are tracked as bits over their positions, so
+ * selecting, inverting or clearing thousands of rows touches no objects. Entries
+ * selected in other directories, or marked by path before they were listed, are
+ * kept as plain paths. {@link #detach()} and {@link #attach(List, int)} move
+ * entries between the two when the listing is replaced or reordered.
+ */
+public class SelectionModel {
+    private final DialogProperties properties;
+    private final BitSet bits = new BitSet();
+    private final HashSet<String> paths = new HashSet<>();
+    private List<FileListItem> items;
+    private int start;
+    private int anchor = -1;
+
+    public SelectionModel(DialogProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Binds the selection to a listing whose selectable entries begin at start.
+     * Paths selected earlier that occur in the listing are turned into bits.
+     */
+    public void attach(List<FileListItem> items, int start) {
+        detach();
+        this.items = items;
+        this.start = start;
+        if (paths.isEmpty()) {
+            return;
+        }
+        for (int i = start; i < items.size(); i++) {
+            if (paths.remove(items.get(i).getLocation())) {
+                bits.set(i);
+            }
+        }
+    }
+
+    /**
+     * Folds the selected positions back into paths. Call this before the bound
+     * listing is modified, and {@link #attach(List, int)} again afterwards.
+     */
+    public void detach() {
+        if (items != null) {
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                paths.add(items.get(i).getLocation());
+            }
+        }
+        bits.clear();
+        items = null;
+        anchor = -1;
+    }
+
+    public boolean canSelect(FileListItem item) {
+        switch (properties.selection_type) {
+            case DialogConfigs.FILE_SELECT:
+                return !item.isDirectory();
+            case DialogConfigs.DIR_SELECT:
+                return item.isDirectory();
+            default:
+                return true;
+        }
+    }
+
+    private boolean canSelect(int position) {
+        return items != null && position >= start && position < items.size() && canSelect(items.get(position));
+    }
+
+    public boolean isSelected(int position) {
+        return bits.get(position);
+    }
+
+    /**
+     * Selects or deselects one row; in single mode selecting it drops every other entry.
+     */
+    public void setSelected(int position, boolean selected) {
+        if (!canSelect(position)) {
+            return;
+        }
+        if (selected && properties.selection_mode == DialogConfigs.SINGLE_MODE) {
+            clear();
+        }
+        bits.set(position, selected);
+        anchor = position;
+    }
+
+    /**
+     * Selects every row between the last toggled row and position, inclusive.
+     */
+    public void selectRange(int position) {
+        if (properties.selection_mode != DialogConfigs.MULTI_MODE || anchor < 0) {
+            setSelected(position, true);
+            return;
+        }
+        int from = Math.min(anchor, position);
+        int to = Math.max(anchor, position);
+        for (int i = from; i <= to; i++) {
+            if (canSelect(i)) {
+                bits.set(i);
+            }
+        }
+        anchor = position;
+    }
+
+    public void selectAll() {
+        if (properties.selection_mode != DialogConfigs.MULTI_MODE || items == null) {
+            return;
+        }
+        if (properties.selection_type == DialogConfigs.FILE_AND_DIR_SELECT) {
+            bits.set(start, items.size());
+            return;
+        }
+        for (int i = start; i < items.size(); i++) {
+            if (canSelect(items.get(i))) {
+                bits.set(i);
+            }
+        }
+    }
+
+    /**
+     * Inverts the selection within the bound listing; entries elsewhere are kept.
+     */
+    public void invert() {
+        if (properties.selection_mode != DialogConfigs.MULTI_MODE || items == null) {
+            return;
+        }
+        if (properties.selection_type == DialogConfigs.FILE_AND_DIR_SELECT) {
+            bits.flip(start, items.size());
+            return;
+        }
+        for (int i = start; i < items.size(); i++) {
+            if (canSelect(items.get(i))) {
+                bits.flip(i);
+            }
+        }
+    }
+
+    /**
+     * Selects an entry that need not be listed yet.
+     */
+    public void addPath(String path) {
+        if (properties.selection_mode == DialogConfigs.SINGLE_MODE) {
+            clear();
+        }
+        paths.add(path);
+    }
+
+    public void clear() {
+        bits.clear();
+        paths.clear();
+        anchor = -1;
+    }
+
+    public int getCount() {
+        return bits.cardinality() + paths.size();
+    }
+
+    public String[] getSelectedPaths() {
+        String[] res = new String[getCount()];
+        int n = 0;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            res[n++] = items.get(i).getLocation();
+        }
+        for (String path : paths) {
+            res[n++] = path;
+        }
+        return res;
+    }
+}
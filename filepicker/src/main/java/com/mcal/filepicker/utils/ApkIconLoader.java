@@ -0,0 +1,172 @@
+package com.mcal.filepicker.utils;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import com.mcal.filepicker.model.FileListItem;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads APK icons for the file list through a memory LRU and an on-disk
+ * thumbnail cache keyed by path, size and mtime, so that every APK version
+ * is parsed at most once while its thumbnail is cached. The disk cache keeps
+ * the most recently used thumbnails only.
+ */
+public class ApkIconLoader {
+    private static final int MEMORY_BUDGET = 2 * 1024 * 1024;
+    private static final int ICON_SIZE_DP = 48;
+    /**
+     * Thumbnails kept on disk, and how many of them are left after a prune
+     */
+    private static final int MAX_DISK_ICONS = 512;
+    private static final int PRUNED_DISK_ICONS = 384;
+
+    private static final ExecutorService sExecutor = Executors.newFixedThreadPool(2);
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+    private static final LruCache<String, Bitmap> sMemoryCache = new LruCache<String, Bitmap>(MEMORY_BUDGET) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+
+    private final PackageManager pm;
+    private final File cacheDir;
+    private final int iconSize;
+
+    public ApkIconLoader(Context context) {
+        pm = context.getPackageManager();
+        cacheDir = new File(context.getCacheDir(), "apk_icons");
+        iconSize = Math.round(ICON_SIZE_DP * context.getResources().getDisplayMetrics().density);
+    }
+
+    private static String key(FileListItem item) {
+        return item.getLocation() + ':' + item.getSize() + ':' + item.getTime();
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(Charset.forName("UTF-8")));
+            StringBuilder name = new StringBuilder(2 * digest.length + 4);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return name.append(".png").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Shows the icon of the APK in view. Returns the pending load, which the caller
+     * cancels when the view is recycled, or null when the icon was in memory.
+     */
+    public Future<?> load(final ImageView view, FileListItem item) {
+        final String key = key(item);
+        view.setTag(key);
+        Bitmap icon = sMemoryCache.get(key);
+        if (icon != null) {
+            view.setImageBitmap(icon);
+            return null;
+        }
+        final String path = item.getLocation();
+        return sExecutor.submit(() -> {
+            Bitmap bitmap = loadIcon(key, path);
+            if (bitmap == null) {
+                return;
+            }
+            sMemoryCache.put(key, bitmap);
+            sHandler.post(() -> {
+                if (key.equals(view.getTag())) {
+                    view.setImageBitmap(bitmap);
+                }
+            });
+        });
+    }
+
+    private Bitmap loadIcon(String key, String path) {
+        File thumbnail = new File(cacheDir, fileName(key));
+        if (thumbnail.exists()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(thumbnail.getPath());
+            if (bitmap != null) {
+                // the modification time orders thumbnails by last use
+                thumbnail.setLastModified(System.currentTimeMillis());
+                return bitmap;
+            }
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            return null;
+        }
+        Drawable drawable;
+        try {
+            PackageInfo packageInfo = pm.getPackageArchiveInfo(path, 0);
+            if (packageInfo == null) {
+                return null;
+            }
+            packageInfo.applicationInfo.sourceDir = path;
+            packageInfo.applicationInfo.publicSourceDir = path;
+            drawable = packageInfo.applicationInfo.loadIcon(pm);
+        } catch (Exception e) {
+            return null;
+        }
+        if (drawable == null) {
+            return null;
+        }
+        Bitmap bitmap = Bitmap.createBitmap(iconSize, iconSize, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, iconSize, iconSize);
+        drawable.draw(new Canvas(bitmap));
+        cacheDir.mkdirs();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(thumbnail))) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        prune();
+        return bitmap;
+    }
+
+    /**
+     * Deletes the least recently used thumbnails once there are too many
+     */
+    private void prune() {
+        synchronized (ApkIconLoader.class) {
+            File[] files = cacheDir.listFiles();
+            if (files == null || files.length <= MAX_DISK_ICONS) {
+                return;
+            }
+            long[] used = new long[files.length];
+            for (int i = 0; i < files.length; i++) {
+                used[i] = files[i].lastModified();
+            }
+            long[] sorted = used.clone();
+            Arrays.sort(sorted);
+            long cutoff = sorted[files.length - PRUNED_DISK_ICONS - 1];
+            for (int i = 0; i < files.length; i++) {
+                if (used[i] <= cutoff) {
+                    files[i].delete();
+                }
+            }
+        }
+    }
+}
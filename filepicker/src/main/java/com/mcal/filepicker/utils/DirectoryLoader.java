@@ -0,0 +1,294 @@
+package com.mcal.filepicker.utils;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructStat;
+import android.util.LruCache;
+
+import com.mcal.filepicker.model.FileListItem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lists a directory on a background thread and streams the entries to the UI in
+ * sorted pages. Each entry costs a single stat call.
+ * <p>
+ * Complete listings are kept in a process-wide cache keyed by path and filter.
+ * A cached listing is shown immediately and then validated in the background
+ * against the directory's mtime; it is only listed again when that changed.
+ * Before API 27 the mtime is only known to the second, and a change made in
+ * the same second as a listing does not change it; a listing made within a
+ * second of the mtime is therefore never trusted.
+ */
+public class DirectoryLoader {
+    private static final int PAGE_SIZE = 256;
+    private static final int CACHE_ENTRIES = 50000;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+    private static final LruCache<String, Listing> sCache = new LruCache<String, Listing>(CACHE_ENTRIES) {
+        @Override
+        protected int sizeOf(String key, Listing value) {
+            return Math.max(1, value.items.size());
+        }
+    };
+
+    private final File dir;
+    private final ExtensionFilter filter;
+    private final boolean showHiddenFiles;
+    private final int sortBy;
+    private final Comparator<FileListItem> order;
+    private final Callback callback;
+    private final String key;
+    private final Listing cached;
+    private final boolean cachedDelivered;
+    private volatile boolean cancelled;
+
+    private DirectoryLoader(File dir, ExtensionFilter filter, boolean showHiddenFiles, int sortBy, Callback callback) {
+        this.dir = dir;
+        this.filter = filter;
+        this.showHiddenFiles = showHiddenFiles;
+        this.sortBy = sortBy;
+        this.order = FileSorter.comparator(sortBy);
+        this.callback = callback;
+        this.key = dir.getAbsolutePath() + '\0' + filter.getKey() + '\0' + showHiddenFiles;
+        this.cached = sCache.get(key);
+        this.cachedDelivered = cached != null && cached.sortBy == sortBy;
+    }
+
+    /**
+     * Starts listing dir in the given DialogConfigs.SORT_BY_* order. A cached
+     * listing in the same order is delivered to the callback before this returns,
+     * without touching the filesystem; one in another order is re-sorted in the
+     * background instead of being listed again.
+     */
+    public static DirectoryLoader load(File dir, ExtensionFilter filter, boolean showHiddenFiles, int sortBy,
+                                       Callback callback) {
+        DirectoryLoader loader = new DirectoryLoader(dir, filter, showHiddenFiles, sortBy, callback);
+        if (loader.cachedDelivered) {
+            callback.onPage(loader.cached.items);
+        }
+        sExecutor.execute(loader::run);
+        return loader;
+    }
+
+    /**
+     * Returns the mtime of the directory in nanoseconds, or -1 when it cannot
+     * be read.
+     */
+    private static long lastModified(File dir) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            try {
+                StructStat st = Os.stat(dir.getAbsolutePath());
+                if (hasExactTimes()) {
+                    return st.st_mtim.tv_sec * NANOS_PER_SECOND + st.st_mtim.tv_nsec;
+                }
+                return st.st_mtime * NANOS_PER_SECOND;
+            } catch (ErrnoException e) {
+                return -1;
+            }
+        }
+        long time = dir.lastModified();
+        return time == 0 ? -1 : time * 1000000L;
+    }
+
+    /**
+     * Whether stat reports mtimes to the nanosecond rather than the second
+     */
+    private static boolean hasExactTimes() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1;
+    }
+
+    /**
+     * Returns the mtime of st in milliseconds
+     */
+    private static long lastModified(StructStat st) {
+        if (hasExactTimes()) {
+            return st.st_mtim.tv_sec * 1000L + st.st_mtim.tv_nsec / 1000000L;
+        }
+        return st.st_mtime * 1000L;
+    }
+
+    /**
+     * Reads type, mtime and size of the entry in one call, or returns null when
+     * the entry is gone or not accessible.
+     */
+    static FileListItem stat(File file) {
+        return stat(file, true);
+    }
+
+    /**
+     * Like {@link #stat(File)}; without followLinks a symbolic link is described
+     * as itself, so that a link to a directory is not reported as a directory.
+     */
+    static FileListItem stat(File file, boolean followLinks) {
+        FileListItem item = new FileListItem();
+        item.setFilename(file.getName());
+        item.setLocation(file.getAbsolutePath());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            try {
+                StructStat st = followLinks ? Os.stat(item.getLocation()) : Os.lstat(item.getLocation());
+                item.setDirectory(OsConstants.S_ISDIR(st.st_mode));
+                item.setTime(lastModified(st));
+                item.setSize(st.st_size);
+            } catch (ErrnoException e) {
+                return null;
+            }
+        } else {
+            if (!file.canRead()) {
+                return null;
+            }
+            item.setDirectory(file.isDirectory() && (followLinks || !isSymlink(file)));
+            item.setTime(file.lastModified());
+            item.setSize(file.length());
+        }
+        return item;
+    }
+
+    private static boolean isSymlink(File file) {
+        try {
+            File parent = file.getParentFile();
+            File canonical = parent == null ? file : new File(parent.getCanonicalFile(), file.getName());
+            return !canonical.getCanonicalFile().equals(canonical.getAbsoluteFile());
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void run() {
+        if (cancelled) {
+            return;
+        }
+        long modified = lastModified(dir);
+        if (cached != null) {
+            if (modified != -1 && modified == cached.modified && cached.isComplete()) {
+                if (cachedDelivered) {
+                    post(Collections.emptyList(), true);
+                } else {
+                    ArrayList<FileListItem> sorted = new ArrayList<>(cached.items);
+                    Collections.sort(sorted, order);
+                    sCache.put(key, new Listing(modified, cached.listed, sortBy,
+                            Collections.unmodifiableList(sorted)));
+                    post(sorted, true);
+                }
+                return;
+            }
+        }
+        if (cachedDelivered) {
+            sHandler.post(() -> {
+                if (!cancelled) {
+                    callback.onInvalidate();
+                }
+            });
+        }
+        long listed = System.currentTimeMillis();
+        String[] names = dir.list();
+        if (names == null) {
+            sCache.remove(key);
+            post(new ArrayList<>(), true);
+            return;
+        }
+        ArrayList<FileListItem> all = new ArrayList<>(names.length);
+        ArrayList<FileListItem> page = new ArrayList<>(Math.min(PAGE_SIZE, names.length));
+        for (String name : names) {
+            if (cancelled) {
+                return;
+            }
+            if (name.startsWith(".") && !showHiddenFiles) {
+                continue;
+            }
+            FileListItem item = stat(new File(dir, name));
+            if (item == null || !filter.accept(name, item.isDirectory())) {
+                continue;
+            }
+            page.add(item);
+            all.add(item);
+            if (page.size() == PAGE_SIZE) {
+                Collections.sort(page, order);
+                post(page, false);
+                page = new ArrayList<>(PAGE_SIZE);
+            }
+        }
+        Collections.sort(page, order);
+        post(page, true);
+        if (modified != -1) {
+            Collections.sort(all, order);
+            sCache.put(key, new Listing(modified, listed, sortBy, Collections.unmodifiableList(all)));
+        }
+    }
+
+    private void post(List<FileListItem> page, boolean done) {
+        sHandler.post(() -> {
+            if (cancelled) {
+                return;
+            }
+            if (!page.isEmpty()) {
+                callback.onPage(page);
+            }
+            if (done) {
+                callback.onDone();
+            }
+        });
+    }
+
+    public interface Callback {
+        /**
+         * Called on the main thread with a sorted batch of entries.
+         */
+        void onPage(List<FileListItem> page);
+
+        /**
+         * Called on the main thread when the cached listing delivered by
+         * {@link #load} turned out to be stale; fresh pages follow.
+         */
+        void onInvalidate();
+
+        void onDone();
+    }
+
+    private static class Listing {
+        /**
+         * Directory mtime in nanoseconds, and when the listing began, in
+         * milliseconds of the same clock
+         */
+        final long modified;
+        final long listed;
+        final int sortBy;
+        final List<FileListItem> items;
+
+        Listing(long modified, long listed, int sortBy, List<FileListItem> items) {
+            this.modified = modified;
+            this.listed = listed;
+            this.sortBy = sortBy;
+            this.items = items;
+        }
+
+        /**
+         * Returns whether every change to the directory made up to modified
+         * is in the listing, as it is when the listing began a second or more
+         * after the second that modified was truncated to
+         */
+        boolean isComplete() {
+            return hasExactTimes() || listed * 1000000L >= modified + NANOS_PER_SECOND;
+        }
+    }
+}
@@ -23,6 +23,37 @@ public class ExtensionFilter implements FileFilter {
         this.properties = properties;
     }
 
+    /**
+     * Identifies the set of entries this filter accepts, for caching listings.
+     */
+    public String getKey() {
+        StringBuilder key = new StringBuilder().append(properties.selection_type);
+        for (String ext : validExtensions) {
+            key.append('|').append(ext);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Same as {@link #accept(File)} for an entry whose type is already known,
+     * so that listing does not have to stat the file again. Readability of
+     * directories is checked when they are opened.
+     */
+    public boolean accept(String name, boolean directory) {
+        if (directory) {
+            return true;
+        } else if (properties.selection_type == DialogConfigs.DIR_SELECT) {
+            return false;
+        }
+        name = name.toLowerCase(Locale.getDefault());
+        for (String ext : validExtensions) {
+            if (name.endsWith(ext)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean accept(File file) {
         if (file.isDirectory() && file.canRead()) {
@@ -0,0 +1,241 @@
+package com.mcal.filepicker.utils;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mcal.filepicker.model.FileListItem;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Recursive search by name pattern below a directory. Subdirectories are walked
+ * in parallel on a fork/join pool and matches are streamed to the UI in batches.
+ * Symbolic links are not followed.
+ */
+public class FileSearch {
+    private static final long PUBLISH_INTERVAL_MS = 100;
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+    private static ForkJoinPool sPool;
+    private static ExecutorService sFallbackExecutor;
+
+    private final Pattern pattern;
+    private final String needle;
+    private final ExtensionFilter filter;
+    private final boolean showHiddenFiles;
+    private final int limit;
+    private final Callback callback;
+    private final ConcurrentLinkedQueue<FileListItem> found = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile boolean finished;
+
+    private final Runnable publisher = new Runnable() {
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            // read before publishing, so that no match found after the last
+            // publish is left behind
+            boolean done = finished;
+            publish();
+            if (done) {
+                callback.onDone(count.get() > limit);
+            } else {
+                sHandler.postDelayed(this, PUBLISH_INTERVAL_MS);
+            }
+        }
+    };
+
+    private FileSearch(String query, ExtensionFilter filter, boolean showHiddenFiles, int limit, Callback callback) {
+        query = query.trim().toLowerCase(Locale.getDefault());
+        if (query.indexOf('*') >= 0 || query.indexOf('?') >= 0) {
+            this.pattern = compileGlob(query);
+            this.needle = null;
+        } else {
+            this.pattern = null;
+            this.needle = query;
+        }
+        this.filter = filter;
+        this.showHiddenFiles = showHiddenFiles;
+        this.limit = limit;
+        this.callback = callback;
+    }
+
+    /**
+     * Searches below root for entries whose name matches query, a glob with * and ?
+     * or otherwise a case-insensitive substring.
+     */
+    public static FileSearch start(File root, String query, ExtensionFilter filter, boolean showHiddenFiles,
+                                   int limit, Callback callback) {
+        final FileSearch search = new FileSearch(query, filter, showHiddenFiles, limit, callback);
+        final SearchTask task = search.new SearchTask(root, true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            getPool().execute(task);
+        } else {
+            getFallbackExecutor().execute(task::walkSequentially);
+        }
+        sHandler.postDelayed(search.publisher, PUBLISH_INTERVAL_MS);
+        return search;
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if (sPool == null) {
+            sPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return sPool;
+    }
+
+    private static synchronized ExecutorService getFallbackExecutor() {
+        if (sFallbackExecutor == null) {
+            sFallbackExecutor = Executors.newSingleThreadExecutor();
+        }
+        return sFallbackExecutor;
+    }
+
+    private static Pattern compileGlob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    regex.append(Pattern.quote(glob.substring(start, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(start)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    public void cancel() {
+        cancelled = true;
+        sHandler.removeCallbacks(publisher);
+    }
+
+    private boolean matches(String name) {
+        if (pattern != null) {
+            return pattern.matcher(name).matches();
+        }
+        return name.toLowerCase(Locale.getDefault()).contains(needle);
+    }
+
+    /**
+     * The search goes on until one match past the limit, which tells that the
+     * limit cut the results short
+     */
+    private boolean isStopped() {
+        return cancelled || count.get() > limit;
+    }
+
+    private void publish() {
+        if (found.isEmpty()) {
+            return;
+        }
+        ArrayList<FileListItem> batch = new ArrayList<>();
+        FileListItem item;
+        while ((item = found.poll()) != null) {
+            batch.add(item);
+        }
+        callback.onResults(batch);
+    }
+
+    /**
+     * Scans one directory: collects its matches and returns its subdirectories.
+     */
+    private List<File> scan(File dir) {
+        ArrayList<File> subdirs = new ArrayList<>();
+        String[] names = dir.list();
+        if (names == null) {
+            return subdirs;
+        }
+        for (String name : names) {
+            if (isStopped()) {
+                break;
+            }
+            if (name.startsWith(".") && !showHiddenFiles) {
+                continue;
+            }
+            File file = new File(dir, name);
+            FileListItem item = DirectoryLoader.stat(file, false);
+            if (item == null) {
+                continue;
+            }
+            if (item.isDirectory()) {
+                subdirs.add(file);
+            }
+            if (matches(name) && filter.accept(name, item.isDirectory())) {
+                if (count.incrementAndGet() <= limit) {
+                    found.add(item);
+                }
+            }
+        }
+        return subdirs;
+    }
+
+    public interface Callback {
+        /**
+         * Called on the main thread with the matches found since the previous call.
+         */
+        void onResults(List<FileListItem> results);
+
+        void onDone(boolean limitReached);
+    }
+
+    private class SearchTask extends RecursiveAction {
+        private final File dir;
+        private final boolean root;
+
+        SearchTask(File dir, boolean root) {
+            this.dir = dir;
+            this.root = root;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (!isStopped()) {
+                    List<File> subdirs = scan(dir);
+                    if (!subdirs.isEmpty() && !isStopped()) {
+                        ArrayList<SearchTask> tasks = new ArrayList<>(subdirs.size());
+                        for (File subdir : subdirs) {
+                            tasks.add(new SearchTask(subdir, false));
+                        }
+                        invokeAll(tasks);
+                    }
+                }
+            } finally {
+                if (root) {
+                    finished = true;
+                }
+            }
+        }
+
+        void walkSequentially() {
+            try {
+                ArrayList<File> pending = new ArrayList<>();
+                pending.add(dir);
+                while (!pending.isEmpty() && !isStopped()) {
+                    pending.addAll(scan(pending.remove(pending.size() - 1)));
+                }
+            } finally {
+                finished = true;
+            }
+        }
+    }
+}
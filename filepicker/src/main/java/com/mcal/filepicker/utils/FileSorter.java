@@ -0,0 +1,79 @@
+package com.mcal.filepicker.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mcal.filepicker.model.DialogConfigs;
+import com.mcal.filepicker.model.FileListItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Orders listings by one of the DialogConfigs.SORT_BY_* keys. Directories always
+ * come first; ties are broken by name. Comparisons use the keys cached in
+ * {@link FileListItem}, so sorting does not compare strings from scratch.
+ */
+public class FileSorter {
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+    private static final Comparator<FileListItem> BY_NAME = FileListItem::compareTo;
+
+    private static final Comparator<FileListItem> BY_TIME = (a, b) -> {
+        if (a.isDirectory() != b.isDirectory()) {
+            return a.isDirectory() ? -1 : 1;
+        }
+        int res = Long.compare(b.getTime(), a.getTime());
+        return res != 0 ? res : a.getNameKey().compareTo(b.getNameKey());
+    };
+
+    private static final Comparator<FileListItem> BY_SIZE = (a, b) -> {
+        if (a.isDirectory() != b.isDirectory()) {
+            return a.isDirectory() ? -1 : 1;
+        }
+        int res = a.isDirectory() ? 0 : Long.compare(b.getSize(), a.getSize());
+        return res != 0 ? res : a.getNameKey().compareTo(b.getNameKey());
+    };
+
+    private static final Comparator<FileListItem> BY_TYPE = (a, b) -> {
+        if (a.isDirectory() != b.isDirectory()) {
+            return a.isDirectory() ? -1 : 1;
+        }
+        int res = a.getTypeKey().compareTo(b.getTypeKey());
+        return res != 0 ? res : a.getNameKey().compareTo(b.getNameKey());
+    };
+
+    public static Comparator<FileListItem> comparator(int sortBy) {
+        switch (sortBy) {
+            case DialogConfigs.SORT_BY_TIME:
+                return BY_TIME;
+            case DialogConfigs.SORT_BY_SIZE:
+                return BY_SIZE;
+            case DialogConfigs.SORT_BY_TYPE:
+                return BY_TYPE;
+            default:
+                return BY_NAME;
+        }
+    }
+
+    /**
+     * Sorts a copy of items on a background thread and hands it to the callback
+     * on the main thread.
+     */
+    public static void sort(List<FileListItem> items, int sortBy, Callback callback) {
+        final ArrayList<FileListItem> copy = new ArrayList<>(items);
+        sExecutor.execute(() -> {
+            Collections.sort(copy, comparator(sortBy));
+            sHandler.post(() -> callback.onSorted(copy));
+        });
+    }
+
+    public interface Callback {
+        void onSorted(List<FileListItem> sorted);
+    }
+}
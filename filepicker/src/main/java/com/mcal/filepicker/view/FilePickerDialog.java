@@ -7,12 +7,18 @@ import android.content.Context;
 import android.graphics.Color;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.Window;
 import android.widget.AdapterView;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ListView;
+import android.widget.PopupMenu;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -22,13 +28,18 @@ import com.mcal.filepicker.controller.adapters.FileListAdapter;
 import com.mcal.filepicker.model.DialogConfigs;
 import com.mcal.filepicker.model.DialogProperties;
 import com.mcal.filepicker.model.FileListItem;
-import com.mcal.filepicker.model.MarkedItemList;
+import com.mcal.filepicker.model.SelectionModel;
+import com.mcal.filepicker.utils.DirectoryLoader;
 import com.mcal.filepicker.utils.ExtensionFilter;
+import com.mcal.filepicker.utils.FileSearch;
+import com.mcal.filepicker.utils.FileSorter;
 import com.mcal.filepicker.utils.Utility;
 import com.mcal.filepicker.widget.MaterialCheckbox;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -37,14 +48,26 @@ import java.util.List;
 public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickListener {
 
     private static final int EXTERNAL_READ_PERMISSION_GRANT = 112;
+    private static final long SEARCH_DELAY_MS = 300;
     private final Context context;
     private ListView listView;
     private TextView dname, dir_path, title;
     private DialogProperties properties;
+    private SelectionModel selection;
     private DialogSelectionListener callbacks;
-    private ArrayList<FileListItem> internalList;
+    private final ArrayList<FileListItem> internalList;
     private ExtensionFilter filter;
     private FileListAdapter mFileListAdapter;
+    private DirectoryLoader directoryLoader;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::startSearch;
+    private EditText search;
+    private FileSearch fileSearch;
+    private File currentDir;
+    private boolean currentWithParent;
+    private boolean searching;
+    private int listStart;
+    private int listGeneration;
     private Button select;
     private String titleStr = null;
     private String positiveBtnNameStr = null;
@@ -55,6 +78,7 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
         this.context = context;
         properties = new DialogProperties();
         filter = new ExtensionFilter(properties);
+        selection = new SelectionModel(properties);
         internalList = new ArrayList<>();
     }
 
@@ -63,6 +87,7 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
         this.context = context;
         this.properties = properties;
         filter = new ExtensionFilter(properties);
+        selection = new SelectionModel(properties);
         internalList = new ArrayList<>();
     }
 
@@ -71,6 +96,7 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
         this.context = context;
         this.properties = properties;
         filter = new ExtensionFilter(properties);
+        selection = new SelectionModel(properties);
         internalList = new ArrayList<>();
     }
 
@@ -86,7 +112,7 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
 
         listView = findViewById(R.id.fileList);
         select = findViewById(R.id.select);
-        int size = MarkedItemList.getFileCount();
+        int size = selection.getCount();
         if (size == 0) {
             select.setEnabled(false);
             int color;
@@ -100,58 +126,78 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
         dname = findViewById(R.id.dname);
         title = findViewById(R.id.title);
         dir_path = findViewById(R.id.dir_path);
+        search = findViewById(R.id.search);
+        search.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                handler.removeCallbacks(searchRunnable);
+                handler.postDelayed(searchRunnable, SEARCH_DELAY_MS);
+            }
+        });
         Button cancel = findViewById(R.id.cancel);
         if (negativeBtnNameStr != null) {
             cancel.setText(negativeBtnNameStr);
         }
         select.setOnClickListener(view -> {
-            String[] paths = MarkedItemList.getSelectedPaths();
+            String[] paths = selection.getSelectedPaths();
             if (callbacks != null) {
                 callbacks.onSelectedFilePaths(paths);
             }
             dismiss();
         });
         cancel.setOnClickListener(view -> cancel());
-        mFileListAdapter = new FileListAdapter(internalList, context, properties);
-        mFileListAdapter.setNotifyItemCheckedListener(() -> {
-            positiveBtnNameStr = positiveBtnNameStr == null ?
-                    context.getResources().getString(R.string.choose_button_label) : positiveBtnNameStr;
-            int size1 = MarkedItemList.getFileCount();
-            if (size1 == 0) {
-                select.setEnabled(false);
-                int color;
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                    color = context.getResources().getColor(R.color.colorAccent, context.getTheme());
-                } else {
-                    color = context.getResources().getColor(R.color.colorAccent);
-                }
-                select.setTextColor(Color.argb(128, Color.red(color), Color.green(color), Color.blue(color)));
-                select.setText(positiveBtnNameStr);
-            } else {
-                select.setEnabled(true);
-                int color;
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                    color = context.getResources().getColor(R.color.colorAccent, context.getTheme());
-                } else {
-                    color = context.getResources().getColor(R.color.colorAccent);
-                }
-                select.setTextColor(color);
-                String button_label = positiveBtnNameStr + " (" + size1 + ") ";
-                select.setText(button_label);
-            }
-            if (properties.selection_mode == DialogConfigs.SINGLE_MODE) {
-                /*  If a single file has to be selected, clear the previously checked
-                 *  checkbox from the list.
-                 */
-                mFileListAdapter.notifyDataSetChanged();
-            }
-        });
+        Button sort = findViewById(R.id.sort);
+        sort.setOnClickListener(this::showSortMenu);
+        mFileListAdapter = new FileListAdapter(internalList, context, properties, selection);
+        mFileListAdapter.setNotifyItemCheckedListener(this::onSelectionChanged);
         listView.setAdapter(mFileListAdapter);
 
         //Title method added in version 1.0.5
         setTitle();
     }
 
+    private void onSelectionChanged() {
+        positiveBtnNameStr = positiveBtnNameStr == null ?
+                context.getResources().getString(R.string.choose_button_label) : positiveBtnNameStr;
+        int size1 = selection.getCount();
+        if (size1 == 0) {
+            select.setEnabled(false);
+            int color;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                color = context.getResources().getColor(R.color.colorAccent, context.getTheme());
+            } else {
+                color = context.getResources().getColor(R.color.colorAccent);
+            }
+            select.setTextColor(Color.argb(128, Color.red(color), Color.green(color), Color.blue(color)));
+            select.setText(positiveBtnNameStr);
+        } else {
+            select.setEnabled(true);
+            int color;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                color = context.getResources().getColor(R.color.colorAccent, context.getTheme());
+            } else {
+                color = context.getResources().getColor(R.color.colorAccent);
+            }
+            select.setTextColor(color);
+            String button_label = positiveBtnNameStr + " (" + size1 + ") ";
+            select.setText(button_label);
+        }
+        if (properties.selection_mode == DialogConfigs.SINGLE_MODE) {
+            /*  If a single file has to be selected, clear the previously checked
+             *  checkbox from the list.
+             */
+            mFileListAdapter.notifyDataSetChanged();
+        }
+    }
+
     private void setTitle() {
         if (title == null || dname == null) {
             return;
@@ -185,15 +231,10 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
         select.setText(positiveBtnNameStr);
         if (Utility.checkStorageAccessPermissions(context)) {
             File currLoc;
-            internalList.clear();
+            boolean withParent = false;
             if (properties.offset.isDirectory() && validateOffsetPath()) {
                 currLoc = new File(properties.offset.getAbsolutePath());
-                FileListItem parent = new FileListItem();
-                parent.setFilename(context.getString(R.string.label_parent_dir));
-                parent.setDirectory(true);
-                parent.setLocation(currLoc.getParentFile().getAbsolutePath());
-                parent.setTime(currLoc.lastModified());
-                internalList.add(parent);
+                withParent = true;
             } else if (properties.root.exists() && properties.root.isDirectory()) {
                 currLoc = new File(properties.root.getAbsolutePath());
             } else {
@@ -202,12 +243,227 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
             dname.setText(currLoc.getName());
             dir_path.setText(currLoc.getAbsolutePath());
             setTitle();
-            internalList = Utility.prepareFileListEntries(internalList, currLoc, filter, properties.show_hidden_files);
-            mFileListAdapter.notifyDataSetChanged();
+            loadDirectory(currLoc, withParent);
             listView.setOnItemClickListener(this);
+            listView.setOnItemLongClickListener((adapterView, view, i, l) -> {
+                if (properties.selection_mode != DialogConfigs.MULTI_MODE) {
+                    return false;
+                }
+                selection.selectRange(i);
+                onSelectionChanged();
+                mFileListAdapter.notifyDataSetChanged();
+                return true;
+            });
         }
     }
 
+    /**
+     * Replaces the listing with the contents of currLoc, which are read in the
+     * background and merged in as they arrive. A listing still in progress for
+     * the previous directory is cancelled.
+     */
+    private void loadDirectory(File currLoc, boolean withParent) {
+        if (directoryLoader != null) {
+            directoryLoader.cancel();
+        }
+        cancelSearch();
+        currentDir = currLoc;
+        currentWithParent = withParent;
+        selection.detach();
+        internalList.clear();
+        if (withParent) {
+            FileListItem parent = new FileListItem();
+            parent.setFilename(context.getString(R.string.label_parent_dir));
+            parent.setDirectory(true);
+            parent.setLocation(currLoc.getParentFile().getAbsolutePath());
+            internalList.add(parent);
+        }
+        final int start = internalList.size();
+        final int loadSortBy = properties.sort_by;
+        listStart = start;
+        listGeneration++;
+        selection.attach(internalList, start);
+        mFileListAdapter.notifyDataSetChanged();
+        directoryLoader = DirectoryLoader.load(currLoc, filter, properties.show_hidden_files, loadSortBy, new DirectoryLoader.Callback() {
+            @Override
+            public void onPage(List<FileListItem> page) {
+                if (properties.sort_by != loadSortBy) {
+                    page = new ArrayList<>(page);
+                    Collections.sort(page, FileSorter.comparator(properties.sort_by));
+                }
+                listGeneration++;
+                selection.detach();
+                mergeSorted(start, page);
+                selection.attach(internalList, start);
+                mFileListAdapter.notifyDataSetChanged();
+            }
+
+            @Override
+            public void onInvalidate() {
+                listGeneration++;
+                selection.detach();
+                internalList.subList(start, internalList.size()).clear();
+                selection.attach(internalList, start);
+                mFileListAdapter.notifyDataSetChanged();
+            }
+
+            @Override
+            public void onDone() {
+                directoryLoader = null;
+            }
+        });
+    }
+
+    /**
+     * Searches below the current directory for the text of the search field and
+     * shows the matches in place of the listing; an empty field restores it.
+     */
+    private void startSearch() {
+        if (currentDir == null) {
+            return;
+        }
+        String query = search.getText().toString().trim();
+        if (query.isEmpty()) {
+            if (searching) {
+                exitSearch();
+                loadDirectory(currentDir, currentWithParent);
+            }
+            return;
+        }
+        if (directoryLoader != null) {
+            directoryLoader.cancel();
+            directoryLoader = null;
+        }
+        cancelSearch();
+        searching = true;
+        dname.setText(R.string.label_search_results);
+        setTitle();
+        listStart = 0;
+        listGeneration++;
+        selection.detach();
+        internalList.clear();
+        mFileListAdapter.notifyDataSetChanged();
+        fileSearch = FileSearch.start(currentDir, query, filter, properties.show_hidden_files,
+                properties.search_limit, new FileSearch.Callback() {
+                    @Override
+                    public void onResults(List<FileListItem> results) {
+                        Collections.sort(results, FileSorter.comparator(properties.sort_by));
+                        listGeneration++;
+                        selection.detach();
+                        mergeSorted(0, results);
+                        selection.attach(internalList, 0);
+                        mFileListAdapter.notifyDataSetChanged();
+                    }
+
+                    @Override
+                    public void onDone(boolean limitReached) {
+                        fileSearch = null;
+                        if (limitReached) {
+                            Toast.makeText(context, context.getString(R.string.label_search_limit,
+                                    properties.search_limit), Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
+    }
+
+    private void cancelSearch() {
+        if (fileSearch != null) {
+            fileSearch.cancel();
+            fileSearch = null;
+        }
+    }
+
+    /**
+     * Leaves search mode without reloading; the caller shows a directory next.
+     */
+    private void exitSearch() {
+        cancelSearch();
+        handler.removeCallbacks(searchRunnable);
+        if (searching) {
+            searching = false;
+            dname.setText(currentDir.getName());
+            if (search.length() > 0) {
+                search.setText("");
+                handler.removeCallbacks(searchRunnable);
+            }
+        }
+    }
+
+    private void mergeSorted(int start, List<FileListItem> page) {
+        Comparator<FileListItem> order = FileSorter.comparator(properties.sort_by);
+        List<FileListItem> tail = internalList.subList(start, internalList.size());
+        if (tail.isEmpty()) {
+            tail.addAll(page);
+            return;
+        }
+        ArrayList<FileListItem> merged = new ArrayList<>(tail.size() + page.size());
+        int a = 0, b = 0;
+        while (a < tail.size() && b < page.size()) {
+            if (order.compare(tail.get(a), page.get(b)) <= 0) {
+                merged.add(tail.get(a++));
+            } else {
+                merged.add(page.get(b++));
+            }
+        }
+        merged.addAll(tail.subList(a, tail.size()));
+        merged.addAll(page.subList(b, page.size()));
+        tail.clear();
+        tail.addAll(merged);
+    }
+
+    private void showSortMenu(View anchor) {
+        PopupMenu menu = new PopupMenu(context, anchor);
+        menu.getMenu().add(0, DialogConfigs.SORT_BY_NAME, 0, R.string.sort_by_name);
+        menu.getMenu().add(0, DialogConfigs.SORT_BY_TIME, 0, R.string.sort_by_time);
+        menu.getMenu().add(0, DialogConfigs.SORT_BY_SIZE, 0, R.string.sort_by_size);
+        menu.getMenu().add(0, DialogConfigs.SORT_BY_TYPE, 0, R.string.sort_by_type);
+        menu.getMenu().setGroupCheckable(0, true, true);
+        menu.getMenu().findItem(properties.sort_by).setChecked(true);
+        menu.setOnMenuItemClickListener(item -> {
+            setSortOrder(item.getItemId());
+            return true;
+        });
+        menu.show();
+    }
+
+    /**
+     * Changes the order of the listing to one of the DialogConfigs.SORT_BY_* keys.
+     * The entries already shown are re-sorted in the background; the directory is
+     * not listed again.
+     */
+    public void setSortOrder(int sortBy) {
+        if (properties.sort_by == sortBy) {
+            return;
+        }
+        properties.sort_by = sortBy;
+        resort();
+    }
+
+    private void resort() {
+        if (mFileListAdapter == null || internalList.size() - listStart < 2) {
+            return;
+        }
+        final int generation = listGeneration;
+        final int sortBy = properties.sort_by;
+        FileSorter.sort(internalList.subList(listStart, internalList.size()), sortBy, sorted -> {
+            if (sortBy != properties.sort_by) {
+                return;
+            }
+            if (generation != listGeneration) {
+                // Entries arrived meanwhile; sort again with them included.
+                resort();
+                return;
+            }
+            List<FileListItem> tail = internalList.subList(listStart, internalList.size());
+            selection.detach();
+            tail.clear();
+            tail.addAll(sorted);
+            selection.attach(internalList, listStart);
+            listGeneration++;
+            mFileListAdapter.notifyDataSetChanged();
+        });
+    }
+
     private boolean validateOffsetPath() {
         String offset_path = properties.offset.getAbsolutePath();
         String root_path = properties.root.getAbsolutePath();
@@ -220,21 +476,12 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
             FileListItem fitem = internalList.get(i);
             if (fitem.isDirectory()) {
                 if (new File(fitem.getLocation()).canRead()) {
+                    exitSearch();
                     File currLoc = new File(fitem.getLocation());
                     dname.setText(currLoc.getName());
                     setTitle();
                     dir_path.setText(currLoc.getAbsolutePath());
-                    internalList.clear();
-                    if (!currLoc.getName().equals(properties.root.getName())) {
-                        FileListItem parent = new FileListItem();
-                        parent.setFilename(context.getString(R.string.label_parent_dir));
-                        parent.setDirectory(true);
-                        parent.setLocation(currLoc.getParentFile().getAbsolutePath());
-                        parent.setTime(currLoc.lastModified());
-                        internalList.add(parent);
-                    }
-                    internalList = Utility.prepareFileListEntries(internalList, currLoc, filter, properties.show_hidden_files);
-                    mFileListAdapter.notifyDataSetChanged();
+                    loadDirectory(currLoc, !currLoc.getName().equals(properties.root.getName()));
                 } else {
                     Toast.makeText(context, R.string.error_dir_access, Toast.LENGTH_SHORT).show();
                 }
@@ -252,6 +499,7 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
     public void setProperties(DialogProperties properties) {
         this.properties = properties;
         filter = new ExtensionFilter(properties);
+        selection = new SelectionModel(properties);
     }
 
     public void setDialogSelectionListener(DialogSelectionListener callbacks) {
@@ -287,91 +535,55 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
     public void markFiles(List<String> paths) {
         if (paths != null && paths.size() > 0) {
             if (properties.selection_mode == DialogConfigs.SINGLE_MODE) {
-                File temp = new File(paths.get(0));
-                switch (properties.selection_type) {
-                    case DialogConfigs.DIR_SELECT:
-                        if (temp.exists() && temp.isDirectory()) {
-                            FileListItem item = new FileListItem();
-                            item.setFilename(temp.getName());
-                            item.setDirectory(temp.isDirectory());
-                            item.setMarked(true);
-                            item.setTime(temp.lastModified());
-                            item.setLocation(temp.getAbsolutePath());
-                            MarkedItemList.addSelectedItem(item);
-                        }
-                        break;
-
-                    case DialogConfigs.FILE_SELECT:
-                        if (temp.exists() && temp.isFile()) {
-                            FileListItem item = new FileListItem();
-                            item.setFilename(temp.getName());
-                            item.setDirectory(temp.isDirectory());
-                            item.setMarked(true);
-                            item.setTime(temp.lastModified());
-                            item.setLocation(temp.getAbsolutePath());
-                            MarkedItemList.addSelectedItem(item);
-                        }
-                        break;
-
-                    case DialogConfigs.FILE_AND_DIR_SELECT:
-                        if (temp.exists()) {
-                            FileListItem item = new FileListItem();
-                            item.setFilename(temp.getName());
-                            item.setDirectory(temp.isDirectory());
-                            item.setMarked(true);
-                            item.setTime(temp.lastModified());
-                            item.setLocation(temp.getAbsolutePath());
-                            MarkedItemList.addSelectedItem(item);
-                        }
-                        break;
-                }
+                markFile(new File(paths.get(0)));
             } else {
                 for (String path : paths) {
-                    switch (properties.selection_type) {
-                        case DialogConfigs.DIR_SELECT:
-                            File temp = new File(path);
-                            if (temp.exists() && temp.isDirectory()) {
-                                FileListItem item = new FileListItem();
-                                item.setFilename(temp.getName());
-                                item.setDirectory(temp.isDirectory());
-                                item.setMarked(true);
-                                item.setTime(temp.lastModified());
-                                item.setLocation(temp.getAbsolutePath());
-                                MarkedItemList.addSelectedItem(item);
-                            }
-                            break;
-
-                        case DialogConfigs.FILE_SELECT:
-                            temp = new File(path);
-                            if (temp.exists() && temp.isFile()) {
-                                FileListItem item = new FileListItem();
-                                item.setFilename(temp.getName());
-                                item.setDirectory(temp.isDirectory());
-                                item.setMarked(true);
-                                item.setTime(temp.lastModified());
-                                item.setLocation(temp.getAbsolutePath());
-                                MarkedItemList.addSelectedItem(item);
-                            }
-                            break;
-
-                        case DialogConfigs.FILE_AND_DIR_SELECT:
-                            temp = new File(path);
-                            if (temp.exists() && (temp.isFile() || temp.isDirectory())) {
-                                FileListItem item = new FileListItem();
-                                item.setFilename(temp.getName());
-                                item.setDirectory(temp.isDirectory());
-                                item.setMarked(true);
-                                item.setTime(temp.lastModified());
-                                item.setLocation(temp.getAbsolutePath());
-                                MarkedItemList.addSelectedItem(item);
-                            }
-                            break;
-                    }
+                    markFile(new File(path));
                 }
             }
         }
     }
 
+    private void markFile(File temp) {
+        switch (properties.selection_type) {
+            case DialogConfigs.DIR_SELECT:
+                if (temp.exists() && temp.isDirectory()) {
+                    selection.addPath(temp.getAbsolutePath());
+                }
+                break;
+
+            case DialogConfigs.FILE_SELECT:
+                if (temp.exists() && temp.isFile()) {
+                    selection.addPath(temp.getAbsolutePath());
+                }
+                break;
+
+            case DialogConfigs.FILE_AND_DIR_SELECT:
+                if (temp.exists()) {
+                    selection.addPath(temp.getAbsolutePath());
+                }
+                break;
+        }
+    }
+
+    /**
+     * Selects every selectable entry of the current listing. Multi mode only.
+     */
+    public void selectAll() {
+        selection.selectAll();
+        onSelectionChanged();
+        mFileListAdapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Inverts the selection within the current listing. Multi mode only.
+     */
+    public void invertSelection() {
+        selection.invert();
+        onSelectionChanged();
+        mFileListAdapter.notifyDataSetChanged();
+    }
+
     @Override
     public void show() {
         if (!Utility.checkStorageAccessPermissions(context)) {
@@ -383,7 +595,7 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
             positiveBtnNameStr = positiveBtnNameStr == null ?
                     context.getResources().getString(R.string.choose_button_label) : positiveBtnNameStr;
             select.setText(positiveBtnNameStr);
-            int size = MarkedItemList.getFileCount();
+            int size = selection.getCount();
             if (size == 0) {
                 select.setText(positiveBtnNameStr);
             } else {
@@ -395,6 +607,12 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
 
     @Override
     public void onBackPressed() {
+        if (searching) {
+            exitSearch();
+            loadDirectory(currentDir, currentWithParent);
+            setTitle();
+            return;
+        }
         //currentDirName is dependent on dname
         String currentDirName = dname.getText().toString();
         if (internalList.size() > 0) {
@@ -406,17 +624,7 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
             } else {
                 dname.setText(currLoc.getName());
                 dir_path.setText(currLoc.getAbsolutePath());
-                internalList.clear();
-                if (!currLoc.getName().equals(properties.root.getName())) {
-                    FileListItem parent = new FileListItem();
-                    parent.setFilename(context.getString(R.string.label_parent_dir));
-                    parent.setDirectory(true);
-                    parent.setLocation(currLoc.getParentFile().getAbsolutePath());
-                    parent.setTime(currLoc.lastModified());
-                    internalList.add(parent);
-                }
-                internalList = Utility.prepareFileListEntries(internalList, currLoc, filter, properties.show_hidden_files);
-                mFileListAdapter.notifyDataSetChanged();
+                loadDirectory(currLoc, !currLoc.getName().equals(properties.root.getName()));
             }
             setTitle();
         } else {
@@ -426,7 +634,13 @@ public class FilePickerDialog extends Dialog implements AdapterView.OnItemClickL
 
     @Override
     public void dismiss() {
-        MarkedItemList.clearSelectionList();
+        if (directoryLoader != null) {
+            directoryLoader.cancel();
+            directoryLoader = null;
+        }
+        exitSearch();
+        selection.detach();
+        selection.clear();
         internalList.clear();
         super.dismiss();
     }